@@ -1,5 +1,12 @@
 package com.realdeal.backend;
 
+import com.realdeal.backend.exp.config.ExpLedgerProperties;
+import com.realdeal.backend.genre.config.GenreCatalogProperties;
+import com.realdeal.backend.genre.config.GenreLeaderboardProperties;
+import com.realdeal.backend.post.config.HotRankingProperties;
+import com.realdeal.backend.post.config.ReactionCounterProperties;
+import com.realdeal.backend.post.config.ReactionMembershipProperties;
+import com.realdeal.backend.recommendation.config.RecommendationProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -7,6 +14,15 @@ import org.springframework.cache.annotation.EnableCaching;
 
 @SpringBootApplication
 @EnableCaching
+@EnableConfigurationProperties({
+	ExpLedgerProperties.class,
+	GenreCatalogProperties.class,
+	GenreLeaderboardProperties.class,
+	HotRankingProperties.class,
+	ReactionCounterProperties.class,
+	ReactionMembershipProperties.class,
+	RecommendationProperties.class
+})
 public class BackendApplication {
 
 	public static void main(String[] args) {
@@ -1,12 +1,58 @@
 package com.realdeal.backend.authentication.repository;
 
 import com.realdeal.backend.authentication.model.UserProfile;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
 public interface UserProfileRepository extends JpaRepository<UserProfile, String> {
   boolean existsByUsername(String username);
   boolean existsByEmail(String email);
   boolean existsByUserId(String userId);
-}
\ No newline at end of file
+
+  /* ---------- username suggestions (search-as-you-type) ---------- */
+
+  interface NameRow {
+    String getUserId();
+    String getUsername();
+    Integer getReputationScore();
+  }
+
+  /** Every user's name, streamed; must run inside a (read-only) transaction. */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+  @Query("SELECT u.userId AS userId, u.username AS username, u.reputationScore AS reputationScore "
+       + "FROM UserProfile u")
+  Stream<NameRow> streamNameRows();
+
+  /* ---------- EXP ledger ---------- */
+
+  interface ExpRow {
+    int getExperience();
+    int getLevel();
+  }
+
+  /** Adds a merged EXP delta atomically; returns the new experience and the stored level. */
+  @Query(value = "UPDATE users SET experience = experience + :delta WHERE user_id = :userId "
+       + "RETURNING experience AS \"experience\", level AS \"level\"", nativeQuery = true)
+  Optional<ExpRow> addExperience(@Param("userId") String userId, @Param("delta") int delta);
+
+  @Modifying
+  @Query("UPDATE UserProfile u SET u.level = :level WHERE u.userId = :userId")
+  int updateLevel(@Param("userId") String userId, @Param("level") int level);
+
+  /** Marks today's daily bonus as granted; 1 only for the first call of the day. */
+  @Modifying
+  @Query("UPDATE UserProfile u SET u.lastDailyExp = :today "
+       + "WHERE u.userId = :userId AND (u.lastDailyExp IS NULL OR u.lastDailyExp <> :today)")
+  int claimDailyExp(@Param("userId") String userId, @Param("today") LocalDate today);
+}
@@ -2,22 +2,28 @@ package com.realdeal.backend.authentication.service;
 
 import com.realdeal.backend.authentication.model.UserProfile;
 import com.realdeal.backend.authentication.repository.UserProfileRepository;
+import com.realdeal.backend.search.service.SuggestionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.http.HttpStatus;
+import java.util.Collection;
 import java.util.Map;
 import java.util.List;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class UserProfileService {
 
   private final UserProfileRepository userProfileRepository;
+  private final SuggestionService suggestionService;
 
   @Autowired
-  public UserProfileService(UserProfileRepository userProfileRepository) {
+  public UserProfileService(UserProfileRepository userProfileRepository,
+      SuggestionService suggestionService) {
     this.userProfileRepository = userProfileRepository;
+    this.suggestionService = suggestionService;
   }
 
   public boolean ifUserExists(String userId) {
@@ -46,6 +52,22 @@ public class UserProfileService {
         ));
   }
 
+  /**
+   * Batch-load full profiles (username, level, ...) keyed by user id.
+   * Missing ids are simply absent from the returned map.
+   */
+  public Map<String, UserProfile> getProfilesByUserIds(Collection<String> userIds) {
+    if (userIds.isEmpty()) {
+      return Map.of();
+    }
+    return userProfileRepository.findAllById(userIds).stream()
+        .collect(Collectors.toMap(
+            UserProfile::getUserId,
+            Function.identity(),
+            (existing, replacement) -> existing
+        ));
+  }
+
   private void validateUsername(String username) {
     if (username == null || username.isEmpty()) {
       throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Username is required");
@@ -81,7 +103,9 @@ public class UserProfileService {
     userProfile.setReputationScore(0);
     userProfile.setReviewerLevel("Beginner Reviewer");
 
-    return userProfileRepository.save(userProfile);
+    UserProfile saved = userProfileRepository.save(userProfile);
+    suggestionService.userChanged(saved);
+    return saved;
   }
 
   public UserProfile updateUsername(String userId, UserProfile updatedProfile) {
@@ -98,7 +122,9 @@ public class UserProfileService {
       }
       existingProfile.setUsername(updatedProfile.getUsername());
     }
-    return userProfileRepository.save(existingProfile);
+    UserProfile saved = userProfileRepository.save(existingProfile);
+    suggestionService.userChanged(saved);
+    return saved;
   }
 
 }
\ No newline at end of file
@@ -0,0 +1,105 @@
+package com.realdeal.backend.cache.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-cache TTLs and near-cache limits, bound from {@code realdeal.cache.*}.
+ *
+ * <pre>
+ * realdeal.cache.defaults.ttl=10m
+ * realdeal.cache.specs.postsContent.ttl=5m
+ * realdeal.cache.specs.postsContent.local-ttl=15s
+ * realdeal.cache.specs.postsContent.local-max-size=500
+ * </pre>
+ *
+ * Unset values fall back to {@link #defaults}; a {@code local-max-size} of 0
+ * disables the in-JVM tier for that cache.
+ */
+@Data
+@ConfigurationProperties(prefix = "realdeal.cache")
+public class CacheProperties {
+
+  /** Redis pub/sub channel used to drop near-cache entries on other nodes. */
+  private String invalidationChannel = "realdeal:cache:invalidate";
+
+  /** Redis pub/sub channel announcing bumped key generations. */
+  private String generationChannel = "realdeal:cache:generation";
+
+  /**
+   * How long an untouched generation counter lives in Redis. Must outlive
+   * every cache TTL, so a counter that expires and restarts at 0 can never
+   * collide with entries written under the old 0.
+   */
+  private Duration generationTtl = Duration.ofDays(1);
+
+  /** How long a node trusts its local copy of a generation without a broadcast. */
+  private Duration generationLocalTtl = Duration.ofSeconds(5);
+
+  /**
+   * XFetch factor for probabilistic early refresh of {@code sync = true}
+   * caches; higher refreshes earlier, 0 turns it off.
+   */
+  private double earlyRefreshBeta = 1.0;
+
+  /** Also serialize loads of the same key across nodes with a Redis lock. */
+  private boolean distributedLock = false;
+
+  /** Upper bound on how long a crashed loader can hold the lock. */
+  private Duration lockTtl = Duration.ofSeconds(10);
+
+  /** How long a node that lost the lock waits for the winner's value before loading itself. */
+  private Duration lockWait = Duration.ofSeconds(2);
+
+  /** Wire format of Redis cache values. */
+  private Serializer serializer = Serializer.COMPACT;
+
+  /** Compact values larger than this many bytes are deflated; 0 disables compression. */
+  private int compressionThreshold = 1024;
+
+  public enum Serializer {
+    /** Jackson with embedded type info; readable with redis-cli. */
+    JSON,
+    /** {@link com.realdeal.backend.cache.serializer.CompactCacheSerializer}, JSON for anything else. */
+    COMPACT
+  }
+
+  private Spec defaults = new Spec(Duration.ofMinutes(10), Duration.ofSeconds(30), 1_000L);
+
+  private Map<String, Spec> specs = new HashMap<>();
+
+  /** Effective spec for a cache: its own overrides on top of the defaults. */
+  public Spec specFor(String cacheName) {
+    Spec own = specs.get(cacheName);
+    if (own == null) {
+      return defaults;
+    }
+    return new Spec(
+        own.getTtl() != null ? own.getTtl() : defaults.getTtl(),
+        own.getLocalTtl() != null ? own.getLocalTtl() : defaults.getLocalTtl(),
+        own.getLocalMaxSize() != null ? own.getLocalMaxSize() : defaults.getLocalMaxSize());
+  }
+
+  @Data
+  public static class Spec {
+    /** Redis (L2) time-to-live. */
+    private Duration ttl;
+    /** In-JVM (L1) time-to-live; keep it at or below {@link #ttl}. */
+    private Duration localTtl;
+    /** Maximum number of L1 entries for the cache. */
+    private Long localMaxSize;
+
+    public Spec() {
+    }
+
+    public Spec(Duration ttl, Duration localTtl, Long localMaxSize) {
+      this.ttl = ttl;
+      this.localTtl = localTtl;
+      this.localMaxSize = localMaxSize;
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package com.realdeal.backend.cache.config;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * {@code SET key token NX PX ttl} lock so only one node at a time loads a
+ * given cache key. The TTL bounds how long a crashed holder can block the
+ * others; release only deletes the key if it still holds our token.
+ */
+public class RedisLoadLock implements TwoTierCache.LoadLock {
+
+  private static final String KEY_PREFIX = "realdeal:cache:lock:";
+
+  private static final RedisScript<Long> RELEASE = new DefaultRedisScript<>(
+      "if redis.call('get', KEYS[1]) == ARGV[1] then "
+          + "return redis.call('del', KEYS[1]) else return 0 end",
+      Long.class);
+
+  private final StringRedisTemplate redis;
+  private final Duration ttl;
+  private final Duration wait;
+
+  public RedisLoadLock(StringRedisTemplate redis, Duration ttl, Duration wait) {
+    this.redis = redis;
+    this.ttl = ttl;
+    this.wait = wait;
+  }
+
+  @Override
+  public String tryAcquire(String key) {
+    String token = UUID.randomUUID().toString();
+    Boolean acquired = redis.opsForValue().setIfAbsent(KEY_PREFIX + key, token, ttl);
+    return Boolean.TRUE.equals(acquired) ? token : null;
+  }
+
+  @Override
+  public void release(String key, String token) {
+    redis.execute(RELEASE, List.of(KEY_PREFIX + key), token);
+  }
+
+  @Override
+  public Duration maxWait() {
+    return wait;
+  }
+}
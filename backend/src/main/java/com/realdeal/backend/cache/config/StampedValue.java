@@ -0,0 +1,59 @@
+package com.realdeal.backend.cache.config;
+
+import java.util.Objects;
+
+/**
+ * What {@link TwoTierCache} actually stores: the cached value plus when it
+ * was loaded and how long the load took, which is what the probabilistic
+ * early refresh needs to decide when to recompute.
+ * <p>
+ * Not final on purpose: the JSON serializer only writes type ids for
+ * non-final classes.
+ */
+public class StampedValue {
+
+  private Object value;
+  private long loadedAt;
+  private long computeMillis;
+
+  public StampedValue() {
+  }
+
+  public StampedValue(Object value, long loadedAt, long computeMillis) {
+    this.value = value;
+    this.loadedAt = loadedAt;
+    this.computeMillis = computeMillis;
+  }
+
+  public Object getValue() {
+    return value;
+  }
+
+  /** Epoch millis at which the value was loaded from the source. */
+  public long getLoadedAt() {
+    return loadedAt;
+  }
+
+  /** How long the loader took, in millis. */
+  public long getComputeMillis() {
+    return computeMillis;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof StampedValue other)) {
+      return false;
+    }
+    return loadedAt == other.loadedAt
+        && computeMillis == other.computeMillis
+        && Objects.equals(value, other.value);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(value, loadedAt, computeMillis);
+  }
+}
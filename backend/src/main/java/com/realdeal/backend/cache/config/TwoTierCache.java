@@ -0,0 +1,428 @@
+package com.realdeal.backend.cache.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A Spring {@link Cache} that keeps a bounded Caffeine near-cache (L1) in
+ * front of the shared Redis cache (L2).
+ * <p>
+ * Reads try L1 first and fall back to L2, promoting hits into L1. Writes go
+ * to both tiers. Evictions and clears are applied to both tiers and then
+ * broadcast so other nodes drop their L1 copies as well.
+ * <p>
+ * For {@code @Cacheable(sync = true)} methods ({@link #get(Object, Callable)})
+ * the cache also protects the database from stampedes:
+ * <ul>
+ *   <li>single flight: concurrent misses on one key in this JVM wait for a
+ *       single loader call;</li>
+ *   <li>optionally, a {@link LoadLock} extends that across nodes;</li>
+ *   <li>probabilistic early refresh (XFetch): shortly before the Redis entry
+ *       expires, one request recomputes it while everyone else keeps getting
+ *       the current value, so the entry never actually runs out under load.</li>
+ * </ul>
+ * Values are stored as {@link StampedValue}s so every node knows how old an
+ * entry is and how expensive it was to compute.
+ * <p>
+ * {@link #getAll} reads many keys at once: L1 first, then the L2 misses in a
+ * single {@link BulkReader} round trip. {@link #putAll} writes many entries
+ * to L2 in a single {@link BulkWriter} round trip.
+ */
+@Slf4j
+public class TwoTierCache implements Cache {
+
+  /** Receives local evictions so they can be broadcast to the other nodes. */
+  public interface InvalidationPublisher {
+    void evicted(String cacheName, String key);
+
+    void cleared(String cacheName);
+  }
+
+  /** Cross-node mutual exclusion for loading one cache key. */
+  public interface LoadLock {
+    /** @return a token to release with, or {@code null} if another node holds the lock */
+    String tryAcquire(String key);
+
+    void release(String key, String token);
+
+    /** How long a node that lost the race polls L2 for the winner's value. */
+    Duration maxWait();
+  }
+
+  /** Reads several L2 entries in one round trip. */
+  public interface BulkReader {
+    /** @return stored values in key order, {@code null} where there is no entry */
+    List<Object> readAll(Cache remote, List<Object> keys);
+  }
+
+  /** Writes several L2 entries in one round trip. */
+  public interface BulkWriter {
+    /** Store each value under the key at the same index, expiring after {@code ttl} (never, if zero). */
+    void writeAll(Cache remote, List<Object> keys, List<Object> values, Duration ttl);
+  }
+
+  private static final long LOCK_POLL_MILLIS = 25;
+
+  private final String name;
+  private final com.github.benmanes.caffeine.cache.Cache<String, Object> local;
+  private final Cache remote;
+  private final InvalidationPublisher publisher;
+  private final LoadLock loadLock;
+  private final BulkReader bulkReader;
+  private final BulkWriter bulkWriter;
+  private final long remoteTtlMillis;
+  private final double earlyRefreshBeta;
+  private final ConcurrentMap<String, CompletableFuture<Object>> inflight = new ConcurrentHashMap<>();
+
+  /**
+   * The tiers and the publisher are required; the rest may be {@code null}
+   * (or {@code 0}) to leave that feature off.
+   *
+   * @param publisher        receives evictions and clears to broadcast to the other nodes
+   * @param loadLock         cross-node load lock, or {@code null} for per-JVM single flight only
+   * @param remoteTtl        TTL of the L2 entries, needed for early refresh and {@link #putAll}
+   * @param earlyRefreshBeta XFetch aggressiveness; 1.0 is the usual value, 0 disables it
+   * @param bulkReader       multi-key L2 reader for {@link #getAll}, or {@code null} to read
+   *                         the misses one by one
+   * @param bulkWriter       multi-key L2 writer for {@link #putAll}, or {@code null} to write
+   *                         the entries one by one
+   */
+  public TwoTierCache(String name,
+      com.github.benmanes.caffeine.cache.Cache<String, Object> local,
+      Cache remote,
+      InvalidationPublisher publisher,
+      LoadLock loadLock,
+      Duration remoteTtl,
+      double earlyRefreshBeta,
+      BulkReader bulkReader,
+      BulkWriter bulkWriter) {
+    this.name = name;
+    this.local = local;
+    this.remote = remote;
+    this.publisher = publisher;
+    this.loadLock = loadLock;
+    this.remoteTtlMillis = remoteTtl != null ? remoteTtl.toMillis() : 0;
+    this.earlyRefreshBeta = earlyRefreshBeta;
+    this.bulkReader = bulkReader;
+    this.bulkWriter = bulkWriter;
+  }
+
+  /** L1 key; matches the string form Redis uses and what we broadcast. */
+  static String localKey(Object key) {
+    return String.valueOf(key);
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public Object getNativeCache() {
+    return local;
+  }
+
+  public Cache getRemote() {
+    return remote;
+  }
+
+  @Override
+  public ValueWrapper get(Object key) {
+    Object stored = lookup(key);
+    return stored != null ? new SimpleValueWrapper(unwrap(stored)) : null;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T get(Object key, Class<T> type) {
+    ValueWrapper wrapper = get(key);
+    Object value = wrapper != null ? wrapper.get() : null;
+    if (value != null && type != null && !type.isInstance(value)) {
+      throw new IllegalStateException(
+          "Cached value is not of required type [" + type.getName() + "]: " + value);
+    }
+    return (T) value;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T get(Object key, Callable<T> valueLoader) {
+    Object stored = lookup(key);
+    if (stored == null) {
+      return (T) load(key, valueLoader, null);
+    }
+    if (stored instanceof StampedValue stamped && shouldRefreshEarly(stamped)) {
+      return (T) load(key, valueLoader, stamped);
+    }
+    return (T) unwrap(stored);
+  }
+
+  /**
+   * Values for every key that is cached in either tier; keys without an
+   * entry are left out. L2 hits are promoted into L1.
+   */
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    Map<Object, Object> found = new HashMap<>();
+    List<Object> misses = new ArrayList<>();
+    for (Object key : new LinkedHashSet<>(keys)) {
+      Object value = local.getIfPresent(localKey(key));
+      if (value != null) {
+        found.put(key, unwrap(value));
+      } else {
+        misses.add(key);
+      }
+    }
+    if (misses.isEmpty()) {
+      return found;
+    }
+
+    List<Object> stored = bulkReader != null ? bulkReader.readAll(remote, misses) : readEach(misses);
+    for (int i = 0; i < misses.size(); i++) {
+      Object value = stored.get(i);
+      if (value != null) {
+        local.put(localKey(misses.get(i)), value);
+        found.put(misses.get(i), unwrap(value));
+      }
+    }
+    return found;
+  }
+
+  private List<Object> readEach(List<Object> keys) {
+    List<Object> values = new ArrayList<>(keys.size());
+    for (Object key : keys) {
+      ValueWrapper wrapper = remote.get(key);
+      values.add(wrapper != null ? wrapper.get() : null);
+    }
+    return values;
+  }
+
+  @Override
+  public void put(Object key, Object value) {
+    if (value == null) {
+      remote.put(key, null);
+      return;
+    }
+    StampedValue stamped = new StampedValue(value, System.currentTimeMillis(), 0);
+    remote.put(key, stamped);
+    local.put(localKey(key), stamped);
+  }
+
+  /** {@link #put} for many entries, with the L2 writes in one round trip; null values are skipped. */
+  public void putAll(Map<?, ?> entries) {
+    long now = System.currentTimeMillis();
+    List<Object> keys = new ArrayList<>(entries.size());
+    List<Object> values = new ArrayList<>(entries.size());
+    entries.forEach((key, value) -> {
+      if (value != null) {
+        keys.add(key);
+        values.add(new StampedValue(value, now, 0));
+      }
+    });
+    if (keys.isEmpty()) {
+      return;
+    }
+
+    if (bulkWriter != null) {
+      bulkWriter.writeAll(remote, keys, values, Duration.ofMillis(remoteTtlMillis));
+    } else {
+      for (int i = 0; i < keys.size(); i++) {
+        remote.put(keys.get(i), values.get(i));
+      }
+    }
+    for (int i = 0; i < keys.size(); i++) {
+      local.put(localKey(keys.get(i)), values.get(i));
+    }
+  }
+
+  @Override
+  public ValueWrapper putIfAbsent(Object key, Object value) {
+    Object toStore = value != null ? new StampedValue(value, System.currentTimeMillis(), 0) : null;
+    ValueWrapper existing = remote.putIfAbsent(key, toStore);
+    Object current = existing != null ? existing.get() : toStore;
+    if (current != null) {
+      local.put(localKey(key), current);
+    }
+    return existing != null ? new SimpleValueWrapper(unwrap(existing.get())) : null;
+  }
+
+  @Override
+  public void evict(Object key) {
+    remote.evict(key);
+    local.invalidate(localKey(key));
+    publisher.evicted(name, localKey(key));
+  }
+
+  @Override
+  public void clear() {
+    remote.clear();
+    local.invalidateAll();
+    publisher.cleared(name);
+  }
+
+  /** Drop an L1 entry in response to another node's eviction. */
+  void evictLocal(String key) {
+    local.invalidate(key);
+  }
+
+  /** Drop all L1 entries in response to another node's clear. */
+  void clearLocal() {
+    local.invalidateAll();
+  }
+
+  /* ------------------------------- internals ------------------------------- */
+
+  /** Stored form (usually a {@link StampedValue}) from L1, else L2 promoted into L1. */
+  private Object lookup(Object key) {
+    Object value = local.getIfPresent(localKey(key));
+    if (value != null) {
+      return value;
+    }
+
+    ValueWrapper wrapper = remote.get(key);
+    if (wrapper == null || wrapper.get() == null) {
+      return null;
+    }
+    local.put(localKey(key), wrapper.get());
+    return wrapper.get();
+  }
+
+  /** Entries written before values were stamped are returned as they are. */
+  private static Object unwrap(Object stored) {
+    return stored instanceof StampedValue stamped ? stamped.getValue() : stored;
+  }
+
+  /**
+   * XFetch: recompute early with a probability that rises as expiry nears,
+   * scaled by how long the value took to compute.
+   */
+  boolean shouldRefreshEarly(StampedValue stamped) {
+    if (earlyRefreshBeta <= 0 || remoteTtlMillis <= 0) {
+      return false;
+    }
+    double random = 1.0 - ThreadLocalRandom.current().nextDouble();   // (0, 1]
+    double head = -stamped.getComputeMillis() * earlyRefreshBeta * Math.log(random);
+    return System.currentTimeMillis() + head >= stamped.getLoadedAt() + remoteTtlMillis;
+  }
+
+  /**
+   * Single flight per key. On a miss ({@code stale == null}) followers wait
+   * for the leader's result; on an early refresh they keep the stale value.
+   */
+  private Object load(Object key, Callable<?> loader, StampedValue stale) {
+    String localKey = localKey(key);
+    CompletableFuture<Object> mine = new CompletableFuture<>();
+    CompletableFuture<Object> running = inflight.putIfAbsent(localKey, mine);
+    if (running != null) {
+      return stale != null ? stale.getValue() : await(running);
+    }
+
+    try {
+      Object value = loadWithLock(key, loader, stale);
+      mine.complete(value);
+      return value;
+    } catch (RuntimeException e) {
+      mine.completeExceptionally(e);
+      if (stale != null) {
+        log.warn("Early refresh of {}::{} failed, serving cached value: {}", name, key, e.getMessage());
+        return stale.getValue();
+      }
+      throw e;
+    } finally {
+      inflight.remove(localKey, mine);
+    }
+  }
+
+  private static Object await(CompletableFuture<Object> running) {
+    try {
+      return running.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;   // the leader's ValueRetrievalException, unwrapped by Spring
+      }
+      throw e;
+    }
+  }
+
+  private Object loadWithLock(Object key, Callable<?> loader, StampedValue stale) {
+    if (loadLock == null) {
+      return loadAndStore(key, loader);
+    }
+
+    String lockKey = name + "::" + localKey(key);
+    String token = loadLock.tryAcquire(lockKey);
+    if (token == null) {
+      if (stale != null) {
+        return stale.getValue();   // another node is already refreshing it
+      }
+      Object winner = awaitRemote(key);
+      return winner != null ? winner : loadAndStore(key, loader);
+    }
+
+    try {
+      if (stale == null) {
+        // the previous holder may have filled L2 while we were acquiring
+        ValueWrapper filled = remote.get(key);
+        if (filled != null && filled.get() != null) {
+          local.put(localKey(key), filled.get());
+          return unwrap(filled.get());
+        }
+      }
+      return loadAndStore(key, loader);
+    } finally {
+      loadLock.release(lockKey, token);
+    }
+  }
+
+  /** Poll L2 for the value another node is loading; {@code null} if it doesn't show up in time. */
+  private Object awaitRemote(Object key) {
+    long deadline = System.currentTimeMillis() + loadLock.maxWait().toMillis();
+    while (System.currentTimeMillis() < deadline) {
+      try {
+        Thread.sleep(LOCK_POLL_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return null;
+      }
+      ValueWrapper wrapper = remote.get(key);
+      if (wrapper != null && wrapper.get() != null) {
+        local.put(localKey(key), wrapper.get());
+        return unwrap(wrapper.get());
+      }
+    }
+    return null;
+  }
+
+  private Object loadAndStore(Object key, Callable<?> loader) {
+    long start = System.nanoTime();
+    Object value;
+    try {
+      value = loader.call();
+    } catch (Exception e) {
+      throw new ValueRetrievalException(key, loader, e);
+    }
+    if (value == null) {
+      return null;   // null values are not cached
+    }
+
+    long computeMillis = (System.nanoTime() - start) / 1_000_000;
+    StampedValue stamped = new StampedValue(value, System.currentTimeMillis(), computeMillis);
+    remote.put(key, stamped);
+    local.put(localKey(key), stamped);
+    return value;
+  }
+}
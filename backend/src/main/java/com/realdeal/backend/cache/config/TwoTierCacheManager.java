@@ -0,0 +1,218 @@
+package com.realdeal.backend.cache.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Wraps the {@link RedisCacheManager} so every cache gets a per-JVM Caffeine
+ * near-cache sized and timed by {@link CacheProperties}.
+ * <p>
+ * Evictions are published on a Redis channel as
+ * {@code nodeId|E|cacheName|key} (or {@code nodeId|C|cacheName} for a clear);
+ * each node listens on the channel and drops its own L1 entries.
+ * <p>
+ * Every cache is wrapped, even with the near-cache turned off (L1 size 0),
+ * so that single-flight loading and early refresh apply to all of them.
+ * <p>
+ * Multi-key reads ({@link TwoTierCache#getAll}) go to Redis as one
+ * {@code MGET}, and multi-key writes ({@link TwoTierCache#putAll}) as one
+ * pipeline of {@code SET ... PX ttl}, using the same key prefix and value
+ * serializer as the wrapped {@link RedisCache}.
+ */
+@Slf4j
+public class TwoTierCacheManager implements CacheManager, MessageListener,
+    TwoTierCache.InvalidationPublisher, TwoTierCache.BulkReader, TwoTierCache.BulkWriter {
+
+  private static final String EVICT = "E";
+  private static final String CLEAR = "C";
+
+  private final RedisCacheManager remote;
+  private final CacheProperties properties;
+  private final StringRedisTemplate redis;
+  private final TwoTierCache.LoadLock loadLock;
+  private final String nodeId = UUID.randomUUID().toString();
+  private final ConcurrentMap<String, Cache> caches = new ConcurrentHashMap<>();
+
+  public TwoTierCacheManager(RedisCacheManager remote,
+      CacheProperties properties,
+      StringRedisTemplate redis) {
+    this.remote = remote;
+    this.properties = properties;
+    this.redis = redis;
+    this.loadLock = properties.isDistributedLock()
+        ? new RedisLoadLock(redis, properties.getLockTtl(), properties.getLockWait())
+        : null;
+  }
+
+  @Override
+  public Cache getCache(String name) {
+    Cache cache = caches.get(name);
+    if (cache != null) {
+      return cache;
+    }
+    Cache created = createCache(name);
+    if (created == null) {
+      return null;
+    }
+    Cache existing = caches.putIfAbsent(name, created);
+    return existing != null ? existing : created;
+  }
+
+  @Override
+  public Collection<String> getCacheNames() {
+    Set<String> names = new LinkedHashSet<>(remote.getCacheNames());
+    names.addAll(caches.keySet());
+    return names;
+  }
+
+  private Cache createCache(String name) {
+    Cache remoteCache = remote.getCache(name);
+    if (remoteCache == null) {
+      return null;
+    }
+
+    CacheProperties.Spec spec = properties.specFor(name);
+    long localMaxSize = spec.getLocalMaxSize() != null ? Math.max(0, spec.getLocalMaxSize()) : 0;
+
+    // maximumSize(0) keeps nothing: near-cache disabled for this cache
+    com.github.benmanes.caffeine.cache.Cache<String, Object> local = Caffeine.newBuilder()
+        .maximumSize(localMaxSize)
+        .expireAfterWrite(spec.getLocalTtl())
+        .build();
+    return new TwoTierCache(name, local, remoteCache, this,
+        loadLock, spec.getTtl(), properties.getEarlyRefreshBeta(), this, this);
+  }
+
+  /* ------------------------------ bulk reads ------------------------------ */
+
+  @Override
+  public List<Object> readAll(Cache remoteCache, List<Object> keys) {
+    if (!(remoteCache instanceof RedisCache redisCache)) {
+      List<Object> values = new ArrayList<>(keys.size());
+      for (Object key : keys) {
+        Cache.ValueWrapper wrapper = remoteCache.get(key);
+        values.add(wrapper != null ? wrapper.get() : null);
+      }
+      return values;
+    }
+
+    RedisCacheConfiguration config = redisCache.getCacheConfiguration();
+    byte[][] rawKeys = rawKeys(redisCache, keys);
+
+    List<byte[]> raw = redis.execute((RedisCallback<List<byte[]>>) connection ->
+        connection.stringCommands().mGet(rawKeys));
+    List<Object> values = new ArrayList<>(keys.size());
+    for (int i = 0; i < keys.size(); i++) {
+      byte[] bytes = raw != null ? raw.get(i) : null;
+      values.add(bytes != null ? config.getValueSerializationPair().read(ByteBuffer.wrap(bytes)) : null);
+    }
+    return values;
+  }
+
+  /* ------------------------------ bulk writes ------------------------------ */
+
+  @Override
+  public void writeAll(Cache remoteCache, List<Object> keys, List<Object> values, Duration ttl) {
+    if (!(remoteCache instanceof RedisCache redisCache)) {
+      for (int i = 0; i < keys.size(); i++) {
+        remoteCache.put(keys.get(i), values.get(i));
+      }
+      return;
+    }
+
+    RedisCacheConfiguration config = redisCache.getCacheConfiguration();
+    byte[][] rawKeys = rawKeys(redisCache, keys);
+    byte[][] rawValues = new byte[values.size()][];
+    for (int i = 0; i < rawValues.length; i++) {
+      ByteBuffer buffer = config.getValueSerializationPair().write(values.get(i));
+      rawValues[i] = new byte[buffer.remaining()];
+      buffer.get(rawValues[i]);
+    }
+
+    Expiration expiration = ttl.isZero() || ttl.isNegative()
+        ? Expiration.persistent()
+        : Expiration.milliseconds(ttl.toMillis());
+    redis.executePipelined((RedisCallback<Object>) connection -> {
+      for (int i = 0; i < rawKeys.length; i++) {
+        connection.stringCommands().set(rawKeys[i], rawValues[i], expiration, RedisStringCommands.SetOption.upsert());
+      }
+      return null;
+    });
+  }
+
+  /** Keys as the wrapped {@link RedisCache} stores them. */
+  private static byte[][] rawKeys(RedisCache redisCache, List<Object> keys) {
+    RedisCacheConfiguration config = redisCache.getCacheConfiguration();
+    String prefix = config.usePrefix() ? config.getKeyPrefixFor(redisCache.getName()) : "";
+    byte[][] rawKeys = new byte[keys.size()][];
+    for (int i = 0; i < rawKeys.length; i++) {
+      rawKeys[i] = (prefix + TwoTierCache.localKey(keys.get(i))).getBytes(StandardCharsets.UTF_8);
+    }
+    return rawKeys;
+  }
+
+  /* ------------------------- outgoing invalidations ------------------------- */
+
+  @Override
+  public void evicted(String cacheName, String key) {
+    publish(nodeId + '|' + EVICT + '|' + cacheName + '|' + key);
+  }
+
+  @Override
+  public void cleared(String cacheName) {
+    publish(nodeId + '|' + CLEAR + '|' + cacheName);
+  }
+
+  private void publish(String message) {
+    try {
+      redis.convertAndSend(properties.getInvalidationChannel(), message);
+    } catch (RuntimeException e) {
+      // Other nodes fall back to their local TTL; never fail the write path
+      log.warn("Could not publish cache invalidation '{}': {}", message, e.getMessage());
+    }
+  }
+
+  /* ------------------------- incoming invalidations ------------------------- */
+
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 4);
+    if (parts.length < 3 || nodeId.equals(parts[0])) {
+      return;   // malformed, or our own echo
+    }
+
+    Cache cache = caches.get(parts[2]);
+    if (!(cache instanceof TwoTierCache twoTier)) {
+      return;   // nothing cached locally under that name
+    }
+
+    if (CLEAR.equals(parts[1])) {
+      twoTier.clearLocal();
+    } else if (EVICT.equals(parts[1]) && parts.length == 4) {
+      twoTier.evictLocal(parts[3]);
+    }
+  }
+}
@@ -0,0 +1,494 @@
+package com.realdeal.backend.cache.serializer;
+
+import com.realdeal.backend.cache.config.StampedValue;
+import com.realdeal.backend.post.model.Comment;
+import com.realdeal.backend.post.model.Post;
+import com.realdeal.backend.post.model.PostImage;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Binary codec for the values this application actually caches: posts,
+ * comments, images, post ids, lists of those, booleans and longs, each
+ * optionally inside the {@link StampedValue} envelope the two-tier cache
+ * stores.
+ * <p>
+ * Every payload starts with one tag byte. Fields are written positionally
+ * with varints, so there are no field names and no class names; anything
+ * else is handed to the JSON fallback behind its own tag. Payloads bigger
+ * than {@code compressionThreshold} bytes are deflated and flagged by the
+ * high bit of the tag.
+ * <p>
+ * Entries written by the plain JSON serializer start with a printable
+ * character, which never collides with a tag, so they are still readable
+ * after switching serializers.
+ */
+public class CompactCacheSerializer implements RedisSerializer<Object> {
+
+  private static final int COMPRESSED = 0x80;
+
+  private static final byte TRUE = 0x01;
+  private static final byte FALSE = 0x02;
+  private static final byte LONG = 0x03;
+  private static final byte POST = 0x04;
+  private static final byte COMMENT = 0x05;
+  private static final byte POST_IMAGE = 0x06;
+  private static final byte LIST = 0x07;
+  private static final byte STAMPED = 0x08;
+  private static final byte ID = 0x09;
+  // COMMENT plus each comment's reply count; COMMENT entries are still read
+  private static final byte COUNTED_COMMENT = 0x0A;
+  private static final byte JSON = 0x0F;
+
+  private final RedisSerializer<Object> fallback;
+  private final int compressionThreshold;
+
+  /**
+   * @param fallback             serializer for values without a binary form
+   * @param compressionThreshold payload size (bytes) above which values are
+   *                             deflated; 0 or less disables compression
+   */
+  public CompactCacheSerializer(RedisSerializer<Object> fallback, int compressionThreshold) {
+    this.fallback = fallback;
+    this.compressionThreshold = compressionThreshold;
+  }
+
+  /* ------------------------------- encode ------------------------------- */
+
+  @Override
+  public byte[] serialize(Object value) throws SerializationException {
+    if (value == null) {
+      return new byte[0];
+    }
+
+    Out out = new Out();
+    if (isCompact(value)) {
+      write(out, value);
+    } else {
+      out.write(JSON);
+      out.writeBytes(fallback.serialize(value));
+    }
+
+    byte[] raw = out.toByteArray();
+    if (compressionThreshold <= 0 || raw.length <= compressionThreshold) {
+      return raw;
+    }
+    return deflate(raw);
+  }
+
+  /** Whether the value (and, for lists, every element) has a binary form. */
+  private static boolean isCompact(Object value) {
+    if (value instanceof List<?> list) {
+      for (Object element : list) {
+        if (element == null || element instanceof List || !isCompact(element)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    if (value instanceof StampedValue stamped) {
+      Object inner = stamped.getValue();
+      return inner != null && !(inner instanceof StampedValue) && isCompact(inner);
+    }
+    return value instanceof Boolean || value instanceof Long || value instanceof Post
+        || value instanceof Comment || value instanceof PostImage || value instanceof UUID;
+  }
+
+  private static void write(Out out, Object value) {
+    if (value instanceof Boolean b) {
+      out.write(b ? TRUE : FALSE);
+    } else if (value instanceof Long l) {
+      out.write(LONG);
+      out.writeVarLong(zigZag(l));
+    } else if (value instanceof Post post) {
+      out.write(POST);
+      writePost(out, post);
+    } else if (value instanceof Comment comment) {
+      out.write(COUNTED_COMMENT);
+      writeComment(out, comment);
+    } else if (value instanceof PostImage image) {
+      out.write(POST_IMAGE);
+      writeImage(out, image);
+    } else if (value instanceof UUID id) {
+      out.write(ID);
+      out.writeUuid(id);
+    } else if (value instanceof StampedValue stamped) {
+      out.write(STAMPED);
+      out.writeVarLong(stamped.getLoadedAt());
+      out.writeVarLong(stamped.getComputeMillis());
+      write(out, stamped.getValue());
+    } else if (value instanceof List<?> list) {
+      out.write(LIST);
+      out.writeVarLong(list.size());
+      for (Object element : list) {
+        write(out, element);
+      }
+    }
+  }
+
+  private static void writePost(Out out, Post post) {
+    out.writeUuid(post.getId());
+    out.writeString(post.getUserId());
+    out.writeString(post.getTitle());
+    out.writeString(post.getContent());
+    out.writeVarLong(zigZag(post.getLikesCount()));
+    out.writeVarLong(zigZag(post.getStarsCount()));
+    out.writeDateTime(post.getCreatedAt());
+
+    List<PostImage> images = post.getImages() != null ? post.getImages() : List.of();
+    out.writeVarLong(images.size());
+    for (PostImage image : images) {
+      writeImage(out, image);
+    }
+  }
+
+  private static void writeImage(Out out, PostImage image) {
+    out.writeUuid(image.getId());
+    out.writeVarLong(zigZag(image.getPosition()));
+    out.writeString(image.getUrl());
+  }
+
+  /** Post and parent are written as ids only, matching the detached copies we cache. */
+  private static void writeComment(Out out, Comment comment) {
+    out.writeUuid(comment.getId());
+    out.writeUuid(comment.getPost() != null ? comment.getPost().getId() : null);
+    out.writeUuid(comment.getParentComment() != null ? comment.getParentComment().getId() : null);
+    out.writeString(comment.getUserId());
+    out.writeString(comment.getContent());
+    out.writeVarLong(zigZag(comment.getLikesCount()));
+    out.writeVarLong(zigZag(comment.getReplyCount()));
+    out.writeDateTime(comment.getCreatedAt());
+
+    List<Comment> replies = comment.getReplies() != null ? comment.getReplies() : List.of();
+    out.writeVarLong(replies.size());
+    for (Comment reply : replies) {
+      writeComment(out, reply);
+    }
+  }
+
+  /* ------------------------------- decode ------------------------------- */
+
+  @Override
+  public Object deserialize(byte[] bytes) throws SerializationException {
+    if (bytes == null || bytes.length == 0) {
+      return null;
+    }
+
+    int tag = bytes[0] & 0xFF;
+    if (!isTag(tag & ~COMPRESSED)) {
+      return fallback.deserialize(bytes);   // entry written by the JSON serializer
+    }
+    if ((tag & COMPRESSED) != 0) {
+      bytes = inflate(bytes);
+    }
+
+    In in = new In(bytes);
+    if (bytes[0] == JSON) {
+      byte[] json = new byte[bytes.length - 1];
+      System.arraycopy(bytes, 1, json, 0, json.length);
+      return fallback.deserialize(json);
+    }
+    return read(in);
+  }
+
+  private static boolean isTag(int tag) {
+    return (tag >= TRUE && tag <= COUNTED_COMMENT) || tag == JSON;
+  }
+
+  private static Object read(In in) {
+    byte tag = in.read();
+    switch (tag) {
+      case TRUE:
+        return Boolean.TRUE;
+      case FALSE:
+        return Boolean.FALSE;
+      case LONG:
+        return unZigZag(in.readVarLong());
+      case POST:
+        return readPost(in);
+      case COMMENT:
+        return readComment(in, false);
+      case COUNTED_COMMENT:
+        return readComment(in, true);
+      case POST_IMAGE:
+        return readImage(in);
+      case ID:
+        return in.readUuid();
+      case LIST: {
+        int size = (int) in.readVarLong();
+        List<Object> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+          list.add(read(in));
+        }
+        return list;
+      }
+      case STAMPED: {
+        long loadedAt = in.readVarLong();
+        long computeMillis = in.readVarLong();
+        return new StampedValue(read(in), loadedAt, computeMillis);
+      }
+      default:
+        throw new SerializationException("Unknown cache value tag " + tag);
+    }
+  }
+
+  private static Post readPost(In in) {
+    Post post = new Post();
+    post.setId(in.readUuid());
+    post.setUserId(in.readString());
+    post.setTitle(in.readString());
+    post.setContent(in.readString());
+    post.setLikesCount((int) unZigZag(in.readVarLong()));
+    post.setStarsCount((int) unZigZag(in.readVarLong()));
+    post.setCreatedAt(in.readDateTime());
+
+    int count = (int) in.readVarLong();
+    List<PostImage> images = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      PostImage image = readImage(in);
+      image.setPost(post);
+      images.add(image);
+    }
+    post.setImages(images);
+    return post;
+  }
+
+  private static PostImage readImage(In in) {
+    PostImage image = new PostImage();
+    image.setId(in.readUuid());
+    image.setPosition((int) unZigZag(in.readVarLong()));
+    image.setUrl(in.readString());
+    return image;
+  }
+
+  private static Comment readComment(In in, boolean counted) {
+    Comment comment = new Comment();
+    comment.setId(in.readUuid());
+
+    UUID postId = in.readUuid();
+    if (postId != null) {
+      Post post = new Post();
+      post.setId(postId);
+      comment.setPost(post);
+    }
+    UUID parentId = in.readUuid();
+    if (parentId != null) {
+      Comment parent = new Comment();
+      parent.setId(parentId);
+      comment.setParentComment(parent);
+    }
+
+    comment.setUserId(in.readString());
+    comment.setContent(in.readString());
+    comment.setLikesCount((int) unZigZag(in.readVarLong()));
+    if (counted) {
+      comment.setReplyCount((int) unZigZag(in.readVarLong()));
+    }
+    comment.setCreatedAt(in.readDateTime());
+
+    int count = (int) in.readVarLong();
+    List<Comment> replies = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      replies.add(readComment(in, counted));
+    }
+    comment.setReplies(replies);
+    return comment;
+  }
+
+  /* ---------------------------- compression ---------------------------- */
+
+  /** {@code tag|0x80, varint(raw length), deflate(raw[1..])} */
+  private static byte[] deflate(byte[] raw) {
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      deflater.setInput(raw, 1, raw.length - 1);
+      deflater.finish();
+
+      Out out = new Out();
+      out.write((byte) (raw[0] | COMPRESSED));
+      out.writeVarLong(raw.length - 1);
+      byte[] chunk = new byte[4096];
+      while (!deflater.finished()) {
+        int n = deflater.deflate(chunk);
+        out.writeBytes(chunk, n);
+      }
+      return out.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static byte[] inflate(byte[] bytes) {
+    In in = new In(bytes);
+    byte tag = (byte) (in.read() & ~COMPRESSED);
+    int length = (int) in.readVarLong();
+
+    byte[] raw = new byte[length + 1];
+    raw[0] = tag;
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(bytes, in.pos, bytes.length - in.pos);
+      int offset = 1;
+      while (offset < raw.length) {
+        int n = inflater.inflate(raw, offset, raw.length - offset);
+        if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+          throw new SerializationException("Truncated compressed cache value");
+        }
+        offset += n;
+      }
+      return raw;
+    } catch (DataFormatException e) {
+      throw new SerializationException("Corrupt compressed cache value", e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  /* ------------------------------ varints ------------------------------ */
+
+  private static long zigZag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static long unZigZag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /** Growable output buffer; avoids DataOutputStream's checked exceptions. */
+  private static final class Out extends ByteArrayOutputStream {
+
+    Out() {
+      super(256);
+    }
+
+    void write(byte b) {
+      super.write(b);
+    }
+
+    void writeBytes(byte[] bytes, int length) {
+      super.write(bytes, 0, length);
+    }
+
+    void writeVarLong(long value) {
+      while ((value & ~0x7FL) != 0) {
+        super.write((int) ((value & 0x7F) | 0x80));
+        value >>>= 7;
+      }
+      super.write((int) value);
+    }
+
+    /** Length + 1, so 0 can mean null. */
+    void writeString(String value) {
+      if (value == null) {
+        writeVarLong(0);
+        return;
+      }
+      byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+      writeVarLong(utf8.length + 1L);
+      writeBytes(utf8);
+    }
+
+    void writeUuid(UUID value) {
+      if (value == null) {
+        super.write(0);
+        return;
+      }
+      super.write(1);
+      writeLong(value.getMostSignificantBits());
+      writeLong(value.getLeastSignificantBits());
+    }
+
+    /** Epoch second (zig-zag) + nanos; 0 marks null. */
+    void writeDateTime(LocalDateTime value) {
+      if (value == null) {
+        writeVarLong(0);
+        return;
+      }
+      writeVarLong(zigZag(value.toEpochSecond(ZoneOffset.UTC)) + 1);
+      writeVarLong(value.getNano());
+    }
+
+    private void writeLong(long value) {
+      for (int shift = 56; shift >= 0; shift -= 8) {
+        super.write((int) (value >>> shift));
+      }
+    }
+  }
+
+  private static final class In {
+    private final byte[] bytes;
+    private int pos;
+
+    In(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    byte read() {
+      if (pos >= bytes.length) {
+        throw new SerializationException("Truncated cache value");
+      }
+      return bytes[pos++];
+    }
+
+    long readVarLong() {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        byte b = read();
+        value |= (long) (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new SerializationException("Malformed varint in cache value");
+    }
+
+    String readString() {
+      int length = (int) readVarLong();
+      if (length == 0) {
+        return null;
+      }
+      length--;
+      if (pos + length > bytes.length) {
+        throw new SerializationException("Truncated cache value");
+      }
+      String value = new String(bytes, pos, length, StandardCharsets.UTF_8);
+      pos += length;
+      return value;
+    }
+
+    UUID readUuid() {
+      if (read() == 0) {
+        return null;
+      }
+      return new UUID(readLong(), readLong());
+    }
+
+    LocalDateTime readDateTime() {
+      long seconds = readVarLong();
+      if (seconds == 0) {
+        return null;
+      }
+      int nanos = (int) readVarLong();
+      return LocalDateTime.ofEpochSecond(unZigZag(seconds - 1), nanos, ZoneOffset.UTC);
+    }
+
+    private long readLong() {
+      long value = 0;
+      for (int i = 0; i < 8; i++) {
+        value = (value << 8) | (read() & 0xFF);
+      }
+      return value;
+    }
+  }
+}
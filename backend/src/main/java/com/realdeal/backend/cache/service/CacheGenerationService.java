@@ -0,0 +1,150 @@
+package com.realdeal.backend.cache.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.realdeal.backend.cache.config.CacheProperties;
+import com.realdeal.backend.common.tx.AfterCommit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Versioned cache namespaces.
+ * <p>
+ * List caches (feed pages, counts, search results, comment pages) put the
+ * current generation of their scope into the cache key, e.g.
+ * {@code key = "'g' + @cacheGenerationService.feed() + ':page:' + #page"}.
+ * A write bumps only the scopes it affects; entries under the old
+ * generation are never read again and simply age out with their TTL, so
+ * nothing needs {@code allEntries = true}.
+ * <p>
+ * Generations are Redis counters shared by every node. Each node keeps a
+ * short-lived local copy so a key lookup costs no network hop, and bumps are
+ * broadcast so the other nodes drop their copy straight away.
+ */
+@Slf4j
+@Service
+public class CacheGenerationService implements MessageListener {
+
+  private static final String KEY_PREFIX = "realdeal:gen:";
+
+  private static final String FEED = "feed";
+  private static final String SEARCH = "search";
+  private static final String USER = "user:";
+  private static final String LIKED = "liked:";
+  private static final String STARRED = "starred:";
+  private static final String COMMENTS = "comments:";
+
+  private final StringRedisTemplate redis;
+  private final CacheProperties properties;
+  private final Cache<String, Long> local;
+
+  public CacheGenerationService(StringRedisTemplate redis, CacheProperties properties) {
+    this.redis = redis;
+    this.properties = properties;
+    this.local = Caffeine.newBuilder()
+        .maximumSize(100_000)
+        .expireAfterWrite(properties.getGenerationLocalTtl())
+        .build();
+  }
+
+  /* ------------------------------ reads ------------------------------ */
+
+  /** Main feed, the unfiltered post count and {@code allPosts}. */
+  public long feed() {
+    return current(FEED);
+  }
+
+  public long search() {
+    return current(SEARCH);
+  }
+
+  /** Posts written by the user. */
+  public long user(String userId) {
+    return current(USER + userId);
+  }
+
+  /** Posts the user has liked. */
+  public long liked(String userId) {
+    return current(LIKED + userId);
+  }
+
+  /** Posts the user has starred. */
+  public long starred(String userId) {
+    return current(STARRED + userId);
+  }
+
+  /** Comment pages, counts and the flat comment list of one post. */
+  public long comments(UUID postId) {
+    return current(COMMENTS + postId);
+  }
+
+  /* ------------------------------ bumps ------------------------------ */
+
+  public void bumpFeed() {
+    bump(FEED);
+  }
+
+  public void bumpSearch() {
+    bump(SEARCH);
+  }
+
+  public void bumpUser(String userId) {
+    bump(USER + userId);
+  }
+
+  public void bumpLiked(String userId) {
+    bump(LIKED + userId);
+  }
+
+  public void bumpStarred(String userId) {
+    bump(STARRED + userId);
+  }
+
+  public void bumpComments(UUID postId) {
+    bump(COMMENTS + postId);
+  }
+
+  private long current(String scope) {
+    return local.get(scope, this::load);
+  }
+
+  private long load(String scope) {
+    String value = redis.opsForValue().get(KEY_PREFIX + scope);
+    return value != null ? Long.parseLong(value) : 0L;
+  }
+
+  /**
+   * Inside a transaction the bump waits for the commit; bumping earlier
+   * would let a concurrent reader cache pre-commit rows under the new
+   * generation.
+   */
+  private void bump(String scope) {
+    AfterCommit.run(() -> increment(scope));
+  }
+
+  private void increment(String scope) {
+    String key = KEY_PREFIX + scope;
+    Long next = redis.opsForValue().increment(key);
+    redis.expire(key, properties.getGenerationTtl());
+    local.put(scope, next != null ? next : 0L);
+
+    try {
+      redis.convertAndSend(properties.getGenerationChannel(), scope);
+    } catch (RuntimeException e) {
+      // Other nodes pick the new generation up once their local copy expires
+      log.warn("Could not publish generation bump for '{}': {}", scope, e.getMessage());
+    }
+  }
+
+  /** Another node (or this one) bumped a scope: re-read it from Redis next time. */
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    local.invalidate(new String(message.getBody(), StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,22 @@
+package com.realdeal.backend.common.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * A one-off data migration that has run. The schema itself follows the
+ * entities; this only records data fixes that must not be repeated.
+ */
+@Data
+@Entity
+@Table(name = "applied_migrations")
+public class AppliedMigration {
+
+  @Id
+  @Column(length = 100)
+  private String id;
+
+  @Column(name = "applied_at", nullable = false)
+  private LocalDateTime appliedAt = LocalDateTime.now();
+}
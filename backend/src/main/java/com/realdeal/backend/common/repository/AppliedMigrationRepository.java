@@ -0,0 +1,22 @@
+package com.realdeal.backend.common.repository;
+
+import com.realdeal.backend.common.model.AppliedMigration;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AppliedMigrationRepository extends JpaRepository<AppliedMigration, String> {
+
+  /**
+   * Claim the migration: 1 if this call recorded it, 0 if it already ran.
+   * Run it in the migration's own transaction so a failure releases the
+   * claim, and concurrent nodes wait on the row instead of running it twice.
+   */
+  @Modifying
+  @Query(value = "INSERT INTO applied_migrations (id, applied_at) VALUES (:id, now()) "
+       + "ON CONFLICT DO NOTHING", nativeQuery = true)
+  int claim(@Param("id") String id);
+}
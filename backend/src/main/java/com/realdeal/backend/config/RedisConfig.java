@@ -7,6 +7,18 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.realdeal.backend.cache.config.CacheProperties;
+import com.realdeal.backend.cache.config.TwoTierCacheManager;
+import com.realdeal.backend.cache.serializer.CompactCacheSerializer;
+import com.realdeal.backend.cache.service.CacheGenerationService;
+import com.realdeal.backend.genre.config.GenreLeaderboardProperties;
+import com.realdeal.backend.genre.service.GenreLeaderboardService;
+import com.realdeal.backend.recommendation.config.RecommendationProperties;
+import com.realdeal.backend.recommendation.service.RelatedPostService;
+import com.realdeal.backend.search.config.SearchProperties;
+import com.realdeal.backend.search.service.PostSearchService;
+import com.realdeal.backend.search.service.SuggestionService;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -14,20 +26,61 @@ import org.springframework.context.annotation.Primary;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
-import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
 @Configuration
 @EnableCaching
+@EnableConfigurationProperties({CacheProperties.class, SearchProperties.class})
 public class RedisConfig {
 
-  @Bean(name = "cacheManager")
-  @Primary
-  public RedisCacheManager cacheManager(RedisConnectionFactory factory) {
+  /**
+   * Shared Redis tier (L2). Wrapped by {@link #cacheManager} below, which is
+   * the one {@code @Cacheable} actually uses.
+   */
+  @Bean
+  public RedisCacheManager redisCacheManager(RedisConnectionFactory factory,
+      CacheProperties cacheProperties) {
+    RedisSerializer<Object> serializer = cacheValueSerializer(cacheProperties);
+
+    // Default configuration, TTL from realdeal.cache.defaults.ttl
+    RedisCacheConfiguration defaultConfig = RedisCacheConfiguration.defaultCacheConfig()
+        .entryTtl(cacheProperties.getDefaults().getTtl())
+        .disableCachingNullValues()
+        .serializeValuesWith(
+            RedisSerializationContext.SerializationPair.fromSerializer(serializer));
+
+    // Cache-specific TTL settings (realdeal.cache.specs.<name>.ttl)
+    Map<String, RedisCacheConfiguration> cacheConfigurations = new HashMap<>();
+    for (String cacheName : cacheProperties.getSpecs().keySet()) {
+      cacheConfigurations.put(cacheName,
+          defaultConfig.entryTtl(cacheProperties.specFor(cacheName).getTtl()));
+    }
+
+    return RedisCacheManager.builder(factory)
+        .cacheDefaults(defaultConfig)
+        .withInitialCacheConfigurations(cacheConfigurations)
+        .build();
+  }
+
+  /** Value serializer picked by {@code realdeal.cache.serializer}. */
+  static RedisSerializer<Object> cacheValueSerializer(CacheProperties cacheProperties) {
+    GenericJackson2JsonRedisSerializer json = jsonCacheSerializer();
+    if (cacheProperties.getSerializer() == CacheProperties.Serializer.JSON) {
+      return json;
+    }
+    return new CompactCacheSerializer(json, cacheProperties.getCompressionThreshold());
+  }
+
+  /** The original JSON cache format; also the fallback of the compact codec. */
+  public static GenericJackson2JsonRedisSerializer jsonCacheSerializer() {
     ObjectMapper redisMapper = new ObjectMapper();
     redisMapper.registerModule(new JavaTimeModule());
 
@@ -39,38 +92,54 @@ public class RedisConfig {
         ObjectMapper.DefaultTyping.NON_FINAL,
         JsonTypeInfo.As.PROPERTY);
 
-    GenericJackson2JsonRedisSerializer serializer =
-        new GenericJackson2JsonRedisSerializer(redisMapper);
-
-    // Default configuration with 10 minutes TTL
-    RedisCacheConfiguration defaultConfig = RedisCacheConfiguration.defaultCacheConfig()
-        .entryTtl(Duration.ofMinutes(10))
-        .disableCachingNullValues()
-        .serializeValuesWith(
-            RedisSerializationContext.SerializationPair.fromSerializer(serializer));
-
-    // Cache-specific TTL settings
-    Map<String, RedisCacheConfiguration> cacheConfigurations = new HashMap<>();
-
-    // Common read data, longer TTL (30 mins)
-    cacheConfigurations.put("postsCount", defaultConfig.entryTtl(Duration.ofMinutes(30)));
-    cacheConfigurations.put("allPosts", defaultConfig.entryTtl(Duration.ofMinutes(30)));
-    cacheConfigurations.put("singlePost", defaultConfig.entryTtl(Duration.ofMinutes(30)));
-
-    // User specific data, medium TTL (15 mins)
-    cacheConfigurations.put("userPosts", defaultConfig.entryTtl(Duration.ofMinutes(15)));
-    cacheConfigurations.put("postLikes", defaultConfig.entryTtl(Duration.ofMinutes(15)));
-    cacheConfigurations.put("postStars", defaultConfig.entryTtl(Duration.ofMinutes(15)));
-    cacheConfigurations.put("commentLikes", defaultConfig.entryTtl(Duration.ofMinutes(15)));
+    return new GenericJackson2JsonRedisSerializer(redisMapper);
+  }
 
-    // Frequently changing data, shorter TTL (5 mins)
-    cacheConfigurations.put("postsContent", defaultConfig.entryTtl(Duration.ofMinutes(5)));
-    cacheConfigurations.put("topLevelComments", defaultConfig.entryTtl(Duration.ofMinutes(5)));
-    cacheConfigurations.put("allComments", defaultConfig.entryTtl(Duration.ofMinutes(5)));
+  /**
+   * Caffeine near-cache (L1) per cache name in front of Redis, so hot entries
+   * are served from local memory without a network hop or deserialization.
+   */
+  @Bean(name = "cacheManager")
+  @Primary
+  public TwoTierCacheManager cacheManager(RedisCacheManager redisCacheManager,
+      CacheProperties cacheProperties,
+      StringRedisTemplate redisTemplate) {
+    return new TwoTierCacheManager(redisCacheManager, cacheProperties, redisTemplate);
+  }
 
-    return RedisCacheManager.builder(factory)
-        .cacheDefaults(defaultConfig)
-        .withInitialCacheConfigurations(cacheConfigurations)
-        .build();
+  /**
+   * Delivers other nodes' evictions, generation bumps, post changes and
+   * likes so neither the near-cache, the local generation copies, the search
+   * index, the username suggestions, the co-like model nor the genre
+   * leaderboards stay stale for long.
+   */
+  @Bean
+  public RedisMessageListenerContainer redisMessageListenerContainer(
+      RedisConnectionFactory factory,
+      TwoTierCacheManager cacheManager,
+      CacheGenerationService cacheGenerationService,
+      CacheProperties cacheProperties,
+      PostSearchService postSearchService,
+      SuggestionService suggestionService,
+      SearchProperties searchProperties,
+      RelatedPostService relatedPostService,
+      RecommendationProperties recommendationProperties,
+      GenreLeaderboardService genreLeaderboardService,
+      GenreLeaderboardProperties genreLeaderboardProperties) {
+    RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+    container.setConnectionFactory(factory);
+    container.addMessageListener(cacheManager,
+        new ChannelTopic(cacheProperties.getInvalidationChannel()));
+    container.addMessageListener(cacheGenerationService,
+        new ChannelTopic(cacheProperties.getGenerationChannel()));
+    container.addMessageListener(postSearchService,
+        new ChannelTopic(searchProperties.getChannel()));
+    container.addMessageListener(suggestionService,
+        new ChannelTopic(searchProperties.getChannel()));
+    container.addMessageListener(relatedPostService,
+        new ChannelTopic(recommendationProperties.getCoLike().getChannel()));
+    container.addMessageListener(genreLeaderboardService,
+        new ChannelTopic(genreLeaderboardProperties.getChannel()));
+    return container;
   }
 }
\ No newline at end of file
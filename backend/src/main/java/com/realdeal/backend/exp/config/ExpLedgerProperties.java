@@ -0,0 +1,22 @@
+package com.realdeal.backend.exp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * EXP ledger worker, bound from {@code realdeal.exp.*}.
+ *
+ * @see com.realdeal.backend.exp.service.ExpLedgerWorker
+ */
+@Data
+@ConfigurationProperties(prefix = "realdeal.exp")
+public class ExpLedgerProperties {
+
+    /** Pause between two passes over the pending EXP events. */
+    private Duration applyInterval = Duration.ofMillis(250);
+
+    /** Events claimed and applied per transaction. */
+    private int batchSize = 1000;
+}
@@ -0,0 +1,40 @@
+package com.realdeal.backend.exp.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One EXP change, appended to the ledger by {@code ExperienceService} and
+ * folded into the user's experience later. {@code appliedAt} stays null
+ * until then; rows are never updated otherwise or deleted.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@Table(name = "exp_events", indexes = @Index(name = "idx_exp_events_pending", columnList = "applied_at, id"))
+public class ExpEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false, length = 50)
+    private String userId;
+
+    @Column(nullable = false)
+    private int delta;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "applied_at")
+    private LocalDateTime appliedAt;
+
+    public ExpEvent(String userId, int delta) {
+        this.userId = userId;
+        this.delta = delta;
+    }
+}
@@ -0,0 +1,35 @@
+package com.realdeal.backend.exp.repository;
+
+import com.realdeal.backend.exp.model.ExpEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ExpEventRepository extends JpaRepository<ExpEvent, Long> {
+
+    interface PendingRow {
+        Long getId();
+        String getUserId();
+        int getDelta();
+    }
+
+    /*
+     * Oldest unapplied events, locked until the calling transaction ends.
+     * SKIP LOCKED lets every node run the worker: each claims a disjoint batch.
+     */
+    @Query(value = "SELECT id AS \"id\", user_id AS \"userId\", delta AS \"delta\" "
+         + "FROM exp_events WHERE applied_at IS NULL "
+         + "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<PendingRow> claimPending(@Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE ExpEvent e SET e.appliedAt = :appliedAt WHERE e.id IN :ids")
+    int markApplied(@Param("ids") Collection<Long> ids, @Param("appliedAt") LocalDateTime appliedAt);
+}
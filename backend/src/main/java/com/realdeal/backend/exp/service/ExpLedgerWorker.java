@@ -0,0 +1,134 @@
+package com.realdeal.backend.exp.service;
+
+import com.realdeal.backend.authentication.repository.UserProfileRepository;
+import com.realdeal.backend.exp.config.ExpLedgerProperties;
+import com.realdeal.backend.exp.repository.ExpEventRepository;
+import com.realdeal.backend.exp.util.LevelUtil;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies the EXP ledger.
+ * <p>
+ * Every {@code realdeal.exp.apply-interval} the worker claims a batch of
+ * pending {@code exp_events} ({@code FOR UPDATE SKIP LOCKED}, so several
+ * nodes can run it side by side), merges the deltas per user and applies
+ * each user's sum with one {@code experience = experience + ?} update,
+ * in user order so two workers can't deadlock. The new level is computed
+ * from the returned experience and written only when it changed. Events
+ * are marked applied in the same transaction; a failed pass leaves them
+ * pending for the next one.
+ */
+@Slf4j
+@Service
+public class ExpLedgerWorker {
+
+    private final ExpEventRepository events;
+    private final UserProfileRepository users;
+    private final TransactionTemplate transaction;
+    private final ExpLedgerProperties properties;
+
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "exp-ledger");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ExpLedgerWorker(ExpEventRepository events,
+                           UserProfileRepository users,
+                           PlatformTransactionManager transactionManager,
+                           ExpLedgerProperties properties) {
+        this.events = events;
+        this.users = users;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        long interval = Math.max(1, properties.getApplyInterval().toMillis());
+        worker.scheduleWithFixedDelay(this::drainQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /** Apply pending events until none are left; returns how many were applied. */
+    public int drain() {
+        int total = 0;
+        int applied;
+        do {
+            applied = applyBatch();
+            total += applied;
+        } while (applied >= Math.max(1, properties.getBatchSize()));
+        return total;
+    }
+
+    /** Claim, merge and apply one batch; returns the number of events it held. */
+    public int applyBatch() {
+        Integer applied = transaction.execute(status -> {
+            List<ExpEventRepository.PendingRow> pending = events.claimPending(Math.max(1, properties.getBatchSize()));
+            if (pending.isEmpty()) {
+                return 0;
+            }
+
+            Map<String, Integer> deltas = new TreeMap<>();
+            List<Long> ids = new ArrayList<>(pending.size());
+            for (ExpEventRepository.PendingRow row : pending) {
+                deltas.merge(row.getUserId(), row.getDelta(), Integer::sum);
+                ids.add(row.getId());
+            }
+
+            deltas.forEach((userId, delta) -> {
+                if (delta != 0) {
+                    apply(userId, delta);
+                }
+            });
+            events.markApplied(ids, LocalDateTime.now());
+            return pending.size();
+        });
+        return applied != null ? applied : 0;
+    }
+
+    private void apply(String userId, int delta) {
+        users.addExperience(userId, delta).ifPresentOrElse(row -> {
+            int level = LevelUtil.levelFor(row.getExperience());
+            if (level != row.getLevel()) {
+                users.updateLevel(userId, level);
+                if (level > row.getLevel()) {
+                    log.info("User {} reached level {}", userId, level);
+                    // TODO: notify via WebSocket / email
+                }
+            }
+        }, () -> log.warn("Dropping {} EXP for unknown user {}", delta, userId));
+    }
+
+    private void drainQuietly() {
+        try {
+            drain();
+        } catch (RuntimeException e) {
+            log.warn("Applying EXP events failed, retrying next interval: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdown();
+        try {
+            worker.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // whatever is still pending stays in the ledger for the next start
+        try {
+            drain();
+        } catch (RuntimeException e) {
+            log.warn("Could not apply pending EXP events on shutdown: {}", e.getMessage());
+        }
+    }
+}
@@ -2,32 +2,55 @@ package com.realdeal.backend.exp.service;
 
 import com.realdeal.backend.authentication.model.UserProfile;
 import com.realdeal.backend.authentication.repository.UserProfileRepository;
-import com.realdeal.backend.exp.util.LevelUtil;
-import lombok.RequiredArgsConstructor;
+import com.realdeal.backend.exp.model.ExpEvent;
+import com.realdeal.backend.exp.repository.ExpEventRepository;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
-@RequiredArgsConstructor
 public class ExperienceService {
 
     private final UserProfileRepository repo;
+    private final ExpEventRepository events;
+    private final TransactionTemplate transaction;
 
-    @Transactional
-    public void addExp(String userId, int delta) {
-        UserProfile u = repo.findById(userId)
-            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    // users known to have today's daily bonus; replaced when the date changes
+    private volatile DailyGrants dailyGrants = new DailyGrants(LocalDate.now());
 
-        u.setExperience(u.getExperience() + delta);
+    private static final class DailyGrants {
+        final LocalDate day;
+        final Set<String> users = ConcurrentHashMap.newKeySet();
 
-        int newLevel = LevelUtil.levelFor(u.getExperience());
-        if (newLevel != u.getLevel()) {
-            u.setLevel(newLevel);
-            // TODO: notify via WebSocket / email
+        DailyGrants(LocalDate day) {
+            this.day = day;
+        }
+    }
+
+    public ExperienceService(UserProfileRepository repo,
+                             ExpEventRepository events,
+                             PlatformTransactionManager transactionManager) {
+        this.repo = repo;
+        this.events = events;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Records an EXP change in the ledger, in the caller's transaction. The
+     * user's experience and level catch up once {@link ExpLedgerWorker}
+     * applies it, normally within {@code realdeal.exp.apply-interval}.
+     */
+    @Transactional
+    public void addExp(String userId, int delta) {
+        if (delta != 0) {
+            events.save(new ExpEvent(userId, delta));
         }
     }
 
@@ -38,13 +61,39 @@ public class ExperienceService {
             .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
-    /** give the daily bonus (once per calendar date) */
-    @Transactional
+    /**
+     * give the daily bonus (once per calendar date)
+     * <p>
+     * Runs on every request, so a user seen today is answered from memory.
+     * Otherwise a conditional update decides, which stays correct across
+     * nodes; either way the user is remembered until midnight.
+     */
     public void grantDailyLoginExp(String userId, int dailyBonus) {
-        UserProfile u = repo.findById(userId).orElseThrow();
-        if (!LocalDate.now().equals(u.getLastDailyExp())) {
-            addExp(userId, dailyBonus);
-            u.setLastDailyExp(LocalDate.now());
+        LocalDate today = LocalDate.now();
+        DailyGrants grants = grantsFor(today);
+        if (grants.users.contains(userId)) {
+            return;
+        }
+
+        transaction.executeWithoutResult(status -> {
+            if (repo.claimDailyExp(userId, today) == 1) {
+                addExp(userId, dailyBonus);
+            }
+        });
+        grants.users.add(userId);
+    }
+
+    private DailyGrants grantsFor(LocalDate today) {
+        DailyGrants grants = dailyGrants;
+        if (!grants.day.equals(today)) {
+            synchronized (this) {
+                grants = dailyGrants;
+                if (!grants.day.equals(today)) {
+                    grants = new DailyGrants(today);
+                    dailyGrants = grants;
+                }
+            }
         }
+        return grants;
     }
 }
@@ -0,0 +1,23 @@
+package com.realdeal.backend.genre.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * The in-memory genre catalog, bound from {@code realdeal.genre.catalog.*}.
+ *
+ * @see com.realdeal.backend.genre.service.GenreService
+ */
+@Data
+@ConfigurationProperties(prefix = "realdeal.genre.catalog")
+public class GenreCatalogProperties {
+
+  /**
+   * How often the genres table is re-read. Genres are seeded in the
+   * database rather than edited through the API, so there is no change to
+   * hook.
+   */
+  private Duration refreshInterval = Duration.ofMinutes(10);
+}
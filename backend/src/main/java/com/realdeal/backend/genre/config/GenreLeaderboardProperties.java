@@ -0,0 +1,34 @@
+package com.realdeal.backend.genre.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Per-genre top-N post lists, bound from {@code realdeal.genre.leaderboards.*}.
+ *
+ * @see com.realdeal.backend.genre.service.GenreLeaderboardService
+ */
+@Data
+@ConfigurationProperties(prefix = "realdeal.genre.leaderboards")
+public class GenreLeaderboardProperties {
+
+  /** Posts kept per genre and ordering; deeper pages of a genre feed are empty. */
+  private int capacity = 500;
+
+  /** A star counts this many likes in the engagement ordering. */
+  private int starWeight = 2;
+
+  /** How often posts changed since the last run are re-ranked. */
+  private Duration flushInterval = Duration.ofSeconds(1);
+
+  /** Changed posts re-read per query. */
+  private int batchSize = 500;
+
+  /** How often every genre's lists are rebuilt from the database. */
+  private Duration refreshInterval = Duration.ofMinutes(30);
+
+  /** Redis pub/sub channel carrying changed posts to the other nodes' lists. */
+  private String channel = "realdeal:genre:leaderboards";
+}
@@ -0,0 +1,109 @@
+package com.realdeal.backend.genre.index;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * The best {@code capacity} posts by (score desc, tiebreak desc, id desc),
+ * kept sorted as they change.
+ * <p>
+ * A lookup map sits next to an ordered tree, so an update is
+ * {@code O(log capacity)} and a page is {@code O(offset + limit)}. A post
+ * that does not beat the last one on a full board is not kept. One already
+ * on the board stays there when its score falls, even below posts the board
+ * does not know about; those only get on once they change themselves, or
+ * the board is rebuilt.
+ * <p>
+ * Every method synchronizes on the board.
+ */
+public final class Leaderboard {
+
+  private static final Comparator<Entry> BEST_FIRST =
+      Comparator.comparingLong((Entry e) -> e.score).reversed()
+          .thenComparing(Comparator.comparingLong((Entry e) -> e.tiebreak).reversed())
+          .thenComparing((Entry e) -> e.postId, Comparator.reverseOrder());
+
+  private static final class Entry {
+    final UUID postId;
+    final long score;
+    final long tiebreak;
+
+    Entry(UUID postId, long score, long tiebreak) {
+      this.postId = postId;
+      this.score = score;
+      this.tiebreak = tiebreak;
+    }
+  }
+
+  private final int capacity;
+  private final Map<UUID, Entry> entries = new HashMap<>();
+  private final TreeSet<Entry> order = new TreeSet<>(BEST_FIRST);
+
+  public Leaderboard(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be positive: " + capacity);
+    }
+    this.capacity = capacity;
+  }
+
+  /**
+   * Add the post or move it to its new place; returns whether it is on the
+   * board afterwards.
+   */
+  public synchronized boolean offer(UUID postId, long score, long tiebreak) {
+    Entry previous = entries.remove(postId);
+    if (previous != null) {
+      order.remove(previous);
+    }
+    Entry entry = new Entry(postId, score, tiebreak);
+    if (order.size() >= capacity) {
+      Entry last = order.last();
+      if (BEST_FIRST.compare(entry, last) > 0) {
+        return false;
+      }
+      order.pollLast();
+      entries.remove(last.postId);
+    }
+    order.add(entry);
+    entries.put(postId, entry);
+    return true;
+  }
+
+  public synchronized void remove(UUID postId) {
+    Entry previous = entries.remove(postId);
+    if (previous != null) {
+      order.remove(previous);
+    }
+  }
+
+  public synchronized boolean contains(UUID postId) {
+    return entries.containsKey(postId);
+  }
+
+  /** Posts {@code [offset, offset + limit)}, best first. */
+  public synchronized List<UUID> page(int offset, int limit) {
+    List<UUID> page = new ArrayList<>(Math.max(0, Math.min(limit, entries.size() - offset)));
+    Iterator<Entry> it = order.iterator();
+    for (int i = 0; i < offset && it.hasNext(); i++) {
+      it.next();
+    }
+    while (page.size() < limit && it.hasNext()) {
+      page.add(it.next().postId);
+    }
+    return page;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+}
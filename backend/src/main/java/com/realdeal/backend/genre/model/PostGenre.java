@@ -9,7 +9,10 @@ import java.util.UUID;
 @Data
 @NoArgsConstructor
 @Entity
-@Table(name = "post_genres")
+@Table(name = "post_genres", indexes = {
+    @Index(name = "idx_post_genres_genre", columnList = "genre_id, post_id"),
+    @Index(name = "idx_post_genres_post", columnList = "post_id, genre_id")
+})
 public class PostGenre {
 
   @EmbeddedId
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -15,7 +16,17 @@ public interface PostGenreRepository extends JpaRepository<PostGenre, PostGenreI
 
   List<PostGenre> findByIdPostId(UUID postId);
 
-  List<PostGenre> findByIdGenreId(Integer genreId);
+  interface Assignment {
+    UUID getPostId();
+    Integer getGenreId();
+  }
+
+  // Genre ids only; names come from the in-memory GenreCatalog
+  @Query("SELECT pg.id.genreId FROM PostGenre pg WHERE pg.id.postId = :postId")
+  List<Integer> findGenreIdsByPostId(@Param("postId") UUID postId);
+
+  @Query("SELECT pg.id.postId AS postId, pg.id.genreId AS genreId FROM PostGenre pg WHERE pg.id.postId IN :postIds")
+  List<Assignment> findAssignmentsByPostIdIn(@Param("postIds") Collection<UUID> postIds);
 
   @Query("SELECT pg FROM PostGenre pg WHERE pg.id.postId = :postId ORDER BY pg.assignedAt ASC")
   List<PostGenre> findPostGenresByPostId(@Param("postId") UUID postId);
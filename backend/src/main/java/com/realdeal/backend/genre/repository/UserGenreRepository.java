@@ -14,6 +14,9 @@ public interface UserGenreRepository extends JpaRepository<UserGenre, UserGenreI
 
   List<UserGenre> findByIdUserId(String userId);
 
+  @Query("SELECT ug.id.genreId FROM UserGenre ug WHERE ug.id.userId = :userId")
+  List<Integer> findGenreIdsByUserId(@Param("userId") String userId);
+
   @Query("SELECT ug FROM UserGenre ug WHERE ug.id.userId = :userId ORDER BY ug.selectedAt DESC")
   List<UserGenre> findUserGenresByUserId(@Param("userId") String userId);
 
@@ -0,0 +1,112 @@
+package com.realdeal.backend.genre.service;
+
+import com.realdeal.backend.genre.model.Genre;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the genres table.
+ * <p>
+ * Genres are resolved by id through an array indexed by id, and every genre
+ * gets a bit (its position in id order) so a set of genres, e.g. the at most
+ * three of a post or a user, fits in one {@code int}: overlap is
+ * {@code Integer.bitCount(a & b)}. Only the first {@value #MAX_MASK_GENRES}
+ * genres get a bit; later ones still resolve by id but are left out of masks.
+ * <p>
+ * The {@link Genre} entities are shared by every caller and must not be
+ * modified.
+ */
+public final class GenreCatalog {
+
+  public static final int MAX_MASK_GENRES = Integer.SIZE;
+
+  private final List<Genre> all;
+  private final Genre[] byId;
+  private final int[] bitById;
+  private final Map<String, Genre> byName;
+
+  private GenreCatalog(List<Genre> genres) {
+    List<Genre> sorted = new ArrayList<>(genres);
+    sorted.sort(Comparator.comparing(Genre::getId));
+    this.all = Collections.unmodifiableList(sorted);
+
+    int maxId = sorted.isEmpty() ? 0 : sorted.get(sorted.size() - 1).getId();
+    this.byId = new Genre[maxId + 1];
+    this.bitById = new int[maxId + 1];
+    Arrays.fill(bitById, -1);
+    this.byName = new HashMap<>();
+    for (int i = 0; i < sorted.size(); i++) {
+      Genre genre = sorted.get(i);
+      byId[genre.getId()] = genre;
+      bitById[genre.getId()] = i < MAX_MASK_GENRES ? i : -1;
+      byName.put(genre.getName(), genre);
+    }
+  }
+
+  public static GenreCatalog of(Collection<Genre> genres) {
+    return new GenreCatalog(List.copyOf(genres));
+  }
+
+  /** Every genre, by id. */
+  public List<Genre> all() {
+    return all;
+  }
+
+  public int size() {
+    return all.size();
+  }
+
+  /** The genre with this id, or null. */
+  public Genre byId(Integer id) {
+    return id != null && id >= 0 && id < byId.length ? byId[id] : null;
+  }
+
+  public Genre byName(String name) {
+    return byName.get(name);
+  }
+
+  /* ------------------------------ masks ------------------------------ */
+
+  /** The genre's bit, or 0 when it is unknown or has none. */
+  public int bit(Integer genreId) {
+    if (genreId == null || genreId < 0 || genreId >= bitById.length || bitById[genreId] < 0) {
+      return 0;
+    }
+    return 1 << bitById[genreId];
+  }
+
+  public int maskOf(Collection<Integer> genreIds) {
+    int mask = 0;
+    for (Integer genreId : genreIds) {
+      mask |= bit(genreId);
+    }
+    return mask;
+  }
+
+  /** The genres in {@code mask}, by id. */
+  public List<Genre> genresOf(int mask) {
+    if (mask == 0) {
+      return List.of();
+    }
+    List<Genre> genres = new ArrayList<>(Integer.bitCount(mask));
+    for (int bits = mask; bits != 0; bits &= bits - 1) {
+      int i = Integer.numberOfTrailingZeros(bits);
+      if (i < all.size()) {
+        genres.add(all.get(i));
+      }
+    }
+    return genres;
+  }
+
+  /** Number of genres two masks have in common. */
+  public static int overlap(int a, int b) {
+    return Integer.bitCount(a & b);
+  }
+}
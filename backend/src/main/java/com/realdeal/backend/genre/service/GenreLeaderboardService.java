@@ -0,0 +1,325 @@
+package com.realdeal.backend.genre.service;
+
+import com.realdeal.backend.common.tx.AfterCommit;
+import com.realdeal.backend.genre.config.GenreLeaderboardProperties;
+import com.realdeal.backend.genre.index.Leaderboard;
+import com.realdeal.backend.genre.model.Genre;
+import com.realdeal.backend.genre.repository.GenreRepository;
+import com.realdeal.backend.genre.repository.PostGenreRepository;
+import com.realdeal.backend.post.model.Post;
+import com.realdeal.backend.post.repository.PostRepository;
+import com.realdeal.backend.post.service.PostLookupService;
+import com.realdeal.backend.post.service.ReactionCounterBuffer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Genre feeds: the newest and the most engaged {@code capacity} posts of
+ * each genre, held in memory as {@link Leaderboard}s.
+ * <p>
+ * Nothing reads a genre's full membership. Genre assignments and reactions
+ * only mark the post as changed, after commit; every {@code flush-interval}
+ * one background thread re-reads the changed posts (their creation time,
+ * counters and genres, two queries per batch) and moves them on, onto or
+ * off each genre's boards. Engagement is {@code likes + star-weight * stars},
+ * counting reactions this node's {@link ReactionCounterBuffer} has not
+ * written yet. The same run broadcasts the posts changed on this node as
+ * {@code nodeId|postId,postId,...}, so the other nodes re-rank them on
+ * their next run.
+ * <p>
+ * A post losing reactions keeps its place on a full board even when posts
+ * off the board now beat it, so the same thread rebuilds every board from
+ * two bounded queries per genre every {@code refresh-interval}, first at
+ * startup. Until
+ * that first build, genre pages are read from the same queries.
+ */
+@Slf4j
+@Service
+public class GenreLeaderboardService implements MessageListener {
+
+  public enum Sort { RECENT, TOP }
+
+  /** Largest page; also bounds the fallback queries served before the first build. */
+  private static final int MAX_PAGE_SIZE = 50;
+
+  private static final class Boards {
+    final Leaderboard recent;
+    final Leaderboard top;
+
+    Boards(int capacity) {
+      this.recent = new Leaderboard(capacity);
+      this.top = new Leaderboard(capacity);
+    }
+
+    Leaderboard get(Sort sort) {
+      return sort == Sort.TOP ? top : recent;
+    }
+
+    void remove(UUID postId) {
+      recent.remove(postId);
+      top.remove(postId);
+    }
+  }
+
+  private final GenreRepository genreRepository;
+  private final PostGenreRepository postGenreRepository;
+  private final PostRepository postRepository;
+  private final PostLookupService lookup;
+  private final ReactionCounterBuffer counters;
+  private final StringRedisTemplate redis;
+  private final GenreLeaderboardProperties properties;
+  private final String nodeId = UUID.randomUUID().toString();
+
+  private final Map<Integer, Boards> boards = new ConcurrentHashMap<>();
+  private final Set<UUID> changed = ConcurrentHashMap.newKeySet();
+  // the subset changed on this node, still to be broadcast
+  private final Set<UUID> changedHere = ConcurrentHashMap.newKeySet();
+  private volatile boolean ready;
+
+  private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(task -> {
+    Thread thread = new Thread(task, "genre-leaderboards");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  public GenreLeaderboardService(GenreRepository genreRepository,
+                                 PostGenreRepository postGenreRepository,
+                                 PostRepository postRepository,
+                                 PostLookupService lookup,
+                                 ReactionCounterBuffer counters,
+                                 StringRedisTemplate redis,
+                                 GenreLeaderboardProperties properties) {
+    this.genreRepository = genreRepository;
+    this.postGenreRepository = postGenreRepository;
+    this.postRepository = postRepository;
+    this.lookup = lookup;
+    this.counters = counters;
+    this.redis = redis;
+    this.properties = properties;
+
+    long flush = Math.max(1, properties.getFlushInterval().toMillis());
+    long refresh = Math.max(1, properties.getRefreshInterval().toMillis());
+    worker.scheduleWithFixedDelay(this::refreshQuietly, 0, refresh, TimeUnit.MILLISECONDS);
+    worker.scheduleWithFixedDelay(this::flushQuietly, flush, flush, TimeUnit.MILLISECONDS);
+  }
+
+  /* ------------------------------ reads ------------------------------ */
+
+  /** One offset page (1-50 posts) of the genre's board; pages past {@code capacity} are empty. */
+  public Page<Post> getPosts(int genreId, Sort sort, int page, int size) {
+    if (page < 0) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "page must not be negative");
+    }
+    if (size < 1 || size > MAX_PAGE_SIZE) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size must be between 1 and " + MAX_PAGE_SIZE);
+    }
+    PageRequest pageRequest = PageRequest.of(page, size);
+    int offset = (int) Math.min(pageRequest.getOffset(), properties.getCapacity());
+    int limit = Math.min(size, properties.getCapacity() - offset);
+
+    Boards genre = boards.get(genreId);
+    if (genre != null) {
+      Leaderboard board = genre.get(sort);
+      return new PageImpl<>(lookup.resolve(board.page(offset, limit)), pageRequest, board.size());
+    }
+    if (ready || limit <= 0) {
+      // built, and the genre has no posts (or is unknown)
+      return new PageImpl<>(List.of(), pageRequest, 0);
+    }
+
+    // Not built yet: the bounded queries a rebuild uses, one page deep
+    List<UUID> ids = new ArrayList<>(size);
+    if (sort == Sort.TOP) {
+      postRepository.findTopEngagedInGenre(genreId, properties.getStarWeight(), pageRequest)
+          .forEach(row -> ids.add(row.getId()));
+    } else {
+      postRepository.findRecentCandidatesInGenre(genreId, pageRequest)
+          .forEach(row -> ids.add(row.getId()));
+    }
+    return new PageImpl<>(lookup.resolve(ids.subList(0, Math.min(ids.size(), limit))), pageRequest,
+        offset + ids.size());
+  }
+
+  /* ------------------------------ updates ------------------------------ */
+
+  /**
+   * The post was created, deleted, reacted to or given new genres; it is
+   * re-ranked within {@code flush-interval} of the commit, on every node.
+   */
+  public void postChanged(UUID postId) {
+    AfterCommit.run(() -> {
+      changedHere.add(postId);
+      changed.add(postId);
+    });
+  }
+
+  /** Posts another node changed; re-ranked by the next run here. */
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 2);
+    if (parts.length < 2 || nodeId.equals(parts[0])) {
+      return;   // malformed, or our own echo
+    }
+    for (String id : parts[1].split(",")) {
+      try {
+        changed.add(UUID.fromString(id));
+      } catch (IllegalArgumentException e) {
+        // skip it; the next rebuild covers the post
+      }
+    }
+  }
+
+  private void publish(List<UUID> postIds) {
+    StringBuilder message = new StringBuilder(nodeId).append('|');
+    for (int i = 0; i < postIds.size(); i++) {
+      message.append(i == 0 ? "" : ",").append(postIds.get(i));
+    }
+    try {
+      redis.convertAndSend(properties.getChannel(), message.toString());
+    } catch (RuntimeException e) {
+      // The other nodes pick the posts up at their next rebuild
+      log.warn("Could not publish {} genre leaderboard changes: {}", postIds.size(), e.getMessage());
+    }
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      log.warn("Genre leaderboard update failed; retrying next run: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Broadcast the posts changed here, then re-rank every post changed since
+   * the last run; returns how many were read.
+   */
+  public int flush() {
+    int batchSize = Math.max(1, properties.getBatchSize());
+    if (!changedHere.isEmpty()) {
+      List<UUID> here = new ArrayList<>(changedHere);
+      changedHere.removeAll(here);
+      for (int from = 0; from < here.size(); from += batchSize) {
+        publish(here.subList(from, Math.min(here.size(), from + batchSize)));
+      }
+    }
+
+    if (changed.isEmpty()) {
+      return 0;
+    }
+    List<UUID> all = new ArrayList<>(changed);
+    changed.removeAll(all);
+
+    for (int from = 0; from < all.size(); from += batchSize) {
+      List<UUID> batch = all.subList(from, Math.min(all.size(), from + batchSize));
+      try {
+        apply(batch);
+      } catch (RuntimeException e) {
+        changed.addAll(all.subList(from, all.size()));
+        throw e;
+      }
+    }
+    return all.size();
+  }
+
+  private void apply(List<UUID> postIds) {
+    Map<UUID, PostRepository.EngagementRow> rows = new HashMap<>();
+    for (PostRepository.EngagementRow row : postRepository.findEngagementRowsByIdIn(postIds)) {
+      rows.put(row.getId(), row);
+    }
+    Map<UUID, Set<Integer>> genresOf = new HashMap<>();
+    for (PostGenreRepository.Assignment assignment : postGenreRepository.findAssignmentsByPostIdIn(postIds)) {
+      genresOf.computeIfAbsent(assignment.getPostId(), id -> new HashSet<>(4)).add(assignment.getGenreId());
+    }
+
+    for (UUID postId : postIds) {
+      PostRepository.EngagementRow row = rows.get(postId);
+      // deleted posts have neither a row nor genres
+      Set<Integer> genres = row == null ? Set.of() : genresOf.getOrDefault(postId, Set.of());
+      for (Integer genreId : genres) {
+        boards.computeIfAbsent(genreId, id -> new Boards(properties.getCapacity()));
+      }
+      for (Map.Entry<Integer, Boards> genre : boards.entrySet()) {
+        if (!genres.contains(genre.getKey())) {
+          genre.getValue().remove(postId);
+          continue;
+        }
+        long created = timestamp(row.getCreatedAt());
+        long engagement = (long) row.getLikesCount() + counters.pendingLikes(postId)
+            + (long) properties.getStarWeight() * (row.getStarsCount() + counters.pendingStars(postId));
+        genre.getValue().recent.offer(postId, created, 0);
+        genre.getValue().top.offer(postId, engagement, created);
+      }
+    }
+  }
+
+  /* ------------------------------ rebuild ------------------------------ */
+
+  private void refreshQuietly() {
+    try {
+      refresh();
+    } catch (RuntimeException e) {
+      log.warn("Genre leaderboard rebuild failed; keeping the current boards: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Rebuild every genre's boards from the database: the newest posts and
+   * the most engaged ones, {@code capacity} each. Runs on the update
+   * thread, so posts changed meanwhile are applied on top right after.
+   */
+  public void refresh() {
+    int capacity = properties.getCapacity();
+    PageRequest top = PageRequest.of(0, capacity);
+    Map<Integer, Boards> fresh = new HashMap<>();
+    for (Genre genre : genreRepository.findAll()) {
+      Boards built = new Boards(capacity);
+      for (PostRepository.CandidateRow row : postRepository.findRecentCandidatesInGenre(genre.getId(), top)) {
+        built.recent.offer(row.getId(), timestamp(row.getCreatedAt()), 0);
+      }
+      for (PostRepository.EngagementRow row
+          : postRepository.findTopEngagedInGenre(genre.getId(), properties.getStarWeight(), top)) {
+        long engagement = row.getLikesCount() + (long) properties.getStarWeight() * row.getStarsCount();
+        built.top.offer(row.getId(), engagement, timestamp(row.getCreatedAt()));
+      }
+      fresh.put(genre.getId(), built);
+    }
+    boards.putAll(fresh);
+    boards.keySet().retainAll(fresh.keySet());
+    ready = true;
+    log.info("Genre leaderboards rebuilt for {} genres", fresh.size());
+  }
+
+  private static long timestamp(LocalDateTime createdAt) {
+    return createdAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + createdAt.getNano() / 1_000;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    worker.shutdownNow();
+  }
+}
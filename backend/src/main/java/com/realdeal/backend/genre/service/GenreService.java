@@ -1,20 +1,45 @@
 package com.realdeal.backend.genre.service;
 
+import com.realdeal.backend.cache.service.CacheGenerationService;
+import com.realdeal.backend.genre.config.GenreCatalogProperties;
 import com.realdeal.backend.genre.model.Genre;
 import com.realdeal.backend.genre.model.PostGenre;
 import com.realdeal.backend.genre.model.UserGenre;
 import com.realdeal.backend.genre.repository.GenreRepository;
 import com.realdeal.backend.genre.repository.PostGenreRepository;
 import com.realdeal.backend.genre.repository.UserGenreRepository;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+/**
+ * Genres and their assignment to posts and users.
+ * <p>
+ * Genre rows are served from an in-memory {@link GenreCatalog}, loaded once
+ * the application is ready (or on first use, if earlier) and replaced every
+ * {@code realdeal.genre.catalog.refresh-interval}, as the API has no genre
+ * write path. Only the assignments are read from the database, and as
+ * genre ids alone.
+ * Posts of a genre are served from bounded leaderboards by
+ * {@link GenreLeaderboardService}, never as the full membership.
+ */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class GenreService {
@@ -22,21 +47,82 @@ public class GenreService {
   private final GenreRepository genreRepository;
   private final UserGenreRepository userGenreRepository;
   private final PostGenreRepository postGenreRepository;
+  private final GenreLeaderboardService leaderboards;
+  private final CacheGenerationService generations;
+  private final GenreCatalogProperties properties;
+
+  private final ScheduledExecutorService loader = Executors.newSingleThreadScheduledExecutor(task -> {
+    Thread thread = new Thread(task, "genre-catalog");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private volatile GenreCatalog catalog;
+
+  /* ------------------------------ catalog ------------------------------ */
+
+  public GenreCatalog getCatalog() {
+    GenreCatalog current = catalog;
+    if (current == null) {
+      synchronized (this) {
+        current = catalog;
+        if (current == null) {
+          current = refreshCatalog();
+        }
+      }
+    }
+    return current;
+  }
+
+  /** Re-read the genres table and swap in a new catalog. */
+  public GenreCatalog refreshCatalog() {
+    GenreCatalog fresh = GenreCatalog.of(genreRepository.findAll());
+    catalog = fresh;
+    return fresh;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void loadOnStartup() {
+    long refreshMillis = Math.max(1, properties.getRefreshInterval().toMillis());
+    loader.scheduleWithFixedDelay(this::refreshCatalogQuietly, 0, refreshMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    loader.shutdownNow();
+  }
+
+  private void refreshCatalogQuietly() {
+    try {
+      refreshCatalog();
+    } catch (RuntimeException e) {
+      // keep serving the previous catalog; retried at the next refresh
+      log.warn("Refreshing the genre catalog failed: {}", e.getMessage());
+    }
+  }
 
   public List<Genre> getAllGenres() {
-    return genreRepository.findAll();
+    return getCatalog().all();
   }
 
   public Genre getGenreById(Integer id) {
-    return genreRepository.findById(id)
-        .orElseThrow(() -> new RuntimeException("Genre not found with id: " + id));
+    Genre genre = getCatalog().byId(id);
+    if (genre == null) {
+      throw new RuntimeException("Genre not found with id: " + id);
+    }
+    return genre;
   }
 
   public Genre getGenreByName(String name) {
-    return genreRepository.findByName(name)
-        .orElseThrow(() -> new RuntimeException("Genre not found with name: " + name));
+    Genre genre = getCatalog().byName(name);
+    if (genre == null) {
+      throw new RuntimeException("Genre not found with name: " + name);
+    }
+    return genre;
   }
 
+  /* ------------------------------ assignments ------------------------------ */
+
   @Transactional
   public void updateUserGenres(String userId, List<Integer> genreIds) {
     // Validate genre count
@@ -55,11 +141,12 @@ public class GenreService {
   }
 
   public List<Genre> getUserGenres(String userId) {
-    List<UserGenre> userGenres = userGenreRepository.findByIdUserId(userId);
+    return resolve(userGenreRepository.findGenreIdsByUserId(userId));
+  }
 
-    return userGenres.stream()
-        .map(ug -> getGenreById(ug.getId().getGenreId()))
-        .collect(Collectors.toList());
+  /** The user's genres as a {@link GenreCatalog} mask. */
+  public int getUserGenreMask(String userId) {
+    return getCatalog().maskOf(userGenreRepository.findGenreIdsByUserId(userId));
   }
 
   @Transactional
@@ -77,22 +164,66 @@ public class GenreService {
       PostGenre postGenre = PostGenre.create(postId, genreId);
       postGenreRepository.save(postGenre);
     }
+
+    // Moves the post onto its new genres' leaderboards and off the old ones,
+    // and retires cached genre-filtered feed pages
+    leaderboards.postChanged(postId);
+    generations.bumpFeed();
   }
 
   public List<Genre> getPostGenres(UUID postId) {
-    List<PostGenre> postGenres = postGenreRepository.findByIdPostId(postId);
+    return resolve(postGenreRepository.findGenreIdsByPostId(postId));
+  }
+
+  private List<Genre> resolve(List<Integer> genreIds) {
+    GenreCatalog genres = getCatalog();
+    List<Genre> resolved = new ArrayList<>(genreIds.size());
+    for (Integer genreId : genreIds) {
+      Genre genre = genres.byId(genreId);
+      if (genre != null) {
+        resolved.add(genre);
+      }
+    }
+    return resolved;
+  }
 
-    return postGenres.stream()
-        .map(pg -> getGenreById(pg.getId().getGenreId()))
-        .collect(Collectors.toList());
+  public int getPostGenreMask(UUID postId) {
+    return getCatalog().maskOf(postGenreRepository.findGenreIdsByPostId(postId));
   }
 
-  public Set<UUID> getPostIdsByGenre(Integer genreId) {
-    List<PostGenre> postGenres = postGenreRepository.findByIdGenreId(genreId);
+  /**
+   * Genre masks of many posts with one query; posts without genres are
+   * absent (mask 0).
+   */
+  public Map<UUID, Integer> getPostGenreMasks(Collection<UUID> postIds) {
+    if (postIds.isEmpty()) {
+      return Map.of();
+    }
+    GenreCatalog genres = getCatalog();
+    Map<UUID, Integer> masks = new HashMap<>();
+    for (PostGenreRepository.Assignment assignment : postGenreRepository.findAssignmentsByPostIdIn(postIds)) {
+      masks.merge(assignment.getPostId(), genres.bit(assignment.getGenreId()), (a, b) -> a | b);
+    }
+    return masks;
+  }
 
-    return postGenres.stream()
-        .map(pg -> pg.getId().getPostId())
-        .collect(Collectors.toSet());
+  /**
+   * Resolve the genres of many posts with a single query for the
+   * assignments; the genres themselves come from the catalog.
+   */
+  public Map<UUID, List<Genre>> getPostGenresByPostIds(Collection<UUID> postIds) {
+    if (postIds.isEmpty()) {
+      return Map.of();
+    }
+    GenreCatalog genres = getCatalog();
+    Map<UUID, List<Genre>> result = new HashMap<>();
+    for (PostGenreRepository.Assignment assignment : postGenreRepository.findAssignmentsByPostIdIn(postIds)) {
+      Genre genre = genres.byId(assignment.getGenreId());
+      if (genre != null) {
+        result.computeIfAbsent(assignment.getPostId(), id -> new ArrayList<>(3)).add(genre);
+      }
+    }
+    return result;
   }
 
   public Set<String> getUserIdsByGenre(Integer genreId) {
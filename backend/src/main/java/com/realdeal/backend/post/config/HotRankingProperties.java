@@ -0,0 +1,32 @@
+package com.realdeal.backend.post.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Hot ranking of posts by recent likes and stars, bound from {@code realdeal.reactions.hot.*}.
+ *
+ * @see com.realdeal.backend.post.service.HotRankingService
+ */
+@Data
+@ConfigurationProperties(prefix = "realdeal.reactions.hot")
+public class HotRankingProperties {
+
+  /** Redis sorted set holding the shared ranking. */
+  private String key = "realdeal:posts:hot";
+
+  /** A reaction counts half as much after this long. */
+  private Duration halfLife = Duration.ofHours(6);
+
+  private double likeWeight = 1.0;
+
+  private double starWeight = 2.0;
+
+  /** Hottest posts held in memory (and, twice as many, in Redis); deeper pages are empty. */
+  private int capacity = 1000;
+
+  /** How often this node re-reads the shared ranking, picking up other nodes' reactions. */
+  private Duration syncInterval = Duration.ofSeconds(5);
+}
@@ -0,0 +1,22 @@
+package com.realdeal.backend.post.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Write-behind like/star counters, bound from {@code realdeal.reactions.*}.
+ *
+ * @see com.realdeal.backend.post.service.ReactionCounterBuffer
+ */
+@Data
+@ConfigurationProperties(prefix = "realdeal.reactions")
+public class ReactionCounterProperties {
+
+  /** How long like/star deltas may sit in memory before they are written to posts. */
+  private Duration flushInterval = Duration.ofMillis(500);
+
+  /** Posts updated per batched statement when flushing. */
+  private int batchSize = 500;
+}
@@ -0,0 +1,22 @@
+package com.realdeal.backend.post.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Per-user liked/starred sets, bound from {@code realdeal.reactions.membership.*}.
+ *
+ * @see com.realdeal.backend.post.service.ReactionMembershipService
+ */
+@Data
+@ConfigurationProperties(prefix = "realdeal.reactions.membership")
+public class ReactionMembershipProperties {
+
+  /** Viewers whose liked (and, separately, starred) sets are kept in memory. */
+  private int maxUsers = 10_000;
+
+  /** A viewer's sets are dropped after this long without a lookup. */
+  private Duration idleTimeout = Duration.ofMinutes(30);
+}
@@ -1,18 +1,23 @@
 package com.realdeal.backend.post.controller;
 
-import com.realdeal.backend.authentication.service.UserProfileService;
-import com.realdeal.backend.exp.service.ExperienceService;
 import com.realdeal.backend.post.exception.AccessDeniedException;
 import com.realdeal.backend.genre.dto.GenreDTO;
 import com.realdeal.backend.genre.dto.PostGenreAssignRequest;
 import com.realdeal.backend.genre.model.Genre;
+import com.realdeal.backend.genre.service.GenreLeaderboardService;
 import com.realdeal.backend.genre.service.GenreService;
+import com.realdeal.backend.post.dto.CursorPage;
+import com.realdeal.backend.post.dto.PostSearchHitDTO;
 import com.realdeal.backend.post.dto.PostWithUserDTO;
+import com.realdeal.backend.post.dto.ReactionResult;
 import com.realdeal.backend.post.model.Post;
+import com.realdeal.backend.post.service.PostHydrationService;
 import com.realdeal.backend.post.service.PostService;
 import com.realdeal.backend.post.service.ReactionService;
 import com.realdeal.backend.post.repository.PostRepository;
 import com.realdeal.backend.recommendation.service.RecommendationService;
+import com.realdeal.backend.recommendation.service.RelatedPostService;
+import com.realdeal.backend.search.index.SearchHighlighter;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -22,7 +27,6 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.ArrayList;
@@ -36,28 +40,16 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class PostController {
 
+    private static final int SNIPPET_CHARS = 160;
+
     private final PostService postService;
-    private final UserProfileService userProfileService;
+    private final PostHydrationService postHydrationService;
     private final ReactionService reactionService;
     private final PostRepository postRepo;
     private final GenreService genreService;
     private final RecommendationService recommendationService;
-
-    private final ExperienceService experienceService;
-
-    private PostWithUserDTO buildDto(Post post,
-        String viewerId,
-        boolean liked,
-        boolean starred,
-        List<GenreDTO> genres) {
-
-        String username = userProfileService.getUsernameByUserId(post.getUserId());
-        int    level    = experienceService.getLevel(post.getUserId());   // CREATOR level
-
-        return PostWithUserDTO.fromPost(
-            post, username, level, liked, starred,
-            genres != null ? genres : new ArrayList<>());
-    }
+    private final RelatedPostService relatedPostService;
+    private final GenreLeaderboardService genreLeaderboardService;
 
     @PostMapping(value = "/create", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<PostWithUserDTO> createPost(
@@ -70,27 +62,56 @@ public class PostController {
         Post saved = postService.createPost(userId, title, content, images);
 
         // Assign genres if provided
-        List<GenreDTO> genreDTOs = null;
         if (genreIds != null && !genreIds.isEmpty()) {
             genreService.assignGenresToPost(saved.getId(), genreIds);
-            List<Genre> postGenres = genreService.getPostGenres(saved.getId());
-            genreDTOs = postGenres.stream()
-                .map(genre -> new GenreDTO(genre.getId(), genre.getName(), genre.getDescription()))
-                .collect(Collectors.toList());
         }
 
-        PostWithUserDTO dto =
-            buildDto(saved, userId,      // viewerId == author on creation
-                false, false, genreDTOs);
+        // A brand-new post can't be liked or starred yet, so no viewer lookups
+        PostWithUserDTO dto = postHydrationService.hydrate(saved, null);
         return new ResponseEntity<>(dto, HttpStatus.CREATED);
     }
 
+    /**
+     * Main feed. Passing {@code cursor} (empty for the first page) switches to
+     * keyset paging and returns a {@link CursorPage}; otherwise the classic
+     * offset {@link Page} is returned for older clients. {@code sort=hot}
+     * orders by recent likes and stars instead of age, in offset pages.
+     * {@code genreIds} keeps posts in any of those genres, always in cursor
+     * pages (no cursor is the first page).
+     */
     @GetMapping("/all")
-    public ResponseEntity<Page<PostWithUserDTO>> getPosts(
+    public ResponseEntity<?> getPosts(
         @RequestParam(defaultValue = "0") int page,
         @RequestParam(defaultValue = "9") int size,
         @RequestParam(required = false) String userId,
-        @RequestParam(defaultValue = "0") int postsViewed) {
+        @RequestParam(defaultValue = "0") int postsViewed,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "recent") String sort,
+        @RequestParam(required = false) List<Integer> genreIds) {
+
+        boolean byGenre = genreIds != null && !genreIds.isEmpty();
+        if ("hot".equalsIgnoreCase(sort)) {
+            if (byGenre) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "genreIds needs sort=recent");
+            }
+            return ResponseEntity.ok(toDtoPage(postService.getHotPosts(page, size), userId));
+        }
+        if (!"recent".equalsIgnoreCase(sort)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "sort must be 'recent' or 'hot'");
+        }
+
+        if (cursor != null || byGenre) {
+            CursorPage<Post> posts = byGenre
+                ? postService.getPostsInGenresAfter(genreIds, cursor, size)
+                : postService.getPostsAfter(cursor, size);
+
+            // Re-ranking within the page doesn't affect the cursor, which tracks recency order
+            List<Post> postList = posts.getContent();
+            if (userId != null) {
+                postList = recommendationService.applyRecommendationLogic(postList, userId, postsViewed);
+            }
+            return ResponseEntity.ok(toDtoCursorPage(posts, postList, userId));
+        }
 
         // Get posts with pagination
         Page<Post> posts = postService.getPaginatedPosts(page, size);
@@ -103,37 +124,8 @@ public class PostController {
             postList = recommendationService.applyRecommendationLogic(postList, userId, postsViewed);
         }
 
-        // Extract all userIds
-        List<String> userIds = postList.stream()
-            .map(Post::getUserId)
-            .distinct()
-            .collect(Collectors.toList());
-
-        // Fetch all usernames in one batch
-        Map<String, String> usernameMap = userProfileService.getUsernamesByUserIds(userIds);
-
-        // Map posts to DTOs with usernames, reaction status, and genres
-        List<PostWithUserDTO> postDTOs = postList.stream()
-            .map(post -> {
-                String username = usernameMap.getOrDefault(post.getUserId(), "Unknown User");
-                boolean liked = false;
-                boolean starred = false;
-
-                // Check if the current user has liked or starred this post
-                if (userId != null) {
-                    liked = reactionService.hasLiked(post.getId(), userId);
-                    starred = reactionService.hasStarred(post.getId(), userId);
-                }
-
-                // Get genres for this post
-                List<Genre> postGenres = genreService.getPostGenres(post.getId());
-                List<GenreDTO> genreDTOs = postGenres.stream()
-                    .map(genre -> new GenreDTO(genre.getId(), genre.getName(), genre.getDescription()))
-                    .collect(Collectors.toList());
-
-                return buildDto(post, username, liked, starred, genreDTOs);
-            })
-            .collect(Collectors.toList());
+        // Usernames, levels, reaction status and genres for the whole page
+        List<PostWithUserDTO> postDTOs = postHydrationService.hydrate(postList, userId);
 
         Page<PostWithUserDTO> postDTOPage = new PageImpl<>(
             postDTOs,
@@ -144,47 +136,70 @@ public class PostController {
         return ResponseEntity.ok(postDTOPage);
     }
 
+    /**
+     * Personalized feed: the user's ranked snapshot of a candidate pool
+     * (recent posts plus recent posts in their genres), paged by cursor.
+     * An empty or absent cursor starts a new snapshot.
+     */
+    @GetMapping("/recommended")
+    public ResponseEntity<CursorPage<PostWithUserDTO>> getRecommendedPosts(
+        @RequestParam String userId,
+        @RequestParam(defaultValue = "9") int size,
+        @RequestParam(defaultValue = "0") int postsViewed,
+        @RequestParam(required = false) String cursor) {
+
+        CursorPage<Post> posts =
+            recommendationService.getRecommendedPosts(userId, cursor, size, postsViewed);
+        return ResponseEntity.ok(toDtoCursorPage(posts, posts.getContent(), userId));
+    }
+
+    /**
+     * Genre feed: the genre's newest ({@code sort=recent}) or most liked and
+     * starred ({@code sort=top}) posts, in offset pages over a bounded
+     * leaderboard.
+     */
+    @GetMapping("/genre/{genreId}")
+    public ResponseEntity<Page<PostWithUserDTO>> getPostsByGenre(
+        @PathVariable Integer genreId,
+        @RequestParam(defaultValue = "0") int page,
+        @RequestParam(defaultValue = "9") int size,
+        @RequestParam(required = false) String userId,
+        @RequestParam(defaultValue = "recent") String sort) {
+
+        GenreLeaderboardService.Sort order;
+        if ("top".equalsIgnoreCase(sort)) {
+            order = GenreLeaderboardService.Sort.TOP;
+        } else if ("recent".equalsIgnoreCase(sort)) {
+            order = GenreLeaderboardService.Sort.RECENT;
+        } else {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "sort must be 'recent' or 'top'");
+        }
+        if (genreService.getCatalog().byId(genreId) == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Genre not found");
+        }
+
+        return ResponseEntity.ok(toDtoPage(genreLeaderboardService.getPosts(genreId, order, page, size), userId));
+    }
+
     @GetMapping("/user/{userId}")
-    public ResponseEntity<Page<PostWithUserDTO>> getPostsByUserId(
+    public ResponseEntity<?> getPostsByUserId(
         @PathVariable String userId,
         @RequestParam(defaultValue = "0") int page,
         @RequestParam(defaultValue = "9") int size,
-        @RequestParam(required = false) String currentUserId) {
+        @RequestParam(required = false) String currentUserId,
+        @RequestParam(required = false) String cursor) {
+
+        if (cursor != null) {
+            CursorPage<Post> posts = postService.getPostsByUserIdAfter(userId, cursor, size);
+            return ResponseEntity.ok(toDtoCursorPage(posts, posts.getContent(), currentUserId));
+        }
 
         // Get posts for the specified user with pagination
         Page<Post> posts = postService.getPostsByUserId(userId, page, size);
 
-        // Extract all usernames needed for these posts
-        List<String> userIds = posts.getContent().stream()
-            .map(Post::getUserId)
-            .distinct()
-            .collect(Collectors.toList());
-
-        // Fetch all usernames in one batch
-        Map<String, String> usernameMap = userProfileService.getUsernamesByUserIds(userIds);
-
-        // Map posts to DTOs with usernames, reaction status, and genres
-        List<PostWithUserDTO> postDTOs = posts.getContent().stream()
-            .map(post -> {
-                String username = usernameMap.getOrDefault(post.getUserId(), "Unknown User");
-                boolean liked = false;
-                boolean starred = false;
-
-                // Check if the current user has liked or starred this post
-                if (currentUserId != null) {
-                    liked = reactionService.hasLiked(post.getId(), currentUserId);
-                    starred = reactionService.hasStarred(post.getId(), currentUserId);
-                }
-
-                // Get genres for this post
-                List<Genre> postGenres = genreService.getPostGenres(post.getId());
-                List<GenreDTO> genreDTOs = postGenres.stream()
-                    .map(genre -> new GenreDTO(genre.getId(), genre.getName(), genre.getDescription()))
-                    .collect(Collectors.toList());
-
-                return buildDto(post, username, liked, starred, genreDTOs);
-            })
-            .collect(Collectors.toList());
+        // Usernames, levels, reaction status and genres for the whole page
+        List<PostWithUserDTO> postDTOs =
+            postHydrationService.hydrate(posts.getContent(), currentUserId);
 
         Page<PostWithUserDTO> postDTOPage = new PageImpl<>(
             postDTOs,
@@ -214,20 +229,7 @@ public class PostController {
         // Update the post
         Post updatedPost = postService.updatePost(postId, title, content);
 
-        // Get username
-        String username = userProfileService.getUsernameByUserId(userId);
-
-        // Get genres for this post
-        List<Genre> postGenres = genreService.getPostGenres(postId);
-        List<GenreDTO> genreDTOs = postGenres.stream()
-            .map(genre -> new GenreDTO(genre.getId(), genre.getName(), genre.getDescription()))
-            .collect(Collectors.toList());
-
-        // Check reaction status
-        boolean liked = reactionService.hasLiked(postId, userId);
-        boolean starred = reactionService.hasStarred(postId, userId);
-
-        PostWithUserDTO dto = buildDto(updatedPost, username, liked, starred, genreDTOs);
+        PostWithUserDTO dto = postHydrationService.hydrate(updatedPost, userId);
         return ResponseEntity.ok(dto);
     }
 
@@ -269,88 +271,156 @@ public class PostController {
         return ResponseEntity.ok(genreDTOs);
     }
 
+    /** Toggle, kept for older clients; prefer the idempotent PUT/DELETE below. */
     @PostMapping("/{postId}/like")
-    @Transactional
     public ResponseEntity<?> like(@PathVariable UUID postId,
         @RequestParam String userId) {
 
-        boolean liked = reactionService.toggleLike(postId, userId);
-        int count = postRepo.findById(postId).orElseThrow().getLikesCount();
-        return ResponseEntity.ok(Map.of("liked", liked, "likes", count));
+        return liked(reactionService.toggleLike(postId, userId));
+    }
+
+    @PutMapping("/{postId}/like")
+    public ResponseEntity<?> setLike(@PathVariable UUID postId,
+        @RequestParam String userId) {
+
+        return liked(reactionService.setLike(postId, userId, true));
+    }
+
+    @DeleteMapping("/{postId}/like")
+    public ResponseEntity<?> unsetLike(@PathVariable UUID postId,
+        @RequestParam String userId) {
+
+        return liked(reactionService.setLike(postId, userId, false));
+    }
+
+    private static ResponseEntity<?> liked(ReactionResult result) {
+        return ResponseEntity.ok(Map.of("liked", result.isActive(), "likes", result.getCount()));
     }
 
     @PostMapping("/{postId}/star")
-    @Transactional
     public ResponseEntity<?> star(@PathVariable UUID postId,
         @RequestParam String userId) {
 
-        boolean starred = reactionService.toggleStar(postId, userId);
-        int count = postRepo.findById(postId).orElseThrow().getStarsCount();
-        return ResponseEntity.ok(Map.of("starred", starred, "stars", count));
+        return starred(reactionService.toggleStar(postId, userId));
+    }
+
+    @PutMapping("/{postId}/star")
+    public ResponseEntity<?> setStar(@PathVariable UUID postId,
+        @RequestParam String userId) {
+
+        return starred(reactionService.setStar(postId, userId, true));
+    }
+
+    @DeleteMapping("/{postId}/star")
+    public ResponseEntity<?> unsetStar(@PathVariable UUID postId,
+        @RequestParam String userId) {
+
+        return starred(reactionService.setStar(postId, userId, false));
+    }
+
+    private static ResponseEntity<?> starred(ReactionResult result) {
+        return ResponseEntity.ok(Map.of("starred", result.isActive(), "stars", result.getCount()));
+    }
+
+    /** "Users who liked this also liked", best match first; empty until the model is loaded. */
+    @GetMapping("/{postId}/related")
+    public ResponseEntity<List<PostWithUserDTO>> related(
+        @PathVariable UUID postId,
+        @RequestParam(defaultValue = "10") int limit,
+        @RequestParam(required = false) String userId) {
+
+        if (limit < 1 || limit > 50) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and 50");
+        }
+        List<Post> posts = relatedPostService.relatedPosts(postId, limit);
+        return ResponseEntity.ok(postHydrationService.hydrate(posts, userId));
     }
 
     @GetMapping("/liked/{userId}")
-    public ResponseEntity<Page<PostWithUserDTO>> liked(
+    public ResponseEntity<?> liked(
         @PathVariable String userId,
         @RequestParam(defaultValue = "0") int page,
         @RequestParam(defaultValue = "9") int size,
-        @RequestParam(required = false) String currentUserId) {
+        @RequestParam(required = false) String currentUserId,
+        @RequestParam(required = false) String cursor) {
+
+        if (cursor != null) {
+            CursorPage<Post> posts = postService.getLikedPostsAfter(userId, cursor, size);
+            return ResponseEntity.ok(toDtoCursorPage(posts, posts.getContent(), currentUserId));
+        }
 
         Page<Post> posts = postService.getLikedPosts(userId, page, size);
         return ResponseEntity.ok(toDtoPage(posts, currentUserId));
     }
 
     @GetMapping("/starred/{userId}")
-    public ResponseEntity<Page<PostWithUserDTO>> starred(
+    public ResponseEntity<?> starred(
         @PathVariable String userId,
         @RequestParam(defaultValue = "0") int page,
         @RequestParam(defaultValue = "9") int size,
-        @RequestParam(required = false) String currentUserId) {
+        @RequestParam(required = false) String currentUserId,
+        @RequestParam(required = false) String cursor) {
+
+        if (cursor != null) {
+            CursorPage<Post> posts = postService.getStarredPostsAfter(userId, cursor, size);
+            return ResponseEntity.ok(toDtoCursorPage(posts, posts.getContent(), currentUserId));
+        }
 
         Page<Post> posts = postService.getStarredPosts(userId, page, size);
         return ResponseEntity.ok(toDtoPage(posts, currentUserId));
     }
 
+    /**
+     * Post search. {@code sort=recent} (default) returns full posts newest
+     * first; {@code sort=relevance} ranks by BM25 and returns
+     * {@link PostSearchHitDTO}s with a highlighted snippet instead of the body.
+     */
     @GetMapping("/search/posts")    //  ← unique, constant path
-    public Page<PostWithUserDTO> search(
+    public ResponseEntity<?> search(
         @RequestParam String q,
         @RequestParam(defaultValue="0") int page,
         @RequestParam(defaultValue="9") int size,
-        @RequestParam(required=false) String currentUserId) {
+        @RequestParam(required=false) String currentUserId,
+        @RequestParam(defaultValue="recent") String sort) {
+
+        if ("relevance".equalsIgnoreCase(sort)) {
+            Page<Post> result = postService.searchByRelevance(q, page, size);
+            return ResponseEntity.ok(toSearchHitPage(result, q, currentUserId));
+        }
+        if (!"recent".equalsIgnoreCase(sort)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "sort must be 'recent' or 'relevance'");
+        }
 
         Page<Post> result = postService.search(q, page, size);
-        return toDtoPage(result, currentUserId);
+        return ResponseEntity.ok(toDtoPage(result, currentUserId));
     }
 
-    private Page<PostWithUserDTO> toDtoPage(Page<Post> posts, String viewerId) {
-
-        /* batch-lookup usernames */
-        Map<String, String> usernameMap = userProfileService
-            .getUsernamesByUserIds(
-                posts.getContent().stream()
-                    .map(Post::getUserId)
-                    .distinct()
-                    .toList());
-
-        List<PostWithUserDTO> dtoList = posts.getContent().stream().map(p -> {
-
-            String username = usernameMap.getOrDefault(p.getUserId(), "Unknown User");
-            boolean liked = false, starred = false;
-
-            if (viewerId != null) {
-                liked   = reactionService.hasLiked  (p.getId(), viewerId);
-                starred = reactionService.hasStarred(p.getId(), viewerId);
-            }
-
-            List<GenreDTO> genres = genreService.getPostGenres(p.getId()).stream()
-                .map(g -> new GenreDTO(g.getId(), g.getName(), g.getDescription()))
-                .collect(Collectors.toList());
-
-            return buildDto(p, username, liked, starred, genres);
-        }).toList();
+    private Page<PostSearchHitDTO> toSearchHitPage(Page<Post> posts, String query, String viewerId) {
+        List<PostWithUserDTO> dtoList = postHydrationService.hydrate(posts.getContent(), viewerId);
+        List<PostSearchHitDTO> hits = new ArrayList<>(dtoList.size());
+        for (PostWithUserDTO dto : dtoList) {
+            SearchHighlighter.Snippet snippet =
+                SearchHighlighter.snippet(dto.getContent(), query, SNIPPET_CHARS);
+            dto.setContent(null);
+            hits.add(new PostSearchHitDTO(dto,
+                SearchHighlighter.highlights(dto.getTitle(), query),
+                snippet.getText(),
+                snippet.getHighlights()));
+        }
+        return new PageImpl<>(hits, posts.getPageable(), posts.getTotalElements());
+    }
 
+    private Page<PostWithUserDTO> toDtoPage(Page<Post> posts, String viewerId) {
+        List<PostWithUserDTO> dtoList = postHydrationService.hydrate(posts.getContent(), viewerId);
         return new PageImpl<>(dtoList, posts.getPageable(), posts.getTotalElements());
     }
 
+    private CursorPage<PostWithUserDTO> toDtoCursorPage(CursorPage<Post> posts,
+        List<Post> ordered,
+        String viewerId) {
+        List<PostWithUserDTO> dtoList = postHydrationService.hydrate(ordered, viewerId);
+        return new CursorPage<>(dtoList, posts.getNextCursor());
+    }
+
 
 }
\ No newline at end of file
@@ -20,11 +20,14 @@ public class CommentDTO {
   private String content;
   private UUID parentId;
   private List<CommentDTO> replies = new ArrayList<>();
+  /** Direct replies in total; {@link #replies} may hold only the first few. */
+  private int replyCount;
   private int likesCount;
   private boolean liked;
   private LocalDateTime createdAt;
 
-  public static CommentDTO fromComment(Comment comment, String username, boolean liked, Map<UUID, Boolean> likeStatusMap) {
+  /** The comment alone, without touching its replies. */
+  public static CommentDTO of(Comment comment, String username, boolean liked) {
     CommentDTO dto = new CommentDTO();
     dto.setId(comment.getId());
     dto.setPostId(comment.getPost().getId());
@@ -35,8 +38,14 @@ public class CommentDTO {
       dto.setParentId(comment.getParentComment().getId());
     }
     dto.setLikesCount(comment.getLikesCount());
+    dto.setReplyCount(comment.getReplyCount());
     dto.setLiked(liked);
     dto.setCreatedAt(comment.getCreatedAt());
+    return dto;
+  }
+
+  public static CommentDTO fromComment(Comment comment, String username, boolean liked, Map<UUID, Boolean> likeStatusMap) {
+    CommentDTO dto = of(comment, username, liked);
     dto.setReplies(comment.getReplies().stream()
         .map(reply -> {
           // Get username for reply author
@@ -0,0 +1,20 @@
+package com.realdeal.backend.post.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One slice of a keyset-paginated feed. There is deliberately no total
+ * count; {@code nextCursor} is {@code null} once the feed is exhausted.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+  private List<T> content = new ArrayList<>();
+  private String nextCursor;
+}
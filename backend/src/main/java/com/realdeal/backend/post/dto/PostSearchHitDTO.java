@@ -0,0 +1,22 @@
+package com.realdeal.backend.post.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One relevance-ranked search result. {@code post.content} is left out;
+ * {@code snippet} carries the part of it around the hits instead.
+ * Highlights are {@code [start, end)} char ranges into the title or snippet.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostSearchHitDTO {
+  private PostWithUserDTO post;
+  private List<int[]> titleHighlights;
+  private String snippet;
+  private List<int[]> snippetHighlights;
+}
@@ -0,0 +1,17 @@
+package com.realdeal.backend.post.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** State of one user's like/star after a write, and the target's current count. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReactionResult {
+  /** Whether the reaction is now set. */
+  private boolean active;
+  /** Whether this call changed it; repeating a set or unset is a no-op. */
+  private boolean changed;
+  private int count;
+}
@@ -0,0 +1,93 @@
+package com.realdeal.backend.post.index;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Posts ordered by {@link HotScore}, hottest first, kept sorted as scores
+ * change.
+ * <p>
+ * A score lookup map sits next to a tree ordered by (score desc, id), so an
+ * update is {@code O(log n)} and the top {@code k} posts are
+ * {@code O(log n + k)}; a page further down also walks past the posts before
+ * it, which {@link #trimTo} bounds.
+ * <p>
+ * Every method synchronizes on the ranking.
+ */
+public final class HotRanking {
+
+    private static final Comparator<Entry> HOTTEST_FIRST =
+        Comparator.comparingDouble((Entry e) -> e.score).reversed().thenComparing(e -> e.postId);
+
+    private static final class Entry {
+        final UUID postId;
+        final double score;
+
+        Entry(UUID postId, double score) {
+            this.postId = postId;
+            this.score = score;
+        }
+    }
+
+    private final Map<UUID, Double> scores = new HashMap<>();
+    private final TreeSet<Entry> order = new TreeSet<>(HOTTEST_FIRST);
+
+    /** Set the post's score; a score of negative infinity removes it. */
+    public synchronized void put(UUID postId, double score) {
+        Double previous = scores.remove(postId);
+        if (previous != null) {
+            order.remove(new Entry(postId, previous));
+        }
+        if (score != Double.NEGATIVE_INFINITY && !Double.isNaN(score)) {
+            scores.put(postId, score);
+            order.add(new Entry(postId, score));
+        }
+    }
+
+    public synchronized void remove(UUID postId) {
+        put(postId, Double.NEGATIVE_INFINITY);
+    }
+
+    /** The post's score, or null if it is not ranked. */
+    public synchronized Double score(UUID postId) {
+        return scores.get(postId);
+    }
+
+    /** Posts {@code [offset, offset + limit)}, hottest first. */
+    public synchronized List<UUID> top(int offset, int limit) {
+        List<UUID> page = new ArrayList<>(Math.max(0, Math.min(limit, scores.size() - offset)));
+        Iterator<Entry> it = order.iterator();
+        for (int i = 0; i < offset && it.hasNext(); i++) {
+            it.next();
+        }
+        while (page.size() < limit && it.hasNext()) {
+            page.add(it.next().postId);
+        }
+        return page;
+    }
+
+    public synchronized int size() {
+        return scores.size();
+    }
+
+    /** Replace every score, e.g. with the shared ranking's current top. */
+    public synchronized void replaceAll(Map<UUID, Double> fresh) {
+        scores.clear();
+        order.clear();
+        fresh.forEach(this::put);
+    }
+
+    /** Drop all but the {@code capacity} hottest posts. */
+    public synchronized void trimTo(int capacity) {
+        while (order.size() > capacity) {
+            Entry coldest = order.pollLast();
+            scores.remove(coldest.postId);
+        }
+    }
+}
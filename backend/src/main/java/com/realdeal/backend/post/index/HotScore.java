@@ -0,0 +1,51 @@
+package com.realdeal.backend.post.index;
+
+import java.time.Duration;
+
+/**
+ * Time-decayed engagement scores, kept in log space.
+ * <p>
+ * A reaction at time {@code t} adds {@code weight * 2^((t - EPOCH) / halfLife)}
+ * to its post. Every post's sum decays by the same factor as time passes, so
+ * ordering by the sums is ordering by the decayed score at any moment, and a
+ * score never has to be touched again except when the post gets a reaction.
+ * The sums outgrow a double within months, so what is stored is their log2:
+ * a reaction adds {@code log2(weight) + (t - EPOCH) / halfLife}, combined
+ * with {@link #add}/{@link #subtract}. The Redis script in
+ * {@code HotRankingService} does the same arithmetic.
+ */
+public final class HotScore {
+
+    /** 2024-01-01T00:00:00Z; any fixed instant works. */
+    public static final long EPOCH_MILLIS = 1_704_067_200_000L;
+
+    private HotScore() {
+    }
+
+    /** log2 of what a reaction of {@code weight} at {@code timeMillis} contributes. */
+    public static double contribution(double weight, long timeMillis, Duration halfLife) {
+        return log2(weight) + (double) (timeMillis - EPOCH_MILLIS) / halfLife.toMillis();
+    }
+
+    /** {@code log2(2^a + 2^b)}, without leaving log space. */
+    public static double add(double a, double b) {
+        double hi = Math.max(a, b);
+        double lo = Math.min(a, b);
+        return hi + log2(1 + Math.pow(2, lo - hi));
+    }
+
+    /**
+     * {@code log2(2^a - 2^b)}, or {@link Double#NEGATIVE_INFINITY} when
+     * {@code b} takes away all of {@code a}.
+     */
+    public static double subtract(double a, double b) {
+        if (b >= a) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return a + log2(1 - Math.pow(2, b - a));
+    }
+
+    private static double log2(double x) {
+        return Math.log(x) / Math.log(2);
+    }
+}
@@ -0,0 +1,187 @@
+package com.realdeal.backend.post.index;
+
+import java.util.Arrays;
+
+/**
+ * Compressed set of non-negative ints, in the style of a Roaring bitmap.
+ * <p>
+ * Values are split on their high 16 bits into chunks of 65536. A chunk
+ * holding up to {@value #ARRAY_MAX} values stores them as a sorted
+ * {@code char[]} (2 bytes per value); a fuller chunk switches to a plain
+ * 8 KB bitset. A user who liked a few hundred posts therefore costs a few
+ * hundred bytes, and lookups are a binary search over the chunks plus
+ * either a binary search or one bit test.
+ * <p>
+ * Not thread-safe; callers synchronize.
+ */
+public final class IntBitmap {
+
+    /** Largest array chunk; beyond this a bitset (1024 longs) is smaller. */
+    static final int ARRAY_MAX = 4096;
+
+    private static final int BITSET_WORDS = 1 << 10;
+
+    private char[] highs = new char[0];
+    // char[] (sorted, first sizes[i] used) or long[BITSET_WORDS]
+    private Object[] chunks = new Object[0];
+    private int[] sizes = new int[0];
+    private int chunkCount;
+    private int size;
+
+    public boolean contains(int value) {
+        int chunk = chunkOf(value);
+        if (chunk < 0) {
+            return false;
+        }
+        char low = (char) value;
+        if (chunks[chunk] instanceof long[] bits) {
+            return (bits[low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch((char[]) chunks[chunk], 0, sizes[chunk], low) >= 0;
+    }
+
+    /** Returns whether the value was added (i.e. was not present). */
+    public boolean add(int value) {
+        int chunk = chunkOf(value);
+        if (chunk < 0) {
+            chunk = insertChunk(-chunk - 1, (char) (value >>> 16));
+        }
+        char low = (char) value;
+
+        if (chunks[chunk] instanceof long[] bits) {
+            long mask = 1L << low;
+            if ((bits[low >>> 6] & mask) != 0) {
+                return false;
+            }
+            bits[low >>> 6] |= mask;
+        } else {
+            char[] values = (char[]) chunks[chunk];
+            int n = sizes[chunk];
+            int at = Arrays.binarySearch(values, 0, n, low);
+            if (at >= 0) {
+                return false;
+            }
+            at = -at - 1;
+            if (n == ARRAY_MAX) {
+                long[] bits = toBitset(values, n);
+                bits[low >>> 6] |= 1L << low;
+                chunks[chunk] = bits;
+            } else {
+                if (n == values.length) {
+                    values = Arrays.copyOf(values, Math.min(ARRAY_MAX, Math.max(4, n * 2)));
+                    chunks[chunk] = values;
+                }
+                System.arraycopy(values, at, values, at + 1, n - at);
+                values[at] = low;
+            }
+        }
+        sizes[chunk]++;
+        size++;
+        return true;
+    }
+
+    /** Returns whether the value was removed (i.e. was present). */
+    public boolean remove(int value) {
+        int chunk = chunkOf(value);
+        if (chunk < 0) {
+            return false;
+        }
+        char low = (char) value;
+
+        if (chunks[chunk] instanceof long[] bits) {
+            long mask = 1L << low;
+            if ((bits[low >>> 6] & mask) == 0) {
+                return false;
+            }
+            bits[low >>> 6] &= ~mask;
+            if (sizes[chunk] - 1 == ARRAY_MAX) {
+                chunks[chunk] = toArray(bits, ARRAY_MAX);
+            }
+        } else {
+            char[] values = (char[]) chunks[chunk];
+            int n = sizes[chunk];
+            int at = Arrays.binarySearch(values, 0, n, low);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(values, at + 1, values, at, n - at - 1);
+        }
+        size--;
+        if (--sizes[chunk] == 0) {
+            removeChunk(chunk);
+        }
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Approximate heap footprint of the chunks, for logging. */
+    public long bytes() {
+        long bytes = chunkCount * 16L;
+        for (int i = 0; i < chunkCount; i++) {
+            bytes += chunks[i] instanceof long[] ? BITSET_WORDS * 8L : ((char[]) chunks[i]).length * 2L;
+        }
+        return bytes;
+    }
+
+    /* ------------------------------ chunks ------------------------------ */
+
+    private int chunkOf(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value: " + value);
+        }
+        return Arrays.binarySearch(highs, 0, chunkCount, (char) (value >>> 16));
+    }
+
+    private int insertChunk(int at, char high) {
+        if (chunkCount == highs.length) {
+            int capacity = Math.max(4, chunkCount * 2);
+            highs = Arrays.copyOf(highs, capacity);
+            chunks = Arrays.copyOf(chunks, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+        }
+        System.arraycopy(highs, at, highs, at + 1, chunkCount - at);
+        System.arraycopy(chunks, at, chunks, at + 1, chunkCount - at);
+        System.arraycopy(sizes, at, sizes, at + 1, chunkCount - at);
+        highs[at] = high;
+        chunks[at] = new char[4];
+        sizes[at] = 0;
+        chunkCount++;
+        return at;
+    }
+
+    private void removeChunk(int at) {
+        int tail = chunkCount - at - 1;
+        System.arraycopy(highs, at + 1, highs, at, tail);
+        System.arraycopy(chunks, at + 1, chunks, at, tail);
+        System.arraycopy(sizes, at + 1, sizes, at, tail);
+        chunks[--chunkCount] = null;
+    }
+
+    private static long[] toBitset(char[] values, int n) {
+        long[] bits = new long[BITSET_WORDS];
+        for (int i = 0; i < n; i++) {
+            bits[values[i] >>> 6] |= 1L << values[i];
+        }
+        return bits;
+    }
+
+    private static char[] toArray(long[] bits, int n) {
+        char[] values = new char[n];
+        int i = 0;
+        for (int word = 0; word < BITSET_WORDS; word++) {
+            long w = bits[word];
+            while (w != 0) {
+                values[i++] = (char) (word * 64 + Long.numberOfTrailingZeros(w));
+                w &= w - 1;
+            }
+        }
+        return values;
+    }
+}
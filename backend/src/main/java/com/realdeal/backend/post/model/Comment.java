@@ -12,7 +12,10 @@ import java.util.UUID;
 
 @Data
 @Entity
-@Table(name = "comments")
+@Table(name = "comments", indexes = {
+    @Index(name = "idx_comments_post_roots", columnList = "post_id, parent_id, created_at"),
+    @Index(name = "idx_comments_replies", columnList = "parent_id, created_at, id")
+})
 public class Comment {
 
   @Id
@@ -40,5 +43,9 @@ public class Comment {
 
   private int likesCount = 0;
 
+  // Direct replies, kept by CommentService.addComment; the default fills existing rows
+  @Column(nullable = false, columnDefinition = "integer not null default 0")
+  private int replyCount = 0;
+
   private LocalDateTime createdAt = LocalDateTime.now();
 }
\ No newline at end of file
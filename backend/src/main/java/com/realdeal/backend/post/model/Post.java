@@ -9,7 +9,8 @@ import java.util.List;
 import java.util.UUID;
 
 @Data
-@Entity @Table(name = "posts")
+// Keyset feeds walk (created_at, id) newest first
+@Entity @Table(name = "posts", indexes = @Index(name = "idx_posts_created_at_id", columnList = "created_at, id"))
 public class Post {
 
     @Id @GeneratedValue
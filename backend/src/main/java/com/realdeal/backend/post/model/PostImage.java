@@ -2,6 +2,8 @@ package com.realdeal.backend.post.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import java.util.UUID;
 
@@ -16,6 +18,8 @@ public class PostImage {
     //Marks the child side of the relationship.
     //The field with this annotation will be omitted from serialization.
     @ManyToOne(fetch = FetchType.LAZY)
+    @EqualsAndHashCode.Exclude           // parent already includes its images;
+    @ToString.Exclude                    // following the back-link would recurse forever
     private Post post;
 
     private int position;
@@ -3,12 +3,56 @@ package com.realdeal.backend.post.repository;
 import com.realdeal.backend.post.model.CommentLike;
 import com.realdeal.backend.post.model.pk.CommentLikePK;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface CommentLikeRepository extends JpaRepository<CommentLike, CommentLikePK> {
   long countByCommentId(UUID commentId);
   boolean existsByCommentIdAndUserId(UUID commentId, String userId);
+
+  /** Which of the comments the user has liked, by primary key. */
+  @Query("SELECT l.commentId FROM CommentLike l WHERE l.userId = :userId AND l.commentId IN :commentIds")
+  List<UUID> findLikedCommentIds(@Param("userId") String userId, @Param("commentIds") Collection<UUID> commentIds);
+
+  /** {@link ReactionWrite} plus the comment's post, whose comment pages carry the counter. */
+  interface CommentLikeWrite extends ReactionWrite {
+    UUID getPostId();
+  }
+
+  /*
+   * Set/unset in one round trip. Comment counters are not written behind,
+   * so the same statement also moves likes_count when a row changed and
+   * returns the new value.
+   */
+  @Query(value = "WITH changed AS ("
+       + "  INSERT INTO comment_likes (comment_id, user_id, created_at) "
+       + "  SELECT c.id, :userId, now() FROM comments c WHERE c.id = :commentId "
+       + "  ON CONFLICT DO NOTHING RETURNING comment_id), "
+       + "bumped AS ("
+       + "  UPDATE comments SET likes_count = likes_count + 1 "
+       + "  WHERE id IN (SELECT comment_id FROM changed) RETURNING likes_count) "
+       + "SELECT EXISTS (SELECT 1 FROM changed) AS \"changed\", c.user_id AS \"ownerId\", "
+       + "       COALESCE((SELECT likes_count FROM bumped), c.likes_count) AS \"count\", "
+       + "       c.post_id AS \"postId\" "
+       + "FROM comments c WHERE c.id = :commentId", nativeQuery = true)
+  Optional<CommentLikeWrite> insertLike(@Param("commentId") UUID commentId, @Param("userId") String userId);
+
+  @Query(value = "WITH changed AS ("
+       + "  DELETE FROM comment_likes WHERE comment_id = :commentId AND user_id = :userId "
+       + "  RETURNING comment_id), "
+       + "bumped AS ("
+       + "  UPDATE comments SET likes_count = likes_count - 1 "
+       + "  WHERE id IN (SELECT comment_id FROM changed) RETURNING likes_count) "
+       + "SELECT EXISTS (SELECT 1 FROM changed) AS \"changed\", c.user_id AS \"ownerId\", "
+       + "       COALESCE((SELECT likes_count FROM bumped), c.likes_count) AS \"count\", "
+       + "       c.post_id AS \"postId\" "
+       + "FROM comments c WHERE c.id = :commentId", nativeQuery = true)
+  Optional<CommentLikeWrite> deleteLike(@Param("commentId") UUID commentId, @Param("userId") String userId);
 }
\ No newline at end of file
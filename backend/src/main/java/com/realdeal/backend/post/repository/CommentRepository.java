@@ -1,38 +1,84 @@
 package com.realdeal.backend.post.repository;
 
 import com.realdeal.backend.post.model.Comment;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, UUID> {
-  // Find top-level comments for a post (comments without a parent)
-  @Query("SELECT c FROM Comment c WHERE c.post.id = :postId AND c.parentComment IS NULL")
-  Page<Comment> findTopLevelCommentsByPostId(@Param("postId") UUID postId, Pageable pageable);
+  /*
+   * A page of top-level comments plus the first :preview direct replies of
+   * each, flat and oldest first, in one round trip. Each reply preview is a
+   * short range scan of idx_comments_replies.
+   */
+  @Query(value = "WITH roots AS ("
+       + "  SELECT * FROM comments WHERE post_id = :postId AND parent_id IS NULL "
+       + "  ORDER BY created_at ASC, id ASC LIMIT :limit OFFSET :offset) "
+       + "SELECT * FROM roots "
+       + "UNION ALL "
+       + "SELECT r.* FROM roots p CROSS JOIN LATERAL ("
+       + "  SELECT * FROM comments c WHERE c.parent_id = p.id "
+       + "  ORDER BY c.created_at ASC, c.id ASC LIMIT :preview) r "
+       + "ORDER BY created_at ASC, id ASC", nativeQuery = true)
+  List<Comment> findThreadPreviewsByPostId(@Param("postId") UUID postId,
+                                           @Param("limit") int limit,
+                                           @Param("offset") long offset,
+                                           @Param("preview") int preview);
 
-  // Find all comments (top-level and replies) for a post
-  List<Comment> findByPostIdOrderByCreatedAtAsc(UUID postId);
+  /* ---------- keyset pages of one comment's replies: createdAt ASC, id ASC ---------- */
 
-  // Count comments for a post
-  long countByPostId(UUID postId);
+  @Query("""
+         SELECT c FROM Comment c
+         WHERE c.parentComment.id = :parentId
+         ORDER BY c.createdAt ASC, c.id ASC
+         """)
+  List<Comment> findRepliesFirst(@Param("parentId") UUID parentId, Pageable limit);
+
+  @Query("""
+         SELECT c FROM Comment c
+         WHERE c.parentComment.id = :parentId
+           AND (c.createdAt > :createdAt
+                OR (c.createdAt = :createdAt AND c.id > :id))
+         ORDER BY c.createdAt ASC, c.id ASC
+         """)
+  List<Comment> findRepliesAfter(@Param("parentId") UUID parentId,
+                                 @Param("createdAt") LocalDateTime createdAt,
+                                 @Param("id") UUID id,
+                                 Pageable limit);
+
+  /* ---------- denormalized reply counts ---------- */
 
-  // Increment likes
   @Modifying
-  @Query("UPDATE Comment c SET c.likesCount = c.likesCount + 1 WHERE c.id = :id")
-  void incrementLikes(@Param("id") UUID id);
+  @Query("UPDATE Comment c SET c.replyCount = c.replyCount + 1 WHERE c.id = :id")
+  int incrementReplyCount(@Param("id") UUID id);
 
-  // Decrement likes
+  /**
+   * Recount the replies of every parent; returns how many were fixed. The
+   * count is exact, so parents whose count was already bumped before the
+   * backfill ran (a reply during startup or a rolling deploy) are fixed too.
+   */
   @Modifying
-  @Query("UPDATE Comment c SET c.likesCount = c.likesCount - 1 WHERE c.id = :id")
-  void decrementLikes(@Param("id") UUID id);
+  @Transactional
+  @Query(value = "UPDATE comments c SET reply_count = r.n "
+       + "FROM (SELECT parent_id, COUNT(*) AS n FROM comments WHERE parent_id IS NOT NULL GROUP BY parent_id) r "
+       + "WHERE c.id = r.parent_id AND c.reply_count <> r.n", nativeQuery = true)
+  int backfillReplyCounts();
+
+  // Find all comments (top-level and replies) for a post
+  List<Comment> findByPostIdOrderByCreatedAtAsc(UUID postId);
+
+  // Count comments for a post
+  long countByPostId(UUID postId);
 
   long countByPostIdAndParentCommentIsNull(UUID postId);
+
 }
\ No newline at end of file
@@ -2,13 +2,74 @@ package com.realdeal.backend.post.repository;
 
 import com.realdeal.backend.post.model.PostLike;
 import com.realdeal.backend.post.model.pk.PostLikePK;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface PostLikeRepository extends JpaRepository<PostLike, PostLikePK> {
     long    countByPostId(UUID postId);
     boolean existsByPostIdAndUserId(UUID postId, String userId);
+
+    // Every post the user reacted to, for the in-memory membership sets
+    @Query("SELECT l.postId FROM PostLike l WHERE l.userId = :uid")
+    List<UUID> findPostIdsByUserId(@Param("uid") String userId);
+
+    @Query("SELECT l.userId FROM PostLike l WHERE l.postId = :postId")
+    List<String> findUserIdsByPostId(@Param("postId") UUID postId);
+
+    /* ---------- co-like model rebuilds; must run inside a (read-only) transaction ---------- */
+
+    interface LikeRow {
+        String getUserId();
+        UUID getPostId();
+        LocalDateTime getCreatedAt();
+    }
+
+    /** Every like, in the order it was made. */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT l.userId AS userId, l.postId AS postId, l.createdAt AS createdAt FROM PostLike l "
+         + "ORDER BY l.createdAt")
+    Stream<LikeRow> streamLikes();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT l.userId AS userId, l.postId AS postId, l.createdAt AS createdAt FROM PostLike l "
+         + "WHERE l.createdAt >= :since ORDER BY l.createdAt")
+    Stream<LikeRow> streamLikesSince(@Param("since") LocalDateTime since);
+
+    /** Which of the posts the user still likes. */
+    @Query("SELECT l.postId FROM PostLike l WHERE l.userId = :uid AND l.postId IN :postIds")
+    List<UUID> findLikedPostIds(@Param("uid") String userId, @Param("postIds") Collection<UUID> postIds);
+
+    /*
+     * Set/unset in one round trip: the write reports whether anything
+     * changed and reads back the post's owner and stored counter. Nothing
+     * is inserted for a missing post, and the result is then empty.
+     */
+    @Query(value = "WITH changed AS ("
+         + "  INSERT INTO post_likes (post_id, user_id, created_at) "
+         + "  SELECT p.id, :userId, now() FROM posts p WHERE p.id = :postId "
+         + "  ON CONFLICT DO NOTHING RETURNING 1) "
+         + "SELECT EXISTS (SELECT 1 FROM changed) AS \"changed\", p.user_id AS \"ownerId\", "
+         + "       p.likes_count AS \"count\" "
+         + "FROM posts p WHERE p.id = :postId", nativeQuery = true)
+    Optional<ReactionWrite> insertLike(@Param("postId") UUID postId, @Param("userId") String userId);
+
+    @Query(value = "WITH changed AS ("
+         + "  DELETE FROM post_likes WHERE post_id = :postId AND user_id = :userId RETURNING 1) "
+         + "SELECT EXISTS (SELECT 1 FROM changed) AS \"changed\", p.user_id AS \"ownerId\", "
+         + "       p.likes_count AS \"count\" "
+         + "FROM posts p WHERE p.id = :postId", nativeQuery = true)
+    Optional<ReactionWrite> deleteLike(@Param("postId") UUID postId, @Param("userId") String userId);
 }
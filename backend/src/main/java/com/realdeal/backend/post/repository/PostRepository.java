@@ -1,34 +1,25 @@
 package com.realdeal.backend.post.repository;
 
 import com.realdeal.backend.post.model.Post;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface PostRepository extends JpaRepository<Post, UUID> {
 
-    @Modifying
-    @Query("UPDATE Post p SET p.likesCount = p.likesCount + 1 WHERE p.id = :id")
-    void incrementLikes(@Param("id") UUID id);
-
-    @Modifying
-    @Query("UPDATE Post p SET p.likesCount = p.likesCount - 1 WHERE p.id = :id")
-    void decrementLikes(@Param("id") UUID id);
-
-    @Modifying
-    @Query("UPDATE Post p SET p.starsCount = p.starsCount + 1 WHERE p.id = :id")
-    void incrementStars(@Param("id") UUID id);
-
-    @Modifying
-    @Query("UPDATE Post p SET p.starsCount = p.starsCount - 1 WHERE p.id = :id")
-    void decrementStars(@Param("id") UUID id);
-
     Page<Post> findByUserId(String userId, Pageable pageable);
 
     long countByUserId(String userId);
@@ -78,10 +69,206 @@ public interface PostRepository extends JpaRepository<Post, UUID> {
 
 
 
+    /*
+     * Database fallback for search, with the in-memory index's semantics:
+     * :pattern (built by PostService) requires every query token to start
+     * a term of the title or content. Newest first.
+     */
+    @Query(value = """
+           SELECT p.* FROM posts p
+           WHERE lower(coalesce(p.title, '') || ' ' || coalesce(p.content, '')) ~ :pattern
+           ORDER BY p.created_at DESC, p.id DESC
+           """,
+           nativeQuery = true)
+    List<Post> searchByTermPrefixes(@Param("pattern") String pattern, Pageable pageable);
+
+    @Query(value = """
+           SELECT count(*) FROM posts p
+           WHERE lower(coalesce(p.title, '') || ' ' || coalesce(p.content, '')) ~ :pattern
+           """,
+           nativeQuery = true)
+    long countByTermPrefixes(@Param("pattern") String pattern);
+
+    /* ---------- rows for the in-memory search index ---------- */
+
+    interface SearchRow {
+        UUID getId();
+        String getTitle();
+        String getContent();
+        LocalDateTime getCreatedAt();
+    }
+
+    /** Every post, streamed; must run inside a (read-only) transaction. */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT p.id AS id, p.title AS title, p.content AS content, p.createdAt AS createdAt "
+         + "FROM Post p")
+    Stream<SearchRow> streamSearchRows();
+
+    @Query("SELECT p.id AS id, p.title AS title, p.content AS content, p.createdAt AS createdAt "
+         + "FROM Post p WHERE p.id IN :ids")
+    List<SearchRow> findSearchRowsByIdIn(@Param("ids") Collection<UUID> ids);
+
+    /* ---------- live like/star counters for a page of (cached) posts ---------- */
+
+    interface CounterView {
+        UUID getId();
+        int getLikesCount();
+        int getStarsCount();
+    }
+
+    @Query("SELECT p.id AS id, p.likesCount AS likesCount, p.starsCount AS starsCount "
+         + "FROM Post p WHERE p.id IN :ids")
+    List<CounterView> findCountersByIdIn(@Param("ids") Collection<UUID> ids);
+
+    /* ---------- entity-cache misses of id-only page caches ---------- */
+
+    @Query("SELECT DISTINCT p FROM Post p LEFT JOIN FETCH p.images WHERE p.id IN :ids")
+    List<Post> findWithImagesByIdIn(@Param("ids") Collection<UUID> ids);
+
+    /* ---------- recommendation candidate pools, newest first ---------- */
+
+    interface CandidateRow {
+        UUID getId();
+        LocalDateTime getCreatedAt();
+    }
+
+    @Query("""
+           SELECT p.id AS id, p.createdAt AS createdAt FROM Post p
+           ORDER BY p.createdAt DESC, p.id DESC
+           """)
+    List<CandidateRow> findRecentCandidates(Pageable limit);
+
+    // Walks post_genres by genre (idx_post_genres_genre), then joins the posts
+    @Query("""
+           SELECT p.id AS id, p.createdAt AS createdAt
+           FROM PostGenre pg, Post p
+           WHERE pg.id.genreId = :genreId AND p.id = pg.id.postId
+           ORDER BY p.createdAt DESC, p.id DESC
+           """)
+    List<CandidateRow> findRecentCandidatesInGenre(@Param("genreId") Integer genreId, Pageable limit);
+
+    @Query("SELECT p.id AS id, p.createdAt AS createdAt FROM Post p WHERE p.id IN :ids")
+    List<CandidateRow> findCandidatesByIdIn(@Param("ids") Collection<UUID> ids);
+
+    /* ---------- per-genre leaderboards ---------- */
+
+    interface EngagementRow {
+        UUID getId();
+        LocalDateTime getCreatedAt();
+        int getLikesCount();
+        int getStarsCount();
+    }
+
+    @Query("SELECT p.id AS id, p.createdAt AS createdAt, p.likesCount AS likesCount, p.starsCount AS starsCount "
+         + "FROM Post p WHERE p.id IN :ids")
+    List<EngagementRow> findEngagementRowsByIdIn(@Param("ids") Collection<UUID> ids);
+
+    // Top-N sort over the genre's posts; only run when a leaderboard is rebuilt
+    @Query("""
+           SELECT p.id AS id, p.createdAt AS createdAt, p.likesCount AS likesCount, p.starsCount AS starsCount
+           FROM PostGenre pg, Post p
+           WHERE pg.id.genreId = :genreId AND p.id = pg.id.postId
+           ORDER BY p.likesCount + :starWeight * p.starsCount DESC, p.createdAt DESC, p.id DESC
+           """)
+    List<EngagementRow> findTopEngagedInGenre(@Param("genreId") Integer genreId,
+                                              @Param("starWeight") int starWeight,
+                                              Pageable limit);
+
+    /* ---------- keyset (cursor) feeds: ORDER BY createdAt DESC, id DESC ---------- */
+
+    @Query("""
+           SELECT p FROM Post p
+           ORDER BY p.createdAt DESC, p.id DESC
+           """)
+    List<Post> findFeedFirst(Pageable limit);
+
+    @Query("""
+           SELECT p FROM Post p
+           WHERE p.createdAt < :createdAt
+              OR (p.createdAt = :createdAt AND p.id < :id)
+           ORDER BY p.createdAt DESC, p.id DESC
+           """)
+    List<Post> findFeedAfter(@Param("createdAt") LocalDateTime createdAt,
+                             @Param("id") UUID id,
+                             Pageable limit);
+
+    // Walks posts newest first (idx_posts_created_at_id) and probes
+    // post_genres by post (idx_post_genres_post), stopping after one page
+    @Query("""
+           SELECT p FROM Post p
+           WHERE EXISTS (SELECT pg FROM PostGenre pg
+                         WHERE pg.id.postId = p.id AND pg.id.genreId IN :genreIds)
+           ORDER BY p.createdAt DESC, p.id DESC
+           """)
+    List<Post> findGenreFeedFirst(@Param("genreIds") Collection<Integer> genreIds, Pageable limit);
+
+    @Query("""
+           SELECT p FROM Post p
+           WHERE EXISTS (SELECT pg FROM PostGenre pg
+                         WHERE pg.id.postId = p.id AND pg.id.genreId IN :genreIds)
+             AND (p.createdAt < :createdAt
+                  OR (p.createdAt = :createdAt AND p.id < :id))
+           ORDER BY p.createdAt DESC, p.id DESC
+           """)
+    List<Post> findGenreFeedAfter(@Param("genreIds") Collection<Integer> genreIds,
+                                  @Param("createdAt") LocalDateTime createdAt,
+                                  @Param("id") UUID id,
+                                  Pageable limit);
+
+    @Query("""
+           SELECT p FROM Post p
+           WHERE p.userId = :uid
+           ORDER BY p.createdAt DESC, p.id DESC
+           """)
+    List<Post> findUserFeedFirst(@Param("uid") String userId, Pageable limit);
+
+    @Query("""
+           SELECT p FROM Post p
+           WHERE p.userId = :uid
+             AND (p.createdAt < :createdAt
+                  OR (p.createdAt = :createdAt AND p.id < :id))
+           ORDER BY p.createdAt DESC, p.id DESC
+           """)
+    List<Post> findUserFeedAfter(@Param("uid") String userId,
+                                 @Param("createdAt") LocalDateTime createdAt,
+                                 @Param("id") UUID id,
+                                 Pageable limit);
+
+    @Query("""
+           SELECT p FROM Post p
+           WHERE p.id IN (SELECT l.postId FROM PostLike l WHERE l.userId = :uid)
+           ORDER BY p.createdAt DESC, p.id DESC
+           """)
+    List<Post> findLikedFeedFirst(@Param("uid") String userId, Pageable limit);
+
+    @Query("""
+           SELECT p FROM Post p
+           WHERE p.id IN (SELECT l.postId FROM PostLike l WHERE l.userId = :uid)
+             AND (p.createdAt < :createdAt
+                  OR (p.createdAt = :createdAt AND p.id < :id))
+           ORDER BY p.createdAt DESC, p.id DESC
+           """)
+    List<Post> findLikedFeedAfter(@Param("uid") String userId,
+                                  @Param("createdAt") LocalDateTime createdAt,
+                                  @Param("id") UUID id,
+                                  Pageable limit);
+
+    @Query("""
+           SELECT p FROM Post p
+           WHERE p.id IN (SELECT s.postId FROM PostStar s WHERE s.userId = :uid)
+           ORDER BY p.createdAt DESC, p.id DESC
+           """)
+    List<Post> findStarredFeedFirst(@Param("uid") String userId, Pageable limit);
+
     @Query("""
            SELECT p FROM Post p
-           WHERE lower(p.title)   LIKE lower(concat('%', :q, '%'))
-              OR lower(p.content) LIKE lower(concat('%', :q, '%'))
+           WHERE p.id IN (SELECT s.postId FROM PostStar s WHERE s.userId = :uid)
+             AND (p.createdAt < :createdAt
+                  OR (p.createdAt = :createdAt AND p.id < :id))
+           ORDER BY p.createdAt DESC, p.id DESC
            """)
-    Page<Post> search(@Param("q") String q, Pageable pageable);
+    List<Post> findStarredFeedAfter(@Param("uid") String userId,
+                                    @Param("createdAt") LocalDateTime createdAt,
+                                    @Param("id") UUID id,
+                                    Pageable limit);
 }
@@ -3,12 +3,44 @@ package com.realdeal.backend.post.repository;
 import com.realdeal.backend.post.model.PostStar;
 import com.realdeal.backend.post.model.pk.PostStarPK;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface PostStarRepository extends JpaRepository<PostStar, PostStarPK> {
     long    countByPostId(UUID postId);
     boolean existsByPostIdAndUserId(UUID postId, String userId);
+
+    // Every post the user reacted to, for the in-memory membership sets
+    @Query("SELECT s.postId FROM PostStar s WHERE s.userId = :uid")
+    List<UUID> findPostIdsByUserId(@Param("uid") String userId);
+
+    @Query("SELECT s.userId FROM PostStar s WHERE s.postId = :postId")
+    List<String> findUserIdsByPostId(@Param("postId") UUID postId);
+
+    /*
+     * Set/unset in one round trip: the write reports whether anything
+     * changed and reads back the post's owner and stored counter. Nothing
+     * is inserted for a missing post, and the result is then empty.
+     */
+    @Query(value = "WITH changed AS ("
+         + "  INSERT INTO post_stars (post_id, user_id, created_at) "
+         + "  SELECT p.id, :userId, now() FROM posts p WHERE p.id = :postId "
+         + "  ON CONFLICT DO NOTHING RETURNING 1) "
+         + "SELECT EXISTS (SELECT 1 FROM changed) AS \"changed\", p.user_id AS \"ownerId\", "
+         + "       p.stars_count AS \"count\" "
+         + "FROM posts p WHERE p.id = :postId", nativeQuery = true)
+    Optional<ReactionWrite> insertStar(@Param("postId") UUID postId, @Param("userId") String userId);
+
+    @Query(value = "WITH changed AS ("
+         + "  DELETE FROM post_stars WHERE post_id = :postId AND user_id = :userId RETURNING 1) "
+         + "SELECT EXISTS (SELECT 1 FROM changed) AS \"changed\", p.user_id AS \"ownerId\", "
+         + "       p.stars_count AS \"count\" "
+         + "FROM posts p WHERE p.id = :postId", nativeQuery = true)
+    Optional<ReactionWrite> deleteStar(@Param("postId") UUID postId, @Param("userId") String userId);
 }
@@ -0,0 +1,18 @@
+package com.realdeal.backend.post.repository;
+
+/**
+ * Result of a single-statement reaction write: an
+ * {@code INSERT ... ON CONFLICT DO NOTHING} or a {@code DELETE}, joined in
+ * the same statement to the post or comment it targets.
+ */
+public interface ReactionWrite {
+
+    /** Whether a reaction row was actually inserted or deleted. */
+    boolean isChanged();
+
+    /** Author of the post or comment reacted to. */
+    String getOwnerId();
+
+    /** Its stored like/star counter as of this statement. */
+    int getCount();
+}
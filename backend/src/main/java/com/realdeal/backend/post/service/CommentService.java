@@ -1,43 +1,79 @@
 package com.realdeal.backend.post.service;
 
+import com.realdeal.backend.authentication.service.UserProfileService;
+import com.realdeal.backend.cache.config.TwoTierCache;
+import com.realdeal.backend.cache.service.CacheGenerationService;
+import com.realdeal.backend.common.repository.AppliedMigrationRepository;
+import com.realdeal.backend.post.dto.CommentDTO;
+import com.realdeal.backend.post.dto.CursorPage;
+import com.realdeal.backend.post.dto.ReactionResult;
 import com.realdeal.backend.post.model.Comment;
-import com.realdeal.backend.post.model.CommentLike;
 import com.realdeal.backend.post.model.Post;
-import com.realdeal.backend.post.model.pk.CommentLikePK;
 import com.realdeal.backend.post.repository.CommentLikeRepository;
+import com.realdeal.backend.post.repository.CommentLikeRepository.CommentLikeWrite;
 import com.realdeal.backend.post.repository.CommentRepository;
 import com.realdeal.backend.post.repository.PostRepository;
+import com.realdeal.backend.post.util.FeedCursor;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class CommentService {
 
+  /** Direct replies shown under each top-level comment of a page. */
+  static final int REPLY_PREVIEW = 3;
+
+  private static final int MAX_REPLY_PAGE = 50;
+
+  private static final String LIKES_CACHE = "commentLikes";
+
+  private static final String REPLY_COUNT_BACKFILL = "comments-reply-count-backfill";
+
   private final CommentRepository commentRepository;
   private final PostRepository postRepository;
   private final CommentLikeRepository commentLikeRepository;
+  private final CacheGenerationService generations;
+  private final UserProfileService userProfileService;
+  private final CacheManager cacheManager;
+  private final AppliedMigrationRepository migrations;
+
+  // Calls through the proxy so getCommentThreads' helpers hit their caches and the backfill gets its transaction
+  @Lazy
+  @Autowired
+  private CommentService self;
 
-  @Caching(evict = {
-      @CacheEvict(cacheNames = "commentContent", allEntries = true),
-      @CacheEvict(cacheNames = "commentCount", allEntries = true),
-      @CacheEvict(cacheNames = "allComments", allEntries = true)
-  })
+  /** Saves the comment and, for a reply, bumps the parent's reply count in the same transaction. */
+  @Transactional
   public Comment addComment(UUID postId, String userId, String content, UUID parentCommentId) {
     // Validate input
     if (userId == null || userId.isBlank()) {
@@ -62,62 +98,104 @@ public class CommentService {
       comment.setParentComment(parentComment);
     }
 
-    return commentRepository.save(comment);
+    Comment saved = commentRepository.save(comment);
+    if (parentCommentId != null) {
+      commentRepository.incrementReplyCount(parentCommentId);
+    }
+
+    // Only this post's comment pages, count and flat list go stale
+    generations.bumpComments(postId);
+    return saved;
   }
 
   /**
-   * Get top-level comments for a post with pagination
-   * This method doesn't cache the Page object directly, but separates content and count
+   * A page of top-level comments, each with a preview of its first
+   * {@link #REPLY_PREVIEW} direct replies and its {@code replyCount}; the
+   * rest are paged through {@link #getReplies}. The comments come from one
+   * query (cached per page) and are assembled by {@link CommentTreeBuilder}.
    */
-  public Page<Comment> getTopLevelComments(UUID postId, int page, int size) {
-    // Get content and count separately (they're cached individually)
-    List<Comment> content = getTopLevelCommentsContent(postId, page, size);
-    long count = getTopLevelCommentsCount(postId);
+  public Page<CommentDTO> getCommentThreads(UUID postId, int page, int size, String viewerId) {
+    List<Comment> flat = self.getCommentThreadsContent(postId, page, size);
+    long count = self.getTopLevelCommentsCount(postId);
 
-    // Construct the Page object with the cached components
     PageRequest pageRequest = PageRequest.of(page, size, Sort.by(Sort.Direction.ASC, "createdAt"));
-    return new PageImpl<>(content, pageRequest, count);
+    return new PageImpl<>(toDtos(flat, viewerId), pageRequest, count);
   }
 
   /**
-   * Cache only the comment content
+   * The page's comments and their reply previews, flat and oldest first
    */
-  @Cacheable(cacheNames = "commentContent", key = "#postId + ':page:' + #page + ':size:' + #size")
-  public List<Comment> getTopLevelCommentsContent(UUID postId, int page, int size) {
-    PageRequest pageRequest = PageRequest.of(page, size, Sort.by(Sort.Direction.ASC, "createdAt"));
-    Page<Comment> commentsPage = commentRepository.findTopLevelCommentsByPostId(postId, pageRequest);
-
-    // Create detached copies to avoid proxy serialization issues
-    return commentsPage.getContent().stream()
+  @Cacheable(cacheNames = "commentContent",
+      key = "#postId + ':g' + @cacheGenerationService.comments(#postId) + ':threads:page:' + #page + ':size:' + #size",
+      sync = true)
+  public List<Comment> getCommentThreadsContent(UUID postId, int page, int size) {
+    PageRequest pageRequest = PageRequest.of(page, size);
+    return commentRepository.findThreadPreviewsByPostId(postId, size, pageRequest.getOffset(), REPLY_PREVIEW).stream()
         .map(this::createDetachedCopy)
         .collect(Collectors.toList());
   }
 
+  /**
+   * Direct replies of a comment, oldest first, in keyset pages; each reply
+   * carries its own {@code replyCount} to expand further. An empty cursor
+   * starts at the first reply.
+   */
+  public CursorPage<CommentDTO> getReplies(UUID commentId, String cursor, int size, String viewerId) {
+    if (size < 1 || size > MAX_REPLY_PAGE) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size must be between 1 and " + MAX_REPLY_PAGE);
+    }
+    FeedCursor after = FeedCursor.decode(cursor);
+    Pageable limit = PageRequest.of(0, size + 1);   // one extra row tells us if there is a next page
+    List<Comment> window = after == null
+        ? commentRepository.findRepliesFirst(commentId, limit)
+        : commentRepository.findRepliesAfter(commentId, after.getCreatedAt(), after.getId(), limit);
+
+    List<Comment> replies = window.stream().limit(size).map(this::createDetachedCopy).collect(Collectors.toList());
+    String next = null;
+    if (window.size() > size) {
+      Comment last = replies.get(size - 1);
+      next = FeedCursor.encode(last.getCreatedAt(), last.getId());
+    }
+    return new CursorPage<>(toDtos(replies, viewerId), next);
+  }
+
+  /** DTOs with usernames and the viewer's like flags (one batch lookup each), as threads. */
+  private List<CommentDTO> toDtos(List<Comment> flat, String viewerId) {
+    List<String> userIds = flat.stream().map(Comment::getUserId).distinct().collect(Collectors.toList());
+    Map<String, String> usernames = userIds.isEmpty() ? Map.of() : userProfileService.getUsernamesByUserIds(userIds);
+
+    Set<UUID> liked = viewerId == null
+        ? Set.of()
+        : getLikedCommentIds(flat.stream().map(Comment::getId).collect(Collectors.toList()), viewerId);
+    return CommentTreeBuilder.build(flat, usernames, liked);
+  }
+
   /**
    * Cache the total comments count
    */
-  @Cacheable(cacheNames = "commentCount", key = "#postId")
+  @Cacheable(cacheNames = "commentCount",
+      key = "#postId + ':g' + @cacheGenerationService.comments(#postId)",
+      sync = true)
   public long getTopLevelCommentsCount(UUID postId) {
     return commentRepository.countByPostIdAndParentCommentIsNull(postId);
   }
 
+  /**
+   * Copy without proxies or replies: the post and parent are reduced to
+   * their ids, which a lazy proxy answers without loading anything.
+   */
   private Comment createDetachedCopy(Comment original) {
-    if (original == null) return null;
-
     Comment copy = new Comment();
-
-    // Copy simple properties
     copy.setId(original.getId());
     copy.setUserId(original.getUserId());
     copy.setContent(original.getContent());
     copy.setLikesCount(original.getLikesCount());
+    copy.setReplyCount(original.getReplyCount());
     copy.setCreatedAt(original.getCreatedAt());
 
-    // Handle relationships carefully
     if (original.getPost() != null) {
       Post postCopy = new Post();
       postCopy.setId(original.getPost().getId());
-      // Only set minimum required properties for Post
       copy.setPost(postCopy);
     }
 
@@ -127,20 +205,13 @@ public class CommentService {
       copy.setParentComment(parentCopy);
     }
 
-    // Handle replies recursively
-    if (original.getReplies() != null && !original.getReplies().isEmpty()) {
-      List<Comment> repliesCopy = original.getReplies().stream()
-          .map(this::createDetachedCopy)
-          .collect(Collectors.toList());
-      copy.setReplies(repliesCopy);
-    } else {
-      copy.setReplies(new ArrayList<>());
-    }
-
+    copy.setReplies(new ArrayList<>());
     return copy;
   }
 
-  @Cacheable(cacheNames = "allComments", key = "#postId")
+  @Cacheable(cacheNames = "allComments",
+      key = "#postId + ':g' + @cacheGenerationService.comments(#postId)",
+      sync = true)
   public List<Comment> getAllCommentsByPostId(UUID postId) {
     List<Comment> comments = commentRepository.findByPostIdOrderByCreatedAtAsc(postId);
 
@@ -150,33 +221,142 @@ public class CommentService {
         .collect(Collectors.toList());
   }
 
+  /**
+   * Idempotent set/unset of a comment like. The insert or delete, the
+   * counter update and the read-back are one statement; cached comment
+   * pages carry likesCount, so only a real change retires the owning
+   * post's pages.
+   */
+  @Transactional
+  @CacheEvict(cacheNames = LIKES_CACHE, key = "#commentId + ':' + #userId")
+  public ReactionResult setCommentLike(UUID commentId, String userId, boolean liked) {
+    CommentLikeWrite write = (liked
+        ? commentLikeRepository.insertLike(commentId, userId)
+        : commentLikeRepository.deleteLike(commentId, userId))
+        .orElseThrow(CommentService::commentNotFound);
+    return commentLiked(liked, write);
+  }
+
+  @Transactional
+  @CacheEvict(cacheNames = LIKES_CACHE, key = "#commentId + ':' + #userId")
+  public ReactionResult toggleCommentLike(UUID commentId, String userId) {
+    CommentLikeWrite removed = commentLikeRepository.deleteLike(commentId, userId)
+        .orElseThrow(CommentService::commentNotFound);
+    if (removed.isChanged()) {
+      return commentLiked(false, removed);
+    }
+    return commentLiked(true, commentLikeRepository.insertLike(commentId, userId)
+        .orElseThrow(CommentService::commentNotFound));
+  }
+
+  private ReactionResult commentLiked(boolean liked, CommentLikeWrite write) {
+    if (write.isChanged()) {
+      generations.bumpComments(write.getPostId());
+    }
+    return new ReactionResult(liked, write.isChanged(), write.getCount());
+  }
+
+  private static ResponseStatusException commentNotFound() {
+    return new ResponseStatusException(HttpStatus.NOT_FOUND, "Comment not found");
+  }
+
+  /**
+   * Comments from before {@code reply_count} existed start at 0; count
+   * their replies once, on the first start after the column was added.
+   * The claim and the counts commit together, so a failed run is retried on
+   * the next start.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void backfillReplyCountsOnce() {
+    try {
+      self.backfillReplyCounts();
+    } catch (RuntimeException e) {
+      log.warn("Reply count backfill failed: {}", e.getMessage());
+    }
+  }
+
   @Transactional
-  @Caching(evict = {
-      @CacheEvict(cacheNames = "commentLikes", key = "#commentId + ':' + #userId"),
-      @CacheEvict(cacheNames = "commentContent", allEntries = true),
-      @CacheEvict(cacheNames = "allComments", allEntries = true)
-  })
-  public boolean toggleCommentLike(UUID commentId, String userId) {
-    CommentLikePK pk = new CommentLikePK(commentId, userId);
-
-    if (commentLikeRepository.existsById(pk)) {
-      // Unlike
-      commentLikeRepository.deleteById(pk);
-      commentRepository.decrementLikes(commentId);
-      return false;
-    } else {
-      // Like
-      CommentLike like = new CommentLike();
-      like.setCommentId(commentId);
-      like.setUserId(userId);
-      commentLikeRepository.save(like);
-      commentRepository.incrementLikes(commentId);
-      return true;
-    }
-  }
-
-  @Cacheable(cacheNames = "commentLikes", key = "#commentId + ':' + #userId")
+  public void backfillReplyCounts() {
+    if (migrations.claim(REPLY_COUNT_BACKFILL) == 0) {
+      return;
+    }
+    int fixed = commentRepository.backfillReplyCounts();
+    log.info("Backfilled reply counts of {} comments", fixed);
+  }
+
+  @Cacheable(cacheNames = LIKES_CACHE, key = "#commentId + ':' + #userId")
   public boolean hasLikedComment(UUID commentId, String userId) {
     return commentLikeRepository.existsByCommentIdAndUserId(commentId, userId);
   }
-}
\ No newline at end of file
+
+  /**
+   * Which of the comments the user has liked, for a whole thread at once:
+   * one multi-get against the same {@code commentLikes} entries
+   * {@link #hasLikedComment} uses, then one query for the misses, whose
+   * answers (liked or not) are cached with one multi-put.
+   */
+  public Set<UUID> getLikedCommentIds(Collection<UUID> commentIds, String userId) {
+    Set<UUID> liked = new HashSet<>();
+    if (commentIds.isEmpty()) {
+      return liked;
+    }
+
+    Map<String, UUID> keys = new LinkedHashMap<>();
+    for (UUID commentId : commentIds) {
+      keys.put(commentId + ":" + userId, commentId);
+    }
+    Cache cache = cacheManager.getCache(LIKES_CACHE);
+    Map<Object, Object> cached = lookup(cache, keys.keySet());
+
+    List<UUID> missing = new ArrayList<>();
+    keys.forEach((key, commentId) -> {
+      Object value = cached.get(key);
+      if (value instanceof Boolean hit) {
+        if (hit) {
+          liked.add(commentId);
+        }
+      } else {
+        missing.add(commentId);
+      }
+    });
+    if (missing.isEmpty()) {
+      return liked;
+    }
+
+    Set<UUID> found = new HashSet<>(commentLikeRepository.findLikedCommentIds(userId, missing));
+    Map<String, Boolean> answers = new HashMap<>();
+    for (UUID commentId : missing) {
+      boolean hit = found.contains(commentId);
+      answers.put(commentId + ":" + userId, hit);
+      if (hit) {
+        liked.add(commentId);
+      }
+    }
+    store(cache, answers);
+    return liked;
+  }
+
+  private static void store(Cache cache, Map<String, Boolean> entries) {
+    if (cache instanceof TwoTierCache twoTier) {
+      twoTier.putAll(entries);
+    } else if (cache != null) {
+      entries.forEach(cache::put);
+    }
+  }
+
+  private static Map<Object, Object> lookup(Cache cache, Collection<String> keys) {
+    if (cache instanceof TwoTierCache twoTier) {
+      return twoTier.getAll(keys);
+    }
+    Map<Object, Object> found = new HashMap<>();
+    if (cache != null) {
+      for (String key : keys) {
+        Cache.ValueWrapper wrapper = cache.get(key);
+        if (wrapper != null && wrapper.get() != null) {
+          found.put(key, wrapper.get());
+        }
+      }
+    }
+    return found;
+  }
+}
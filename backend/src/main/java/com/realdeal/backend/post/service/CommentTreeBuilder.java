@@ -0,0 +1,52 @@
+package com.realdeal.backend.post.service;
+
+import com.realdeal.backend.post.dto.CommentDTO;
+import com.realdeal.backend.post.model.Comment;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Turns a flat list of comments into {@link CommentDTO} threads.
+ * <p>
+ * One pass creates every DTO, username and like flag included, and a
+ * second hangs each one under its parent, so depth costs neither
+ * recursion nor extra lookups. Comments keep the order of the list
+ * (oldest first) among their siblings. A comment whose parent is not in
+ * the list is returned at the top, as a page of replies needs.
+ */
+final class CommentTreeBuilder {
+
+  static final String UNKNOWN_USER = "Unknown User";
+
+  private CommentTreeBuilder() {
+  }
+
+  /** The comments of {@code flat} without a parent in it, with their replies attached. */
+  static List<CommentDTO> build(List<Comment> flat, Map<String, String> usernames, Set<UUID> liked) {
+    Map<UUID, CommentDTO> byId = new HashMap<>(flat.size() * 2);
+    List<CommentDTO> nodes = new ArrayList<>(flat.size());
+    for (Comment comment : flat) {
+      CommentDTO dto = CommentDTO.of(comment,
+          usernames.getOrDefault(comment.getUserId(), UNKNOWN_USER),
+          liked.contains(comment.getId()));
+      byId.put(dto.getId(), dto);
+      nodes.add(dto);
+    }
+
+    List<CommentDTO> roots = new ArrayList<>();
+    for (CommentDTO dto : nodes) {
+      CommentDTO parent = dto.getParentId() == null ? null : byId.get(dto.getParentId());
+      if (parent != null) {
+        parent.getReplies().add(dto);
+      } else {
+        roots.add(dto);
+      }
+    }
+    return roots;
+  }
+}
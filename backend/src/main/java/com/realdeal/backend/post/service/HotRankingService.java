@@ -0,0 +1,171 @@
+package com.realdeal.backend.post.service;
+
+import com.realdeal.backend.common.tx.AfterCommit;
+import com.realdeal.backend.post.config.HotRankingProperties;
+import com.realdeal.backend.post.index.HotRanking;
+import com.realdeal.backend.post.index.HotScore;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * "Hot" ordering of posts: likes and stars, decayed by age.
+ * <p>
+ * The shared ranking is a Redis sorted set of {@link HotScore}s, so it
+ * survives restarts and every node adds to the same scores. Each reaction
+ * adds (or, undone, takes back) its contribution with one atomic script
+ * after commit. Reads never go to Redis or the posts table: they are served
+ * from this node's {@link HotRanking}, which gets this node's new scores
+ * straight from the script and re-reads the hottest {@code capacity} posts
+ * every {@code sync-interval} to pick up the other nodes'.
+ * <p>
+ * Taking a reaction back subtracts what it would be worth now, which is at
+ * least what it added, so an unlike cools a post down at least as much as
+ * the like warmed it up.
+ */
+@Slf4j
+@Service
+public class HotRankingService {
+
+    // KEYS[1] ranking, ARGV[1] post id, ARGV[2] log2 contribution, ARGV[3] 1 to add, -1 to take back.
+    // Same arithmetic as HotScore.add/subtract; returns the new score, or nil if the post dropped out.
+    private static final RedisScript<String> APPLY = new DefaultRedisScript<>(
+        "local current = redis.call('ZSCORE', KEYS[1], ARGV[1]) "
+            + "local delta = tonumber(ARGV[2]) "
+            + "local score "
+            + "if tonumber(ARGV[3]) > 0 then "
+            + "  if not current then score = delta else "
+            + "    current = tonumber(current) "
+            + "    local hi, lo = math.max(current, delta), math.min(current, delta) "
+            + "    score = hi + math.log(1 + 2 ^ (lo - hi)) / math.log(2) "
+            + "  end "
+            + "else "
+            + "  if not current then return false end "
+            + "  current = tonumber(current) "
+            + "  if delta >= current then redis.call('ZREM', KEYS[1], ARGV[1]) return false end "
+            + "  score = current + math.log(1 - 2 ^ (delta - current)) / math.log(2) "
+            + "end "
+            + "redis.call('ZADD', KEYS[1], score, ARGV[1]) "
+            + "return redis.call('ZSCORE', KEYS[1], ARGV[1])",
+        String.class);
+
+    private final StringRedisTemplate redis;
+    private final HotRankingProperties properties;
+    private final HotRanking ranking = new HotRanking();
+
+    private final ScheduledExecutorService syncer = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "hot-ranking-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public HotRankingService(StringRedisTemplate redis, HotRankingProperties properties) {
+        this.redis = redis;
+        this.properties = properties;
+        long interval = Math.max(1, properties.getSyncInterval().toMillis());
+        // first sync right away loads the ranking left by earlier runs
+        syncer.scheduleWithFixedDelay(this::syncQuietly, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /* ------------------------------ reads ------------------------------ */
+
+    /** Posts {@code [offset, offset + limit)} of the hot ranking. */
+    public List<UUID> hotPostIds(int offset, int limit) {
+        return ranking.top(offset, limit);
+    }
+
+    /** Posts in the ranking, at most {@code capacity}. */
+    public int size() {
+        return ranking.size();
+    }
+
+    /* ------------------------------ updates ------------------------------ */
+
+    public void likeChanged(UUID postId, boolean added) {
+        AfterCommit.run(() -> apply(postId, properties.getLikeWeight(), added));
+    }
+
+    public void starChanged(UUID postId, boolean added) {
+        AfterCommit.run(() -> apply(postId, properties.getStarWeight(), added));
+    }
+
+    /** A deleted post leaves the ranking. */
+    public void removed(UUID postId) {
+        AfterCommit.run(() -> {
+            ranking.remove(postId);
+            try {
+                redis.opsForZSet().remove(properties.getKey(), postId.toString());
+            } catch (RuntimeException e) {
+                log.warn("Could not remove {} from the hot ranking: {}", postId, e.getMessage());
+            }
+        });
+    }
+
+    private void apply(UUID postId, double weight, boolean added) {
+        double contribution = HotScore.contribution(weight, System.currentTimeMillis(), properties.getHalfLife());
+        try {
+            String score = redis.execute(APPLY, List.of(properties.getKey()),
+                postId.toString(), Double.toString(contribution), added ? "1" : "-1");
+            ranking.put(postId, score == null ? Double.NEGATIVE_INFINITY : Double.parseDouble(score));
+        } catch (RuntimeException e) {
+            // Keep this node's ranking moving; the next successful sync replaces it with the shared one
+            log.warn("Could not update the shared hot ranking for {}: {}", postId, e.getMessage());
+            Double current = ranking.score(postId);
+            if (added) {
+                ranking.put(postId, current == null ? contribution : HotScore.add(current, contribution));
+            } else if (current != null) {
+                ranking.put(postId, HotScore.subtract(current, contribution));
+            }
+        }
+        ranking.trimTo(properties.getCapacity());
+    }
+
+    /* ------------------------------ sync ------------------------------ */
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            log.warn("Hot ranking sync failed; keeping the local ranking: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Replace the local ranking with the shared top {@code capacity}
+     * ({@code ZREVRANGE}, {@code O(log n + capacity)}) and trim the shared
+     * set to twice that, so posts that cool off are eventually dropped.
+     */
+    public void sync() {
+        int capacity = properties.getCapacity();
+        ZSetOperations<String, String> zset = redis.opsForZSet();
+        Set<ZSetOperations.TypedTuple<String>> top = zset.reverseRangeWithScores(properties.getKey(), 0, capacity - 1);
+        Map<UUID, Double> fresh = new HashMap<>();
+        if (top != null) {
+            for (ZSetOperations.TypedTuple<String> tuple : top) {
+                if (tuple.getValue() != null && tuple.getScore() != null) {
+                    fresh.put(UUID.fromString(tuple.getValue()), tuple.getScore());
+                }
+            }
+        }
+        ranking.replaceAll(fresh);
+        zset.removeRange(properties.getKey(), 0, -2L * capacity - 1);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        syncer.shutdownNow();
+    }
+}
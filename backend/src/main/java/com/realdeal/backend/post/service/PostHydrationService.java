@@ -0,0 +1,102 @@
+package com.realdeal.backend.post.service;
+
+import com.realdeal.backend.authentication.model.UserProfile;
+import com.realdeal.backend.authentication.service.UserProfileService;
+import com.realdeal.backend.genre.dto.GenreDTO;
+import com.realdeal.backend.genre.model.Genre;
+import com.realdeal.backend.genre.service.GenreService;
+import com.realdeal.backend.post.dto.PostWithUserDTO;
+import com.realdeal.backend.post.model.Post;
+import com.realdeal.backend.post.repository.PostRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Turns a page of {@link Post}s into {@link PostWithUserDTO}s.
+ * Authors (username + level), genres and the viewer's like/star flags are
+ * resolved with one set-based lookup each, so the number of round trips
+ * stays constant no matter how many posts are on the page.
+ * <p>
+ * Like/star counters are read live in the same way, plus any deltas not
+ * yet flushed by {@link ReactionCounterBuffer}, so cached pages can keep
+ * their (possibly older) post copies and a reaction never has to
+ * invalidate them.
+ */
+@Service
+@RequiredArgsConstructor
+public class PostHydrationService {
+
+    private static final String UNKNOWN_USER = "Unknown User";
+    private static final int DEFAULT_LEVEL = 1;
+
+    private final UserProfileService userProfileService;
+    private final ReactionService reactionService;
+    private final GenreService genreService;
+    private final PostRepository postRepository;
+    private final ReactionCounterBuffer reactionCounters;
+
+    public List<PostWithUserDTO> hydrate(List<Post> posts, String viewerId) {
+        if (posts.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<UUID> postIds = posts.stream()
+            .map(Post::getId)
+            .distinct()
+            .toList();
+        List<String> authorIds = posts.stream()
+            .map(Post::getUserId)
+            .distinct()
+            .toList();
+
+        Map<String, UserProfile> authors = userProfileService.getProfilesByUserIds(authorIds);
+        Map<UUID, List<Genre>> genres = genreService.getPostGenresByPostIds(postIds);
+        Map<UUID, PostRepository.CounterView> counters = postRepository.findCountersByIdIn(postIds).stream()
+            .collect(Collectors.toMap(PostRepository.CounterView::getId, Function.identity()));
+
+        Set<UUID> liked = new HashSet<>();
+        Set<UUID> starred = new HashSet<>();
+        if (viewerId != null) {
+            liked = reactionService.getLikedPostIds(postIds, viewerId);
+            starred = reactionService.getStarredPostIds(postIds, viewerId);
+        }
+
+        List<PostWithUserDTO> dtos = new ArrayList<>(posts.size());
+        for (Post post : posts) {
+            UserProfile author = authors.get(post.getUserId());
+            String username = author != null ? author.getUsername() : UNKNOWN_USER;
+            int level = author != null ? author.getLevel() : DEFAULT_LEVEL;
+
+            List<GenreDTO> genreDTOs = genres.getOrDefault(post.getId(), List.of()).stream()
+                .map(genre -> new GenreDTO(genre.getId(), genre.getName(), genre.getDescription()))
+                .collect(Collectors.toList());
+
+            PostWithUserDTO dto = PostWithUserDTO.fromPost(
+                post, username, level,
+                liked.contains(post.getId()),
+                starred.contains(post.getId()),
+                genreDTOs);
+
+            PostRepository.CounterView live = counters.get(post.getId());
+            if (live != null) {
+                dto.setLikesCount(live.getLikesCount() + reactionCounters.pendingLikes(post.getId()));
+                dto.setStarsCount(live.getStarsCount() + reactionCounters.pendingStars(post.getId()));
+            }
+            dtos.add(dto);
+        }
+        return dtos;
+    }
+
+    public PostWithUserDTO hydrate(Post post, String viewerId) {
+        return hydrate(List.of(post), viewerId).get(0);
+    }
+}
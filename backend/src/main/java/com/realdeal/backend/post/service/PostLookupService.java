@@ -0,0 +1,129 @@
+package com.realdeal.backend.post.service;
+
+import com.realdeal.backend.cache.config.TwoTierCache;
+import com.realdeal.backend.post.model.Post;
+import com.realdeal.backend.post.model.PostImage;
+import com.realdeal.backend.post.repository.PostRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * The {@code singlePost} entity cache behind the id-only page caches.
+ * <p>
+ * Page caches store ordered post ids; {@link #resolve} turns them back into
+ * posts with one multi-get against {@code singlePost} and a single
+ * {@code findWithImagesByIdIn} for whatever is missing. Each post is cached
+ * once, so evicting its {@code singlePost} entry is enough to refresh it on
+ * every page it appears on.
+ */
+@Service
+@RequiredArgsConstructor
+public class PostLookupService {
+
+    static final String CACHE = "singlePost";
+
+    private final CacheManager cacheManager;
+    private final PostRepository postRepo;
+
+    /** Posts for the ids, in id order; ids whose post no longer exists are skipped. */
+    public List<Post> resolve(List<UUID> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Cache cache = cacheManager.getCache(CACHE);
+        Map<Object, Object> found = lookup(cache, ids);
+
+        Set<UUID> missing = new LinkedHashSet<>();
+        for (UUID id : ids) {
+            if (!found.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (Post post : postRepo.findWithImagesByIdIn(missing)) {
+                Post copy = detachedCopy(post);
+                if (cache != null) {
+                    cache.put(copy.getId(), copy);
+                }
+                found.put(copy.getId(), copy);
+            }
+        }
+
+        List<Post> posts = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            Object post = found.get(id);
+            if (post instanceof Post p) {
+                posts.add(p);
+            }
+        }
+        return posts;
+    }
+
+    /**
+     * Seed the entity cache with posts a page query just loaded anyway, so
+     * the next read of that page needs no database round trip.
+     */
+    public void prime(List<Post> detached) {
+        Cache cache = cacheManager.getCache(CACHE);
+        if (cache == null) {
+            return;
+        }
+        for (Post post : detached) {
+            cache.put(post.getId(), post);
+        }
+    }
+
+    private static Map<Object, Object> lookup(Cache cache, List<UUID> ids) {
+        if (cache instanceof TwoTierCache twoTier) {
+            return twoTier.getAll(ids);
+        }
+        Map<Object, Object> found = new HashMap<>();
+        if (cache != null) {
+            for (UUID id : ids) {
+                Cache.ValueWrapper wrapper = cache.get(id);
+                if (wrapper != null && wrapper.get() != null) {
+                    found.put(id, wrapper.get());
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Plain copy of a post (images included) with no Hibernate proxies or
+     * persistent collections, safe to serialize into the cache.
+     */
+    static Post detachedCopy(Post original) {
+        Post copy = new Post();
+        copy.setId(original.getId());
+        copy.setUserId(original.getUserId());
+        copy.setTitle(original.getTitle());
+        copy.setContent(original.getContent());
+        copy.setLikesCount(original.getLikesCount());
+        copy.setStarsCount(original.getStarsCount());
+        copy.setCreatedAt(original.getCreatedAt());
+
+        List<PostImage> images = new ArrayList<>(original.getImages().size());
+        for (PostImage image : original.getImages()) {
+            PostImage imageCopy = new PostImage();
+            imageCopy.setId(image.getId());
+            imageCopy.setPosition(image.getPosition());
+            imageCopy.setUrl(image.getUrl());
+            imageCopy.setPost(copy);
+            images.add(imageCopy);
+        }
+        copy.setImages(images);
+        return copy;
+    }
+}
@@ -1,14 +1,23 @@
 package com.realdeal.backend.post.service;
 
+import com.realdeal.backend.cache.service.CacheGenerationService;
 import com.realdeal.backend.exp.service.ExperienceService;
+import com.realdeal.backend.genre.service.GenreLeaderboardService;
+import com.realdeal.backend.post.dto.CursorPage;
 import com.realdeal.backend.post.model.Post;
 import com.realdeal.backend.post.model.PostImage;
+import com.realdeal.backend.post.repository.PostLikeRepository;
 import com.realdeal.backend.post.repository.PostRepository;
+import com.realdeal.backend.post.repository.PostStarRepository;
+import com.realdeal.backend.post.util.FeedCursor;
+import com.realdeal.backend.search.index.SearchTokenizer;
+import com.realdeal.backend.search.service.PostSearchService;
 import com.realdeal.backend.storage.service.UploadService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -21,26 +30,49 @@ import org.springframework.data.domain.Pageable;
 import java.util.UUID;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+/**
+ * List caches are keyed by {@link CacheGenerationService} generations
+ * (feed, per-author, per-liker, per-starrer, search); writes bump only the
+ * generations they affect instead of clearing whole caches.
+ * <p>
+ * List caches hold ordered post ids only. {@link PostLookupService} resolves
+ * them through the {@code singlePost} entity cache, so a post is cached once
+ * however many lists it appears in.
+ */
 @Service
 @RequiredArgsConstructor
 public class PostService {
 
+    /** Most genres one filtered feed request may combine. */
+    private static final int MAX_FEED_GENRES = 10;
+
+    /** Largest cursor page; also keeps the size+1 look-ahead from overflowing. */
+    private static final int MAX_CURSOR_PAGE = 50;
+
     private final PostRepository postRepo;
+    private final PostLikeRepository likeRepo;
+    private final PostStarRepository starRepo;
     private final UploadService uploadService;
     private final ExperienceService experienceService;
+    private final CacheGenerationService generations;
+    private final PostLookupService lookup;
+    private final PostSearchService searchIndex;
+    private final HotRankingService hotRanking;
+    private final GenreLeaderboardService genreLeaderboards;
+
+    // Calls through the proxy so the split content/count helpers below hit
+    // their caches; a plain this.getXxx() call would skip @Cacheable.
+    @Lazy
+    @Autowired
+    private PostService self;
 
-    @Caching(evict = {
-        @CacheEvict(cacheNames = "postsContent", allEntries = true),
-        @CacheEvict(cacheNames = "postsCount", allEntries = true),
-        @CacheEvict(cacheNames = "userPostsContent", allEntries = true),
-        @CacheEvict(cacheNames = "userPostsCount", allEntries = true),
-        @CacheEvict(cacheNames="searchPostsContent", allEntries=true),
-        @CacheEvict(cacheNames="searchPostsCount",   allEntries=true)
-    })
     public Post createPost(String userId,
         String title,
         String content,
@@ -65,41 +97,81 @@ public class PostService {
 
         experienceService.addExp(userId, 15);
 
-        return postRepo.save(post);
+        Post saved = postRepo.save(post);
+        searchIndex.indexed(saved);
+
+        // A new post shows up in the main feed, its author's feed and search
+        generations.bumpFeed();
+        generations.bumpUser(userId);
+        generations.bumpSearch();
+        return saved;
     }
 
-    @Cacheable(cacheNames = "allPosts")
     public List<Post> listAll() {
-        return postRepo.findAll(Sort.by(Sort.Direction.DESC, "createdAt"));
+        return lookup.resolve(self.listAllIds());
+    }
+
+    @Cacheable(cacheNames = "allPosts", key = "'ids:g' + @cacheGenerationService.feed()", sync = true)
+    public List<UUID> listAllIds() {
+        return idsOf(postRepo.findAll(Sort.by(Sort.Direction.DESC, "createdAt")));
     }
 
     // Method that builds a Page from separately cached components
     public Page<Post> getPaginatedPosts(int page, int size) {
         PageRequest pageRequest = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
-        List<Post> content = getPostsContent(page, size);
-        long total = getPostsCount();
+        List<Post> content = lookup.resolve(self.getPostsContent(page, size));
+        long total = self.getPostsCount();
         return new PageImpl<>(content, pageRequest, total);
     }
 
+    /**
+     * Feed ordered by {@link HotRankingService}: posts with the most recent
+     * likes and stars first. Served from memory, so there is no page cache;
+     * the total is the number of ranked posts, which is bounded.
+     */
+    public Page<Post> getHotPosts(int page, int size) {
+        validatePage(page, size);
+        PageRequest pageRequest = PageRequest.of(page, size);
+        List<Post> content = lookup.resolve(hotRanking.hotPostIds((int) pageRequest.getOffset(), size));
+        return new PageImpl<>(content, pageRequest, hotRanking.size());
+    }
+
     // Cache the content separately
-    @Cacheable(cacheNames = "postsContent", key = "'page:' + #page + ':size:' + #size")
-    public List<Post> getPostsContent(int page, int size) {
+    @Cacheable(cacheNames = "postsContent",
+        key = "'ids:g' + @cacheGenerationService.feed() + ':page:' + #page + ':size:' + #size",
+        sync = true)
+    public List<UUID> getPostsContent(int page, int size) {
         PageRequest pageRequest = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
-        return postRepo.findAll(pageRequest).getContent();
+        return idsOf(postRepo.findAll(pageRequest).getContent());
     }
 
     // Cache the count separately
-    @Cacheable(cacheNames = "postsCount")
+    @Cacheable(cacheNames = "postsCount", key = "'g' + @cacheGenerationService.feed()", sync = true)
     public long getPostsCount() {
         return postRepo.count();
     }
 
-    @Cacheable(cacheNames = "singlePost", key = "#postId")
+    @Cacheable(cacheNames = "singlePost", key = "#postId", sync = true)
     public Post getPostById(UUID postId) {
         return postRepo.findById(postId)
+            .map(PostLookupService::detachedCopy)
             .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Post not found"));
     }
 
+    /**
+     * Ids of a freshly queried list, in order. The rows are already loaded,
+     * so their detached copies go into the entity cache on the way.
+     */
+    private List<UUID> idsOf(List<Post> posts) {
+        List<Post> detached = posts.stream()
+            .map(PostLookupService::detachedCopy)
+            .collect(Collectors.toList());
+        lookup.prime(detached);
+        return detached.stream()
+            .map(Post::getId)
+            .collect(Collectors.toList());
+    }
+
     private void validate(String userId,
         String title,
         String content,
@@ -125,24 +197,28 @@ public class PostService {
      */
     public Page<Post> getPostsByUserId(String userId, int page, int size) {
         PageRequest pageRequest = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
-        List<Post> content = getUserPostsContent(userId, page, size);
-        long count = getUserPostsCount(userId);
+        List<Post> content = lookup.resolve(self.getUserPostsContent(userId, page, size));
+        long count = self.getUserPostsCount(userId);
         return new PageImpl<>(content, pageRequest, count);
     }
 
     /**
      * Cache only the content for user posts
      */
-    @Cacheable(cacheNames = "userPostsContent", key = "#userId + ':page:' + #page + ':size:' + #size")
-    public List<Post> getUserPostsContent(String userId, int page, int size) {
+    @Cacheable(cacheNames = "userPostsContent",
+        key = "#userId + ':ids:g' + @cacheGenerationService.user(#userId) + ':page:' + #page + ':size:' + #size",
+        sync = true)
+    public List<UUID> getUserPostsContent(String userId, int page, int size) {
         PageRequest pageRequest = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
-        return postRepo.findByUserId(userId, pageRequest).getContent();
+        return idsOf(postRepo.findByUserId(userId, pageRequest).getContent());
     }
 
     /**
      * Cache only the count for user posts
      */
-    @Cacheable(cacheNames = "userPostsCount", key = "#userId")
+    @Cacheable(cacheNames = "userPostsCount",
+        key = "#userId + ':g' + @cacheGenerationService.user(#userId)",
+        sync = true)
     public long getUserPostsCount(String userId) {
         return postRepo.countByUserId(userId);
     }
@@ -152,19 +228,22 @@ public class PostService {
     /* --------------------------------------------------------------------- */
     public Page<Post> getLikedPosts(String userId, int page, int size) {
         PageRequest pr = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
-        List<Post> content = getLikedPostsContent(userId, page, size);
-        long count = getLikedPostsCount(userId);
+        List<Post> content = lookup.resolve(self.getLikedPostsContent(userId, page, size));
+        long count = self.getLikedPostsCount(userId);
         return new PageImpl<>(content, pr, count);
     }
 
     @Cacheable(cacheNames = "likedPostsContent",
-        key = "#userId + ':page:' + #page + ':size:' + #size")
-    public List<Post> getLikedPostsContent(String userId, int page, int size) {
+        key = "#userId + ':ids:g' + @cacheGenerationService.liked(#userId) + ':page:' + #page + ':size:' + #size",
+        sync = true)
+    public List<UUID> getLikedPostsContent(String userId, int page, int size) {
         PageRequest pr = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
-        return postRepo.findLikedByUserId(userId, pr).getContent();
+        return idsOf(postRepo.findLikedByUserId(userId, pr).getContent());
     }
 
-    @Cacheable(cacheNames = "likedPostsCount", key = "#userId")
+    @Cacheable(cacheNames = "likedPostsCount",
+        key = "#userId + ':g' + @cacheGenerationService.liked(#userId)",
+        sync = true)
     public long getLikedPostsCount(String userId) {
         return postRepo.countLikedByUserId(userId);
     }
@@ -174,19 +253,22 @@ public class PostService {
     /* --------------------------------------------------------------------- */
     public Page<Post> getStarredPosts(String userId, int page, int size) {
         PageRequest pr = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
-        List<Post> content = getStarredPostsContent(userId, page, size);
-        long count = getStarredPostsCount(userId);
+        List<Post> content = lookup.resolve(self.getStarredPostsContent(userId, page, size));
+        long count = self.getStarredPostsCount(userId);
         return new PageImpl<>(content, pr, count);
     }
 
     @Cacheable(cacheNames = "starredPostsContent",
-        key = "#userId + ':page:' + #page + ':size:' + #size")
-    public List<Post> getStarredPostsContent(String userId, int page, int size) {
+        key = "#userId + ':ids:g' + @cacheGenerationService.starred(#userId) + ':page:' + #page + ':size:' + #size",
+        sync = true)
+    public List<UUID> getStarredPostsContent(String userId, int page, int size) {
         PageRequest pr = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
-        return postRepo.findStarredByUserId(userId, pr).getContent();
+        return idsOf(postRepo.findStarredByUserId(userId, pr).getContent());
     }
 
-    @Cacheable(cacheNames = "starredPostsCount", key = "#userId")
+    @Cacheable(cacheNames = "starredPostsCount",
+        key = "#userId + ':g' + @cacheGenerationService.starred(#userId)",
+        sync = true)
     public long getStarredPostsCount(String userId) {
         return postRepo.countStarredByUserId(userId);
     }
@@ -194,13 +276,7 @@ public class PostService {
     /**
      * Update an existing post (title and content only)
      */
-    @Caching(evict = {
-        @CacheEvict(cacheNames = "postsContent", allEntries = true),
-        @CacheEvict(cacheNames = "singlePost", key = "#postId"),
-        @CacheEvict(cacheNames = "allPosts", allEntries = true),
-        @CacheEvict(cacheNames = "userPostsContent", allEntries = true),
-        @CacheEvict(cacheNames = "userPostsCount", allEntries = true)
-    })
+    @CacheEvict(cacheNames = "singlePost", key = "#postId")
     public Post updatePost(UUID postId, String title, String content) {
         // Validate input
         if (title == null || title.isBlank()) {
@@ -218,49 +294,235 @@ public class PostService {
         post.setTitle(title.trim());
         post.setContent(content.trim());
 
-        // Save and return
-        return postRepo.save(post);
+        // Lists only hold ids, and the singlePost entry is evicted above; only
+        // search results can change membership with the new title/content
+        Post saved = postRepo.save(post);
+        searchIndex.indexed(saved);
+        generations.bumpSearch();
+        return saved;
     }
 
     /**
      * Delete a post
      */
-    @Caching(evict = {
-        @CacheEvict(cacheNames = "postsContent", allEntries = true),
-        @CacheEvict(cacheNames = "postsCount", allEntries = true),
-        @CacheEvict(cacheNames = "singlePost", key = "#postId"),
-        @CacheEvict(cacheNames = "allPosts", allEntries = true),
-        @CacheEvict(cacheNames = "userPostsContent", allEntries = true),
-        @CacheEvict(cacheNames = "userPostsCount", allEntries = true),
-        @CacheEvict(cacheNames = "topLevelComments", allEntries = true),
-        @CacheEvict(cacheNames = "allComments", allEntries = true),
-        @CacheEvict(cacheNames="searchPostsContent", allEntries=true),
-        @CacheEvict(cacheNames="searchPostsCount",   allEntries=true)
-    })
+    @CacheEvict(cacheNames = "singlePost", key = "#postId")
     public void deletePost(UUID postId) {
-        if (!postRepo.existsById(postId)) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Post not found");
-        }
+        Post post = postRepo.findById(postId)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Post not found"));
+
+        // Collect likers/starrers before their rows go away with the post
+        List<String> likers = likeRepo.findUserIdsByPostId(postId);
+        List<String> starrers = starRepo.findUserIdsByPostId(postId);
 
         postRepo.deleteById(postId);
+        searchIndex.removed(postId);
+        hotRanking.removed(postId);
+        genreLeaderboards.postChanged(postId);
+
+        generations.bumpFeed();
+        generations.bumpUser(post.getUserId());
+        generations.bumpSearch();
+        generations.bumpComments(postId);
+        likers.forEach(generations::bumpLiked);
+        starrers.forEach(generations::bumpStarred);
     }
 
+    /**
+     * Posts with a term starting with every word of the query, in title or
+     * content, newest first: "phone case" finds "Phones and cases" but
+     * "phone" does not find "iPhone". Served by the in-memory index once it
+     * is built, and by an equivalent database query until then.
+     */
     public Page<Post> search(String query, int page, int size) {
         PageRequest pr = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
-        List<Post> content = getSearchContent(query, page, size);
-        long       count   = getSearchCount(query);
+        List<Post> content = lookup.resolve(self.getSearchContent(query, page, size));
+        long       count   = self.getSearchCount(query);
         return new PageImpl<>(content, pr, count);
     }
 
-    @Cacheable(cacheNames="searchPostsContent",
-        key = "#query.toLowerCase() + ':page:' + #page + ':size:' + #size")
-    public List<Post> getSearchContent(String query, int page, int size) {
-        PageRequest pr = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
-        return postRepo.search(query, pr).getContent();
+    /**
+     * Search ordered by BM25 relevance. Ranking runs on the in-memory index
+     * on every call (no page cache); until the index is ready this degrades
+     * to the newest-first results of {@link #search}.
+     */
+    public Page<Post> searchByRelevance(String query, int page, int size) {
+        PageRequest pr = PageRequest.of(page, size);
+        List<UUID> ids = searchIndex.canAnswer(query)
+            ? searchIndex.rank(query, page * size, size).getIds()
+            : self.getSearchContent(query, page, size);
+        return new PageImpl<>(lookup.resolve(ids), pr, self.getSearchCount(query));
+    }
+
+    @Cacheable(cacheNames = "searchPostsContent",
+        key = "'ids:g' + @cacheGenerationService.search() + ':' + #query.toLowerCase() + ':page:' + #page + ':size:' + #size",
+        sync = true)
+    public List<UUID> getSearchContent(String query, int page, int size) {
+        if (searchIndex.canAnswer(query)) {
+            return searchIndex.search(query, page * size, size).getIds();
+        }
+        String pattern = termPrefixPattern(query);
+        return pattern == null ? List.of() : idsOf(postRepo.searchByTermPrefixes(pattern, PageRequest.of(page, size)));
     }
 
-    @Cacheable(cacheNames="searchPostsCount", key = "#query.toLowerCase()")
+    @Cacheable(cacheNames = "searchPostsCount",
+        key = "'g' + @cacheGenerationService.search() + ':' + #query.toLowerCase()",
+        sync = true)
     public long getSearchCount(String query) {
-        return postRepo.search(query, Pageable.unpaged()).getTotalElements();
+        if (searchIndex.canAnswer(query)) {
+            return searchIndex.count(query);
+        }
+        String pattern = termPrefixPattern(query);
+        return pattern == null ? 0 : postRepo.countByTermPrefixes(pattern);
+    }
+
+    /**
+     * Postgres regex for the index's matching rule: one lookahead per query
+     * token, each requiring the token at a term start (anywhere, for CJK
+     * tokens, which are terms on their own). Tokens are letters and digits
+     * only, so nothing needs escaping. Null when the query has no tokens.
+     */
+    static String termPrefixPattern(String query) {
+        List<String> tokens = SearchTokenizer.tokenize(query);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        StringBuilder pattern = new StringBuilder("^");
+        for (String token : new LinkedHashSet<>(tokens)) {
+            boolean ideograph = token.codePointCount(0, token.length()) == 1
+                && SearchTokenizer.isIdeographic(token.codePointAt(0));
+            pattern.append(ideograph ? "(?=.*" : "(?=.*(^|[^[:alnum:]])").append(token).append(')');
+        }
+        return pattern.toString();
+    }
+
+    /* --------------------------------------------------------------------- */
+    /*              KEYSET (CURSOR) PAGINATION – no OFFSET, no COUNT          */
+    /* --------------------------------------------------------------------- */
+
+    /**
+     * Cursor variant of {@link #getPaginatedPosts}. An empty cursor starts at
+     * the newest post; the returned {@code nextCursor} continues after the
+     * last post of the page.
+     */
+    public CursorPage<Post> getPostsAfter(String cursor, int size) {
+        validateCursorSize(size);
+        return toCursorPage(lookup.resolve(self.getPostsContentAfter(normalize(cursor), size)), size);
+    }
+
+    @Cacheable(cacheNames = "postsContent",
+        key = "'ids:g' + @cacheGenerationService.feed() + ':cursor:' + #cursor + ':size:' + #size",
+        sync = true)
+    public List<UUID> getPostsContentAfter(String cursor, int size) {
+        FeedCursor after = FeedCursor.decode(cursor);
+        Pageable limit = PageRequest.of(0, size + 1);   // one extra row tells us if there is a next page
+        return idsOf(after == null
+            ? postRepo.findFeedFirst(limit)
+            : postRepo.findFeedAfter(after.getCreatedAt(), after.getId(), limit));
+    }
+
+    /**
+     * The cursor feed restricted to posts in any of the given genres, in
+     * the same order and with the same cursors as {@link #getPostsAfter}.
+     */
+    public CursorPage<Post> getPostsInGenresAfter(Collection<Integer> genreIds, String cursor, int size) {
+        validateCursorSize(size);
+        List<Integer> genres = normalizeGenres(genreIds);
+        return toCursorPage(lookup.resolve(self.getGenrePostsContentAfter(genres, normalize(cursor), size)), size);
+    }
+
+    @Cacheable(cacheNames = "postsContent",
+        key = "'ids:g' + @cacheGenerationService.feed() + ':genres:' + #genreIds + ':cursor:' + #cursor + ':size:' + #size",
+        sync = true)
+    public List<UUID> getGenrePostsContentAfter(List<Integer> genreIds, String cursor, int size) {
+        FeedCursor after = FeedCursor.decode(cursor);
+        Pageable limit = PageRequest.of(0, size + 1);
+        return idsOf(after == null
+            ? postRepo.findGenreFeedFirst(genreIds, limit)
+            : postRepo.findGenreFeedAfter(genreIds, after.getCreatedAt(), after.getId(), limit));
+    }
+
+    public CursorPage<Post> getPostsByUserIdAfter(String userId, String cursor, int size) {
+        validateCursorSize(size);
+        return toCursorPage(lookup.resolve(self.getUserPostsContentAfter(userId, normalize(cursor), size)), size);
+    }
+
+    @Cacheable(cacheNames = "userPostsContent",
+        key = "#userId + ':ids:g' + @cacheGenerationService.user(#userId) + ':cursor:' + #cursor + ':size:' + #size",
+        sync = true)
+    public List<UUID> getUserPostsContentAfter(String userId, String cursor, int size) {
+        FeedCursor after = FeedCursor.decode(cursor);
+        Pageable limit = PageRequest.of(0, size + 1);
+        return idsOf(after == null
+            ? postRepo.findUserFeedFirst(userId, limit)
+            : postRepo.findUserFeedAfter(userId, after.getCreatedAt(), after.getId(), limit));
+    }
+
+    public CursorPage<Post> getLikedPostsAfter(String userId, String cursor, int size) {
+        validateCursorSize(size);
+        return toCursorPage(lookup.resolve(self.getLikedPostsContentAfter(userId, normalize(cursor), size)), size);
+    }
+
+    @Cacheable(cacheNames = "likedPostsContent",
+        key = "#userId + ':ids:g' + @cacheGenerationService.liked(#userId) + ':cursor:' + #cursor + ':size:' + #size",
+        sync = true)
+    public List<UUID> getLikedPostsContentAfter(String userId, String cursor, int size) {
+        FeedCursor after = FeedCursor.decode(cursor);
+        Pageable limit = PageRequest.of(0, size + 1);
+        return idsOf(after == null
+            ? postRepo.findLikedFeedFirst(userId, limit)
+            : postRepo.findLikedFeedAfter(userId, after.getCreatedAt(), after.getId(), limit));
+    }
+
+    public CursorPage<Post> getStarredPostsAfter(String userId, String cursor, int size) {
+        validateCursorSize(size);
+        return toCursorPage(lookup.resolve(self.getStarredPostsContentAfter(userId, normalize(cursor), size)), size);
+    }
+
+    @Cacheable(cacheNames = "starredPostsContent",
+        key = "#userId + ':ids:g' + @cacheGenerationService.starred(#userId) + ':cursor:' + #cursor + ':size:' + #size",
+        sync = true)
+    public List<UUID> getStarredPostsContentAfter(String userId, String cursor, int size) {
+        FeedCursor after = FeedCursor.decode(cursor);
+        Pageable limit = PageRequest.of(0, size + 1);
+        return idsOf(after == null
+            ? postRepo.findStarredFeedFirst(userId, limit)
+            : postRepo.findStarredFeedAfter(userId, after.getCreatedAt(), after.getId(), limit));
+    }
+
+    private static String normalize(String cursor) {
+        return cursor == null ? "" : cursor.trim();
+    }
+
+    /** Distinct and sorted, so the same filter always hits the same cache entry. */
+    private static List<Integer> normalizeGenres(Collection<Integer> genreIds) {
+        List<Integer> genres = genreIds.stream().filter(Objects::nonNull).distinct().sorted().toList();
+        if (genres.isEmpty() || genres.size() > MAX_FEED_GENRES) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "genreIds must name 1-" + MAX_FEED_GENRES + " genres");
+        }
+        return genres;
+    }
+
+    private static void validateCursorSize(int size) {
+        if (size < 1 || size > MAX_CURSOR_PAGE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size must be between 1 and " + MAX_CURSOR_PAGE);
+        }
+    }
+
+    /** Offset pages take the cursor size bounds, and the offset must fit an int. */
+    private static void validatePage(int page, int size) {
+        validateCursorSize(size);
+        if (page < 0 || page > Integer.MAX_VALUE / size) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "page must be between 0 and " + Integer.MAX_VALUE / size);
+        }
+    }
+
+    /** Trim the size+1 look-ahead window down to a page and derive its cursor. */
+    private static CursorPage<Post> toCursorPage(List<Post> window, int size) {
+        if (window.size() <= size) {
+            return new CursorPage<>(new ArrayList<>(window), null);
+        }
+        List<Post> content = new ArrayList<>(window.subList(0, size));
+        return new CursorPage<>(content, FeedCursor.encode(content.get(size - 1)));
     }
-}
\ No newline at end of file
+}
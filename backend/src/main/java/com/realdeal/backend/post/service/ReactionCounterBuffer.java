@@ -0,0 +1,217 @@
+package com.realdeal.backend.post.service;
+
+import com.realdeal.backend.post.config.ReactionCounterProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind like/star counters.
+ * <p>
+ * Instead of one {@code UPDATE posts} per click, which makes every liker
+ * of a viral post queue on the same row lock, reactions add a delta here.
+ * Deltas are kept per post in lock-striped maps, so concurrent clicks only
+ * contend when they hash to the same stripe, and every
+ * {@code realdeal.reactions.flush-interval} they are written as one batch of
+ * {@code likes_count = likes_count + ?} updates in a single transaction,
+ * ordered by post id so two nodes flushing at once can't deadlock.
+ * <p>
+ * Deltas are applied immediately and taken back if the reaction's
+ * transaction rolls back. {@link #pendingLikes}/{@link #pendingStars}
+ * include a batch that is being written, so the database value plus the
+ * pending delta is the current count. A failed flush puts its batch back
+ * for the next attempt, and whatever is left is flushed on shutdown.
+ */
+@Slf4j
+@Service
+public class ReactionCounterBuffer {
+
+    private static final int STRIPES = 16;
+
+    private static final String UPDATE_SQL =
+        "UPDATE posts SET likes_count = likes_count + ?, stars_count = stars_count + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transaction;
+    private final ReactionCounterProperties properties;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final Object flushLock = new Object();
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "reaction-counter-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** Deltas of the posts hashing here, as {likes, stars}. */
+    private static final class Stripe {
+        Map<UUID, int[]> pending = new HashMap<>();
+        Map<UUID, int[]> flushing = Map.of();
+    }
+
+    public ReactionCounterBuffer(JdbcTemplate jdbc,
+                                 PlatformTransactionManager transactionManager,
+                                 ReactionCounterProperties properties) {
+        this.jdbc = jdbc;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        long interval = Math.max(1, properties.getFlushInterval().toMillis());
+        flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /* ------------------------------ updates ------------------------------ */
+
+    public void addLikes(UUID postId, int delta) {
+        add(postId, delta, 0);
+    }
+
+    public void addStars(UUID postId, int delta) {
+        add(postId, 0, delta);
+    }
+
+    private void add(UUID postId, int likes, int stars) {
+        apply(postId, likes, stars);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        apply(postId, -likes, -stars);
+                    }
+                }
+            });
+        }
+    }
+
+    private void apply(UUID postId, int likes, int stars) {
+        Stripe stripe = stripeOf(postId);
+        synchronized (stripe) {
+            int[] delta = stripe.pending.computeIfAbsent(postId, id -> new int[2]);
+            delta[0] += likes;
+            delta[1] += stars;
+        }
+    }
+
+    /* ------------------------------ reads ------------------------------ */
+
+    /** Likes of {@code postId} not yet written to (or being written to) the database. */
+    public int pendingLikes(UUID postId) {
+        return pending(postId, 0);
+    }
+
+    public int pendingStars(UUID postId) {
+        return pending(postId, 1);
+    }
+
+    private int pending(UUID postId, int field) {
+        Stripe stripe = stripeOf(postId);
+        synchronized (stripe) {
+            int[] pending = stripe.pending.get(postId);
+            int[] flushing = stripe.flushing.get(postId);
+            return (pending != null ? pending[field] : 0) + (flushing != null ? flushing[field] : 0);
+        }
+    }
+
+    private Stripe stripeOf(UUID postId) {
+        return stripes[(postId.hashCode() & 0x7fffffff) % STRIPES];
+    }
+
+    /* ------------------------------ flushing ------------------------------ */
+
+    /** Write every pending delta; returns how many posts were updated. */
+    public int flush() {
+        synchronized (flushLock) {
+            Map<UUID, int[]> batch = new TreeMap<>();
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    stripe.flushing = stripe.pending;
+                    stripe.pending = new HashMap<>();
+                    stripe.flushing.forEach((postId, delta) -> {
+                        if (delta[0] != 0 || delta[1] != 0) {
+                            batch.put(postId, delta);
+                        }
+                    });
+                }
+            }
+
+            boolean written = false;
+            try {
+                if (!batch.isEmpty()) {
+                    write(batch);
+                }
+                written = true;
+                return batch.size();
+            } finally {
+                for (Stripe stripe : stripes) {
+                    synchronized (stripe) {
+                        if (!written) {
+                            // nothing was committed; keep the deltas for the next attempt
+                            stripe.flushing.forEach((postId, delta) -> {
+                                int[] pending = stripe.pending.computeIfAbsent(postId, id -> new int[2]);
+                                pending[0] += delta[0];
+                                pending[1] += delta[1];
+                            });
+                        }
+                        stripe.flushing = Map.of();
+                    }
+                }
+            }
+        }
+    }
+
+    private void write(Map<UUID, int[]> batch) {
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        batch.forEach((postId, delta) -> rows.add(new Object[] {delta[0], delta[1], postId}));
+
+        int size = Math.max(1, properties.getBatchSize());
+        transaction.executeWithoutResult(status -> {
+            for (int from = 0; from < rows.size(); from += size) {
+                jdbc.batchUpdate(UPDATE_SQL, rows.subList(from, Math.min(rows.size(), from + size)));
+            }
+        });
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Flushing reaction counters failed, retrying next interval: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            int posts = flush();
+            if (posts > 0) {
+                log.info("Flushed reaction counters of {} posts on shutdown", posts);
+            }
+        } catch (RuntimeException e) {
+            log.error("Could not flush reaction counters on shutdown; those deltas are lost", e);
+        }
+    }
+}
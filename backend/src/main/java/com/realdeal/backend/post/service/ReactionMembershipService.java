@@ -0,0 +1,171 @@
+package com.realdeal.backend.post.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.realdeal.backend.cache.service.CacheGenerationService;
+import com.realdeal.backend.common.tx.AfterCommit;
+import com.realdeal.backend.post.config.ReactionMembershipProperties;
+import com.realdeal.backend.post.index.IntBitmap;
+import com.realdeal.backend.post.repository.PostLikeRepository;
+import com.realdeal.backend.post.repository.PostStarRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Which posts a viewer has liked or starred, answered from memory.
+ * <p>
+ * Each viewer's liked and starred posts are held as an {@link IntBitmap}
+ * over a dense, node-local post sequence, loaded with one query the first
+ * time the viewer is looked up. After that, "which of these N posts has the
+ * viewer reacted to" is N map lookups and bit tests, and a post the viewer
+ * never touched costs nothing instead of a cache miss per pair.
+ * <p>
+ * A set remembers the viewer's liked/starred generation from
+ * {@link CacheGenerationService} at load time. {@link ReactionService}
+ * applies this node's changes in place and adopts the new generation; any
+ * other bump (a reaction on another node) leaves the generations apart and
+ * the set is reloaded on its next lookup.
+ */
+@Service
+public class ReactionMembershipService {
+
+    private final PostLikeRepository likeRepo;
+    private final PostStarRepository starRepo;
+    private final CacheGenerationService generations;
+
+    // Dense ids for posts seen by any set; never reused, so a deleted post just leaves a gap
+    private final Map<UUID, Integer> sequence = new ConcurrentHashMap<>();
+    private final AtomicInteger nextSequence = new AtomicInteger();
+
+    private final Cache<String, Membership> liked;
+    private final Cache<String, Membership> starred;
+
+    /** One viewer's set; guarded by its own monitor. */
+    private static final class Membership {
+        final IntBitmap posts = new IntBitmap();
+        volatile long generation;
+
+        Membership(long generation) {
+            this.generation = generation;
+        }
+    }
+
+    public ReactionMembershipService(PostLikeRepository likeRepo,
+                                     PostStarRepository starRepo,
+                                     CacheGenerationService generations,
+                                     ReactionMembershipProperties properties) {
+        this.likeRepo = likeRepo;
+        this.starRepo = starRepo;
+        this.generations = generations;
+        this.liked = newCache(properties);
+        this.starred = newCache(properties);
+    }
+
+    private static Cache<String, Membership> newCache(ReactionMembershipProperties properties) {
+        return Caffeine.newBuilder()
+            .maximumSize(properties.getMaxUsers())
+            .expireAfterAccess(properties.getIdleTimeout())
+            .build();
+    }
+
+    /* ------------------------------ lookups ------------------------------ */
+
+    public boolean hasLiked(UUID postId, String userId) {
+        return !likedAmong(List.of(postId), userId).isEmpty();
+    }
+
+    public boolean hasStarred(UUID postId, String userId) {
+        return !starredAmong(List.of(postId), userId).isEmpty();
+    }
+
+    /** The subset of {@code postIds} the user has liked. */
+    public Set<UUID> likedAmong(Collection<UUID> postIds, String userId) {
+        Membership membership = current(liked, userId, generations.liked(userId), likeRepo::findPostIdsByUserId);
+        return among(postIds, membership);
+    }
+
+    public Set<UUID> starredAmong(Collection<UUID> postIds, String userId) {
+        Membership membership = current(starred, userId, generations.starred(userId), starRepo::findPostIdsByUserId);
+        return among(postIds, membership);
+    }
+
+    private Set<UUID> among(Collection<UUID> postIds, Membership membership) {
+        Set<UUID> hits = new HashSet<>();
+        synchronized (membership) {
+            for (UUID postId : postIds) {
+                Integer seq = sequence.get(postId);
+                // a post without a sequence number is in nobody's set
+                if (seq != null && membership.posts.contains(seq)) {
+                    hits.add(postId);
+                }
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * The user's set, loaded if missing or stale. {@code generation} is read
+     * before the query, so a reaction committed during the load bumps past it
+     * and the next lookup reloads.
+     */
+    private Membership current(Cache<String, Membership> cache, String userId, long generation,
+                               Function<String, List<UUID>> loader) {
+        Membership membership = cache.getIfPresent(userId);
+        if (membership != null && membership.generation == generation) {
+            return membership;
+        }
+
+        Membership fresh = new Membership(generation);
+        for (UUID postId : loader.apply(userId)) {
+            fresh.posts.add(sequenceOf(postId));
+        }
+        cache.put(userId, fresh);
+        return fresh;
+    }
+
+    private int sequenceOf(UUID postId) {
+        return sequence.computeIfAbsent(postId, id -> nextSequence.getAndIncrement());
+    }
+
+    /* ------------------------------ updates ------------------------------ */
+
+    /**
+     * A like was added or removed on this node. Call after the matching
+     * {@code bumpLiked}, so the bump has landed by the time this runs.
+     */
+    public void likeChanged(UUID postId, String userId, boolean added) {
+        AfterCommit.run(() -> apply(liked.getIfPresent(userId), postId, added, () -> generations.liked(userId)));
+    }
+
+    public void starChanged(UUID postId, String userId, boolean added) {
+        AfterCommit.run(() -> apply(starred.getIfPresent(userId), postId, added, () -> generations.starred(userId)));
+    }
+
+    private void apply(Membership membership, UUID postId, boolean added, LongSupplier generation) {
+        if (membership == null) {
+            return;   // not loaded; the next lookup reads the committed rows
+        }
+        synchronized (membership) {
+            if (added) {
+                membership.posts.add(sequenceOf(postId));
+            } else {
+                membership.posts.remove(sequenceOf(postId));
+            }
+            // only our own bump happened since the load: the set is still complete
+            long now = generation.getAsLong();
+            if (now == membership.generation + 1) {
+                membership.generation = now;
+            }
+        }
+    }
+}
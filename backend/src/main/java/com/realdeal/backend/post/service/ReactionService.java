@@ -1,18 +1,21 @@
 package com.realdeal.backend.post.service;
 
+import com.realdeal.backend.cache.service.CacheGenerationService;
 import com.realdeal.backend.exp.service.ExperienceService;
-import com.realdeal.backend.post.model.PostLike;
-import com.realdeal.backend.post.model.PostStar;
-import com.realdeal.backend.post.model.pk.PostLikePK;
-import com.realdeal.backend.post.model.pk.PostStarPK;
+import com.realdeal.backend.genre.service.GenreLeaderboardService;
+import com.realdeal.backend.post.dto.ReactionResult;
 import com.realdeal.backend.post.repository.*;
+import com.realdeal.backend.recommendation.service.RelatedPostService;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -22,86 +25,125 @@ public class ReactionService {
 
     private final PostLikeRepository likeRepo;
     private final PostStarRepository starRepo;
-    private final PostRepository postRepo;
     private final ExperienceService experienceService;
+    private final CacheGenerationService generations;
+    private final ReactionCounterBuffer counters;
+    private final ReactionMembershipService membership;
+    private final RelatedPostService relatedPosts;
+    private final HotRankingService hotRanking;
+    private final GenreLeaderboardService genreLeaderboards;
 
     private static final int EXP_PER_REACTION = 2;
 
-    @Caching(evict = {
-        @CacheEvict(cacheNames = "postsContent", allEntries = true),
-        @CacheEvict(cacheNames = "postLikes", key = "#postId + ':' + #userId"),
-        @CacheEvict(cacheNames = "allPosts", allEntries = true), // Added to ensure consistency
-        @CacheEvict(cacheNames = "singlePost", key = "#postId") // Added to ensure consistency
-    })
-    public boolean toggleLike(UUID postId, String userId) {
-        PostLikePK pk = new PostLikePK(postId, userId);
-        if (likeRepo.existsById(pk)) {                 // reaction removed
-            likeRepo.deleteById(pk);
-            postRepo.decrementLikes(postId);
-
-            String ownerId = postRepo.findById(postId).orElseThrow().getUserId();
-            if (!ownerId.equals(userId)) {
-                experienceService.addExp(ownerId, -EXP_PER_REACTION);   // ← deduct EXP
-            }
-            return false;
-        } else {
-            PostLike like = new PostLike();
-            like.setPostId(postId);
-            like.setUserId(userId);
-            likeRepo.save(like);
-            postRepo.incrementLikes(postId);
-
-            String ownerId = postRepo.findById(postId).orElseThrow()
-                .getUserId();
-            if (!ownerId.equals(userId)) {
-                experienceService.addExp(ownerId, EXP_PER_REACTION);
-            }
-
-            return true;
+    /**
+     * Feed and search pages are left alone: their like counters are
+     * overlaid live when the page is rendered. Only the single post and
+     * this user's liked-posts list change, and the user's in-memory liked
+     * set is updated in place. The counter itself goes through
+     * {@link ReactionCounterBuffer}, and the like feeds the co-like model
+     * behind related posts, the post's hot score and its genres' engagement
+     * leaderboards.
+     * <p>
+     * Idempotent: liking twice changes nothing the second time. One
+     * statement does the write and reads back the owner and counter.
+     */
+    @CacheEvict(cacheNames = "singlePost", key = "#postId")
+    public ReactionResult setLike(UUID postId, String userId, boolean liked) {
+        ReactionWrite write = (liked
+            ? likeRepo.insertLike(postId, userId)
+            : likeRepo.deleteLike(postId, userId)).orElseThrow(ReactionService::postNotFound);
+        return liked(postId, userId, liked, write);
+    }
+
+    /** Unlike if liked, else like: one statement to unlike, two to like. */
+    @CacheEvict(cacheNames = "singlePost", key = "#postId")
+    public ReactionResult toggleLike(UUID postId, String userId) {
+        ReactionWrite removed = likeRepo.deleteLike(postId, userId).orElseThrow(ReactionService::postNotFound);
+        if (removed.isChanged()) {
+            return liked(postId, userId, false, removed);
         }
+        return liked(postId, userId, true, likeRepo.insertLike(postId, userId).orElseThrow(ReactionService::postNotFound));
     }
 
-    @Caching(evict = {
-        @CacheEvict(cacheNames = "postsContent", allEntries = true),
-        @CacheEvict(cacheNames = "postStars", key = "#postId + ':' + #userId"),
-        @CacheEvict(cacheNames = "allPosts", allEntries = true), // Added to ensure consistency
-        @CacheEvict(cacheNames = "singlePost", key = "#postId") // Added to ensure consistency
-    })
-    public boolean toggleStar(UUID postId, String userId) {
-        PostStarPK pk = new PostStarPK(postId, userId);
-        if (starRepo.existsById(pk)) {                 // reaction removed
-            starRepo.deleteById(pk);
-            postRepo.decrementStars(postId);
-
-            String ownerId = postRepo.findById(postId).orElseThrow().getUserId();
-            if (!ownerId.equals(userId)) {             // skip self-unstar
-                experienceService.addExp(ownerId, -EXP_PER_REACTION);   // ← deduct EXP
-            }
-            return false;
-        } else {
-            PostStar star = new PostStar();
-            star.setPostId(postId);
-            star.setUserId(userId);
-            starRepo.save(star);
-            postRepo.incrementStars(postId);
-
-            String ownerId = postRepo.findById(postId).orElseThrow()
-                .getUserId();
-            if (!ownerId.equals(userId)) {
-                experienceService.addExp(ownerId, EXP_PER_REACTION);
-            }
-
-            return true;
+    private ReactionResult liked(UUID postId, String userId, boolean liked, ReactionWrite write) {
+        if (write.isChanged()) {
+            generations.bumpLiked(userId);
+            membership.likeChanged(postId, userId, liked);
+            relatedPosts.likeChanged(postId, userId, liked);
+            hotRanking.likeChanged(postId, liked);
+            genreLeaderboards.postChanged(postId);
+            counters.addLikes(postId, liked ? 1 : -1);
+            rewardOwner(write.getOwnerId(), userId, liked);
+        }
+        return new ReactionResult(liked, write.isChanged(), write.getCount() + counters.pendingLikes(postId));
+    }
+
+    /** Same scope and semantics as {@link #setLike}: single post, starred set and list, hot score, genre leaderboards. */
+    @CacheEvict(cacheNames = "singlePost", key = "#postId")
+    public ReactionResult setStar(UUID postId, String userId, boolean starred) {
+        ReactionWrite write = (starred
+            ? starRepo.insertStar(postId, userId)
+            : starRepo.deleteStar(postId, userId)).orElseThrow(ReactionService::postNotFound);
+        return starred(postId, userId, starred, write);
+    }
+
+    @CacheEvict(cacheNames = "singlePost", key = "#postId")
+    public ReactionResult toggleStar(UUID postId, String userId) {
+        ReactionWrite removed = starRepo.deleteStar(postId, userId).orElseThrow(ReactionService::postNotFound);
+        if (removed.isChanged()) {
+            return starred(postId, userId, false, removed);
+        }
+        return starred(postId, userId, true, starRepo.insertStar(postId, userId).orElseThrow(ReactionService::postNotFound));
+    }
+
+    private ReactionResult starred(UUID postId, String userId, boolean starred, ReactionWrite write) {
+        if (write.isChanged()) {
+            generations.bumpStarred(userId);
+            membership.starChanged(postId, userId, starred);
+            hotRanking.starChanged(postId, starred);
+            genreLeaderboards.postChanged(postId);
+            counters.addStars(postId, starred ? 1 : -1);
+            rewardOwner(write.getOwnerId(), userId, starred);
+        }
+        return new ReactionResult(starred, write.isChanged(), write.getCount() + counters.pendingStars(postId));
+    }
+
+    private static ResponseStatusException postNotFound() {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Post not found");
+    }
+
+    /** Reactions earn (and taking them back costs) the post's author EXP, never for self-reactions. */
+    private void rewardOwner(String ownerId, String userId, boolean added) {
+        if (!ownerId.equals(userId)) {
+            experienceService.addExp(ownerId, added ? EXP_PER_REACTION : -EXP_PER_REACTION);
         }
     }
 
-    @Cacheable(cacheNames = "postLikes", key = "#postId + ':' + #userId")
     public boolean hasLiked(UUID postId, String userId) {
-        return likeRepo.existsByPostIdAndUserId(postId, userId);
+        return membership.hasLiked(postId, userId);
     }
 
-    @Cacheable(cacheNames = "postStars", key = "#postId + ':' + #userId")
     public boolean hasStarred(UUID postId, String userId) {
-        return starRepo.existsByPostIdAndUserId(postId, userId);
+        return membership.hasStarred(postId, userId);
+    }
+
+    /**
+     * Which of the given posts the user has liked, from the user's in-memory set.
+     */
+    public Set<UUID> getLikedPostIds(Collection<UUID> postIds, String userId) {
+        if (postIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        return membership.likedAmong(postIds, userId);
+    }
+
+    /**
+     * Which of the given posts the user has starred, from the user's in-memory set.
+     */
+    public Set<UUID> getStarredPostIds(Collection<UUID> postIds, String userId) {
+        if (postIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        return membership.starredAmong(postIds, userId);
     }
-}
\ No newline at end of file
+}
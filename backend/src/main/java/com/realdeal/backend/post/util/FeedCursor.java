@@ -0,0 +1,72 @@
+package com.realdeal.backend.post.util;
+
+import com.realdeal.backend.post.model.Post;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Opaque keyset cursor over {@code (createdAt DESC, id DESC)}, or
+ * ascending for comment replies.
+ * Encodes the position of the last row on a page so the next page can
+ * start right after it without an OFFSET scan.
+ */
+public final class FeedCursor {
+
+    private static final char SEPARATOR = '|';
+
+    private final LocalDateTime createdAt;
+    private final UUID id;
+
+    private FeedCursor(LocalDateTime createdAt, UUID id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    /** Cursor pointing just after the given post. */
+    public static String encode(Post post) {
+        return encode(post.getCreatedAt(), post.getId());
+    }
+
+    /** Cursor pointing just after the row at {@code (createdAt, id)}. */
+    public static String encode(LocalDateTime createdAt, UUID id) {
+        String raw = createdAt.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parse a cursor coming from a client.
+     * A blank cursor means "first page" and yields {@code null}.
+     */
+    public static FeedCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf(SEPARATOR);
+            if (sep < 0) {
+                throw new IllegalArgumentException("missing separator");
+            }
+            return new FeedCursor(
+                LocalDateTime.parse(raw.substring(0, sep)),
+                UUID.fromString(raw.substring(sep + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid cursor");
+        }
+    }
+}
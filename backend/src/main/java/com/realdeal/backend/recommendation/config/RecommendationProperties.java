@@ -0,0 +1,62 @@
+package com.realdeal.backend.recommendation.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Recommended feed and related posts, bound from {@code realdeal.recommendation.*}.
+ * The candidate pools together bound how far a user can scroll one ranked
+ * snapshot.
+ *
+ * @see com.realdeal.backend.recommendation.service.RecommendationService
+ * @see com.realdeal.backend.recommendation.service.RelatedPostService
+ */
+@Data
+@ConfigurationProperties(prefix = "realdeal.recommendation")
+public class RecommendationProperties {
+
+  /** Newest posts taken regardless of genre. */
+  private int recentPool = 300;
+
+  /** Newest posts taken from each of the user's preferred genres. */
+  private int poolPerGenre = 100;
+
+  /** Weight of co-like similarity to the user's recent likes, next to genre overlap. */
+  private double relatedWeight = 0.5;
+
+  /** Co-like ("users who liked this also liked") model. */
+  private CoLike coLike = new CoLike();
+
+  @Data
+  public static class CoLike {
+
+    /** Related posts kept per post. */
+    private int neighbours = 20;
+
+    /** Recent likes per user that a new like is paired with. */
+    private int historySize = 100;
+
+    /** Users whose recent likes are kept; the least recently active are dropped. */
+    private int maxUsers = 100_000;
+
+    /** Co-like counters a post keeps after compaction. */
+    private int maxCandidates = 500;
+
+    /** How often the model is compacted and snapshotted. */
+    private Duration compactionInterval = Duration.ofMinutes(10);
+
+    /** Snapshot file read at startup instead of scanning post_likes; blank disables snapshots. */
+    private String snapshotPath = "";
+
+    /** Older snapshots are ignored and the model is rebuilt from post_likes. */
+    private Duration snapshotMaxAge = Duration.ofHours(6);
+
+    /** How often the model is rebuilt from post_likes, repairing whatever it drifted on. */
+    private Duration rebuildInterval = Duration.ofHours(24);
+
+    /** Redis pub/sub channel carrying likes to the other nodes' models. */
+    private String channel = "realdeal:recommendation:co-like";
+  }
+}
@@ -0,0 +1,321 @@
+package com.realdeal.backend.recommendation.index;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+/**
+ * "Users who liked this also liked": item-to-item co-like counts, kept up to
+ * date one like at a time.
+ * <p>
+ * Each user's most recent {@code historySize} likes are remembered. A new
+ * like pairs the post with every post in that history, so a like costs
+ * {@code O(historySize)} instead of a scan of {@code post_likes}; an unlike
+ * takes its pairs back out while the post is still in the history. Two
+ * posts are related by the cosine of their likers,
+ * {@code coLikes / sqrt(likes(a) * likes(b))}.
+ * <p>
+ * Per post, the best {@code neighbours} are kept as a ranked list that is
+ * rebuilt on the first read after its counts change. The counts behind it
+ * grow with every like, so {@link #compact()} trims each post back to its
+ * {@code maxCandidates} largest counts and drops posts nobody likes any
+ * more. Only the least recently active {@code maxUsers} histories are
+ * forgotten: their old likes keep their counts but stop pairing.
+ * <p>
+ * Every method synchronizes on the index.
+ */
+public final class CoLikeIndex {
+
+  private static final int MAGIC = 0x434C4B31;   // "CLK1"
+
+  private final int neighbours;
+  private final int historySize;
+  private final int maxCandidates;
+
+  private final Map<UUID, Item> items = new HashMap<>();
+  private final LinkedHashMap<String, LinkedHashSet<UUID>> histories;
+
+  /** One post: its like count, co-like counts and ranked neighbours. */
+  private static final class Item {
+    int likes;
+    final Map<UUID, int[]> coLikes = new HashMap<>();
+    Neighbour[] ranked;   // null when stale
+  }
+
+  /** A related post and its similarity, 0..1. */
+  public static final class Neighbour {
+    private final UUID postId;
+    private final double score;
+
+    public Neighbour(UUID postId, double score) {
+      this.postId = postId;
+      this.score = score;
+    }
+
+    public UUID getPostId() {
+      return postId;
+    }
+
+    public double getScore() {
+      return score;
+    }
+  }
+
+  private static final Comparator<Neighbour> BEST_FIRST =
+      Comparator.comparingDouble(Neighbour::getScore).reversed()
+          .thenComparing(Neighbour::getPostId);
+
+  public CoLikeIndex(int neighbours, int historySize, int maxCandidates, int maxUsers) {
+    this.neighbours = neighbours;
+    this.historySize = historySize;
+    this.maxCandidates = Math.max(maxCandidates, neighbours);
+    // access order: the least recently active user is evicted first
+    this.histories = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, LinkedHashSet<UUID>> eldest) {
+        return size() > maxUsers;
+      }
+    };
+  }
+
+  /* ------------------------------ updates ------------------------------ */
+
+  /** {@code userId} liked {@code postId}; a like already in the history is ignored. */
+  public synchronized void liked(String userId, UUID postId) {
+    LinkedHashSet<UUID> history = histories.computeIfAbsent(userId, id -> new LinkedHashSet<>());
+    if (!history.add(postId)) {
+      return;
+    }
+    Item item = items.computeIfAbsent(postId, id -> new Item());
+    item.likes++;
+    for (UUID other : history) {
+      if (!other.equals(postId)) {
+        pair(postId, item, other, 1);
+      }
+    }
+    if (history.size() > historySize) {
+      Iterator<UUID> oldest = history.iterator();
+      oldest.next();
+      oldest.remove();
+    }
+  }
+
+  public synchronized void unliked(String userId, UUID postId) {
+    Item item = items.get(postId);
+    if (item == null) {
+      return;
+    }
+    LinkedHashSet<UUID> history = histories.get(userId);
+    if (history != null && history.remove(postId)) {
+      for (UUID other : history) {
+        pair(postId, item, other, -1);
+      }
+    }
+    if (item.likes > 0) {
+      item.likes--;
+    }
+    item.ranked = null;
+  }
+
+  private void pair(UUID postId, Item item, UUID otherId, int delta) {
+    Item other = delta > 0 ? items.computeIfAbsent(otherId, id -> new Item()) : items.get(otherId);
+    if (other == null) {
+      return;
+    }
+    count(item, otherId, delta);
+    count(other, postId, delta);
+  }
+
+  private void count(Item item, UUID otherId, int delta) {
+    int[] count = item.coLikes.get(otherId);
+    if (count == null) {
+      if (delta <= 0) {
+        return;
+      }
+      item.coLikes.put(otherId, new int[] {delta});
+      if (item.coLikes.size() > 2 * maxCandidates) {
+        trim(item);   // don't let a hot post grow unbounded between compactions
+      }
+    } else if ((count[0] += delta) <= 0) {
+      item.coLikes.remove(otherId);
+    }
+    item.ranked = null;
+  }
+
+  /**
+   * Trim every post to its {@code maxCandidates} largest co-like counts and
+   * drop posts that are neither liked nor related to anything.
+   */
+  public synchronized void compact() {
+    Iterator<Item> it = items.values().iterator();
+    while (it.hasNext()) {
+      Item item = it.next();
+      if (item.likes <= 0 && item.coLikes.isEmpty()) {
+        it.remove();
+      } else if (item.coLikes.size() > maxCandidates) {
+        trim(item);
+      }
+    }
+  }
+
+  private void trim(Item item) {
+    List<Map.Entry<UUID, int[]>> entries = new ArrayList<>(item.coLikes.entrySet());
+    entries.sort((a, b) -> Integer.compare(b.getValue()[0], a.getValue()[0]));
+    for (int i = maxCandidates; i < entries.size(); i++) {
+      item.coLikes.remove(entries.get(i).getKey());
+    }
+    item.ranked = null;
+  }
+
+  /* ------------------------------ queries ------------------------------ */
+
+  /** Up to {@code limit} posts most related to {@code postId}, best first. */
+  public synchronized List<Neighbour> related(UUID postId, int limit) {
+    Item item = items.get(postId);
+    if (item == null || limit <= 0) {
+      return List.of();
+    }
+    Neighbour[] ranked = ranked(item);
+    return List.of(ranked).subList(0, Math.min(limit, ranked.length));
+  }
+
+  /**
+   * Up to {@code limit} posts related to any of {@code seeds}, scored by the
+   * sum of their similarities to the seeds; the seeds themselves are left out.
+   */
+  public synchronized List<Neighbour> relatedToAll(Collection<UUID> seeds, int limit) {
+    Map<UUID, double[]> sums = new HashMap<>();
+    for (UUID seed : seeds) {
+      Item item = items.get(seed);
+      if (item == null) {
+        continue;
+      }
+      for (Neighbour neighbour : ranked(item)) {
+        if (!seeds.contains(neighbour.getPostId())) {
+          sums.computeIfAbsent(neighbour.getPostId(), id -> new double[1])[0] += neighbour.getScore();
+        }
+      }
+    }
+    List<Neighbour> all = new ArrayList<>(sums.size());
+    sums.forEach((id, sum) -> all.add(new Neighbour(id, sum[0])));
+    all.sort(BEST_FIRST);
+    return all.subList(0, Math.min(limit, all.size()));
+  }
+
+  /** The user's remembered likes, most recent first. */
+  public synchronized List<UUID> recentLikes(String userId, int limit) {
+    LinkedHashSet<UUID> history = histories.get(userId);
+    if (history == null) {
+      return List.of();
+    }
+    List<UUID> recent = new ArrayList<>(history);
+    List<UUID> newestFirst = new ArrayList<>(Math.min(limit, recent.size()));
+    for (int i = recent.size() - 1; i >= 0 && newestFirst.size() < limit; i--) {
+      newestFirst.add(recent.get(i));
+    }
+    return newestFirst;
+  }
+
+  public synchronized int size() {
+    return items.size();
+  }
+
+  /** Best {@code neighbours} of the item via a bounded min-heap over its counts. */
+  private Neighbour[] ranked(Item item) {
+    if (item.ranked != null) {
+      return item.ranked;
+    }
+    PriorityQueue<Neighbour> heap = new PriorityQueue<>(neighbours + 1, BEST_FIRST.reversed());
+    for (Map.Entry<UUID, int[]> entry : item.coLikes.entrySet()) {
+      Item other = items.get(entry.getKey());
+      int otherLikes = other == null ? 1 : Math.max(other.likes, 1);
+      double score = entry.getValue()[0] / Math.sqrt((double) Math.max(item.likes, 1) * otherLikes);
+      heap.add(new Neighbour(entry.getKey(), Math.min(score, 1.0)));
+      if (heap.size() > neighbours) {
+        heap.poll();
+      }
+    }
+    Neighbour[] ranked = heap.toArray(new Neighbour[0]);
+    Arrays.sort(ranked, BEST_FIRST);
+    item.ranked = ranked;
+    return ranked;
+  }
+
+  /* ------------------------------ snapshots ------------------------------ */
+
+  /** Write the counts and histories; read back with {@link #readFrom}. */
+  public synchronized void writeTo(DataOutput out) throws IOException {
+    out.writeInt(MAGIC);
+    out.writeInt(items.size());
+    for (Map.Entry<UUID, Item> entry : items.entrySet()) {
+      writeUuid(out, entry.getKey());
+      Item item = entry.getValue();
+      out.writeInt(item.likes);
+      out.writeInt(item.coLikes.size());
+      for (Map.Entry<UUID, int[]> count : item.coLikes.entrySet()) {
+        writeUuid(out, count.getKey());
+        out.writeInt(count.getValue()[0]);
+      }
+    }
+    // least recently active first, so reading them back keeps the LRU order
+    out.writeInt(histories.size());
+    for (Map.Entry<String, LinkedHashSet<UUID>> entry : histories.entrySet()) {
+      out.writeUTF(entry.getKey());
+      out.writeInt(entry.getValue().size());
+      for (UUID postId : entry.getValue()) {
+        writeUuid(out, postId);
+      }
+    }
+  }
+
+  /** Replace the contents of this index with a snapshot from {@link #writeTo}. */
+  public synchronized void readFrom(DataInput in) throws IOException {
+    if (in.readInt() != MAGIC) {
+      throw new IOException("not a co-like snapshot");
+    }
+    items.clear();
+    histories.clear();
+    int itemCount = in.readInt();
+    for (int i = 0; i < itemCount; i++) {
+      UUID postId = readUuid(in);
+      Item item = new Item();
+      item.likes = in.readInt();
+      int counts = in.readInt();
+      for (int j = 0; j < counts; j++) {
+        item.coLikes.put(readUuid(in), new int[] {in.readInt()});
+      }
+      items.put(postId, item);
+    }
+    int users = in.readInt();
+    for (int i = 0; i < users; i++) {
+      String userId = in.readUTF();
+      int size = in.readInt();
+      LinkedHashSet<UUID> history = new LinkedHashSet<>();
+      for (int j = 0; j < size; j++) {
+        history.add(readUuid(in));
+      }
+      histories.put(userId, history);
+    }
+  }
+
+  private static void writeUuid(DataOutput out, UUID id) throws IOException {
+    out.writeLong(id.getMostSignificantBits());
+    out.writeLong(id.getLeastSignificantBits());
+  }
+
+  private static UUID readUuid(DataInput in) throws IOException {
+    return new UUID(in.readLong(), in.readLong());
+  }
+}
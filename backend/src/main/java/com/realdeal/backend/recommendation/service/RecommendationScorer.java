@@ -0,0 +1,108 @@
+package com.realdeal.backend.recommendation.service;
+
+/**
+ * Scoring core of {@link RecommendationService}, on primitives only.
+ * <p>
+ * Genres are {@code GenreCatalog} bitmasks, so a post's overlap with the
+ * user's genres is one popcount. The weight depends only on that overlap,
+ * so it is looked up in a table of {@code userGenres + 1} entries instead
+ * of being recomputed per post. The posts are ordered by sorting an index
+ * array (a stable merge sort) by weight, then creation time, both
+ * descending, and the caller reads its list back in that order.
+ */
+final class RecommendationScorer {
+
+  /** Below this, insertion sort beats merging. */
+  private static final int INSERTION_SORT_MAX = 16;
+
+  private RecommendationScorer() {
+  }
+
+  /**
+   * Weight of a post sharing {@code overlap} of the user's
+   * {@code userGenres} genres. Personalization fades as {@code decay}
+   * (0..1) grows: at 1 every post weighs the same.
+   */
+  static double weight(int overlap, int userGenres, double decay) {
+    if (overlap == 0) {
+      // No genre match - use low weight that increases with decay
+      return 0.1 + (0.9 * decay);
+    }
+    // Weight starts high and decreases with decay
+    double matchRatio = (double) overlap / userGenres;
+    return matchRatio * (1.0 - decay) + decay;
+  }
+
+  /**
+   * Positions {@code 0..count-1} ordered best first. {@code createdAt} holds
+   * comparable timestamps (newer is larger); full ties keep their input order.
+   */
+  static int[] rank(int userMask, int[] postMasks, long[] createdAt, int count, double decay) {
+    return rank(userMask, postMasks, null, createdAt, count, decay);
+  }
+
+  /** As above, with {@code boosts[i]} (none when null) added to each post's weight. */
+  static int[] rank(int userMask, int[] postMasks, double[] boosts, long[] createdAt, int count, double decay) {
+    int userGenres = Integer.bitCount(userMask);
+    double[] weights = new double[userGenres + 1];
+    for (int overlap = 0; overlap <= userGenres; overlap++) {
+      weights[overlap] = weight(overlap, userGenres, decay);
+    }
+
+    double[] scores = new double[count];
+    int[] order = new int[count];
+    for (int i = 0; i < count; i++) {
+      scores[i] = weights[Integer.bitCount(userMask & postMasks[i])];
+      if (boosts != null) {
+        scores[i] += boosts[i];
+      }
+      order[i] = i;
+    }
+
+    sort(order, new int[count], 0, count, scores, createdAt);
+    return order;
+  }
+
+  /** Whether position {@code a} ranks strictly before position {@code b}. */
+  private static boolean before(int a, int b, double[] scores, long[] createdAt) {
+    int byScore = Double.compare(scores[a], scores[b]);
+    if (byScore != 0) {
+      return byScore > 0;
+    }
+    return createdAt[a] > createdAt[b];
+  }
+
+  private static void sort(int[] order, int[] buffer, int from, int to, double[] scores, long[] createdAt) {
+    if (to - from <= INSERTION_SORT_MAX) {
+      for (int i = from + 1; i < to; i++) {
+        int current = order[i];
+        int j = i - 1;
+        while (j >= from && before(current, order[j], scores, createdAt)) {
+          order[j + 1] = order[j];
+          j--;
+        }
+        order[j + 1] = current;
+      }
+      return;
+    }
+
+    int mid = (from + to) >>> 1;
+    sort(order, buffer, from, mid, scores, createdAt);
+    sort(order, buffer, mid, to, scores, createdAt);
+    if (!before(order[mid], order[mid - 1], scores, createdAt)) {
+      return;   // halves already in order
+    }
+
+    System.arraycopy(order, from, buffer, from, to - from);
+    int left = from;
+    int right = mid;
+    for (int out = from; out < to; out++) {
+      // take from the right only when strictly better, which keeps the sort stable
+      if (right < to && (left >= mid || before(buffer[right], buffer[left], scores, createdAt))) {
+        order[out] = buffer[right++];
+      } else {
+        order[out] = buffer[left++];
+      }
+    }
+  }
+}
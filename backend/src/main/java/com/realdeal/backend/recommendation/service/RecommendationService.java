@@ -1,85 +1,207 @@
 package com.realdeal.backend.recommendation.service;
 
+import com.realdeal.backend.cache.service.CacheGenerationService;
 import com.realdeal.backend.genre.model.Genre;
 import com.realdeal.backend.genre.service.GenreService;
+import com.realdeal.backend.post.dto.CursorPage;
 import com.realdeal.backend.post.model.Post;
+import com.realdeal.backend.post.repository.PostRepository;
+import com.realdeal.backend.post.repository.PostRepository.CandidateRow;
+import com.realdeal.backend.post.service.PostLookupService;
+import com.realdeal.backend.recommendation.config.RecommendationProperties;
+import com.realdeal.backend.recommendation.util.SnapshotCursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 import lombok.RequiredArgsConstructor;
 
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class RecommendationService {
 
+  /** Views after which personalization has fully decayed. */
+  private static final int FULL_DECAY_VIEWS = 50;
+
   private final GenreService genreService;
+  private final PostRepository postRepo;
+  private final PostLookupService lookup;
+  private final CacheGenerationService generations;
+  private final RecommendationProperties properties;
+  private final RelatedPostService relatedPosts;
+
+  // Calls through the proxy so snapshot() hits its cache; this.snapshot() would skip @Cacheable.
+  @Lazy
+  @Autowired
+  private RecommendationService self;
+
+  /**
+   * One page of the recommended feed.
+   * <p>
+   * The first page (blank {@code cursor}) ranks a candidate pool into a
+   * snapshot for the user; later pages read that snapshot at the cursor's
+   * offset, so scrolling neither re-scores nor repeats or skips posts when
+   * new ones arrive. {@code postsViewed} only matters on the first page.
+   * The pool is bounded, and {@code nextCursor} is {@code null} once it is
+   * used up. Cursors naming a feed generation this node has not reached
+   * are rejected; the user's current genres are read on every page, so a
+   * genre change starts a new snapshot.
+   */
+  public CursorPage<Post> getRecommendedPosts(String userId, String cursor, int size, int postsViewed) {
+    if (size < 1) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size must be positive");
+    }
+    // decay stops changing at FULL_DECAY_VIEWS, so larger counts share a snapshot
+    SnapshotCursor position = SnapshotCursor.decode(cursor, FULL_DECAY_VIEWS);
+    long feed = generations.feed();
+    if (position == null) {
+      position = new SnapshotCursor(feed, Math.min(Math.max(postsViewed, 0), FULL_DECAY_VIEWS), 0);
+    } else if (position.getGeneration() > feed) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid cursor");
+    }
+
+    int userMask = userId == null ? 0 : genreService.getUserGenreMask(userId);
+    List<UUID> ranked = self.snapshot(userId, userMask, position.getGeneration(), position.getPostsViewed());
+    int from = Math.min(position.getOffset(), ranked.size());
+    int to = Math.min(from + size, ranked.size());
+
+    List<Post> content = lookup.resolve(ranked.subList(from, to));
+    String next = to < ranked.size()
+        ? new SnapshotCursor(position.getGeneration(), position.getPostsViewed(), to).encode()
+        : null;
+    return new CursorPage<>(content, next);
+  }
+
+  /**
+   * The user's ranked candidate ids for their genre mask. {@code generation}
+   * is the feed generation the snapshot was started at; it only keys the
+   * cache, so a snapshot that expires mid-scroll is rebuilt from the current
+   * posts.
+   * <p>
+   * Candidates are the newest {@code recentPool} posts plus the newest
+   * {@code poolPerGenre} posts of each preferred genre, so posts in those
+   * genres are found well past the head of the recency stream, plus up to
+   * {@code poolPerGenre} posts co-liked with the user's recent likes. Co-like
+   * similarity adds up to {@code relatedWeight} to a post's genre weight and
+   * fades with the same decay.
+   */
+  @Cacheable(cacheNames = "recommendationSnapshots",
+      key = "#userId + ':m' + #userMask + ':g' + #generation + ':v' + #postsViewed",
+      sync = true)
+  public List<UUID> snapshot(String userId, int userMask, long generation, int postsViewed) {
+    Map<UUID, Double> related = userId == null
+        ? Map.of()
+        : relatedPosts.relatedToUser(userId, properties.getPoolPerGenre());
+
+    Map<UUID, LocalDateTime> pool = new LinkedHashMap<>();
+    addCandidates(pool, postRepo.findRecentCandidates(PageRequest.of(0, properties.getRecentPool())));
+    if (userMask == 0 && related.isEmpty()) {
+      return new ArrayList<>(pool.keySet());
+    }
+    for (Genre genre : genreService.getCatalog().genresOf(userMask)) {
+      addCandidates(pool, postRepo.findRecentCandidatesInGenre(
+          genre.getId(), PageRequest.of(0, properties.getPoolPerGenre())));
+    }
+    List<UUID> relatedMissing = new ArrayList<>();
+    for (UUID id : related.keySet()) {
+      if (!pool.containsKey(id)) {
+        relatedMissing.add(id);
+      }
+    }
+    if (!relatedMissing.isEmpty()) {
+      addCandidates(pool, postRepo.findCandidatesByIdIn(relatedMissing));
+    }
+
+    int count = pool.size();
+    List<UUID> ids = new ArrayList<>(pool.keySet());
+    Map<UUID, Integer> genreMasks = genreService.getPostGenreMasks(ids);
 
+    double decay = Math.min(1.0, (double) postsViewed / FULL_DECAY_VIEWS);
+    double relatedWeight = properties.getRelatedWeight() * (1.0 - decay);
+
+    int[] postMasks = new int[count];
+    double[] boosts = new double[count];
+    long[] createdAt = new long[count];
+    for (int i = 0; i < count; i++) {
+      UUID id = ids.get(i);
+      postMasks[i] = genreMasks.getOrDefault(id, 0);
+      // summed over the user's likes, so capped at one full match
+      boosts[i] = relatedWeight * Math.min(1.0, related.getOrDefault(id, 0.0));
+      createdAt[i] = timestamp(pool.get(id));
+    }
+
+    int[] order = RecommendationScorer.rank(userMask, postMasks, boosts, createdAt, count, decay);
+    List<UUID> ranked = new ArrayList<>(count);
+    for (int i : order) {
+      ranked.add(ids.get(i));
+    }
+    return ranked;
+  }
+
+  private static void addCandidates(Map<UUID, LocalDateTime> pool, List<CandidateRow> rows) {
+    for (CandidateRow row : rows) {
+      pool.putIfAbsent(row.getId(), row.getCreatedAt());
+    }
+  }
+
+  /**
+   * Reorders {@code posts} by genre overlap with the user, newest first
+   * among equals. Only reorders the page it is given; see
+   * {@link #getRecommendedPosts} for a feed drawn from a wider pool.
+   * Genres are compared as bitmasks and the post genres are fetched with
+   * one query; see {@link RecommendationScorer}.
+   */
   public List<Post> applyRecommendationLogic(List<Post> posts, String userId, int postsViewed) {
     if (userId == null || posts.isEmpty()) {
       return posts;
     }
 
-    List<Genre> userGenres = genreService.getUserGenres(userId);
+    int userMask = genreService.getUserGenreMask(userId);
 
-    if (userGenres.isEmpty()) {
+    if (userMask == 0) {
       return posts;
     }
 
-    List<Integer> preferredGenreIds = userGenres.stream()
-        .map(Genre::getId)
-        .collect(Collectors.toList());
-
     // As the user views more posts, personalization becomes weaker.
     // 看得越多，个性化越少 （0， 1）
-    double decay = Math.min(1.0, postsViewed / 50.0);
-
-    // Create a map to store posts and their weights
-    Map<Post, Double> weightedPosts = new HashMap<>();
+    double decay = Math.min(1.0, (double) postsViewed / FULL_DECAY_VIEWS);
 
+    int count = posts.size();
+    List<UUID> postIds = new ArrayList<>(count);
     for (Post post : posts) {
-      // Get post genres
-      List<Genre> postGenres = genreService.getPostGenres(post.getId());
-      List<Integer> postGenreIds = postGenres.stream()
-          .map(Genre::getId)
-          .collect(Collectors.toList());
-
-      // Calculate weight based on genre overlap and decay
-      double weight = calculateWeight(preferredGenreIds, postGenreIds, decay);
-      weightedPosts.put(post, weight);
+      postIds.add(post.getId());
+    }
+    Map<UUID, Integer> genreMasks = genreService.getPostGenreMasks(postIds);
+
+    int[] postMasks = new int[count];
+    long[] createdAt = new long[count];
+    for (int i = 0; i < count; i++) {
+      Post post = posts.get(i);
+      postMasks[i] = genreMasks.getOrDefault(post.getId(), 0);
+      createdAt[i] = timestamp(post.getCreatedAt());
     }
 
     // 按照权重和发布时间（降序）排序帖子
-    return weightedPosts.entrySet().stream()
-        .sorted((e1, e2) -> {
-          int weightCompare = Double.compare(e2.getValue(), e1.getValue());
-          //lamda，< 0则 a< b, = 0 则相等， > 0 则a > b, java sort 根据大小排列
-          if (weightCompare != 0) {
-            return weightCompare;
-          }
-          // 如果相等，正常排序
-          return e2.getKey().getCreatedAt().compareTo(e1.getKey().getCreatedAt());
-        })
-        .map(Map.Entry::getKey)
-        .collect(Collectors.toList());
+    int[] order = RecommendationScorer.rank(userMask, postMasks, createdAt, count, decay);
+    List<Post> ranked = new ArrayList<>(count);
+    for (int i : order) {
+      ranked.add(posts.get(i));
+    }
+    return ranked;
   }
 
-  private double calculateWeight(List<Integer> preferredGenreIds, List<Integer> postGenreIds, double decay) {
-    // 找intersection，看有多少个genre重叠
-    Set<Integer> intersection = new HashSet<>(preferredGenreIds);
-    intersection.retainAll(postGenreIds);
-
-    // Calculate weight based on genre overlap and decay
-    if (intersection.isEmpty()) {
-      // No genre match - use low weight that increases with decay
-      return 0.1 + (0.9 * decay);
-    } else {
-      // Genre match （genre重叠）
-      // Weight starts high and decreases with decay
-      // 计算这个post和用户喜欢的genre的重叠度
-      double matchRatio = (double) intersection.size() / preferredGenreIds.size();
-      //优先match当decay比较低，到最后所有都是1
-      return matchRatio * (1.0 - decay) + decay;
+  /** Nanoseconds since the epoch (good until 2262), so ordering matches LocalDateTime's. */
+  static long timestamp(LocalDateTime createdAt) {
+    if (createdAt == null) {
+      return Long.MIN_VALUE;
     }
+    return createdAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + createdAt.getNano();
   }
-}
\ No newline at end of file
+}
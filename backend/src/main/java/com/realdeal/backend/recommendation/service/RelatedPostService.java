@@ -0,0 +1,382 @@
+package com.realdeal.backend.recommendation.service;
+
+import com.realdeal.backend.common.tx.AfterCommit;
+import com.realdeal.backend.post.model.Post;
+import com.realdeal.backend.post.repository.PostLikeRepository;
+import com.realdeal.backend.post.service.PostLookupService;
+import com.realdeal.backend.recommendation.config.RecommendationProperties;
+import com.realdeal.backend.recommendation.index.CoLikeIndex;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Owns this node's {@link CoLikeIndex}: "users who liked this also liked".
+ * <p>
+ * At startup the model is read from its snapshot file and caught up with
+ * the likes made since, or, without a snapshot younger than
+ * {@code snapshot-max-age}, built from a streaming scan of
+ * {@code post_likes}. Until then {@link #isReady()} is false and there are
+ * simply no related posts. After that it is kept current one like at a
+ * time: {@code ReactionService} reports likes and unlikes, which are applied
+ * after commit and broadcast as {@code nodeId|L|postId|userId} /
+ * {@code nodeId|U|postId|userId} to the other nodes' models.
+ * <p>
+ * Every {@code compaction-interval} the model is compacted and, if a
+ * {@code snapshot-path} is set, written there, as it is on shutdown. Every
+ * {@code rebuild-interval} it is rebuilt from {@code post_likes}, which
+ * settles what catching up and missed messages can leave behind.
+ *
+ * @see com.realdeal.backend.post.service.ReactionService
+ */
+@Slf4j
+@Service
+public class RelatedPostService implements MessageListener {
+
+  private static final String LIKE = "L";
+  private static final String UNLIKE = "U";
+
+  /** Likes made this long before a snapshot are replayed too, for transactions still open when it was taken. */
+  private static final Duration CATCH_UP_MARGIN = Duration.ofMinutes(1);
+
+  /** Recent likes of a user that seed their related posts. */
+  private static final int SEEDS = 20;
+
+  private final PostLikeRepository likeRepo;
+  private final PostLookupService lookup;
+  private final StringRedisTemplate redis;
+  private final RecommendationProperties.CoLike properties;
+  private final TransactionTemplate readOnly;
+  private final String nodeId = UUID.randomUUID().toString();
+
+  private volatile CoLikeIndex index;
+  private volatile boolean ready;
+
+  // likes applied while a load runs, replayed onto the loaded model; guarded by swapLock
+  private Queue<Runnable> changedDuringLoad;
+  private final Object swapLock = new Object();
+
+  private final ScheduledExecutorService compactor = Executors.newSingleThreadScheduledExecutor(task -> {
+    Thread thread = new Thread(task, "co-like-compaction");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  public RelatedPostService(PostLikeRepository likeRepo,
+      PostLookupService lookup,
+      StringRedisTemplate redis,
+      RecommendationProperties properties,
+      PlatformTransactionManager transactionManager) {
+    this.likeRepo = likeRepo;
+    this.lookup = lookup;
+    this.redis = redis;
+    this.properties = properties.getCoLike();
+    this.readOnly = new TransactionTemplate(transactionManager);
+    this.readOnly.setReadOnly(true);
+    this.index = newIndex();
+    long interval = Math.max(1, this.properties.getCompactionInterval().toMillis());
+    compactor.scheduleWithFixedDelay(this::compactQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    long rebuild = Math.max(1, this.properties.getRebuildInterval().toMillis());
+    compactor.scheduleWithFixedDelay(this::rebuild, rebuild, rebuild, TimeUnit.MILLISECONDS);
+  }
+
+  private CoLikeIndex newIndex() {
+    return new CoLikeIndex(properties.getNeighbours(), properties.getHistorySize(),
+        properties.getMaxCandidates(), properties.getMaxUsers());
+  }
+
+  /* ------------------------------ queries ------------------------------ */
+
+  public boolean isReady() {
+    return ready;
+  }
+
+  /** Up to {@code limit} posts most often liked together with {@code postId}, best first. */
+  public List<Post> relatedPosts(UUID postId, int limit) {
+    List<UUID> ids = new ArrayList<>();
+    for (CoLikeIndex.Neighbour neighbour : index.related(postId, limit)) {
+      ids.add(neighbour.getPostId());
+    }
+    // a deleted post keeps its counts until compaction; resolve() skips it
+    return lookup.resolve(ids);
+  }
+
+  /**
+   * Posts related to the user's recent likes, with their summed similarity,
+   * best first; empty for a user without likes in the model.
+   */
+  public Map<UUID, Double> relatedToUser(String userId, int limit) {
+    CoLikeIndex current = index;
+    LinkedHashSet<UUID> seeds = new LinkedHashSet<>(current.recentLikes(userId, SEEDS));
+    Map<UUID, Double> related = new LinkedHashMap<>();
+    if (seeds.isEmpty()) {
+      return related;
+    }
+    for (CoLikeIndex.Neighbour neighbour : current.relatedToAll(seeds, limit)) {
+      related.put(neighbour.getPostId(), neighbour.getScore());
+    }
+    return related;
+  }
+
+  /* ------------------------------ updates ------------------------------ */
+
+  /** A like was added or removed; applied here and on the other nodes after commit. */
+  public void likeChanged(UUID postId, String userId, boolean added) {
+    AfterCommit.run(() -> {
+      apply(postId, userId, added);
+      publish(added ? LIKE : UNLIKE, postId, userId);
+    });
+  }
+
+  private void apply(UUID postId, String userId, boolean added) {
+    Runnable change = added
+        ? () -> index.liked(userId, postId)
+        : () -> index.unliked(userId, postId);
+    synchronized (swapLock) {
+      change.run();
+      if (changedDuringLoad != null) {
+        changedDuringLoad.add(change);
+      }
+    }
+  }
+
+  private void publish(String op, UUID postId, String userId) {
+    try {
+      redis.convertAndSend(properties.getChannel(), nodeId + '|' + op + '|' + postId + '|' + userId);
+    } catch (RuntimeException e) {
+      // The other nodes pick the like up at their next full rebuild
+      log.warn("Could not publish co-like change for {}: {}", postId, e.getMessage());
+    }
+  }
+
+  /** Another node's like or unlike. */
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 4);
+    if (parts.length < 4 || nodeId.equals(parts[0])) {
+      return;   // malformed, or our own echo
+    }
+
+    UUID postId;
+    try {
+      postId = UUID.fromString(parts[2]);
+    } catch (IllegalArgumentException e) {
+      return;
+    }
+    if (LIKE.equals(parts[1])) {
+      apply(postId, parts[3], true);
+    } else if (UNLIKE.equals(parts[1])) {
+      apply(postId, parts[3], false);
+    }
+  }
+
+  /* ------------------------------ load ------------------------------ */
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void loadOnStartup() {
+    Thread loader = new Thread(this::load, "co-like-load");
+    loader.setDaemon(true);
+    loader.start();
+  }
+
+  /** Read the snapshot and catch up, or build from {@code post_likes}; then swap the model in. */
+  public void load() {
+    load(true);
+  }
+
+  /** Build a new model from {@code post_likes} alone and swap it in; the current one serves meanwhile. */
+  public void rebuild() {
+    load(false);
+  }
+
+  private void load(boolean fromSnapshot) {
+    long start = System.currentTimeMillis();
+    Queue<Runnable> pending = new ArrayDeque<>();
+    synchronized (swapLock) {
+      changedDuringLoad = pending;
+    }
+    try {
+      CoLikeIndex fresh = newIndex();
+      Instant takenAt = fromSnapshot ? readSnapshot(fresh) : null;
+      readOnly.executeWithoutResult(status -> {
+        if (takenAt != null) {
+          catchUp(fresh, LocalDateTime.ofInstant(takenAt, ZoneId.systemDefault()));
+          return;
+        }
+        try (Stream<PostLikeRepository.LikeRow> rows = likeRepo.streamLikes()) {
+          rows.forEach(row -> fresh.liked(row.getUserId(), row.getPostId()));
+        }
+      });
+
+      synchronized (swapLock) {
+        index = fresh;
+        changedDuringLoad = null;
+        // anything applied mid-load went to the old model only
+        pending.forEach(Runnable::run);
+      }
+      ready = true;
+      log.info("Co-like model {}: {} posts in {} ms", takenAt == null ? "built" : "restored",
+          fresh.size(), System.currentTimeMillis() - start);
+    } catch (IOException | RuntimeException e) {
+      log.error("Co-like model load failed; related posts stay {}",
+          ready ? "on the previous model" : "empty", e);
+    } finally {
+      synchronized (swapLock) {
+        changedDuringLoad = null;
+      }
+    }
+  }
+
+  /**
+   * Replay the likes made since the snapshot, user by user. Each user's
+   * remembered likes are first checked against {@code post_likes}, which
+   * takes back the unlikes made while this node was down. A like from just
+   * before the snapshot that the user's history does not show was either
+   * committed after the snapshot or trimmed from a full history, and so
+   * possibly counted already; it is left to the next rebuild rather than
+   * risk counting it twice.
+   */
+  private void catchUp(CoLikeIndex target, LocalDateTime takenAt) {
+    Map<String, List<PostLikeRepository.LikeRow>> byUser = new LinkedHashMap<>();
+    try (Stream<PostLikeRepository.LikeRow> rows = likeRepo.streamLikesSince(takenAt.minus(CATCH_UP_MARGIN))) {
+      rows.forEach(row -> byUser.computeIfAbsent(row.getUserId(), id -> new ArrayList<>()).add(row));
+    }
+
+    byUser.forEach((userId, likes) -> {
+      List<UUID> remembered = target.recentLikes(userId, properties.getHistorySize());
+      if (!remembered.isEmpty()) {
+        Set<UUID> stillLiked = new HashSet<>(likeRepo.findLikedPostIds(userId, remembered));
+        for (UUID postId : remembered) {
+          if (!stillLiked.contains(postId)) {
+            target.unliked(userId, postId);
+          }
+        }
+      }
+
+      Set<UUID> known = new HashSet<>(remembered);
+      boolean mayBeTrimmed = remembered.isEmpty() || remembered.size() >= properties.getHistorySize();
+      for (PostLikeRepository.LikeRow like : likes) {
+        boolean ambiguous = like.getCreatedAt().isBefore(takenAt)
+            && !known.contains(like.getPostId()) && mayBeTrimmed;
+        if (!ambiguous) {
+          // likes still in the history are ignored by the model
+          target.liked(userId, like.getPostId());
+        }
+      }
+    });
+  }
+
+  /**
+   * Load the snapshot into {@code target}; its time, or null when there is
+   * none or it is older than {@code snapshot-max-age}.
+   */
+  private Instant readSnapshot(CoLikeIndex target) throws IOException {
+    Path path = snapshotPath();
+    if (path == null || !Files.isRegularFile(path)) {
+      return null;
+    }
+    try (InputStream file = Files.newInputStream(path);
+         DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+      Instant takenAt = Instant.ofEpochMilli(in.readLong());
+      if (takenAt.isBefore(Instant.now().minus(properties.getSnapshotMaxAge()))) {
+        log.info("Ignoring co-like snapshot {} from {}: older than {}", path, takenAt, properties.getSnapshotMaxAge());
+        return null;
+      }
+      target.readFrom(in);
+      return takenAt;
+    } catch (IOException e) {
+      log.warn("Ignoring unreadable co-like snapshot {}: {}", path, e.getMessage());
+      return null;
+    }
+  }
+
+  /* ------------------------------ compaction ------------------------------ */
+
+  private void compactQuietly() {
+    try {
+      compact();
+    } catch (IOException | RuntimeException e) {
+      log.warn("Co-like compaction failed: {}", e.getMessage());
+    }
+  }
+
+  /** Trim the model and write the snapshot, if one is configured. */
+  public void compact() throws IOException {
+    if (!ready) {
+      return;   // don't overwrite a good snapshot with a half-loaded model
+    }
+    CoLikeIndex current = index;
+    current.compact();
+
+    Path path = snapshotPath();
+    if (path == null) {
+      return;
+    }
+    // serialized in memory so the model is locked only for the copy, not the disk write
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeLong(System.currentTimeMillis());
+    current.writeTo(out);
+    out.flush();
+
+    Path parent = path.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+    Files.write(temp, bytes.toByteArray());
+    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private Path snapshotPath() {
+    String path = properties.getSnapshotPath();
+    return path == null || path.isBlank() ? null : Path.of(path);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    compactor.shutdown();
+    try {
+      compactor.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    compactQuietly();
+  }
+}
@@ -0,0 +1,77 @@
+package com.realdeal.backend.recommendation.util;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque cursor into a ranked recommendation snapshot.
+ * <p>
+ * Ranking is not a keyset order, so instead of the last post this records
+ * which snapshot the page came from (the feed generation and the view count
+ * it was scored with) and the offset of the next page. Every page of a
+ * scroll therefore reads the same snapshot, even after new posts bump the
+ * feed generation.
+ */
+public final class SnapshotCursor {
+
+  private static final char SEPARATOR = '|';
+
+  private final long generation;
+  private final int postsViewed;
+  private final int offset;
+
+  public SnapshotCursor(long generation, int postsViewed, int offset) {
+    this.generation = generation;
+    this.postsViewed = postsViewed;
+    this.offset = offset;
+  }
+
+  public long getGeneration() {
+    return generation;
+  }
+
+  public int getPostsViewed() {
+    return postsViewed;
+  }
+
+  public int getOffset() {
+    return offset;
+  }
+
+  public String encode() {
+    String raw = Long.toString(generation) + SEPARATOR + postsViewed + SEPARATOR + offset;
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Parse a cursor coming from a client.
+   * A blank cursor means "first page" and yields {@code null}. The view
+   * count is clamped to {@code maxPostsViewed}, so a forged count can
+   * neither push decay out of range nor name a snapshot of its own.
+   */
+  public static SnapshotCursor decode(String cursor, int maxPostsViewed) {
+    if (cursor == null || cursor.isBlank()) {
+      return null;
+    }
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      String[] parts = raw.split("\\" + SEPARATOR, -1);
+      if (parts.length != 3) {
+        throw new IllegalArgumentException("expected three fields");
+      }
+      int postsViewed = Integer.parseInt(parts[1]);
+      int offset = Integer.parseInt(parts[2]);
+      if (postsViewed < 0 || offset < 0) {
+        throw new IllegalArgumentException("negative field");
+      }
+      return new SnapshotCursor(Long.parseLong(parts[0]), Math.min(postsViewed, maxPostsViewed), offset);
+    } catch (IllegalArgumentException e) {
+      // NumberFormatException included
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid cursor");
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package com.realdeal.backend.search.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * In-memory post search index and search-as-you-type suggestions, bound
+ * from {@code realdeal.search.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "realdeal.search")
+public class SearchProperties {
+
+  /** Redis pub/sub channel carrying post and username changes to the other nodes' indexes. */
+  private String channel = "realdeal:search:index";
+
+  /** Build the index from the posts table once the application is up. */
+  private boolean rebuildOnStartup = true;
+
+  /** BM25 weight of a title hit relative to a content hit, for relevance-ranked search. */
+  private float titleBoost = 2.0f;
+
+  /**
+   * How often genre suggestions are rebuilt from the genre catalog, which
+   * refreshes itself; usernames and titles are updated as they change.
+   */
+  private Duration genreRefresh = Duration.ofMinutes(10);
+}
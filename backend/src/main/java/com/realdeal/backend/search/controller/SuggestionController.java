@@ -0,0 +1,30 @@
+package com.realdeal.backend.search.controller;
+
+import com.realdeal.backend.search.dto.SuggestionsDTO;
+import com.realdeal.backend.search.service.SuggestionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/search")
+@RequiredArgsConstructor
+public class SuggestionController {
+
+  private static final int MAX_LIMIT = 10;
+
+  private final SuggestionService suggestionService;
+
+  /**
+   * Search-as-you-type: post titles, genres and usernames with a word
+   * starting with {@code q}, at most {@code limit} (capped at 10) of each.
+   * Answered from memory, so it is cheap enough to call on every keystroke.
+   */
+  @GetMapping("/suggest")
+  public ResponseEntity<SuggestionsDTO> suggest(
+      @RequestParam String q,
+      @RequestParam(defaultValue = "5") int limit) {
+    int bounded = Math.max(1, Math.min(limit, MAX_LIMIT));
+    return ResponseEntity.ok(suggestionService.suggest(q, bounded));
+  }
+}
@@ -0,0 +1,14 @@
+package com.realdeal.backend.search.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** One completion: what to show, and the post, genre or user id it stands for. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuggestionDTO {
+  private String id;
+  private String text;
+}
@@ -0,0 +1,17 @@
+package com.realdeal.backend.search.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/** Search-as-you-type completions, grouped by what they point at. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuggestionsDTO {
+  private List<SuggestionDTO> posts;
+  private List<SuggestionDTO> genres;
+  private List<SuggestionDTO> users;
+}
@@ -0,0 +1,493 @@
+package com.realdeal.backend.search.index;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over post titles and contents.
+ * <p>
+ * Every post gets a dense int ordinal; each term maps to a sorted
+ * {@code int[]} of the ordinals containing it, with a parallel {@code int[]}
+ * of packed title/content term frequencies. A query matches posts that
+ * contain every query token as a prefix of one of their terms, so
+ * {@code "iph 15"} finds "iPhone 15 Pro". Matching costs the size of the
+ * posting lists involved, not the number of posts.
+ * <p>
+ * Matches come back either newest first ({@link #search}) or by BM25F
+ * relevance with the title weighted by {@code titleBoost} ({@link #rank}).
+ * Either way only the best {@code offset + limit} are kept, in a bounded
+ * heap, instead of sorting every hit.
+ * <p>
+ * Ordinals of removed posts are not reused; a rebuild compacts them.
+ * Thread-safe: readers share a read lock, updates take the write lock.
+ */
+public class PostSearchIndex {
+
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final int MAX_TF = 0xFFFF;
+
+  /** BM25 term-frequency saturation. */
+  private static final float K1 = 1.2f;
+  /** BM25 length normalization. */
+  private static final float B = 0.75f;
+
+  private final float titleBoost;
+
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private final TreeMap<String, PostingList> terms = new TreeMap<>();
+  private final Map<UUID, Integer> ordinals = new HashMap<>();
+
+  private UUID[] ids = new UUID[INITIAL_CAPACITY];
+  private long[] createdAt = new long[INITIAL_CAPACITY];
+  private int[] titleLength = new int[INITIAL_CAPACITY];
+  private int[] contentLength = new int[INITIAL_CAPACITY];
+  private PostingList[][] docTerms = new PostingList[INITIAL_CAPACITY][];
+  private int nextOrdinal;
+  private long totalTitleLength;
+  private long totalContentLength;
+
+  public PostSearchIndex() {
+    this(2.0f);
+  }
+
+  /** @param titleBoost weight of a title hit relative to a content hit */
+  public PostSearchIndex(float titleBoost) {
+    this.titleBoost = titleBoost;
+  }
+
+  /** Result of a query: one page of post ids plus the total number of matches. */
+  public static final class Hits {
+    private final List<UUID> ids;
+    private final int total;
+
+    public Hits(List<UUID> ids, int total) {
+      this.ids = ids;
+      this.total = total;
+    }
+
+    public List<UUID> getIds() {
+      return ids;
+    }
+
+    public int getTotal() {
+      return total;
+    }
+  }
+
+  /* ------------------------------ updates ------------------------------ */
+
+  /** Index a post, replacing what was indexed for it before. */
+  public void put(UUID id, String title, String content, LocalDateTime created) {
+    // term -> {title tf, content tf}, in first-seen order
+    Map<String, int[]> counts = new LinkedHashMap<>();
+    int[] lengths = new int[2];
+    SearchTokenizer.forEachToken(title, (term, start, end) -> {
+      counts.computeIfAbsent(term, t -> new int[2])[0]++;
+      lengths[0]++;
+    });
+    SearchTokenizer.forEachToken(content, (term, start, end) -> {
+      counts.computeIfAbsent(term, t -> new int[2])[1]++;
+      lengths[1]++;
+    });
+
+    lock.writeLock().lock();
+    try {
+      Integer existing = ordinals.get(id);
+      int ordinal;
+      if (existing != null) {
+        ordinal = existing;
+        unlink(ordinal);
+      } else {
+        ordinal = nextOrdinal++;
+        ensureCapacity(ordinal + 1);
+        ordinals.put(id, ordinal);
+      }
+
+      ids[ordinal] = id;
+      createdAt[ordinal] = sortKey(created);
+      titleLength[ordinal] = lengths[0];
+      contentLength[ordinal] = lengths[1];
+      totalTitleLength += lengths[0];
+      totalContentLength += lengths[1];
+
+      PostingList[] lists = new PostingList[counts.size()];
+      int i = 0;
+      for (Map.Entry<String, int[]> entry : counts.entrySet()) {
+        PostingList list = terms.computeIfAbsent(entry.getKey(), PostingList::new);
+        list.add(ordinal, pack(entry.getValue()[0], entry.getValue()[1]));
+        lists[i++] = list;
+      }
+      docTerms[ordinal] = lists;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(UUID id) {
+    lock.writeLock().lock();
+    try {
+      Integer ordinal = ordinals.remove(id);
+      if (ordinal != null) {
+        unlink(ordinal);
+        ids[ordinal] = null;
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Number of indexed posts. */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return ordinals.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Number of distinct terms. */
+  public int termCount() {
+    lock.readLock().lock();
+    try {
+      return terms.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void unlink(int ordinal) {
+    PostingList[] lists = docTerms[ordinal];
+    if (lists == null) {
+      return;
+    }
+    for (PostingList list : lists) {
+      list.remove(ordinal);
+      if (list.size == 0) {
+        terms.remove(list.term);
+      }
+    }
+    docTerms[ordinal] = null;
+    totalTitleLength -= titleLength[ordinal];
+    totalContentLength -= contentLength[ordinal];
+  }
+
+  /** createdAt as nanos since the epoch; fits a long until 2262. */
+  private static long sortKey(LocalDateTime created) {
+    return created != null
+        ? created.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + created.getNano()
+        : Long.MIN_VALUE;
+  }
+
+  private static int pack(int titleTf, int contentTf) {
+    return Math.min(titleTf, MAX_TF) << 16 | Math.min(contentTf, MAX_TF);
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity <= ids.length) {
+      return;
+    }
+    int grown = Math.max(capacity, ids.length * 2);
+    ids = Arrays.copyOf(ids, grown);
+    createdAt = Arrays.copyOf(createdAt, grown);
+    titleLength = Arrays.copyOf(titleLength, grown);
+    contentLength = Arrays.copyOf(contentLength, grown);
+    docTerms = Arrays.copyOf(docTerms, grown);
+  }
+
+  /* ------------------------------ queries ------------------------------ */
+
+  /**
+   * Matches for {@code query}, newest first, skipping {@code offset} and
+   * returning at most {@code limit} ids. A query without any token matches
+   * nothing.
+   */
+  public Hits search(String query, int offset, int limit) {
+    lock.readLock().lock();
+    try {
+      int[] matches = intersectAll(unions(expand(query)));
+      int[] page = TopK.top(matches, matches.length, offset, limit, this::newer);
+      return new Hits(idsOf(page), matches.length);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Like {@link #search}, but ordered by BM25F score, newest first on ties. */
+  public Hits rank(String query, int offset, int limit) {
+    lock.readLock().lock();
+    try {
+      List<Collection<PostingList>> expanded = expand(query);
+      List<int[]> unions = unions(expanded);
+      int[] matches = intersectAll(unions);
+      if (matches.length == 0) {
+        return new Hits(new ArrayList<>(), 0);
+      }
+
+      float[] scores = score(matches, expanded, unions);
+      int[] byIndex = new int[matches.length];
+      for (int i = 0; i < byIndex.length; i++) {
+        byIndex[i] = i;
+      }
+      int[] page = TopK.top(byIndex, byIndex.length, offset, limit, (a, b) -> scores[a] != scores[b]
+          ? scores[a] > scores[b]
+          : newer(matches[a], matches[b]));
+      for (int i = 0; i < page.length; i++) {
+        page[i] = matches[page[i]];
+      }
+      return new Hits(idsOf(page), matches.length);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public int count(String query) {
+    lock.readLock().lock();
+    try {
+      return intersectAll(unions(expand(query))).length;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Posting lists of the terms each distinct query token is a prefix of. */
+  private List<Collection<PostingList>> expand(String query) {
+    LinkedHashSet<String> tokens = new LinkedHashSet<>(SearchTokenizer.tokenize(query));
+    List<Collection<PostingList>> expanded = new ArrayList<>(tokens.size());
+    for (String token : tokens) {
+      expanded.add(terms.subMap(token, token + Character.MAX_VALUE).values());
+    }
+    return expanded;
+  }
+
+  /** Per token, the sorted ordinals of every post containing one of its terms. */
+  private static List<int[]> unions(List<Collection<PostingList>> expanded) {
+    List<int[]> unions = new ArrayList<>(expanded.size());
+    for (Collection<PostingList> lists : expanded) {
+      unions.add(union(lists));
+    }
+    return unions;
+  }
+
+  /** Sorted ordinals matching every token. */
+  private static int[] intersectAll(List<int[]> unions) {
+    if (unions.isEmpty()) {
+      return new int[0];
+    }
+
+    // intersect smallest first so the running result only shrinks
+    List<int[]> perToken = new ArrayList<>(unions);
+    perToken.sort((a, b) -> Integer.compare(a.length, b.length));
+    int[] result = perToken.get(0);
+    for (int i = 1; i < perToken.size() && result.length > 0; i++) {
+      result = intersect(result, perToken.get(i));
+    }
+    return result;
+  }
+
+  private static int[] union(Collection<PostingList> lists) {
+    if (lists.isEmpty()) {
+      return new int[0];
+    }
+    if (lists.size() == 1) {
+      PostingList only = lists.iterator().next();
+      return Arrays.copyOf(only.docs, only.size);
+    }
+
+    int total = 0;
+    for (PostingList list : lists) {
+      total += list.size;
+    }
+    int[] union = new int[total];
+    int n = 0;
+    for (PostingList list : lists) {
+      System.arraycopy(list.docs, 0, union, n, list.size);
+      n += list.size;
+    }
+    Arrays.sort(union);
+    return dedupe(union);
+  }
+
+  private static int[] dedupe(int[] sorted) {
+    if (sorted.length == 0) {
+      return sorted;
+    }
+    int n = 1;
+    for (int i = 1; i < sorted.length; i++) {
+      if (sorted[i] != sorted[n - 1]) {
+        sorted[n++] = sorted[i];
+      }
+    }
+    return n == sorted.length ? sorted : Arrays.copyOf(sorted, n);
+  }
+
+  private static int[] intersect(int[] a, int[] b) {
+    int[] out = new int[Math.min(a.length, b.length)];
+    int i = 0;
+    int j = 0;
+    int n = 0;
+    while (i < a.length && j < b.length) {
+      if (a[i] == b[j]) {
+        out[n++] = a[i];
+        i++;
+        j++;
+      } else if (a[i] < b[j]) {
+        i++;
+      } else {
+        j++;
+      }
+    }
+    return Arrays.copyOf(out, n);
+  }
+
+  /* ------------------------------ scoring ------------------------------ */
+
+  /**
+   * BM25F: per token, the boosted and length-normalized title and content
+   * frequencies (summed over the terms the token expands to) are combined
+   * before saturation, then weighted by the token's idf.
+   */
+  private float[] score(int[] matches, List<Collection<PostingList>> expanded, List<int[]> unions) {
+    int docCount = ordinals.size();
+    float avgTitle = Math.max(1f, (float) totalTitleLength / Math.max(1, docCount));
+    float avgContent = Math.max(1f, (float) totalContentLength / Math.max(1, docCount));
+
+    float[] scores = new float[matches.length];
+    float[] tf = new float[matches.length];
+    for (int t = 0; t < expanded.size(); t++) {
+      Arrays.fill(tf, 0f);
+      int df = unions.get(t).length;
+      for (PostingList list : expanded.get(t)) {
+        accumulate(list, matches, tf, avgTitle, avgContent);
+      }
+
+      double idf = Math.log(1 + (docCount - df + 0.5) / (df + 0.5));
+      for (int i = 0; i < matches.length; i++) {
+        scores[i] += (float) (idf * tf[i] * (K1 + 1) / (tf[i] + K1));
+      }
+    }
+    return scores;
+  }
+
+  /**
+   * Add one term's normalized frequencies for every match that contains it.
+   * Walks whichever of the two sorted arrays is shorter and binary-searches
+   * the other, so a prefix expanding to many small lists stays cheap.
+   */
+  private void accumulate(PostingList list, int[] matches, float[] tf, float avgTitle, float avgContent) {
+    if (list.size < matches.length) {
+      int from = 0;
+      for (int at = 0; at < list.size && from < matches.length; at++) {
+        int i = Arrays.binarySearch(matches, from, matches.length, list.docs[at]);
+        if (i < 0) {
+          from = -i - 1;
+          continue;
+        }
+        from = i + 1;
+        tf[i] += frequency(list, at, matches[i], avgTitle, avgContent);
+      }
+    } else {
+      int from = 0;
+      for (int i = 0; i < matches.length && from < list.size; i++) {
+        int at = Arrays.binarySearch(list.docs, from, list.size, matches[i]);
+        if (at < 0) {
+          from = -at - 1;
+          continue;
+        }
+        from = at + 1;
+        tf[i] += frequency(list, at, matches[i], avgTitle, avgContent);
+      }
+    }
+  }
+
+  private float frequency(PostingList list, int at, int ordinal, float avgTitle, float avgContent) {
+    int titleTf = list.freqs[at] >>> 16;
+    int contentTf = list.freqs[at] & MAX_TF;
+    return titleBoost * titleTf / (1 - B + B * titleLength[ordinal] / avgTitle)
+        + contentTf / (1 - B + B * contentLength[ordinal] / avgContent);
+  }
+
+  /* ----------------------------- results ----------------------------- */
+
+  private boolean newer(int a, int b) {
+    return createdAt[a] != createdAt[b] ? createdAt[a] > createdAt[b] : a > b;
+  }
+
+  private List<UUID> idsOf(int[] ordinals) {
+    List<UUID> page = new ArrayList<>(ordinals.length);
+    for (int ordinal : ordinals) {
+      page.add(ids[ordinal]);
+    }
+    return page;
+  }
+
+  /* --------------------------- posting lists --------------------------- */
+
+  /**
+   * Sorted, growable {@code int[]} of the ordinals containing one term, with
+   * their title tf (high 16 bits) and content tf (low 16 bits).
+   */
+  static final class PostingList {
+    final String term;
+    int[] docs = new int[4];
+    int[] freqs = new int[4];
+    int size;
+
+    PostingList(String term) {
+      this.term = term;
+    }
+
+    void add(int doc, int freq) {
+      if (size > 0 && docs[size - 1] >= doc) {
+        int at = Arrays.binarySearch(docs, 0, size, doc);
+        if (at >= 0) {
+          freqs[at] = freq;
+          return;
+        }
+        insert(-at - 1, doc, freq);
+        return;
+      }
+      grow();
+      docs[size] = doc;
+      freqs[size] = freq;
+      size++;
+    }
+
+    private void insert(int at, int doc, int freq) {
+      grow();
+      System.arraycopy(docs, at, docs, at + 1, size - at);
+      System.arraycopy(freqs, at, freqs, at + 1, size - at);
+      docs[at] = doc;
+      freqs[at] = freq;
+      size++;
+    }
+
+    private void grow() {
+      if (size == docs.length) {
+        docs = Arrays.copyOf(docs, size * 2);
+        freqs = Arrays.copyOf(freqs, size * 2);
+      }
+    }
+
+    void remove(int doc) {
+      int at = Arrays.binarySearch(docs, 0, size, doc);
+      if (at < 0) {
+        return;
+      }
+      System.arraycopy(docs, at + 1, docs, at, size - at - 1);
+      System.arraycopy(freqs, at + 1, freqs, at, size - at - 1);
+      size--;
+    }
+  }
+}
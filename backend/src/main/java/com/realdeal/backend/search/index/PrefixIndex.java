@@ -0,0 +1,433 @@
+package com.realdeal.backend.search.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Search-as-you-type completion over short texts: post titles, genre
+ * names, usernames.
+ * <p>
+ * Every entry gets a dense ordinal, and every word start in its text (as
+ * {@link SearchTokenizer} splits it) an anchor {@code ordinal << 32 | offset}.
+ * Anchors live in one sorted {@code long[]}, ordered case-insensitively by
+ * the text from the anchor on, so the entries with a word starting with a
+ * prefix form one contiguous range found by two binary searches: "15 p"
+ * completes to "iPhone 15 Pro". Suggestions are the heaviest entries in
+ * that range, heavier meaning newer for titles or better reputation for users.
+ * <p>
+ * Updates go to a small unsorted pending buffer that queries scan as well,
+ * and are merged into the sorted array in batches of
+ * {@value #MERGE_THRESHOLD}. Ranges too large to scan per keystroke (one or
+ * two letter prefixes over many titles) have their best entries cached until
+ * the next merge. After {@link #deferMerges()} updates only buffer until
+ * {@link #compact()}, so a bulk load sorts once.
+ * <p>
+ * Ordinals of replaced or removed entries are not reused; their anchors are
+ * dropped at the next merge. Thread-safe: readers share a read lock, updates
+ * take the write lock.
+ *
+ * @param <K> entry key, e.g. a post id
+ */
+public class PrefixIndex<K> {
+
+  /** Most suggestions one query returns. */
+  public static final int MAX_SUGGESTIONS = 16;
+
+  static final int MERGE_THRESHOLD = 4096;
+
+  private static final int INITIAL_CAPACITY = 256;
+  /** Largest sorted range scanned per query; bigger ones use {@link #heads}. */
+  private static final int SCAN_LIMIT = 4096;
+  /** Best ordinals kept per large range, with room for duplicate hits. */
+  private static final int HEAD_SIZE = 2 * MAX_SUGGESTIONS;
+
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<K, Integer> ordinals = new HashMap<>();
+
+  // per ordinal; a null key marks a replaced or removed entry
+  private Object[] keys = new Object[INITIAL_CAPACITY];
+  private String[] texts = new String[INITIAL_CAPACITY];
+  private long[] weights = new long[INITIAL_CAPACITY];
+  private int nextOrdinal;
+
+  private long[] anchors = new long[0];
+  private long[] pending = new long[64];
+  private int pendingSize;
+  private boolean mergesDeferred;
+  private boolean hasDeadAnchors;
+
+  // folded prefix -> best ordinals of its (large) sorted range, until the next merge
+  private final Map<String, int[]> heads = new ConcurrentHashMap<>();
+
+  /** One completion: the entry's key and its original text. */
+  public static final class Suggestion<K> {
+    private final K key;
+    private final String text;
+
+    public Suggestion(K key, String text) {
+      this.key = key;
+      this.text = text;
+    }
+
+    public K getKey() {
+      return key;
+    }
+
+    public String getText() {
+      return text;
+    }
+  }
+
+  /* ------------------------------ updates ------------------------------ */
+
+  /** Add or replace the entry for {@code key}; a blank text removes it. */
+  public void put(K key, String text, long weight) {
+    if (text == null || text.isBlank()) {
+      remove(key);
+      return;
+    }
+
+    lock.writeLock().lock();
+    try {
+      Integer existing = ordinals.get(key);
+      if (existing != null) {
+        if (text.equals(texts[existing]) && weight == weights[existing]) {
+          return;
+        }
+        keys[existing] = null;
+        hasDeadAnchors = true;
+      }
+
+      int ordinal = nextOrdinal++;
+      ensureCapacity(nextOrdinal);
+      keys[ordinal] = key;
+      texts[ordinal] = text;
+      weights[ordinal] = weight;
+      ordinals.put(key, ordinal);
+      SearchTokenizer.forEachToken(text, (term, start, end) -> addPending(anchor(ordinal, start)));
+
+      if (!mergesDeferred && pendingSize >= MERGE_THRESHOLD) {
+        merge();
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(K key) {
+    lock.writeLock().lock();
+    try {
+      Integer ordinal = ordinals.remove(key);
+      if (ordinal != null) {
+        keys[ordinal] = null;
+        hasDeadAnchors = true;
+        // cached heads may now hold it; they are re-checked on read
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Buffer updates without merging until {@link #compact()}; for bulk loads. */
+  public void deferMerges() {
+    lock.writeLock().lock();
+    try {
+      mergesDeferred = true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Merge everything pending into the sorted array and resume batched merges. */
+  public void compact() {
+    lock.writeLock().lock();
+    try {
+      merge();
+      mergesDeferred = false;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return ordinals.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void addPending(long anchor) {
+    if (pendingSize == pending.length) {
+      pending = Arrays.copyOf(pending, pendingSize * 2);
+    }
+    pending[pendingSize++] = anchor;
+  }
+
+  /**
+   * Sort the live pending anchors and splice them into the live sorted ones.
+   * Each goes in at a binary-searched position with the sorted runs between
+   * copied in bulk, so a merge compares texts about {@code pending * log n}
+   * times rather than once per anchor.
+   */
+  private void merge() {
+    long[] fresh = sort(live(pending, pendingSize));
+    long[] base = hasDeadAnchors ? live(anchors, anchors.length) : anchors;
+
+    long[] merged = new long[base.length + fresh.length];
+    int from = 0;
+    int n = 0;
+    for (long anchor : fresh) {
+      int at = insertionPoint(base, from, anchor);
+      System.arraycopy(base, from, merged, n, at - from);
+      n += at - from;
+      from = at;
+      merged[n++] = anchor;
+    }
+    System.arraycopy(base, from, merged, n, base.length - from);
+    anchors = merged;
+    pendingSize = 0;
+    if (pending.length > MERGE_THRESHOLD) {
+      pending = new long[64];
+    }
+    heads.clear();
+
+    if (hasDeadAnchors) {
+      // no anchor points at a dead ordinal any more
+      for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+        if (keys[ordinal] == null) {
+          texts[ordinal] = null;
+        }
+      }
+      hasDeadAnchors = false;
+    }
+  }
+
+  /** First index in {@code [from, sorted.length)} whose anchor sorts after {@code anchor}. */
+  private int insertionPoint(long[] sorted, int from, long anchor) {
+    int lo = from;
+    int hi = sorted.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (compare(sorted[mid], anchor) <= 0) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  private long[] live(long[] source, int length) {
+    long[] live = new long[length];
+    int n = 0;
+    for (int i = 0; i < length; i++) {
+      if (keys[ordinal(source[i])] != null) {
+        live[n++] = source[i];
+      }
+    }
+    return n == length ? live : Arrays.copyOf(live, n);
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity <= keys.length) {
+      return;
+    }
+    int grown = Math.max(capacity, keys.length * 2);
+    keys = Arrays.copyOf(keys, grown);
+    texts = Arrays.copyOf(texts, grown);
+    weights = Arrays.copyOf(weights, grown);
+  }
+
+  /* ------------------------------ queries ------------------------------ */
+
+  /**
+   * Up to {@code limit} (at most {@value #MAX_SUGGESTIONS}) entries with a
+   * word starting with {@code prefix}, ignoring case, heaviest first. Texts
+   * that differ only in case are suggested once.
+   */
+  @SuppressWarnings("unchecked")
+  public List<Suggestion<K>> suggest(String prefix, int limit) {
+    List<Suggestion<K>> suggestions = new ArrayList<>();
+    String folded = fold(prefix == null ? "" : prefix.stripLeading());
+    limit = Math.min(limit, MAX_SUGGESTIONS);
+    if (folded.isEmpty() || limit <= 0) {
+      return suggestions;
+    }
+
+    lock.readLock().lock();
+    try {
+      int from = bound(folded, false);
+      int to = bound(folded, true);
+
+      int[] candidates = new int[Math.min(to - from, SCAN_LIMIT) + pendingSize];
+      int n = 0;
+      if (to - from > SCAN_LIMIT) {
+        for (int ordinal : head(folded, from, to)) {
+          candidates[n++] = ordinal;
+        }
+      } else {
+        for (int i = from; i < to; i++) {
+          int ordinal = ordinal(anchors[i]);
+          if (keys[ordinal] != null) {
+            candidates[n++] = ordinal;
+          }
+        }
+      }
+      for (int i = 0; i < pendingSize; i++) {
+        int ordinal = ordinal(pending[i]);
+        if (keys[ordinal] != null && comparePrefix(pending[i], folded) == 0) {
+          candidates[n++] = ordinal;
+        }
+      }
+
+      // a text can match at several word starts, or repeat across entries
+      int[] best = TopK.top(candidates, n, 0, HEAD_SIZE, this::heavier);
+      List<String> seen = new ArrayList<>(limit);
+      for (int i = 0; i < best.length && suggestions.size() < limit; i++) {
+        int ordinal = best[i];
+        String text = texts[ordinal];
+        if (seen.stream().noneMatch(text::equalsIgnoreCase)) {
+          seen.add(text);
+          suggestions.add(new Suggestion<>((K) keys[ordinal], text));
+        }
+      }
+      return suggestions;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Best live ordinals of the sorted range {@code [from, to)}, cached per prefix. */
+  private int[] head(String folded, int from, int to) {
+    int[] head = heads.get(folded);
+    if (head != null && Arrays.stream(head).allMatch(ordinal -> keys[ordinal] != null)) {
+      return head;
+    }
+
+    int[] range = new int[to - from];
+    int n = 0;
+    for (int i = from; i < to; i++) {
+      int ordinal = ordinal(anchors[i]);
+      if (keys[ordinal] != null) {
+        range[n++] = ordinal;
+      }
+    }
+    // distinct ordinals only, so repeated words don't crowd out other entries
+    int[] best = TopK.top(range, n, 0, HEAD_SIZE * 2, this::heavier);
+    head = Arrays.stream(best).distinct().limit(HEAD_SIZE).toArray();
+    heads.put(folded, head);
+    return head;
+  }
+
+  private boolean heavier(int a, int b) {
+    if (weights[a] != weights[b]) {
+      return weights[a] > weights[b];
+    }
+    int byText = texts[a].compareToIgnoreCase(texts[b]);
+    return byText != 0 ? byText < 0 : a > b;
+  }
+
+  /** First anchor whose text sorts at or after {@code folded}, or (upper) after every match. */
+  private int bound(String folded, boolean upper) {
+    int lo = 0;
+    int hi = anchors.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      int cmp = comparePrefix(anchors[mid], folded);
+      if (cmp < 0 || (upper && cmp == 0)) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  /* ---------------------------- anchor order ---------------------------- */
+
+  private static long anchor(int ordinal, int offset) {
+    return (long) ordinal << 32 | offset;
+  }
+
+  private static int ordinal(long anchor) {
+    return (int) (anchor >>> 32);
+  }
+
+  private static int offset(long anchor) {
+    return (int) anchor;
+  }
+
+  private static char fold(char c) {
+    return Character.toLowerCase(c);
+  }
+
+  private static String fold(String text) {
+    char[] folded = text.toCharArray();
+    for (int i = 0; i < folded.length; i++) {
+      folded[i] = fold(folded[i]);
+    }
+    return new String(folded);
+  }
+
+  /** The anchored text against an already folded prefix; 0 when it starts with it. */
+  private int comparePrefix(long anchor, String folded) {
+    String text = texts[ordinal(anchor)];
+    int at = offset(anchor);
+    for (int i = 0; i < folded.length(); i++) {
+      if (at + i >= text.length()) {
+        return -1;
+      }
+      int diff = fold(text.charAt(at + i)) - folded.charAt(i);
+      if (diff != 0) {
+        return diff;
+      }
+    }
+    return 0;
+  }
+
+  private int compare(long a, long b) {
+    String textA = texts[ordinal(a)];
+    String textB = texts[ordinal(b)];
+    int i = offset(a);
+    int j = offset(b);
+    while (i < textA.length() && j < textB.length()) {
+      int diff = fold(textA.charAt(i++)) - fold(textB.charAt(j++));
+      if (diff != 0) {
+        return diff;
+      }
+    }
+    return (textA.length() - i) - (textB.length() - j);
+  }
+
+  /** Bottom-up merge sort; {@code long[]} has no comparator sort of its own. */
+  private long[] sort(long[] values) {
+    long[] src = values;
+    long[] dst = new long[values.length];
+    for (int width = 1; width < values.length; width <<= 1) {
+      for (int lo = 0; lo < values.length; lo += width << 1) {
+        int mid = Math.min(lo + width, values.length);
+        int hi = Math.min(lo + (width << 1), values.length);
+        mergeRuns(src, lo, mid, src, mid, hi, dst, lo);
+      }
+      long[] swap = src;
+      src = dst;
+      dst = swap;
+    }
+    return src;
+  }
+
+  private void mergeRuns(long[] a, int i, int aEnd, long[] b, int j, int bEnd, long[] out, int n) {
+    while (i < aEnd && j < bEnd) {
+      out[n++] = compare(b[j], a[i]) < 0 ? b[j++] : a[i++];
+    }
+    System.arraycopy(a, i, out, n, aEnd - i);
+    System.arraycopy(b, j, out, n + aEnd - i, bEnd - j);
+  }
+}
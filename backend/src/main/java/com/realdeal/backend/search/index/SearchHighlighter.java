@@ -0,0 +1,147 @@
+package com.realdeal.backend.search.index;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Marks query hits in post text and cuts a short excerpt around them, so a
+ * search result can show why it matched without shipping the whole body.
+ * <p>
+ * Highlights are {@code [start, end)} char ranges into the returned text
+ * rather than inline markup, so clients render them however they like and
+ * user text never has to be escaped here. A term is highlighted when one
+ * of the query tokens is a prefix of it, the same rule the index matches by.
+ */
+public final class SearchHighlighter {
+
+  private static final char ELLIPSIS = '…';
+
+  /** An excerpt plus the ranges in it to highlight. */
+  public static final class Snippet {
+    private final String text;
+    private final List<int[]> highlights;
+
+    public Snippet(String text, List<int[]> highlights) {
+      this.text = text;
+      this.highlights = highlights;
+    }
+
+    public String getText() {
+      return text;
+    }
+
+    public List<int[]> getHighlights() {
+      return highlights;
+    }
+  }
+
+  private SearchHighlighter() {
+  }
+
+  /** Ranges of every term in {@code text} that a query token is a prefix of. */
+  public static List<int[]> highlights(String text, String query) {
+    Set<String> tokens = new LinkedHashSet<>(SearchTokenizer.tokenize(query));
+    List<int[]> ranges = new ArrayList<>();
+    if (tokens.isEmpty()) {
+      return ranges;
+    }
+    SearchTokenizer.forEachToken(text, (term, start, end) -> {
+      for (String token : tokens) {
+        if (term.startsWith(token)) {
+          ranges.add(new int[] {start, end});
+          return;
+        }
+      }
+    });
+    return ranges;
+  }
+
+  /**
+   * At most {@code maxChars} of {@code text} (plus ellipses) around the
+   * densest run of hits; the start of the text if nothing matches.
+   */
+  public static Snippet snippet(String text, String query, int maxChars) {
+    if (text == null) {
+      return new Snippet("", new ArrayList<>());
+    }
+    List<int[]> hits = highlights(text, query);
+    if (text.length() <= maxChars) {
+      return new Snippet(text, hits);
+    }
+
+    int start = hits.isEmpty() ? 0 : windowStart(text, hits, maxChars);
+    int end = Math.min(text.length(), start + maxChars);
+    if (end < text.length()) {
+      end = snapBack(text, start, end);
+    }
+    if (end < text.length() && Character.isHighSurrogate(text.charAt(end - 1))) {
+      end--;
+    }
+
+    StringBuilder excerpt = new StringBuilder(end - start + 2);
+    int shift = -start;
+    if (start > 0) {
+      excerpt.append(ELLIPSIS);
+      shift++;
+    }
+    excerpt.append(text, start, end);
+    if (end < text.length()) {
+      excerpt.append(ELLIPSIS);
+    }
+
+    List<int[]> inside = new ArrayList<>();
+    for (int[] hit : hits) {
+      if (hit[0] >= start && hit[1] <= end) {
+        inside.add(new int[] {hit[0] + shift, hit[1] + shift});
+      }
+    }
+    return new Snippet(excerpt.toString(), inside);
+  }
+
+  /** Start of the window covering the most hits, with a little lead-in context. */
+  private static int windowStart(String text, List<int[]> hits, int maxChars) {
+    int best = 0;
+    int bestCount = 0;
+    int last = 0;
+    for (int first = 0; first < hits.size(); first++) {
+      int limit = hits.get(first)[0] + maxChars;
+      if (last < first) {
+        last = first;
+      }
+      while (last + 1 < hits.size() && hits.get(last + 1)[1] <= limit) {
+        last++;
+      }
+      if (last - first + 1 > bestCount) {
+        bestCount = last - first + 1;
+        best = first;
+      }
+    }
+
+    int anchor = hits.get(best)[0];
+    int lead = Math.min(anchor, maxChars / 5);
+    int start = anchor - lead;
+    // begin on a word boundary when there is one in the lead-in
+    for (int i = start; i < anchor; i++) {
+      if (Character.isWhitespace(text.charAt(i))) {
+        start = i + 1;
+        break;
+      }
+    }
+    if (start > 0 && Character.isLowSurrogate(text.charAt(start))) {
+      start++;
+    }
+    return start;
+  }
+
+  /** Pull {@code end} back to the last whitespace, unless that loses most of the window. */
+  private static int snapBack(String text, int start, int end) {
+    for (int i = end; i > start + (end - start) * 3 / 4; i--) {
+      if (Character.isWhitespace(text.charAt(i - 1))) {
+        return i - 1;
+      }
+    }
+    return end;
+  }
+}
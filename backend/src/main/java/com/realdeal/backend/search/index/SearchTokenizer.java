@@ -0,0 +1,74 @@
+package com.realdeal.backend.search.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits text into lower-case search terms.
+ * <p>
+ * Runs of letters and digits form one term. CJK ideographs and kana are
+ * emitted one character per term, since those scripts don't separate
+ * words with spaces; a query in them matches posts containing every one of
+ * its characters.
+ */
+public final class SearchTokenizer {
+
+  /** Receives each term with its {@code [start, end)} char range in the source text. */
+  @FunctionalInterface
+  public interface TokenSink {
+    void accept(String term, int start, int end);
+  }
+
+  private SearchTokenizer() {
+  }
+
+  public static List<String> tokenize(String text) {
+    List<String> tokens = new ArrayList<>();
+    forEachToken(text, (term, start, end) -> tokens.add(term));
+    return tokens;
+  }
+
+  public static void forEachToken(String text, TokenSink sink) {
+    if (text == null || text.isEmpty()) {
+      return;
+    }
+
+    int wordStart = -1;
+    int i = 0;
+    while (i < text.length()) {
+      int cp = text.codePointAt(i);
+      int next = i + Character.charCount(cp);
+
+      if (isIdeographic(cp)) {
+        wordStart = flush(text, wordStart, i, sink);
+        sink.accept(text.substring(i, next), i, next);
+      } else if (Character.isLetterOrDigit(cp)) {
+        if (wordStart < 0) {
+          wordStart = i;
+        }
+      } else {
+        wordStart = flush(text, wordStart, i, sink);
+      }
+      i = next;
+    }
+    flush(text, wordStart, text.length(), sink);
+  }
+
+  private static int flush(String text, int start, int end, TokenSink sink) {
+    if (start >= 0) {
+      sink.accept(text.substring(start, end).toLowerCase(Locale.ROOT), start, end);
+    }
+    return -1;
+  }
+
+  /** Whether the code point is a term on its own (CJK ideographs and kana). */
+  public static boolean isIdeographic(int cp) {
+    if (Character.isIdeographic(cp)) {
+      return true;
+    }
+    Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+    return script == Character.UnicodeScript.HIRAGANA
+        || script == Character.UnicodeScript.KATAKANA;
+  }
+}
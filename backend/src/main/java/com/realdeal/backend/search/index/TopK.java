@@ -0,0 +1,90 @@
+package com.realdeal.backend.search.index;
+
+import java.util.Arrays;
+
+/**
+ * Bounded-heap selection of the best few ints (ordinals) out of many, so a
+ * page of results costs {@code O(n log k)} instead of sorting every hit.
+ */
+final class TopK {
+
+  /** Strict "ranks before" order between two values. */
+  @FunctionalInterface
+  interface Better {
+    boolean test(int a, int b);
+  }
+
+  private TopK() {
+  }
+
+  /**
+   * Elements {@code [offset, offset + limit)} of the first {@code count}
+   * {@code values} in best-first order, via a min-heap (worst kept element
+   * on top) that never holds more than {@code offset + limit} values.
+   */
+  static int[] top(int[] values, int count, int offset, int limit, Better better) {
+    int k = (int) Math.min((long) offset + limit, count);
+    if (k <= offset) {
+      return new int[0];
+    }
+
+    int[] heap = new int[k];
+    int size = 0;
+    for (int i = 0; i < count; i++) {
+      int value = values[i];
+      if (size < k) {
+        heap[size] = value;
+        siftUp(heap, size++, better);
+      } else if (better.test(value, heap[0])) {
+        heap[0] = value;
+        siftDown(heap, k, better);
+      }
+    }
+
+    // drain worst-first into the tail so the array ends up best-first
+    int[] ordered = new int[k];
+    for (int i = k - 1; i >= 0; i--) {
+      ordered[i] = heap[0];
+      heap[0] = heap[--size];
+      siftDown(heap, size, better);
+    }
+    return Arrays.copyOfRange(ordered, offset, k);
+  }
+
+  private static void siftUp(int[] heap, int i, Better better) {
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (!better.test(heap[parent], heap[i])) {
+        return;
+      }
+      swap(heap, parent, i);
+      i = parent;
+    }
+  }
+
+  private static void siftDown(int[] heap, int size, Better better) {
+    int i = 0;
+    while (true) {
+      int left = 2 * i + 1;
+      if (left >= size) {
+        return;
+      }
+      int worst = left;
+      int right = left + 1;
+      if (right < size && better.test(heap[left], heap[right])) {
+        worst = right;
+      }
+      if (!better.test(heap[i], heap[worst])) {
+        return;
+      }
+      swap(heap, i, worst);
+      i = worst;
+    }
+  }
+
+  private static void swap(int[] heap, int a, int b) {
+    int t = heap[a];
+    heap[a] = heap[b];
+    heap[b] = t;
+  }
+}
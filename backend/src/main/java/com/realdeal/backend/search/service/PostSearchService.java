@@ -0,0 +1,237 @@
+package com.realdeal.backend.search.service;
+
+import com.realdeal.backend.common.tx.AfterCommit;
+import com.realdeal.backend.post.model.Post;
+import com.realdeal.backend.post.repository.PostRepository;
+import com.realdeal.backend.search.config.SearchProperties;
+import com.realdeal.backend.search.index.PostSearchIndex;
+import com.realdeal.backend.search.index.PrefixIndex;
+import com.realdeal.backend.search.index.SearchTokenizer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Owns this node's {@link PostSearchIndex}, plus a {@link PrefixIndex} of
+ * post titles for search-as-you-type.
+ * <p>
+ * The index is built from a streaming scan of the posts table once the
+ * application is ready, then kept current incrementally: {@code PostService}
+ * reports creates, edits and deletes, which are applied locally after
+ * commit and broadcast as {@code nodeId|U|postId} / {@code nodeId|D|postId}
+ * so the other nodes re-read the post. Until the first build finishes
+ * {@link #isReady()} is false and callers fall back to the database; title
+ * suggestions are simply empty until then.
+ *
+ * @see com.realdeal.backend.post.service.PostService
+ */
+@Slf4j
+@Service
+public class PostSearchService implements MessageListener {
+
+  private static final String UPSERT = "U";
+  private static final String DELETE = "D";
+
+  private final PostRepository postRepo;
+  private final StringRedisTemplate redis;
+  private final SearchProperties properties;
+  private final TransactionTemplate readOnly;
+  private final String nodeId = UUID.randomUUID().toString();
+
+  private volatile PostSearchIndex index;
+  private volatile PrefixIndex<UUID> titles;
+  private volatile boolean ready;
+
+  // posts touched while a rebuild scan runs, replayed onto the new index
+  private volatile Set<UUID> changedDuringRebuild;
+
+  public PostSearchService(PostRepository postRepo,
+      StringRedisTemplate redis,
+      SearchProperties properties,
+      PlatformTransactionManager transactionManager) {
+    this.postRepo = postRepo;
+    this.redis = redis;
+    this.properties = properties;
+    this.readOnly = new TransactionTemplate(transactionManager);
+    this.readOnly.setReadOnly(true);
+    this.index = new PostSearchIndex(properties.getTitleBoost());
+    this.titles = new PrefixIndex<>();
+  }
+
+  /* ------------------------------ queries ------------------------------ */
+
+  /** Whether {@link #search} and {@link #count} can answer the query. */
+  public boolean canAnswer(String query) {
+    return ready && !SearchTokenizer.tokenize(query).isEmpty();
+  }
+
+  public boolean isReady() {
+    return ready;
+  }
+
+  public PostSearchIndex.Hits search(String query, int offset, int limit) {
+    return index.search(query, offset, limit);
+  }
+
+  /** Matches ordered by BM25 relevance instead of recency. */
+  public PostSearchIndex.Hits rank(String query, int offset, int limit) {
+    return index.rank(query, offset, limit);
+  }
+
+  public int count(String query) {
+    return index.count(query);
+  }
+
+  /** Newest posts with a title word starting with {@code prefix}. */
+  public List<PrefixIndex.Suggestion<UUID>> suggestTitles(String prefix, int limit) {
+    return titles.suggest(prefix, limit);
+  }
+
+  /* ------------------------------ updates ------------------------------ */
+
+  /** A post was created or its title/content changed. */
+  public void indexed(Post post) {
+    UUID id = post.getId();
+    String title = post.getTitle();
+    String content = post.getContent();
+    LocalDateTime createdAt = post.getCreatedAt();
+    AfterCommit.run(() -> {
+      track(id);
+      index.put(id, title, content, createdAt);
+      titles.put(id, title, titleWeight(createdAt));
+      publish(UPSERT, id);
+    });
+  }
+
+  public void removed(UUID postId) {
+    AfterCommit.run(() -> {
+      track(postId);
+      index.remove(postId);
+      titles.remove(postId);
+      publish(DELETE, postId);
+    });
+  }
+
+  private void track(UUID postId) {
+    Set<UUID> changed = changedDuringRebuild;
+    if (changed != null) {
+      changed.add(postId);
+    }
+  }
+
+  private void publish(String op, UUID postId) {
+    try {
+      redis.convertAndSend(properties.getChannel(), nodeId + '|' + op + '|' + postId);
+    } catch (RuntimeException e) {
+      // The other nodes pick the change up at their next rebuild
+      log.warn("Could not publish search index change for {}: {}", postId, e.getMessage());
+    }
+  }
+
+  /** Another node changed a post: re-read it, or drop it if it is gone. */
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 3);
+    if (parts.length < 3 || nodeId.equals(parts[0])) {
+      return;   // malformed, or our own echo
+    }
+
+    UUID postId;
+    try {
+      postId = UUID.fromString(parts[2]);
+    } catch (IllegalArgumentException e) {
+      return;
+    }
+    track(postId);
+    if (DELETE.equals(parts[1])) {
+      index.remove(postId);
+      titles.remove(postId);
+    } else if (UPSERT.equals(parts[1])) {
+      reload(index, titles, List.of(postId));
+    }
+  }
+
+  /* ------------------------------ rebuild ------------------------------ */
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuildOnStartup() {
+    if (!properties.isRebuildOnStartup()) {
+      return;
+    }
+    Thread builder = new Thread(this::rebuild, "search-index-rebuild");
+    builder.setDaemon(true);
+    builder.start();
+  }
+
+  /** Build a fresh index from a full scan and swap it in. */
+  public void rebuild() {
+    long start = System.currentTimeMillis();
+    Set<UUID> changed = ConcurrentHashMap.newKeySet();
+    changedDuringRebuild = changed;
+    try {
+      PostSearchIndex fresh = new PostSearchIndex(properties.getTitleBoost());
+      PrefixIndex<UUID> freshTitles = new PrefixIndex<>();
+      freshTitles.deferMerges();
+      readOnly.executeWithoutResult(status -> {
+        try (Stream<PostRepository.SearchRow> rows = postRepo.streamSearchRows()) {
+          rows.forEach(row -> {
+            fresh.put(row.getId(), row.getTitle(), row.getContent(), row.getCreatedAt());
+            freshTitles.put(row.getId(), row.getTitle(), titleWeight(row.getCreatedAt()));
+          });
+        }
+      });
+      freshTitles.compact();
+
+      index = fresh;
+      titles = freshTitles;
+      ready = true;
+      // anything that changed mid-scan may have been read before the change
+      reload(fresh, freshTitles, new ArrayList<>(changed));
+      log.info("Search index built: {} posts, {} terms in {} ms",
+          fresh.size(), fresh.termCount(), System.currentTimeMillis() - start);
+    } catch (RuntimeException e) {
+      log.error("Search index rebuild failed; search keeps using {}",
+          ready ? "the previous index" : "the database", e);
+    } finally {
+      changedDuringRebuild = null;
+    }
+  }
+
+  private void reload(PostSearchIndex target, PrefixIndex<UUID> targetTitles, List<UUID> postIds) {
+    if (postIds.isEmpty()) {
+      return;
+    }
+    Set<UUID> missing = new HashSet<>(postIds);
+    for (PostRepository.SearchRow row : postRepo.findSearchRowsByIdIn(postIds)) {
+      target.put(row.getId(), row.getTitle(), row.getContent(), row.getCreatedAt());
+      targetTitles.put(row.getId(), row.getTitle(), titleWeight(row.getCreatedAt()));
+      missing.remove(row.getId());
+    }
+    missing.forEach(id -> {
+      target.remove(id);
+      targetTitles.remove(id);
+    });
+  }
+
+  /** Newer posts rank first among title suggestions. */
+  private static long titleWeight(LocalDateTime createdAt) {
+    return createdAt != null ? createdAt.toEpochSecond(ZoneOffset.UTC) : Long.MIN_VALUE;
+  }
+}
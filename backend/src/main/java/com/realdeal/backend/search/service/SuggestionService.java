@@ -0,0 +1,190 @@
+package com.realdeal.backend.search.service;
+
+import com.realdeal.backend.authentication.model.UserProfile;
+import com.realdeal.backend.authentication.repository.UserProfileRepository;
+import com.realdeal.backend.genre.model.Genre;
+import com.realdeal.backend.genre.service.GenreService;
+import com.realdeal.backend.search.config.SearchProperties;
+import com.realdeal.backend.search.dto.SuggestionDTO;
+import com.realdeal.backend.search.dto.SuggestionsDTO;
+import com.realdeal.backend.search.index.PrefixIndex;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Search-as-you-type completions over post titles, genre names and
+ * usernames, each answered from an in-memory {@link PrefixIndex}.
+ * <p>
+ * Titles come from {@link PostSearchService}, which already tracks every
+ * post change. Usernames are loaded once the application is ready and then
+ * updated by {@code UserProfileService} as users register or rename; a
+ * change is broadcast as {@code nodeId|N|userId} on the search channel so
+ * the other nodes re-read that user. Genres have no write path in the API
+ * and are simply re-read from {@link GenreService}'s catalog every
+ * {@code realdeal.search.genre-refresh}.
+ *
+ * @see com.realdeal.backend.authentication.service.UserProfileService
+ */
+@Slf4j
+@Service
+public class SuggestionService implements MessageListener {
+
+  private static final String USERNAME = "N";
+
+  private final PostSearchService postSearch;
+  private final GenreService genreService;
+  private final UserProfileRepository userRepo;
+  private final StringRedisTemplate redis;
+  private final SearchProperties properties;
+  private final TransactionTemplate readOnly;
+  private final String nodeId = UUID.randomUUID().toString();
+
+  private final ScheduledExecutorService loader = Executors.newSingleThreadScheduledExecutor(task -> {
+    Thread thread = new Thread(task, "suggestion-loader");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private volatile PrefixIndex<Integer> genres = new PrefixIndex<>();
+  private volatile PrefixIndex<String> users = new PrefixIndex<>();
+
+  // the index a reload is filling, so renames during the scan aren't lost
+  private volatile PrefixIndex<String> loadingUsers;
+
+  public SuggestionService(PostSearchService postSearch,
+      GenreService genreService,
+      UserProfileRepository userRepo,
+      StringRedisTemplate redis,
+      SearchProperties properties,
+      PlatformTransactionManager transactionManager) {
+    this.postSearch = postSearch;
+    this.genreService = genreService;
+    this.userRepo = userRepo;
+    this.redis = redis;
+    this.properties = properties;
+    this.readOnly = new TransactionTemplate(transactionManager);
+    this.readOnly.setReadOnly(true);
+  }
+
+  /* ------------------------------ queries ------------------------------ */
+
+  /** Up to {@code limit} completions of {@code prefix} of each kind. */
+  public SuggestionsDTO suggest(String prefix, int limit) {
+    return new SuggestionsDTO(
+        toDTOs(postSearch.suggestTitles(prefix, limit)),
+        toDTOs(genres.suggest(prefix, limit)),
+        toDTOs(users.suggest(prefix, limit)));
+  }
+
+  private static List<SuggestionDTO> toDTOs(List<? extends PrefixIndex.Suggestion<?>> suggestions) {
+    return suggestions.stream()
+        .map(s -> new SuggestionDTO(String.valueOf(s.getKey()), s.getText()))
+        .collect(Collectors.toList());
+  }
+
+  /* ------------------------------ updates ------------------------------ */
+
+  /** A user registered or changed their username; call after saving. */
+  public void userChanged(UserProfile user) {
+    long weight = reputation(user.getReputationScore());
+    users.put(user.getUserId(), user.getUsername(), weight);
+    PrefixIndex<String> loading = loadingUsers;
+    if (loading != null) {
+      loading.put(user.getUserId(), user.getUsername(), weight);
+    }
+    try {
+      redis.convertAndSend(properties.getChannel(), nodeId + '|' + USERNAME + '|' + user.getUserId());
+    } catch (RuntimeException e) {
+      // The other nodes pick the change up at their next restart
+      log.warn("Could not publish username change for {}: {}", user.getUserId(), e.getMessage());
+    }
+  }
+
+  /** Another node changed a username: re-read that user. Post changes are not ours. */
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 3);
+    if (parts.length < 3 || nodeId.equals(parts[0]) || !USERNAME.equals(parts[1])) {
+      return;
+    }
+
+    String userId = parts[2];
+    userRepo.findById(userId).ifPresentOrElse(
+        user -> users.put(userId, user.getUsername(), reputation(user.getReputationScore())),
+        () -> users.remove(userId));
+  }
+
+  private static long reputation(Integer score) {
+    return score != null ? score : 0;
+  }
+
+  /* ------------------------------ loading ------------------------------ */
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void loadOnStartup() {
+    if (!properties.isRebuildOnStartup()) {
+      return;
+    }
+    loader.execute(this::reloadUsers);
+    long refreshMillis = properties.getGenreRefresh().toMillis();
+    loader.scheduleWithFixedDelay(this::reloadGenres, 0, refreshMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    loader.shutdownNow();
+  }
+
+  /** Build a fresh username index from a full scan and swap it in. */
+  public void reloadUsers() {
+    try {
+      PrefixIndex<String> fresh = new PrefixIndex<>();
+      fresh.deferMerges();
+      loadingUsers = fresh;
+      readOnly.executeWithoutResult(status -> {
+        try (Stream<UserProfileRepository.NameRow> rows = userRepo.streamNameRows()) {
+          rows.forEach(row -> fresh.put(row.getUserId(), row.getUsername(), reputation(row.getReputationScore())));
+        }
+      });
+      fresh.compact();
+      users = fresh;
+      log.info("Username suggestions loaded: {} users", fresh.size());
+    } catch (RuntimeException e) {
+      log.error("Loading username suggestions failed", e);
+    } finally {
+      loadingUsers = null;
+    }
+  }
+
+  public void reloadGenres() {
+    try {
+      PrefixIndex<Integer> fresh = new PrefixIndex<>();
+      fresh.deferMerges();
+      for (Genre genre : genreService.getCatalog().all()) {
+        fresh.put(genre.getId(), genre.getName(), 0);
+      }
+      fresh.compact();
+      genres = fresh;
+    } catch (RuntimeException e) {
+      // keep serving the previous genres; retried at the next refresh
+      log.warn("Reloading genre suggestions failed: {}", e.getMessage());
+    }
+  }
+}
@@ -2,6 +2,7 @@ package com.realdeal.backend.authentication.service;
 
 import com.realdeal.backend.authentication.model.UserProfile;
 import com.realdeal.backend.authentication.repository.UserProfileRepository;
+import com.realdeal.backend.search.service.SuggestionService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
@@ -14,6 +15,7 @@ import static org.mockito.Mockito.*;
 class UserProfileServiceTest {
 
     @Mock  private UserProfileRepository repo;
+    @Mock  private SuggestionService suggestions;
     @InjectMocks private UserProfileService service;
 
     @BeforeEach void init(){ MockitoAnnotations.openMocks(this); }
@@ -33,4 +35,20 @@ class UserProfileServiceTest {
         when(repo.existsByEmail("e@x")).thenReturn(true);
         assertThrows(RuntimeException.class, () -> service.registerUser(in));
     }
+
+    @Test
+    void updateUsername_refreshesSuggestions() {
+        UserProfile existing = new UserProfile();
+        existing.setUserId("id");
+        existing.setUsername("old");
+        UserProfile in = new UserProfile();
+        in.setUsername("newname");
+        when(repo.findById("id")).thenReturn(Optional.of(existing));
+        when(repo.save(existing)).thenReturn(existing);
+
+        service.updateUsername("id", in);
+
+        assertEquals("newname", existing.getUsername());
+        verify(suggestions).userChanged(existing);
+    }
 }
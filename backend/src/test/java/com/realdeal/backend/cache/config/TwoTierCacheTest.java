@@ -0,0 +1,243 @@
+package com.realdeal.backend.cache.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+class TwoTierCacheTest {
+
+    private Cache remote;
+    private TwoTierCache.InvalidationPublisher publisher;
+    private TwoTierCache cache;
+
+    @BeforeEach
+    void init() {
+        remote    = mock(Cache.class);
+        publisher = mock(TwoTierCache.InvalidationPublisher.class);
+        cache = new TwoTierCache("postsContent",
+            Caffeine.newBuilder().maximumSize(100).build(), remote, publisher,
+            null, null, 0, null, null);
+    }
+
+    @Test
+    void get_promotesRemoteHitIntoLocalTier() {
+        when(remote.get("page:0")).thenReturn(new SimpleValueWrapper("value"));
+
+        assertEquals("value", cache.get("page:0").get());
+        assertEquals("value", cache.get("page:0").get());
+
+        // the second read is served locally
+        verify(remote, times(1)).get("page:0");
+    }
+
+    @Test
+    void get_returnsNull_whenBothTiersMiss() {
+        assertNull(cache.get("missing"));
+    }
+
+    @Test
+    void put_writesThroughToRemote() {
+        cache.put("k", "v");
+
+        verify(remote).put(eq("k"), argThat(stored ->
+            stored instanceof StampedValue stamped && "v".equals(stamped.getValue())));
+        assertEquals("v", cache.get("k").get());
+        verify(remote, never()).get("k");
+    }
+
+    @Test
+    void evict_clearsBothTiersAndBroadcasts() {
+        cache.put("k", "v");
+
+        cache.evict("k");
+
+        verify(remote).evict("k");
+        verify(publisher).evicted("postsContent", "k");
+        assertNull(cache.get("k"));
+    }
+
+    @Test
+    void clear_clearsBothTiersAndBroadcasts() {
+        cache.put("k", "v");
+
+        cache.clear();
+
+        verify(remote).clear();
+        verify(publisher).cleared("postsContent");
+        assertNull(cache.get("k"));
+    }
+
+    @Test
+    void evictLocal_dropsOnlyTheNearCopy() {
+        cache.put("k", "v");
+        when(remote.get("k")).thenReturn(new SimpleValueWrapper("fresh"));
+
+        cache.evictLocal("k");
+
+        assertEquals("fresh", cache.get("k").get());
+        verify(remote, never()).evict(any());
+        verifyNoInteractions(publisher);
+    }
+
+    @Test
+    void getAll_readsLocalHitsThenRemoteMissesInOneBatch() {
+        TwoTierCache.BulkReader reader = mock(TwoTierCache.BulkReader.class);
+        TwoTierCache cache = new TwoTierCache("singlePost",
+            Caffeine.newBuilder().maximumSize(100).build(), remote, publisher,
+            null, Duration.ofMinutes(5), 1.0, reader, null);
+        cache.put("a", "A");
+        when(reader.readAll(remote, List.of("b", "c")))
+            .thenReturn(Arrays.asList(new StampedValue("B", 1L, 0), null));
+
+        Map<Object, Object> found = cache.getAll(List.of("a", "b", "c", "a"));
+
+        assertEquals(Map.of("a", "A", "b", "B"), found);
+        // the remote hit is now served locally
+        assertEquals(Map.of("b", "B"), cache.getAll(List.of("b")));
+        verify(reader, times(1)).readAll(any(), any());
+    }
+
+    @Test
+    void putAll_writesRemoteInOneBatch_andFillsLocalTier() {
+        TwoTierCache.BulkWriter writer = mock(TwoTierCache.BulkWriter.class);
+        TwoTierCache cache = new TwoTierCache("commentLikes",
+            Caffeine.newBuilder().maximumSize(100).build(), remote, publisher,
+            null, Duration.ofMinutes(15), 1.0, null, writer);
+        Map<String, Boolean> entries = new LinkedHashMap<>();
+        entries.put("a", true);
+        entries.put("b", false);
+        entries.put("c", null);
+
+        cache.putAll(entries);
+
+        verify(writer).writeAll(eq(remote), eq(List.of("a", "b")), argThat(values -> values.size() == 2
+            && values.get(0) instanceof StampedValue first && Boolean.TRUE.equals(first.getValue())
+            && values.get(1) instanceof StampedValue second && Boolean.FALSE.equals(second.getValue())),
+            eq(Duration.ofMinutes(15)));
+        assertEquals(Map.of("a", true, "b", false), cache.getAll(List.of("a", "b", "c")));
+        verify(remote, never()).put(any(), any());
+        verify(remote).get("c");
+    }
+
+    /* ---------- stampede protection ---------- */
+
+    private TwoTierCache syncCache(TwoTierCache.LoadLock lock) {
+        return new TwoTierCache("postsContent",
+            Caffeine.newBuilder().maximumSize(100).build(), remote, publisher,
+            lock, Duration.ofMinutes(5), 1.0, null, null);
+    }
+
+    @Test
+    void getWithLoader_runsOneLoaderForConcurrentMisses() throws Exception {
+        TwoTierCache cache = syncCache(null);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                return cache.get("page:0", () -> {
+                    loads.incrementAndGet();
+                    Thread.sleep(200);
+                    return "rows";
+                });
+            }));
+        }
+        start.countDown();
+        for (Future<String> result : results) {
+            assertEquals("rows", result.get(5, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void getWithLoader_keepsFreshEntry() {
+        TwoTierCache cache = syncCache(null);
+        when(remote.get("k")).thenReturn(new SimpleValueWrapper(
+            new StampedValue("cached", System.currentTimeMillis(), 5)));
+
+        assertEquals("cached", cache.get("k", () -> fail("should not load")));
+    }
+
+    @Test
+    void getWithLoader_recomputesEntryAboutToExpire() {
+        TwoTierCache cache = syncCache(null);
+        long loadedLongAgo = System.currentTimeMillis() - Duration.ofMinutes(6).toMillis();
+        when(remote.get("k")).thenReturn(new SimpleValueWrapper(
+            new StampedValue("old", loadedLongAgo, 5)));
+
+        assertEquals("new", cache.get("k", () -> "new"));
+        verify(remote).put(eq("k"), argThat(stored ->
+            stored instanceof StampedValue stamped && "new".equals(stamped.getValue())));
+    }
+
+    @Test
+    void getWithLoader_servesStaleValue_whenEarlyRefreshFails() {
+        TwoTierCache cache = syncCache(null);
+        long loadedLongAgo = System.currentTimeMillis() - Duration.ofMinutes(6).toMillis();
+        when(remote.get("k")).thenReturn(new SimpleValueWrapper(
+            new StampedValue("old", loadedLongAgo, 5)));
+
+        assertEquals("old", cache.get("k", () -> {
+            throw new IllegalStateException("db down");
+        }));
+    }
+
+    @Test
+    void getWithLoader_propagatesLoaderFailureOnMiss() {
+        TwoTierCache cache = syncCache(null);
+
+        assertThrows(Cache.ValueRetrievalException.class,
+            () -> cache.get("k", () -> {
+                throw new IllegalStateException("db down");
+            }));
+    }
+
+    @Test
+    void getWithLoader_waitsForOtherNode_whenLockIsTaken() {
+        TwoTierCache.LoadLock lock = mock(TwoTierCache.LoadLock.class);
+        when(lock.tryAcquire("postsContent::k")).thenReturn(null);
+        when(lock.maxWait()).thenReturn(Duration.ofSeconds(1));
+        when(remote.get("k")).thenReturn(null,
+            new SimpleValueWrapper(new StampedValue("winner", System.currentTimeMillis(), 5)));
+
+        TwoTierCache cache = syncCache(lock);
+
+        assertEquals("winner", cache.get("k", () -> fail("should not load")));
+        verify(lock, never()).release(any(), any());
+    }
+
+    @Test
+    void getWithLoader_releasesLockAfterLoading() {
+        TwoTierCache.LoadLock lock = mock(TwoTierCache.LoadLock.class);
+        when(lock.tryAcquire("postsContent::k")).thenReturn("token");
+
+        TwoTierCache cache = syncCache(lock);
+
+        assertEquals("rows", cache.get("k", () -> "rows"));
+        verify(lock).release("postsContent::k", "token");
+    }
+}
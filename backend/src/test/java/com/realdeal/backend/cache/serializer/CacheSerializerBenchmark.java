@@ -0,0 +1,96 @@
+package com.realdeal.backend.cache.serializer;
+
+import com.realdeal.backend.config.RedisConfig;
+import com.realdeal.backend.post.model.Post;
+import com.realdeal.backend.post.model.PostImage;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode/decode cost of a cached feed page ({@code List<Post>}) with the
+ * compact codec versus the Jackson serializer it replaces. Payload sizes are
+ * printed once per trial.
+ * <p>
+ * Run with {@code mvn test-compile} and then the {@link #main} method
+ * (IDE, or {@code java -cp target/test-classes:<test classpath>}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CacheSerializerBenchmark {
+
+  @Param({"compact", "json"})
+  public String format;
+
+  @Param({"9", "50"})
+  public int postsPerPage;
+
+  private RedisSerializer<Object> serializer;
+  private List<Post> page;
+  private byte[] encoded;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    RedisSerializer<Object> json = RedisConfig.jsonCacheSerializer();
+    serializer = "json".equals(format) ? json : new CompactCacheSerializer(json, 1024);
+    page = samplePage(postsPerPage, new Random(42));
+    encoded = serializer.serialize(page);
+    System.out.printf("%n%s, %d posts: %d bytes%n", format, postsPerPage, encoded.length);
+  }
+
+  @Benchmark
+  public byte[] encode() {
+    return serializer.serialize(page);
+  }
+
+  @Benchmark
+  public Object decode() {
+    return serializer.deserialize(encoded);
+  }
+
+  /** Posts shaped like real ones: a few paragraphs of text and 1-4 S3 image URLs. */
+  static List<Post> samplePage(int size, Random random) {
+    List<Post> posts = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      Post post = new Post();
+      post.setId(UUID.randomUUID());
+      post.setUserId("user_" + random.nextInt(10_000));
+      post.setTitle("Deal #" + i + " - " + "bargain ".repeat(1 + random.nextInt(5)).trim());
+      post.setContent("Found this at the outlet, price was great. ".repeat(5 + random.nextInt(40)));
+      post.setLikesCount(random.nextInt(500));
+      post.setStarsCount(random.nextInt(100));
+      post.setCreatedAt(LocalDateTime.now().minusMinutes(random.nextInt(100_000)));
+
+      int images = 1 + random.nextInt(4);
+      for (int j = 0; j < images; j++) {
+        PostImage image = new PostImage();
+        image.setId(UUID.randomUUID());
+        image.setPosition(j);
+        image.setUrl("https://realdeal-uploads.s3.amazonaws.com/" + UUID.randomUUID() + ".jpg");
+        image.setPost(post);
+        post.getImages().add(image);
+      }
+      posts.add(post);
+    }
+    return posts;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(CacheSerializerBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}
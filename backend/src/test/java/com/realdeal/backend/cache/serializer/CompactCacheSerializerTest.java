@@ -0,0 +1,134 @@
+package com.realdeal.backend.cache.serializer;
+
+import com.realdeal.backend.cache.config.StampedValue;
+import com.realdeal.backend.config.RedisConfig;
+import com.realdeal.backend.post.model.Comment;
+import com.realdeal.backend.post.model.Post;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactCacheSerializerTest {
+
+    private final GenericJackson2JsonRedisSerializer json = RedisConfig.jsonCacheSerializer();
+    private final CompactCacheSerializer serializer = new CompactCacheSerializer(json, 1024);
+
+    @Test
+    void roundTripsFeedPage_withImagesAndBackReferences() {
+        List<Post> page = CacheSerializerBenchmark.samplePage(9, new Random(1));
+
+        @SuppressWarnings("unchecked")
+        List<Post> back = (List<Post>) serializer.deserialize(serializer.serialize(page));
+
+        assertEquals(page, back);
+        assertSame(back.get(0), back.get(0).getImages().get(0).getPost());
+    }
+
+    @Test
+    void feedPage_isMuchSmallerThanJson() {
+        List<Post> page = CacheSerializerBenchmark.samplePage(9, new Random(1));
+
+        int compact = serializer.serialize(page).length;
+        int legacy  = json.serialize(page).length;
+
+        assertTrue(compact * 3 < legacy, "compact=" + compact + " json=" + legacy);
+    }
+
+    @Test
+    void roundTripsCommentsWithReplies_asIdOnlyReferences() {
+        Post post = new Post();
+        post.setId(UUID.randomUUID());
+
+        Comment parent = new Comment();
+        parent.setId(UUID.randomUUID());
+        parent.setPost(post);
+        parent.setUserId("u1");
+        parent.setContent("first");
+        parent.setReplyCount(12);
+
+        Comment reply = new Comment();
+        reply.setId(UUID.randomUUID());
+        reply.setPost(post);
+        reply.setParentComment(parent);
+        reply.setUserId("u2");
+        reply.setContent("re: first");
+        reply.setLikesCount(3);
+        parent.getReplies().add(reply);
+
+        @SuppressWarnings("unchecked")
+        Comment back = ((List<Comment>) serializer.deserialize(serializer.serialize(List.of(parent)))).get(0);
+
+        assertEquals(post.getId(), back.getPost().getId());
+        assertEquals("first", back.getContent());
+        assertEquals(12, back.getReplyCount());
+        Comment backReply = back.getReplies().get(0);
+        assertEquals(parent.getId(), backReply.getParentComment().getId());
+        assertEquals(3, backReply.getLikesCount());
+        assertEquals(reply.getCreatedAt(), backReply.getCreatedAt());
+    }
+
+    @Test
+    void roundTripsScalars() {
+        assertEquals(Boolean.TRUE,  serializer.deserialize(serializer.serialize(true)));
+        assertEquals(Boolean.FALSE, serializer.deserialize(serializer.serialize(false)));
+        assertEquals(42L,  serializer.deserialize(serializer.serialize(42L)));
+        assertEquals(-7L,  serializer.deserialize(serializer.serialize(-7L)));
+        assertEquals(1,    serializer.serialize(true).length);
+    }
+
+    @Test
+    void roundTripsStampedValues() {
+        List<Post> page = CacheSerializerBenchmark.samplePage(3, new Random(2));
+        StampedValue stamped = new StampedValue(page, 1_700_000_000_000L, 37);
+
+        assertEquals(stamped, serializer.deserialize(serializer.serialize(stamped)));
+        assertEquals(new StampedValue(5L, 1L, 0),
+            serializer.deserialize(serializer.serialize(new StampedValue(5L, 1L, 0))));
+    }
+
+    @Test
+    void roundTripsIdLists_compactly() {
+        List<UUID> ids = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+
+        byte[] bytes = serializer.serialize(ids);
+
+        assertEquals(ids, serializer.deserialize(bytes));
+        assertTrue(bytes.length < json.serialize(ids).length / 2, "compact=" + bytes.length);
+    }
+
+    @Test
+    void compressesOnlyAboveThreshold() {
+        List<Post> page = CacheSerializerBenchmark.samplePage(9, new Random(1));
+        CompactCacheSerializer uncompressed = new CompactCacheSerializer(json, 0);
+
+        byte[] plain = uncompressed.serialize(page);
+        byte[] deflated = serializer.serialize(page);
+
+        assertTrue(deflated.length < plain.length);
+        assertEquals(page, uncompressed.deserialize(plain));
+        // either serializer reads either form
+        assertEquals(page, uncompressed.deserialize(deflated));
+    }
+
+    @Test
+    void fallsBackToJson_forOtherTypes() {
+        Map<String, Integer> other = new HashMap<>(Map.of("a", 1));
+
+        assertEquals(other, serializer.deserialize(serializer.serialize(other)));
+    }
+
+    @Test
+    void readsEntriesWrittenByJsonSerializer() {
+        List<Post> page = CacheSerializerBenchmark.samplePage(2, new Random(1));
+
+        assertEquals(page, serializer.deserialize(json.serialize(page)));
+        assertEquals(5L, ((Number) serializer.deserialize(json.serialize(5L))).longValue());
+    }
+}
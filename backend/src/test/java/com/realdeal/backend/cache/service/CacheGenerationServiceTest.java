@@ -0,0 +1,84 @@
+package com.realdeal.backend.cache.service;
+
+import com.realdeal.backend.cache.config.CacheProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CacheGenerationServiceTest {
+
+    @Mock private StringRedisTemplate redis;
+    @Mock private ValueOperations<String, String> values;
+
+    private CacheProperties properties;
+    private CacheGenerationService generations;
+
+    @BeforeEach
+    void init() {
+        properties = new CacheProperties();
+        when(redis.opsForValue()).thenReturn(values);
+        generations = new CacheGenerationService(redis, properties);
+    }
+
+    @Test
+    void current_readsRedisOnce_thenServesLocalCopy() {
+        when(values.get("realdeal:gen:user:u1")).thenReturn("4");
+
+        assertEquals(4L, generations.user("u1"));
+        assertEquals(4L, generations.user("u1"));
+
+        verify(values, times(1)).get("realdeal:gen:user:u1");
+    }
+
+    @Test
+    void current_startsAtZero_whenNeverBumped() {
+        assertEquals(0L, generations.feed());
+    }
+
+    @Test
+    void bump_incrementsRefreshesTtlAndBroadcasts() {
+        when(values.increment("realdeal:gen:feed")).thenReturn(8L);
+
+        generations.bumpFeed();
+
+        assertEquals(8L, generations.feed());
+        verify(values, never()).get(anyString());     // new value kept locally
+        verify(redis).expire("realdeal:gen:feed", properties.getGenerationTtl());
+        verify(redis).convertAndSend(properties.getGenerationChannel(), "feed");
+    }
+
+    @Test
+    void onMessage_dropsLocalCopy() {
+        when(values.get("realdeal:gen:liked:u1")).thenReturn("1", "2");
+
+        assertEquals(1L, generations.liked("u1"));
+        generations.onMessage(new DefaultMessage(
+            properties.getGenerationChannel().getBytes(StandardCharsets.UTF_8),
+            "liked:u1".getBytes(StandardCharsets.UTF_8)), null);
+
+        assertEquals(2L, generations.liked("u1"));
+    }
+
+    @Test
+    void scopesDoNotShareCounters() {
+        when(values.increment("realdeal:gen:starred:u1")).thenReturn(1L);
+        generations.bumpStarred("u1");
+
+        when(values.get("realdeal:gen:liked:u1")).thenReturn(null);
+        assertEquals(0L, generations.liked("u1"));
+        assertEquals(1L, generations.starred("u1"));
+        verify(redis, never()).expire(eq("realdeal:gen:liked:u1"), any(Duration.class));
+    }
+}
@@ -0,0 +1,92 @@
+package com.realdeal.backend.exp.service;
+
+import com.realdeal.backend.authentication.repository.UserProfileRepository;
+import com.realdeal.backend.exp.config.ExpLedgerProperties;
+import com.realdeal.backend.exp.repository.ExpEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ExpLedgerWorkerTest {
+
+    private final ExpEventRepository events = mock(ExpEventRepository.class);
+    private final UserProfileRepository users = mock(UserProfileRepository.class);
+    private final PlatformTransactionManager transactions = mock(PlatformTransactionManager.class);
+    private ExpLedgerWorker worker;
+
+    @BeforeEach
+    void init() {
+        when(transactions.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        ExpLedgerProperties properties = new ExpLedgerProperties();
+        properties.setApplyInterval(Duration.ofHours(1));   // applied by hand below
+        worker = new ExpLedgerWorker(events, users, transactions, properties);
+    }
+
+    private static ExpEventRepository.PendingRow event(long id, String userId, int delta) {
+        return new ExpEventRepository.PendingRow() {
+            public Long getId()       { return id; }
+            public String getUserId() { return userId; }
+            public int getDelta()     { return delta; }
+        };
+    }
+
+    private static Optional<UserProfileRepository.ExpRow> stored(int experience, int level) {
+        return Optional.of(new UserProfileRepository.ExpRow() {
+            public int getExperience() { return experience; }
+            public int getLevel()      { return level; }
+        });
+    }
+
+    @Test
+    void applyBatch_mergesDeltasPerUser_inUserOrder() {
+        when(events.claimPending(anyInt())).thenReturn(List.of(
+            event(1, "bob", 2), event(2, "alice", 15), event(3, "bob", 2), event(4, "bob", -2)));
+        when(users.addExperience(anyString(), anyInt())).thenReturn(stored(20, 1));
+
+        assertEquals(4, worker.applyBatch());
+
+        InOrder order = inOrder(users, events);
+        order.verify(users).addExperience("alice", 15);
+        order.verify(users).addExperience("bob", 2);
+        order.verify(events).markApplied(eq(List.of(1L, 2L, 3L, 4L)), any());
+        verify(users, never()).updateLevel(anyString(), anyInt());
+    }
+
+    @Test
+    void applyBatch_skipsUsersWhoseDeltasCancelOut() {
+        when(events.claimPending(anyInt())).thenReturn(List.of(event(1, "bob", 2), event(2, "bob", -2)));
+
+        worker.applyBatch();
+
+        verify(users, never()).addExperience(anyString(), anyInt());
+        verify(events).markApplied(eq(List.of(1L, 2L)), any());
+    }
+
+    @Test
+    void applyBatch_recomputesLevel_fromTheNewExperience() {
+        when(events.claimPending(anyInt())).thenReturn(List.of(event(1, "alice", 15)));
+        when(users.addExperience("alice", 15)).thenReturn(stored(55, 1));   // 50 EXP reaches Lv2
+
+        worker.applyBatch();
+
+        verify(users).updateLevel("alice", 2);
+    }
+
+    @Test
+    void drain_stopsAtAShortBatch() {
+        when(events.claimPending(anyInt())).thenReturn(List.of());
+
+        assertEquals(0, worker.drain());
+        verify(events, never()).markApplied(any(), any());
+    }
+}
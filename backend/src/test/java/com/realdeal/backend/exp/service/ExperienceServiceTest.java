@@ -1,15 +1,15 @@
 package com.realdeal.backend.exp.service;
 
-import com.realdeal.backend.authentication.model.UserProfile;
 import com.realdeal.backend.authentication.repository.UserProfileRepository;
-import com.realdeal.backend.exp.util.LevelUtil;
+import com.realdeal.backend.exp.model.ExpEvent;
+import com.realdeal.backend.exp.repository.ExpEventRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.LocalDate;
-import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -18,49 +18,49 @@ import static org.mockito.Mockito.*;
 class ExperienceServiceTest {
 
     @Mock  private UserProfileRepository repo;
+    @Mock  private ExpEventRepository events;
+    @Mock  private PlatformTransactionManager transactions;
     @InjectMocks private ExperienceService experienceService;
 
     @Test
-    void addExp_updatesExperienceAndLevel() {
-        UserProfile u = new UserProfile();
-        u.setUserId("u1");
-        u.setExperience(10);   // imagine these getters/setters exist
-        u.setLevel(1);
-
-        when(repo.findById("u1")).thenReturn(Optional.of(u));
-
-        // mock LevelUtil.levelFor(...) to return a higher level
-        try (MockedStatic<LevelUtil> mocked = Mockito.mockStatic(LevelUtil.class)) {
-            mocked.when(() -> LevelUtil.levelFor(25)).thenReturn(2);
+    void addExp_appendsLedgerEvent_withoutTouchingTheProfile() {
+        experienceService.addExp("u1", 15);
+
+        ArgumentCaptor<ExpEvent> event = ArgumentCaptor.forClass(ExpEvent.class);
+        verify(events).save(event.capture());
+        assertEquals("u1", event.getValue().getUserId());
+        assertEquals(15, event.getValue().getDelta());
+        assertNull(event.getValue().getAppliedAt());
+        verifyNoInteractions(repo);
+    }
 
-            experienceService.addExp("u1", 15);
+    @Test
+    void addExp_ignoresZeroDelta() {
+        experienceService.addExp("u1", 0);
 
-            assertEquals(25, u.getExperience());
-            assertEquals(2,  u.getLevel());
-        }
+        verifyNoInteractions(events);
     }
 
     @Test
     void grantDailyLoginExp_givesBonusOnlyOncePerDay() {
-        UserProfile u = new UserProfile();
-        u.setUserId("u2");
-        u.setExperience(0);
-        u.setLevel(1);
-        u.setLastDailyExp(LocalDate.now().minusDays(1)); // yesterday
+        when(repo.claimDailyExp("u2", LocalDate.now())).thenReturn(1);
 
-        when(repo.findById("u2")).thenReturn(Optional.of(u));
+        experienceService.grantDailyLoginExp("u2", 5);
+        // second call on the same day should do nothing, not even a query
+        experienceService.grantDailyLoginExp("u2", 5);
 
-        try (MockedStatic<LevelUtil> mocked = Mockito.mockStatic(LevelUtil.class)) {
-            mocked.when(() -> LevelUtil.levelFor(5)).thenReturn(1);
+        verify(events, times(1)).save(any(ExpEvent.class));
+        verify(repo, times(1)).claimDailyExp(anyString(), any());
+    }
 
-            experienceService.grantDailyLoginExp("u2", 5);
+    @Test
+    void grantDailyLoginExp_remembersUsersAnotherNodeAlreadyGranted() {
+        when(repo.claimDailyExp("u3", LocalDate.now())).thenReturn(0);
 
-            assertEquals(5, u.getExperience());
-            assertEquals(LocalDate.now(), u.getLastDailyExp());
-        }
+        experienceService.grantDailyLoginExp("u3", 5);
+        experienceService.grantDailyLoginExp("u3", 5);
 
-        // second call on the same day should do nothing
-        experienceService.grantDailyLoginExp("u2", 5);
-        assertEquals(5, u.getExperience()); // unchanged
+        verify(repo, times(1)).claimDailyExp(anyString(), any());
+        verifyNoInteractions(events);
     }
 }
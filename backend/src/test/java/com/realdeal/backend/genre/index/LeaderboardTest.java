@@ -0,0 +1,70 @@
+package com.realdeal.backend.genre.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeaderboardTest {
+
+    private final UUID a = new UUID(0, 1), b = new UUID(0, 2), c = new UUID(0, 3), d = new UUID(0, 4);
+
+    @Test
+    void page_isBestFirst_andFollowsUpdates() {
+        Leaderboard board = new Leaderboard(10);
+        board.offer(a, 1, 0);
+        board.offer(b, 3, 0);
+        board.offer(c, 2, 0);
+        assertEquals(List.of(b, c, a), board.page(0, 10));
+        assertEquals(List.of(c), board.page(1, 1));
+        assertTrue(board.page(5, 2).isEmpty());
+
+        board.offer(a, 4, 0);
+        assertEquals(List.of(a, b, c), board.page(0, 10));
+        assertEquals(3, board.size());
+    }
+
+    @Test
+    void ties_areBrokenByTiebreakThenId() {
+        Leaderboard board = new Leaderboard(10);
+        board.offer(a, 5, 1);
+        board.offer(b, 5, 2);
+        board.offer(c, 5, 2);
+        assertEquals(List.of(c, b, a), board.page(0, 10));
+    }
+
+    @Test
+    void fullBoard_keepsOnlyTheBest() {
+        Leaderboard board = new Leaderboard(2);
+        assertTrue(board.offer(a, 1, 0));
+        assertTrue(board.offer(b, 2, 0));
+
+        assertFalse(board.offer(c, 0, 0));   // worse than everything kept
+        assertFalse(board.contains(c));
+
+        assertTrue(board.offer(d, 3, 0));    // pushes the last one out
+        assertEquals(List.of(d, b), board.page(0, 10));
+        assertFalse(board.contains(a));
+    }
+
+    @Test
+    void fallingPost_keepsItsPlaceOnAFullBoard() {
+        Leaderboard board = new Leaderboard(2);
+        board.offer(a, 2, 0);
+        board.offer(b, 3, 0);
+
+        assertTrue(board.offer(b, 1, 0));    // stays, now last
+        assertEquals(List.of(a, b), board.page(0, 10));
+
+        board.remove(a);
+        assertEquals(List.of(b), board.page(0, 10));
+        assertEquals(1, board.size());
+    }
+
+    @Test
+    void capacity_mustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new Leaderboard(0));
+    }
+}
@@ -0,0 +1,54 @@
+package com.realdeal.backend.genre.service;
+
+import com.realdeal.backend.genre.model.Genre;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GenreCatalogTest {
+
+    private static Genre genre(int id, String name) {
+        Genre g = new Genre(); g.setId(id); g.setName(name);
+        return g;
+    }
+
+    private final GenreCatalog catalog = GenreCatalog.of(List.of(
+        genre(7, "Horror"), genre(2, "Comedy"), genre(1, "Action")));
+
+    @Test
+    void resolvesByIdAndName_inIdOrder() {
+        assertEquals(List.of(1, 2, 7), catalog.all().stream().map(Genre::getId).toList());
+        assertEquals("Horror", catalog.byId(7).getName());
+        assertNull(catalog.byId(3));
+        assertNull(catalog.byId(100));
+        assertNull(catalog.byId(null));
+        assertEquals(2, catalog.byName("Comedy").getId());
+    }
+
+    @Test
+    void masks_roundTripAndOverlap() {
+        int user = catalog.maskOf(List.of(1, 7));
+        int post = catalog.maskOf(List.of(7, 2, 42));   // 42 is unknown and ignored
+
+        assertEquals(List.of("Action", "Horror"), catalog.genresOf(user).stream().map(Genre::getName).toList());
+        assertEquals(1, GenreCatalog.overlap(user, post));
+        assertEquals(0, catalog.bit(42));
+        assertTrue(catalog.genresOf(0).isEmpty());
+    }
+
+    @Test
+    void genresBeyondTheMaskWidth_resolveButHaveNoBit() {
+        List<Genre> many = new ArrayList<>();
+        for (int id = 1; id <= GenreCatalog.MAX_MASK_GENRES + 1; id++) {
+            many.add(genre(id, "g" + id));
+        }
+        GenreCatalog wide = GenreCatalog.of(many);
+
+        assertNotEquals(0, wide.bit(GenreCatalog.MAX_MASK_GENRES));
+        assertEquals(0, wide.bit(GenreCatalog.MAX_MASK_GENRES + 1));
+        assertNotNull(wide.byId(GenreCatalog.MAX_MASK_GENRES + 1));
+    }
+}
@@ -0,0 +1,163 @@
+package com.realdeal.backend.genre.service;
+
+import com.realdeal.backend.genre.config.GenreLeaderboardProperties;
+import com.realdeal.backend.genre.repository.GenreRepository;
+import com.realdeal.backend.genre.repository.PostGenreRepository;
+import com.realdeal.backend.genre.service.GenreLeaderboardService.Sort;
+import com.realdeal.backend.post.repository.PostRepository;
+import com.realdeal.backend.post.service.PostLookupService;
+import com.realdeal.backend.post.service.ReactionCounterBuffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class GenreLeaderboardServiceTest {
+
+    private final GenreRepository genreRepo = mock(GenreRepository.class);
+    private final PostGenreRepository postGenreRepo = mock(PostGenreRepository.class);
+    private final PostRepository postRepo = mock(PostRepository.class);
+    private final PostLookupService lookup = mock(PostLookupService.class);
+    private final ReactionCounterBuffer counters = mock(ReactionCounterBuffer.class);
+    private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    private final GenreLeaderboardProperties properties = new GenreLeaderboardProperties();
+    private GenreLeaderboardService service;
+
+    private final UUID a = new UUID(0, 1), b = new UUID(0, 2), c = new UUID(0, 3);
+    private final LocalDateTime now = LocalDateTime.now();
+
+    @BeforeEach
+    void init() throws InterruptedException {
+        properties.setFlushInterval(Duration.ofHours(1));     // flushed by hand below
+        properties.setRefreshInterval(Duration.ofHours(1));
+        service = new GenreLeaderboardService(genreRepo, postGenreRepo, postRepo, lookup, counters, redis, properties);
+
+        // The first rebuild runs on the worker right away (no genres here); let it finish
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!(Boolean) ReflectionTestUtils.getField(service, "ready")) {
+            assertTrue(System.currentTimeMillis() < deadline, "first rebuild did not finish");
+            Thread.sleep(5);
+        }
+    }
+
+    @AfterEach
+    void shutdown() {
+        service.shutdown();
+    }
+
+    private static PostRepository.EngagementRow row(UUID id, LocalDateTime createdAt, int likes, int stars) {
+        return new PostRepository.EngagementRow() {
+            public UUID getId()                { return id; }
+            public LocalDateTime getCreatedAt() { return createdAt; }
+            public int getLikesCount()         { return likes; }
+            public int getStarsCount()         { return stars; }
+        };
+    }
+
+    private static PostGenreRepository.Assignment assignment(UUID postId, int genreId) {
+        return new PostGenreRepository.Assignment() {
+            public UUID getPostId()     { return postId; }
+            public Integer getGenreId() { return genreId; }
+        };
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage("channel".getBytes(StandardCharsets.UTF_8), body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void flush_ranksChangedPostsOnTheBoardsOfTheirGenres() {
+        // a is newer; b has fewer stored likes but more engagement once its unwritten likes count
+        when(postRepo.findEngagementRowsByIdIn(any())).thenReturn(List.of(
+            row(a, now.minusHours(1), 5, 0), row(b, now.minusHours(2), 1, 1), row(c, now, 0, 0)));
+        when(postGenreRepo.findAssignmentsByPostIdIn(any())).thenReturn(List.of(
+            assignment(a, 1), assignment(b, 1), assignment(c, 2)));
+        when(counters.pendingLikes(b)).thenReturn(3);
+
+        service.postChanged(a);
+        service.postChanged(b);
+        service.postChanged(c);
+        assertEquals(3, service.flush());
+
+        service.getPosts(1, Sort.RECENT, 0, 9);
+        verify(lookup).resolve(List.of(a, b));
+        service.getPosts(1, Sort.TOP, 0, 9);
+        verify(lookup).resolve(List.of(b, a));
+        service.getPosts(2, Sort.TOP, 0, 9);
+        verify(lookup).resolve(List.of(c));
+        verify(postRepo, never()).findTopEngagedInGenre(anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void flush_takesPostsOff_whenTheyLoseTheirGenreOrAreDeleted() {
+        when(postRepo.findEngagementRowsByIdIn(any()))
+            .thenReturn(List.of(row(a, now, 0, 0), row(b, now, 0, 0)))
+            .thenReturn(List.of(row(a, now, 0, 0)));                    // b was deleted
+        when(postGenreRepo.findAssignmentsByPostIdIn(any()))
+            .thenReturn(List.of(assignment(a, 1), assignment(b, 1)))
+            .thenReturn(List.of());                                      // a lost its genre
+
+        service.postChanged(a);
+        service.postChanged(b);
+        service.flush();
+        service.postChanged(a);
+        service.postChanged(b);
+        service.flush();
+
+        assertEquals(0, service.getPosts(1, Sort.RECENT, 0, 9).getTotalElements());
+        verify(lookup).resolve(List.of());
+    }
+
+    @Test
+    void flush_broadcastsLocalChanges_andOnMessageQueuesOnlyOtherNodes() {
+        when(postRepo.findEngagementRowsByIdIn(any())).thenReturn(List.of());
+        service.postChanged(a);
+        assertEquals(1, service.flush());
+
+        ArgumentCaptor<String> sent = ArgumentCaptor.forClass(String.class);
+        verify(redis).convertAndSend(eq(properties.getChannel()), sent.capture());
+        assertTrue(sent.getValue().endsWith("|" + a));
+
+        service.onMessage(message(sent.getValue()), null);        // our own echo
+        assertEquals(0, service.flush());
+
+        service.onMessage(message("other-node|" + b + ",not-a-uuid," + c), null);
+        assertEquals(2, service.flush());
+        verify(postRepo).findEngagementRowsByIdIn(argThat(ids -> ids.containsAll(List.of(b, c)) && ids.size() == 2));
+        verify(redis, times(1)).convertAndSend(anyString(), anyString());   // remote changes are not re-broadcast
+    }
+
+    @Test
+    void flush_keepsPostsQueued_whenTheBatchFails() {
+        when(postRepo.findEngagementRowsByIdIn(any()))
+            .thenThrow(new RuntimeException("db down"))
+            .thenReturn(List.of());
+        service.postChanged(a);
+
+        assertThrows(RuntimeException.class, () -> service.flush());
+        assertEquals(1, service.flush());
+    }
+
+    @Test
+    void getPosts_rejectsOutOfRangePageOrSize() {
+        assertThrows(ResponseStatusException.class, () -> service.getPosts(1, Sort.TOP, -1, 9));
+        assertThrows(ResponseStatusException.class, () -> service.getPosts(1, Sort.TOP, 0, 0));
+        assertThrows(ResponseStatusException.class, () -> service.getPosts(1, Sort.TOP, 0, 51));
+        verifyNoInteractions(lookup);
+        verify(postRepo, never()).findTopEngagedInGenre(anyInt(), anyInt(), any());
+    }
+}
@@ -1,31 +1,126 @@
 package com.realdeal.backend.genre.service;
 
+import com.realdeal.backend.cache.service.CacheGenerationService;
+import com.realdeal.backend.genre.config.GenreCatalogProperties;
 import com.realdeal.backend.genre.model.Genre;
 import com.realdeal.backend.genre.repository.GenreRepository;
+import com.realdeal.backend.genre.repository.PostGenreRepository;
+import com.realdeal.backend.genre.repository.UserGenreRepository;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 class GenreServiceTest {
 
     @Mock private GenreRepository repo;
+    @Mock private UserGenreRepository userGenres;
+    @Mock private PostGenreRepository postGenres;
+    @Mock private GenreLeaderboardService leaderboards;
+    @Mock private CacheGenerationService generations;
+    @Spy  private GenreCatalogProperties properties = new GenreCatalogProperties();
     @InjectMocks private GenreService service;
 
     @BeforeEach void init(){ MockitoAnnotations.openMocks(this); }
 
+    @AfterEach void shutdown(){ service.shutdown(); }
+
+    private static Genre genre(int id, String name) {
+        Genre g = new Genre(); g.setId(id); g.setName(name);
+        return g;
+    }
+
     @Test
     void getAllGenres_returnsList() {
-        when(repo.findAll()).thenReturn(List.of(new Genre()));
+        when(repo.findAll()).thenReturn(List.of(genre(1, "Action")));
         assertEquals(1, service.getAllGenres().size());
     }
 
     @Test
     void getGenreById_throwsWhenMissing() {
-        when(repo.findById(1)).thenReturn(java.util.Optional.empty());
+        when(repo.findAll()).thenReturn(List.of(genre(2, "Drama")));
         assertThrows(RuntimeException.class, () -> service.getGenreById(1));
     }
+
+    @Test
+    void genres_areLoadedOnce_andResolvedFromTheCatalog() {
+        when(repo.findAll()).thenReturn(List.of(genre(1, "Action"), genre(2, "Comedy")));
+        when(userGenres.findGenreIdsByUserId("u")).thenReturn(List.of(2));
+
+        assertEquals("Comedy", service.getGenreById(2).getName());
+        assertEquals("Action", service.getGenreByName("Action").getName());
+        assertEquals(List.of("Comedy"), service.getUserGenres("u").stream().map(Genre::getName).toList());
+
+        verify(repo, times(1)).findAll();
+        verify(repo, never()).findById(any());
+    }
+
+    @Test
+    void loadOnStartup_loadsTheCatalog_andKeepsRefreshingIt() {
+        properties.setRefreshInterval(Duration.ofMillis(20));
+        when(repo.findAll())
+            .thenReturn(List.of(genre(1, "Action")))
+            .thenReturn(List.of(genre(1, "Action"), genre(2, "Comedy")));
+
+        service.loadOnStartup();
+
+        // the first run loads the catalog and the second picks up the new genre;
+        // a third read means the second one has been swapped in
+        verify(repo, timeout(5_000).atLeast(3)).findAll();
+        assertEquals("Comedy", service.getGenreById(2).getName());
+    }
+
+    @Test
+    void loadOnStartup_keepsThePreviousCatalog_whenARefreshFails() {
+        properties.setRefreshInterval(Duration.ofMillis(20));
+        when(repo.findAll())
+            .thenReturn(List.of(genre(1, "Action")))
+            .thenThrow(new RuntimeException("db down"));
+        assertEquals("Action", service.getGenreById(1).getName());
+
+        service.loadOnStartup();
+
+        verify(repo, timeout(5_000).atLeast(3)).findAll();
+        assertEquals("Action", service.getGenreById(1).getName());
+    }
+
+    @Test
+    void getPostGenresByPostIds_usesOneAssignmentQuery() {
+        UUID post = UUID.randomUUID();
+        when(repo.findAll()).thenReturn(List.of(genre(1, "Action"), genre(2, "Comedy")));
+        when(postGenres.findAssignmentsByPostIdIn(List.of(post))).thenReturn(List.of(
+            assignment(post, 1), assignment(post, 2), assignment(post, 99)));   // 99: unknown genre
+
+        Map<UUID, List<Genre>> genres = service.getPostGenresByPostIds(List.of(post));
+
+        assertEquals(2, genres.get(post).size());
+        assertEquals(0b11, service.getPostGenreMasks(List.of(post)).get(post));
+    }
+
+    @Test
+    void assignGenresToPost_replacesAssignments_andReranksThePost() {
+        UUID post = UUID.randomUUID();
+
+        service.assignGenresToPost(post, List.of(1, 2));
+
+        verify(postGenres).deleteByIdPostId(post);
+        verify(postGenres, times(2)).save(any());
+        verify(leaderboards).postChanged(post);
+        verify(generations).bumpFeed();
+        assertThrows(RuntimeException.class, () -> service.assignGenresToPost(post, List.of()));
+    }
+
+    private static PostGenreRepository.Assignment assignment(UUID postId, int genreId) {
+        return new PostGenreRepository.Assignment() {
+            public UUID getPostId()     { return postId; }
+            public Integer getGenreId() { return genreId; }
+        };
+    }
 }
@@ -2,9 +2,11 @@ package com.realdeal.backend.post.controller;
 
 import com.realdeal.backend.authentication.service.UserProfileService;
 import com.realdeal.backend.exp.config.DailyExpFilter;
+import com.realdeal.backend.post.dto.CommentDTO;
+import com.realdeal.backend.post.dto.CursorPage;
+import com.realdeal.backend.post.dto.ReactionResult;
 import com.realdeal.backend.post.model.Comment;
 import com.realdeal.backend.post.model.Post;
-import com.realdeal.backend.post.repository.CommentRepository;
 import com.realdeal.backend.post.service.CommentService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,7 +18,6 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.*;
@@ -40,7 +41,6 @@ class CommentControllerTest {
 
     @MockitoBean private CommentService     commentService;
     @MockitoBean private UserProfileService userProfileService;
-    @MockitoBean private CommentRepository  commentRepository;
 
     /* -------- helpers -------- */
     private Comment mockComment(UUID postId) {
@@ -79,18 +79,45 @@ class CommentControllerTest {
     @Test
     void getPostComments_returnsPagedDtos() throws Exception {
         UUID postId = UUID.randomUUID();
-        Comment c   = mockComment(postId);
+        CommentDTO dto = CommentDTO.of(mockComment(postId), "mockUser", true);
 
-        when(commentService.getTopLevelComments(postId, 0, 10))
-            .thenReturn(new PageImpl<>(List.of(c)));
-        when(userProfileService.getUsernamesByUserIds(any()))
-            .thenReturn(Map.of("u1", "mockUser"));
-        when(commentService.hasLikedComment(any(), any()))
-            .thenReturn(false);               // like status isn’t relevant here
+        when(commentService.getCommentThreads(postId, 0, 10, "viewer"))
+            .thenReturn(new PageImpl<>(List.of(dto)));
 
-        mvc.perform(get("/api/comments/post/{postId}?page=0&size=10", postId))
+        mvc.perform(get("/api/comments/post/{postId}?page=0&size=10&userId=viewer", postId))
             .andExpect(status().isOk())
             .andExpect(jsonPath("$.content[0].content").value("Nice post!"))
-            .andExpect(jsonPath("$.content[0].username").value("mockUser"));
+            .andExpect(jsonPath("$.content[0].username").value("mockUser"))
+            .andExpect(jsonPath("$.content[0].liked").value(true));
+    }
+
+    /** A cursor page of one comment's replies. */
+    @Test
+    void getReplies_returnsCursorPage() throws Exception {
+        UUID commentId = UUID.randomUUID();
+        CommentDTO reply = CommentDTO.of(mockComment(UUID.randomUUID()), "mockUser", false);
+        reply.setReplyCount(2);
+
+        when(commentService.getReplies(commentId, "abc", 5, null))
+            .thenReturn(new CursorPage<>(List.of(reply), "next"));
+
+        mvc.perform(get("/api/comments/{commentId}/replies?cursor=abc&size=5", commentId))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.content[0].replyCount").value(2))
+            .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
+    /** Setting a like twice answers with the same state and count. */
+    @Test
+    void setCommentLike_returnsStateAndCount() throws Exception {
+        UUID commentId = UUID.randomUUID();
+
+        when(commentService.setCommentLike(commentId, "u1", true))
+            .thenReturn(new ReactionResult(true, false, 4));
+
+        mvc.perform(put("/api/comments/{commentId}/like", commentId).param("userId", "u1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.liked").value(true))
+            .andExpect(jsonPath("$.likes").value(4));
     }
 }
@@ -1,16 +1,21 @@
 package com.realdeal.backend.post.controller;
 
-import com.realdeal.backend.authentication.service.UserProfileService;
 import com.realdeal.backend.exp.config.DailyExpFilter;
-import com.realdeal.backend.exp.service.ExperienceService;
 import com.realdeal.backend.genre.model.Genre;
+import com.realdeal.backend.genre.service.GenreCatalog;
+import com.realdeal.backend.genre.service.GenreLeaderboardService;
 import com.realdeal.backend.genre.service.GenreService;
+import com.realdeal.backend.post.dto.CursorPage;
+import com.realdeal.backend.post.dto.PostWithUserDTO;
+import com.realdeal.backend.post.dto.ReactionResult;
 import com.realdeal.backend.post.model.Post;
 import com.realdeal.backend.post.model.PostImage;
 import com.realdeal.backend.post.repository.PostRepository;
+import com.realdeal.backend.post.service.PostHydrationService;
 import com.realdeal.backend.post.service.PostService;
 import com.realdeal.backend.post.service.ReactionService;
 import com.realdeal.backend.recommendation.service.RecommendationService;
+import com.realdeal.backend.recommendation.service.RelatedPostService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -24,8 +29,6 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Map;
-import java.util.Optional;
 import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.*;
@@ -50,12 +53,13 @@ class PostControllerTest {
 
     /* mocked collaborators */
     @MockitoBean private PostService postService;
-    @MockitoBean private UserProfileService userProfileService;
+    @MockitoBean private PostHydrationService postHydrationService;
     @MockitoBean private ReactionService reactionService;
     @MockitoBean private PostRepository postRepository;
     @MockitoBean private GenreService genreService;
     @MockitoBean private RecommendationService recommendationService;
-    @MockitoBean private ExperienceService experienceService;
+    @MockitoBean private RelatedPostService relatedPostService;
+    @MockitoBean private GenreLeaderboardService genreLeaderboardService;
 
     /* ---------- helpers ---------- */
 
@@ -87,10 +91,8 @@ class PostControllerTest {
 
         when(postService.getPaginatedPosts(0, 9))
             .thenReturn(new PageImpl<>(List.of(p)));
-        when(userProfileService.getUsernamesByUserIds(any()))
-            .thenReturn(Map.of("u123", "name"));
-        when(userProfileService.getUsernameByUserId("u123"))
-            .thenReturn("name");
+        when(postHydrationService.hydrate(anyList(), isNull()))
+            .thenReturn(List.of(PostWithUserDTO.fromPost(p, "name", 1)));
 
         mvc.perform(get("/api/posts/all?page=0&size=9"))
             .andExpect(status().isOk())
@@ -98,6 +100,104 @@ class PostControllerTest {
             .andExpect(jsonPath("$.content[0].username").value("name"));
     }
 
+    @Test
+    void getPosts_withCursor_returnsCursorPage() throws Exception {
+        Post p = mockPost();
+
+        when(postService.getPostsAfter("", 9))
+            .thenReturn(new CursorPage<>(List.of(p), "next-token"));
+        when(postHydrationService.hydrate(anyList(), isNull()))
+            .thenReturn(List.of(PostWithUserDTO.fromPost(p, "name", 1)));
+
+        mvc.perform(get("/api/posts/all?size=9&cursor="))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.content[0].title").value("Mock Title"))
+            .andExpect(jsonPath("$.nextCursor").value("next-token"))
+            .andExpect(jsonPath("$.totalElements").doesNotExist());
+    }
+
+    @Test
+    void getPosts_sortHot_returnsHotPage() throws Exception {
+        Post p = mockPost();
+        when(postService.getHotPosts(0, 9)).thenReturn(new PageImpl<>(List.of(p)));
+        when(postHydrationService.hydrate(anyList(), isNull()))
+            .thenReturn(List.of(PostWithUserDTO.fromPost(p, "name", 1)));
+
+        mvc.perform(get("/api/posts/all?sort=hot"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.content[0].title").value("Mock Title"));
+
+        mvc.perform(get("/api/posts/all?sort=sideways"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getPosts_withGenreIds_returnsGenreCursorPage() throws Exception {
+        Post p = mockPost();
+        when(postService.getPostsInGenresAfter(List.of(2, 5), null, 9))
+            .thenReturn(new CursorPage<>(List.of(p), "genre-token"));
+        when(postHydrationService.hydrate(anyList(), isNull()))
+            .thenReturn(List.of(PostWithUserDTO.fromPost(p, "name", 1)));
+
+        mvc.perform(get("/api/posts/all?genreIds=2,5"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.content[0].title").value("Mock Title"))
+            .andExpect(jsonPath("$.nextCursor").value("genre-token"));
+
+        mvc.perform(get("/api/posts/all?genreIds=2&sort=hot"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getRecommendedPosts_returnsCursorPage() throws Exception {
+        Post p = mockPost();
+        when(recommendationService.getRecommendedPosts("u1", null, 9, 12))
+            .thenReturn(new CursorPage<>(List.of(p), "snapshot-token"));
+        when(postHydrationService.hydrate(anyList(), eq("u1")))
+            .thenReturn(List.of(PostWithUserDTO.fromPost(p, "name", 1)));
+
+        mvc.perform(get("/api/posts/recommended?userId=u1&postsViewed=12"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.content[0].title").value("Mock Title"))
+            .andExpect(jsonPath("$.nextCursor").value("snapshot-token"));
+    }
+
+    @Test
+    void related_returnsHydratedNeighbours() throws Exception {
+        Post p = mockPost();
+        UUID postId = UUID.randomUUID();
+        when(relatedPostService.relatedPosts(postId, 5)).thenReturn(List.of(p));
+        when(postHydrationService.hydrate(anyList(), eq("u1")))
+            .thenReturn(List.of(PostWithUserDTO.fromPost(p, "name", 1)));
+
+        mvc.perform(get("/api/posts/" + postId + "/related?limit=5&userId=u1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].title").value("Mock Title"));
+
+        mvc.perform(get("/api/posts/" + postId + "/related?limit=500"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getPostsByGenre_servesTheGenreLeaderboard() throws Exception {
+        Post p = mockPost();
+        Genre action = new Genre(); action.setId(1); action.setName("Action");
+        when(genreService.getCatalog()).thenReturn(GenreCatalog.of(List.of(action)));
+        when(genreLeaderboardService.getPosts(1, GenreLeaderboardService.Sort.TOP, 0, 9))
+            .thenReturn(new PageImpl<>(List.of(p)));
+        when(postHydrationService.hydrate(anyList(), eq("u1")))
+            .thenReturn(List.of(PostWithUserDTO.fromPost(p, "name", 1)));
+
+        mvc.perform(get("/api/posts/genre/1?sort=top&userId=u1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.content[0].title").value("Mock Title"));
+
+        mvc.perform(get("/api/posts/genre/7"))
+            .andExpect(status().isNotFound());
+        mvc.perform(get("/api/posts/genre/1?sort=hot"))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     void createPost_returnsCreatedDto() throws Exception {
         MockMultipartFile file = new MockMultipartFile(
@@ -107,8 +207,8 @@ class PostControllerTest {
 
         when(postService.createPost(eq("u123"), eq("Mock Title"), eq("Mock content"), anyList()))
             .thenReturn(saved);
-        when(userProfileService.getUsernameByUserId("u123"))
-            .thenReturn("mockUser");
+        when(postHydrationService.hydrate(eq(saved), isNull()))
+            .thenReturn(PostWithUserDTO.fromPost(saved, "mockUser", 1));
 
         mvc.perform(multipart("/api/posts/create")
                 .file(file)
@@ -125,29 +225,35 @@ class PostControllerTest {
 
     @Test
     void likePost_togglesLike_andReturnsCount() throws Exception {
-        Post p = mockPost();
-        p.setLikesCount(2);
-        UUID postId = p.getId();
-
-        when(reactionService.toggleLike(postId, "viewer")).thenReturn(true);
-        when(postRepository.findById(postId)).thenReturn(Optional.of(p));
+        UUID postId = UUID.randomUUID();
+        when(reactionService.toggleLike(postId, "viewer"))
+            .thenReturn(new ReactionResult(true, true, 3));   // stored + not yet flushed
 
         mvc.perform(post("/api/posts/{postId}/like", postId).param("userId", "viewer"))
             .andExpect(status().isOk())
             .andExpect(jsonPath("$.liked").value(true))
-            .andExpect(jsonPath("$.likes").value(2));
+            .andExpect(jsonPath("$.likes").value(3));
     }
 
     @Test
-    void starPost_togglesStar_andReturnsCount() throws Exception {
-        Post p = mockPost();
-        p.setStarsCount(3);
-        UUID postId = p.getId();
+    void unlikePost_isIdempotent() throws Exception {
+        UUID postId = UUID.randomUUID();
+        when(reactionService.setLike(postId, "viewer", false))
+            .thenReturn(new ReactionResult(false, false, 2));
 
-        when(reactionService.toggleStar(postId, "viewer")).thenReturn(true);
-        when(postRepository.findById(postId)).thenReturn(Optional.of(p));
+        mvc.perform(delete("/api/posts/{postId}/like", postId).param("userId", "viewer"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.liked").value(false))
+            .andExpect(jsonPath("$.likes").value(2));
+    }
+
+    @Test
+    void starPost_setsStar_andReturnsCount() throws Exception {
+        UUID postId = UUID.randomUUID();
+        when(reactionService.setStar(postId, "viewer", true))
+            .thenReturn(new ReactionResult(true, true, 3));
 
-        mvc.perform(post("/api/posts/{postId}/star", postId).param("userId", "viewer"))
+        mvc.perform(put("/api/posts/{postId}/star", postId).param("userId", "viewer"))
             .andExpect(status().isOk())
             .andExpect(jsonPath("$.starred").value(true))
             .andExpect(jsonPath("$.stars").value(3));
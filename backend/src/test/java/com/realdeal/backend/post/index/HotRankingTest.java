@@ -0,0 +1,75 @@
+package com.realdeal.backend.post.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotRankingTest {
+
+    private static final Duration HALF_LIFE = Duration.ofHours(6);
+
+    private final UUID a = new UUID(0, 1), b = new UUID(0, 2), c = new UUID(0, 3);
+
+    private final HotRanking ranking = new HotRanking();
+
+    @Test
+    void top_isHottestFirst_andFollowsUpdates() {
+        ranking.put(a, 1.0);
+        ranking.put(b, 3.0);
+        ranking.put(c, 2.0);
+        assertEquals(List.of(b, c, a), ranking.top(0, 10));
+        assertEquals(List.of(c), ranking.top(1, 1));
+        assertTrue(ranking.top(5, 2).isEmpty());
+
+        ranking.put(a, 4.0);
+        assertEquals(List.of(a, b, c), ranking.top(0, 10));
+        assertEquals(3, ranking.size());
+
+        ranking.put(b, Double.NEGATIVE_INFINITY);
+        assertEquals(List.of(a, c), ranking.top(0, 10));
+        assertNull(ranking.score(b));
+    }
+
+    @Test
+    void trimTo_dropsTheColdest() {
+        ranking.put(a, 1.0);
+        ranking.put(b, 3.0);
+        ranking.put(c, 2.0);
+        ranking.trimTo(2);
+        assertEquals(List.of(b, c), ranking.top(0, 10));
+    }
+
+    @Test
+    void replaceAll_swapsEveryScore() {
+        ranking.put(a, 1.0);
+        ranking.replaceAll(Map.of(b, 1.0, c, 2.0));
+        assertEquals(List.of(c, b), ranking.top(0, 10));
+    }
+
+    @Test
+    void logSpaceArithmetic_matchesLinearSums() {
+        assertEquals(Math.log(2 + 4) / Math.log(2), HotScore.add(1, 2), 1e-12);
+        assertEquals(Math.log(4 - 2) / Math.log(2), HotScore.subtract(2, 1), 1e-12);
+        assertEquals(Double.NEGATIVE_INFINITY, HotScore.subtract(1, 1));
+    }
+
+    @Test
+    void reactionOneHalfLifeLater_countsDouble() {
+        long t = HotScore.EPOCH_MILLIS + Duration.ofDays(400).toMillis();
+        double early = HotScore.contribution(1, t, HALF_LIFE);
+        double late = HotScore.contribution(1, t + HALF_LIFE.toMillis(), HALF_LIFE);
+        assertEquals(1.0, late - early, 1e-9);
+
+        // two half-lives on, one fresh like outweighs two old ones
+        double twoOld = HotScore.add(early, early);
+        double oneNewer = HotScore.contribution(1, t + 2 * HALF_LIFE.toMillis(), HALF_LIFE);
+        assertTrue(oneNewer > twoOld);
+        // a star (weight 2) is worth one half-life of age
+        assertEquals(late, HotScore.contribution(2, t, HALF_LIFE), 1e-9);
+    }
+}
@@ -0,0 +1,75 @@
+package com.realdeal.backend.post.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntBitmapTest {
+
+    private final IntBitmap bitmap = new IntBitmap();
+
+    @Test
+    void addAndRemove_reportChanges() {
+        assertTrue(bitmap.add(7));
+        assertFalse(bitmap.add(7));
+        assertTrue(bitmap.add(70_000));          // second chunk
+        assertTrue(bitmap.contains(7));
+        assertTrue(bitmap.contains(70_000));
+        assertFalse(bitmap.contains(8));
+        assertEquals(2, bitmap.size());
+
+        assertTrue(bitmap.remove(7));
+        assertFalse(bitmap.remove(7));
+        assertFalse(bitmap.contains(7));
+        assertEquals(1, bitmap.size());
+    }
+
+    @Test
+    void denseChunk_switchesToBitsetAndBack() {
+        int n = IntBitmap.ARRAY_MAX + 1;
+        for (int i = 0; i < n; i++) {
+            bitmap.add(i * 3);
+        }
+        assertEquals(n, bitmap.size());
+        assertTrue(bitmap.contains((n - 1) * 3));
+        assertFalse(bitmap.contains(1));
+
+        bitmap.remove(0);                         // back to an array chunk
+        assertEquals(n - 1, bitmap.size());
+        assertFalse(bitmap.contains(0));
+        for (int i = 1; i < n; i++) {
+            assertTrue(bitmap.contains(i * 3));
+        }
+    }
+
+    @Test
+    void randomOperations_matchHashSet() {
+        Random random = new Random(7);
+        Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < 200_000; i++) {
+            // clustered values so some chunks go dense and others stay sparse
+            int value = random.nextBoolean() ? random.nextInt(20_000) : random.nextInt(1 << 22);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), bitmap.remove(value));
+            } else {
+                assertEquals(expected.add(value), bitmap.add(value));
+            }
+        }
+        assertEquals(expected.size(), bitmap.size());
+        for (int value = 0; value < 40_000; value++) {
+            assertEquals(expected.contains(value), bitmap.contains(value));
+        }
+        for (int value : expected) {
+            assertTrue(bitmap.contains(value));
+        }
+    }
+
+    @Test
+    void negativeValues_areRejected() {
+        assertThrows(IllegalArgumentException.class, () -> bitmap.add(-1));
+    }
+}
@@ -1,16 +1,33 @@
 package com.realdeal.backend.post.service;
 
+import com.realdeal.backend.authentication.service.UserProfileService;
+import com.realdeal.backend.cache.service.CacheGenerationService;
+import com.realdeal.backend.common.repository.AppliedMigrationRepository;
+import com.realdeal.backend.post.dto.CommentDTO;
+import com.realdeal.backend.post.dto.CursorPage;
+import com.realdeal.backend.post.dto.ReactionResult;
 import com.realdeal.backend.post.model.Comment;
-import com.realdeal.backend.post.model.CommentLike;
-import com.realdeal.backend.post.model.pk.CommentLikePK;
+import com.realdeal.backend.post.model.Post;
 import com.realdeal.backend.post.repository.CommentLikeRepository;
+import com.realdeal.backend.post.repository.CommentLikeRepository.CommentLikeWrite;
 import com.realdeal.backend.post.repository.CommentRepository;
+import com.realdeal.backend.post.repository.PostRepository;
+import com.realdeal.backend.post.util.FeedCursor;
 import com.realdeal.backend.post.service.CommentService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -20,31 +37,186 @@ class CommentServiceTest {
 
     @Mock private CommentRepository      commentRepo;
     @Mock private CommentLikeRepository  likeRepo;
+    @Mock private PostRepository         postRepo;
+    @Mock private CacheGenerationService generations;
+    @Mock private UserProfileService     userProfiles;
+    @Mock private AppliedMigrationRepository migrations;
     @InjectMocks private CommentService  commentService;
 
     private UUID commentId;
+    private UUID postId;
     private String userId;
 
     @BeforeEach
     void init() { MockitoAnnotations.openMocks(this);
-        commentId = UUID.randomUUID(); userId = "u1";
+        commentId = UUID.randomUUID(); postId = UUID.randomUUID(); userId = "u1";
+        ReflectionTestUtils.setField(commentService, "self", commentService);
+        ReflectionTestUtils.setField(commentService, "cacheManager", new ConcurrentMapCacheManager("commentLikes"));
+    }
+
+    private Comment comment(UUID id, Comment parent, String author) {
+        Comment c = new Comment();
+        c.setId(id);
+        c.setUserId(author);
+        c.setContent("text");
+        Post p = new Post(); p.setId(postId);
+        c.setPost(p);
+        c.setParentComment(parent);
+        return c;
+    }
+
+    private Optional<CommentLikeWrite> write(boolean changed, int count) {
+        return Optional.of(new CommentLikeWrite() {
+            public boolean isChanged() { return changed; }
+            public String getOwnerId() { return "author"; }
+            public int getCount()      { return count; }
+            public UUID getPostId()    { return postId; }
+        });
     }
 
     @Test
     void toggleLike_addsLike_whenNotExists() {
-        when(likeRepo.existsById(any(CommentLikePK.class))).thenReturn(false);
-        boolean liked = commentService.toggleCommentLike(commentId, userId);
-        assertTrue(liked);
-        verify(likeRepo).save(any(CommentLike.class));
-        verify(commentRepo).incrementLikes(commentId);
+        when(likeRepo.deleteLike(commentId, userId)).thenReturn(write(false, 2));
+        when(likeRepo.insertLike(commentId, userId)).thenReturn(write(true, 3));
+        ReactionResult result = commentService.toggleCommentLike(commentId, userId);
+        assertTrue(result.isActive());
+        assertEquals(3, result.getCount());
     }
 
     @Test
     void toggleLike_removesLike_whenExists() {
-        when(likeRepo.existsById(any(CommentLikePK.class))).thenReturn(true);
-        boolean liked = commentService.toggleCommentLike(commentId, userId);
-        assertFalse(liked);
-        verify(likeRepo).deleteById(any(CommentLikePK.class));
-        verify(commentRepo).decrementLikes(commentId);
+        when(likeRepo.deleteLike(commentId, userId)).thenReturn(write(true, 1));
+        ReactionResult result = commentService.toggleCommentLike(commentId, userId);
+        assertFalse(result.isActive());
+        assertEquals(1, result.getCount());
+        verify(likeRepo, never()).insertLike(any(), any());
+    }
+
+    @Test
+    void toggleLike_bumpsOnlyTheOwningPostsCommentGeneration() {
+        when(likeRepo.deleteLike(commentId, userId)).thenReturn(write(false, 0));
+        when(likeRepo.insertLike(commentId, userId)).thenReturn(write(true, 1));
+
+        commentService.toggleCommentLike(commentId, userId);
+
+        verify(generations).bumpComments(postId);
+        verifyNoMoreInteractions(generations);
+    }
+
+    @Test
+    void setLike_leavesCachesAlone_whenNothingChanged() {
+        when(likeRepo.insertLike(commentId, userId)).thenReturn(write(false, 5));
+
+        ReactionResult result = commentService.setCommentLike(commentId, userId, true);
+
+        assertTrue(result.isActive());
+        assertFalse(result.isChanged());
+        verifyNoInteractions(generations);
+    }
+
+    @Test
+    void getCommentThreads_assemblesReplyPreviewsFromOneQuery() {
+        Comment root = comment(UUID.randomUUID(), null, "a");
+        root.setReplyCount(7);
+        Comment reply = comment(UUID.randomUUID(), root, "b");
+        Comment second = comment(UUID.randomUUID(), null, "c");
+        when(commentRepo.findThreadPreviewsByPostId(postId, 2, 0L, CommentService.REPLY_PREVIEW))
+            .thenReturn(List.of(root, reply, second));
+        when(commentRepo.countByPostIdAndParentCommentIsNull(postId)).thenReturn(5L);
+        when(userProfiles.getUsernamesByUserIds(List.of("a", "b", "c"))).thenReturn(Map.of("a", "Ann", "b", "Bob"));
+        when(likeRepo.findLikedCommentIds(eq("viewer"), anyCollection())).thenReturn(List.of(reply.getId()));
+
+        Page<CommentDTO> page = commentService.getCommentThreads(postId, 0, 2, "viewer");
+
+        assertEquals(5, page.getTotalElements());
+        List<CommentDTO> roots = page.getContent();
+        assertEquals(List.of(root.getId(), second.getId()), roots.stream().map(CommentDTO::getId).toList());
+        assertEquals(7, roots.get(0).getReplyCount());
+        assertEquals("Unknown User", roots.get(1).getUsername());
+
+        CommentDTO replyDto = roots.get(0).getReplies().get(0);
+        assertEquals("Bob", replyDto.getUsername());
+        assertEquals(root.getId(), replyDto.getParentId());
+        assertTrue(replyDto.isLiked());
+        assertFalse(roots.get(0).isLiked());
+        verify(commentRepo, times(1)).findThreadPreviewsByPostId(any(), anyInt(), anyLong(), anyInt());
+        verify(likeRepo, times(1)).findLikedCommentIds(eq("viewer"), anyCollection());
+        verify(likeRepo, never()).existsByCommentIdAndUserId(any(), any());
+    }
+
+    @Test
+    void getLikedCommentIds_queriesOnlyUncachedComments() {
+        UUID liked = UUID.randomUUID();
+        UUID notLiked = UUID.randomUUID();
+        UUID fresh = UUID.randomUUID();
+        when(likeRepo.findLikedCommentIds(eq(userId), anyCollection())).thenReturn(List.of(liked));
+
+        assertEquals(Set.of(liked), commentService.getLikedCommentIds(List.of(liked, notLiked), userId));
+        // both answers are cached, including the miss
+        assertEquals(Set.of(liked), commentService.getLikedCommentIds(List.of(liked, notLiked, fresh), userId));
+
+        verify(likeRepo).findLikedCommentIds(userId, List.of(liked, notLiked));
+        verify(likeRepo).findLikedCommentIds(userId, List.of(fresh));
+        verifyNoMoreInteractions(likeRepo);
+    }
+
+    @Test
+    void getReplies_pagesByCursor() {
+        Comment parent = comment(commentId, null, "a");
+        Comment r1 = comment(UUID.randomUUID(), parent, "b");
+        Comment r2 = comment(UUID.randomUUID(), parent, "b");
+        r2.setCreatedAt(r1.getCreatedAt().plusSeconds(1));
+        Comment r3 = comment(UUID.randomUUID(), parent, "b");
+        r3.setCreatedAt(r1.getCreatedAt().plusSeconds(2));
+        when(commentRepo.findRepliesFirst(commentId, PageRequest.of(0, 3))).thenReturn(List.of(r1, r2, r3));
+        when(userProfiles.getUsernamesByUserIds(List.of("b"))).thenReturn(Map.of("b", "Bob"));
+
+        CursorPage<CommentDTO> page = commentService.getReplies(commentId, null, 2, null);
+
+        assertEquals(List.of(r1.getId(), r2.getId()), page.getContent().stream().map(CommentDTO::getId).toList());
+        FeedCursor next = FeedCursor.decode(page.getNextCursor());
+        assertEquals(r2.getId(), next.getId());
+        assertEquals(r2.getCreatedAt(), next.getCreatedAt());
+        verifyNoInteractions(likeRepo);
+
+        assertThrows(ResponseStatusException.class, () -> commentService.getReplies(commentId, null, 0, null));
+    }
+
+    @Test
+    void addComment_reply_bumpsParentReplyCount() {
+        Post post = new Post(); post.setId(postId);
+        Comment parent = comment(commentId, null, "a");
+        when(postRepo.findById(postId)).thenReturn(Optional.of(post));
+        when(commentRepo.findById(commentId)).thenReturn(Optional.of(parent));
+        when(commentRepo.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        Comment saved = commentService.addComment(postId, userId, " hi ", commentId);
+
+        assertEquals("hi", saved.getContent());
+        assertSame(parent, saved.getParentComment());
+        verify(commentRepo).incrementReplyCount(commentId);
+        verify(generations).bumpComments(postId);
+    }
+
+    @Test
+    void backfillReplyCounts_runsOnlyWhenItClaimsTheMigration() {
+        when(migrations.claim(any())).thenReturn(1, 0);
+
+        commentService.backfillReplyCounts();
+        commentService.backfillReplyCounts();
+
+        verify(commentRepo, times(1)).backfillReplyCounts();
+    }
+
+    @Test
+    void backfillReplyCounts_recountsParentsWhoseCountWasAlreadyBumped() throws NoSuchMethodException {
+        // A parent bumped from 0 to 1 before the backfill ran still has to be recounted,
+        // so the update may only skip rows whose count is already exact
+        String sql = CommentRepository.class.getMethod("backfillReplyCounts")
+            .getAnnotation(Query.class).value();
+
+        assertTrue(sql.contains("SET reply_count = r.n"));
+        assertTrue(sql.contains("c.reply_count <> r.n"));
+        assertFalse(sql.contains("reply_count = 0"));
     }
 }
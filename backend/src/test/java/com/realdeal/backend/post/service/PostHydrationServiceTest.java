@@ -0,0 +1,135 @@
+package com.realdeal.backend.post.service;
+
+import com.realdeal.backend.authentication.model.UserProfile;
+import com.realdeal.backend.authentication.service.UserProfileService;
+import com.realdeal.backend.genre.model.Genre;
+import com.realdeal.backend.genre.service.GenreService;
+import com.realdeal.backend.post.dto.PostWithUserDTO;
+import com.realdeal.backend.post.model.Post;
+import com.realdeal.backend.post.repository.PostRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.*;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PostHydrationServiceTest {
+
+    @Mock private UserProfileService userProfileService;
+    @Mock private ReactionService reactionService;
+    @Mock private GenreService genreService;
+    @Mock private PostRepository postRepository;
+    @Mock private ReactionCounterBuffer reactionCounters;
+
+    @InjectMocks
+    private PostHydrationService hydrationService;
+
+    private Post first, second;
+    private UserProfile author;
+
+    @BeforeEach
+    void init() {
+        first  = post("author");
+        second = post("ghost");      // no profile row
+
+        author = new UserProfile();
+        author.setUserId("author");
+        author.setUsername("alice");
+        author.setLevel(4);
+    }
+
+    private Post post(String userId) {
+        Post p = new Post();
+        p.setId(UUID.randomUUID());
+        p.setUserId(userId);
+        p.setTitle("t");
+        p.setContent("c");
+        p.setCreatedAt(LocalDateTime.now());
+        return p;
+    }
+
+    @Test
+    void hydrate_resolvesWholePageWithBatchLookups() {
+        Genre action = new Genre(); action.setId(1); action.setName("Action");
+
+        when(userProfileService.getProfilesByUserIds(anyCollection()))
+            .thenReturn(Map.of("author", author));
+        when(genreService.getPostGenresByPostIds(anyCollection()))
+            .thenReturn(Map.of(first.getId(), List.of(action)));
+        when(reactionService.getLikedPostIds(anyCollection(), eq("viewer")))
+            .thenReturn(Set.of(first.getId()));
+        when(reactionService.getStarredPostIds(anyCollection(), eq("viewer")))
+            .thenReturn(Set.of(second.getId()));
+
+        List<PostWithUserDTO> dtos = hydrationService.hydrate(List.of(first, second), "viewer");
+
+        assertEquals(2, dtos.size());
+        assertEquals("alice", dtos.get(0).getUsername());
+        assertEquals(4, dtos.get(0).getLevel());
+        assertTrue(dtos.get(0).isLiked());
+        assertFalse(dtos.get(0).isStarred());
+        assertEquals("Action", dtos.get(0).getGenres().get(0).getName());
+
+        assertEquals("Unknown User", dtos.get(1).getUsername());
+        assertEquals(1, dtos.get(1).getLevel());
+        assertTrue(dtos.get(1).isStarred());
+        assertTrue(dtos.get(1).getGenres().isEmpty());
+
+        // one call per lookup kind, regardless of page size
+        verify(userProfileService, times(1)).getProfilesByUserIds(anyCollection());
+        verify(genreService, times(1)).getPostGenresByPostIds(anyCollection());
+        verify(reactionService, times(1)).getLikedPostIds(anyCollection(), eq("viewer"));
+        verify(reactionService, times(1)).getStarredPostIds(anyCollection(), eq("viewer"));
+    }
+
+    @Test
+    void hydrate_skipsReactionLookups_whenNoViewer() {
+        when(userProfileService.getProfilesByUserIds(anyCollection()))
+            .thenReturn(Map.of("author", author));
+        when(genreService.getPostGenresByPostIds(anyCollection()))
+            .thenReturn(Map.of());
+
+        PostWithUserDTO dto = hydrationService.hydrate(first, null);
+
+        assertFalse(dto.isLiked());
+        assertFalse(dto.isStarred());
+        verifyNoInteractions(reactionService);
+    }
+
+    @Test
+    void hydrate_overlaysLiveCounters_onCachedPosts() {
+        first.setLikesCount(3);     // stale copy from the page cache
+        PostRepository.CounterView live = mock(PostRepository.CounterView.class);
+        when(live.getId()).thenReturn(first.getId());
+        when(live.getLikesCount()).thenReturn(7);
+        when(live.getStarsCount()).thenReturn(2);
+
+        when(userProfileService.getProfilesByUserIds(anyCollection())).thenReturn(Map.of());
+        when(genreService.getPostGenresByPostIds(anyCollection())).thenReturn(Map.of());
+        when(postRepository.findCountersByIdIn(anyCollection())).thenReturn(List.of(live));
+        when(reactionCounters.pendingLikes(first.getId())).thenReturn(1);   // not flushed yet
+
+        PostWithUserDTO dto = hydrationService.hydrate(first, null);
+
+        assertEquals(8, dto.getLikesCount());
+        assertEquals(2, dto.getStarsCount());
+        assertEquals(3, first.getLikesCount());   // cached object left untouched
+    }
+
+    @Test
+    void hydrate_returnsEmptyList_forEmptyPage() {
+        assertTrue(hydrationService.hydrate(List.of(), "viewer").isEmpty());
+        verifyNoInteractions(userProfileService, reactionService, genreService);
+    }
+}
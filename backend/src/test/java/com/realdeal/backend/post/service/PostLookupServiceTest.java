@@ -0,0 +1,74 @@
+package com.realdeal.backend.post.service;
+
+import com.realdeal.backend.post.model.Post;
+import com.realdeal.backend.post.repository.PostRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PostLookupServiceTest {
+
+    @Mock private PostRepository postRepo;
+
+    private CacheManager cacheManager;
+    private PostLookupService lookup;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = new ConcurrentMapCacheManager();
+        lookup = new PostLookupService(cacheManager, postRepo);
+    }
+
+    private static Post post(String title) {
+        Post p = new Post();
+        p.setId(UUID.randomUUID());
+        p.setTitle(title);
+        return p;
+    }
+
+    @Test
+    void resolve_servesPrimedPostsWithoutDatabase() {
+        Post a = post("a");
+        Post b = post("b");
+        lookup.prime(List.of(a, b));
+
+        assertEquals(List.of(b, a), lookup.resolve(List.of(b.getId(), a.getId())));
+        verifyNoInteractions(postRepo);
+    }
+
+    @Test
+    void resolve_loadsOnlyMissesInOneQuery_andCachesThem() {
+        Post cached = post("cached");
+        Post missing = post("missing");
+        lookup.prime(List.of(cached));
+        when(postRepo.findWithImagesByIdIn(Set.of(missing.getId()))).thenReturn(List.of(missing));
+
+        List<Post> posts = lookup.resolve(List.of(missing.getId(), cached.getId()));
+
+        assertEquals(List.of("missing", "cached"), posts.stream().map(Post::getTitle).toList());
+        assertNotNull(cacheManager.getCache("singlePost").get(missing.getId()));
+        verify(postRepo, times(1)).findWithImagesByIdIn(any());
+    }
+
+    @Test
+    void resolve_skipsDeletedPosts() {
+        Post kept = post("kept");
+        UUID gone = UUID.randomUUID();
+        lookup.prime(List.of(kept));
+        when(postRepo.findWithImagesByIdIn(Set.of(gone))).thenReturn(List.of());
+
+        assertEquals(List.of(kept), lookup.resolve(List.of(gone, kept.getId())));
+    }
+}
@@ -1,19 +1,34 @@
 package com.realdeal.backend.post.service;
 
+import com.realdeal.backend.cache.service.CacheGenerationService;
 import com.realdeal.backend.exp.service.ExperienceService;
+import com.realdeal.backend.genre.service.GenreLeaderboardService;
+import com.realdeal.backend.post.dto.CursorPage;
 import com.realdeal.backend.post.model.Post;
+import com.realdeal.backend.post.repository.PostLikeRepository;
 import com.realdeal.backend.post.repository.PostRepository;
+import com.realdeal.backend.post.repository.PostStarRepository;
+import com.realdeal.backend.post.util.FeedCursor;
+import com.realdeal.backend.search.index.PostSearchIndex;
+import com.realdeal.backend.search.service.PostSearchService;
 import com.realdeal.backend.storage.service.UploadService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.data.domain.*;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -22,10 +37,25 @@ class PostServiceTest {
     @Mock private PostRepository postRepo;
     @Mock private UploadService uploadService;
     @Mock private ExperienceService experienceService;
+    @Mock private PostLikeRepository likeRepo;
+    @Mock private PostStarRepository starRepo;
+    @Mock private CacheGenerationService generations;
+    @Mock private PostSearchService searchIndex;
+    @Mock private HotRankingService hotRanking;
+    @Mock private GenreLeaderboardService genreLeaderboards;
 
     @InjectMocks
     private PostService postService;
 
+    @BeforeEach
+    void wireSelf() {
+        // No Spring proxy here: route the cached helper calls back to the service itself
+        ReflectionTestUtils.setField(postService, "self", postService);
+        // Real id resolver over an in-memory singlePost cache
+        ReflectionTestUtils.setField(postService, "lookup",
+            new PostLookupService(new ConcurrentMapCacheManager(), postRepo));
+    }
+
     @Test
     void createPost_savesPostWithImages() {
         when(uploadService.uploadToS3(any())).thenReturn("url");
@@ -38,12 +68,105 @@ class PostServiceTest {
         assertEquals("u1", saved.getUserId());
         verify(uploadService).uploadToS3(any());
         verify(postRepo).save(saved);
+        verify(searchIndex).indexed(saved);
         verify(experienceService).addExp(eq("u1"), anyInt());
+
+        // only the lists a new post can appear in move to a new generation
+        verify(generations).bumpFeed();
+        verify(generations).bumpUser("u1");
+        verify(generations).bumpSearch();
+        verifyNoMoreInteractions(generations);
+    }
+
+    @Test
+    void deletePost_bumpsGenerationsOfOwnerAndReactors() {
+        UUID postId = UUID.randomUUID();
+        Post post = new Post();
+        post.setId(postId);
+        post.setUserId("owner");
+
+        when(postRepo.findById(postId)).thenReturn(Optional.of(post));
+        when(likeRepo.findUserIdsByPostId(postId)).thenReturn(List.of("fan1", "fan2"));
+        when(starRepo.findUserIdsByPostId(postId)).thenReturn(List.of("fan2"));
+
+        postService.deletePost(postId);
+
+        verify(postRepo).deleteById(postId);
+        verify(searchIndex).removed(postId);
+        verify(hotRanking).removed(postId);
+        verify(genreLeaderboards).postChanged(postId);
+        verify(generations).bumpFeed();
+        verify(generations).bumpUser("owner");
+        verify(generations).bumpSearch();
+        verify(generations).bumpComments(postId);
+        verify(generations).bumpLiked("fan1");
+        verify(generations).bumpLiked("fan2");
+        verify(generations).bumpStarred("fan2");
+    }
+
+    @Test
+    void updatePost_onlyBumpsSearch_becauseListsHoldIds() {
+        UUID postId = UUID.randomUUID();
+        Post post = new Post();
+        post.setId(postId);
+        post.setUserId("owner");
+
+        when(postRepo.findById(postId)).thenReturn(Optional.of(post));
+        when(postRepo.save(post)).thenReturn(post);
+
+        postService.updatePost(postId, " new title ", "new content");
+
+        assertEquals("new title", post.getTitle());
+        verify(generations).bumpSearch();
+        verifyNoMoreInteractions(generations);
+        verifyNoInteractions(likeRepo, starRepo);
+    }
+
+    @Test
+    void getHotPosts_resolvesTheRankedPage() {
+        // 12 ranked posts: the second page of 9 holds the last 3
+        List<Post> hot = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Post post = new Post();
+            post.setId(UUID.randomUUID());
+            hot.add(post);
+        }
+        List<UUID> ids = hot.stream().map(Post::getId).toList();
+        when(hotRanking.hotPostIds(9, 9)).thenReturn(ids);
+        when(hotRanking.size()).thenReturn(12);
+        when(postRepo.findWithImagesByIdIn(any())).thenReturn(hot);
+
+        Page<Post> page = postService.getHotPosts(1, 9);
+
+        assertEquals(ids, page.getContent().stream().map(Post::getId).toList());
+        assertEquals(12, page.getTotalElements());
+        assertEquals(2, page.getTotalPages());
+        verify(postRepo, never()).findAll(any(Pageable.class));
+    }
+
+    @Test
+    void getHotPosts_rejectsOutOfRangePageOrSize() {
+        assertThrows(ResponseStatusException.class, () -> postService.getHotPosts(-1, 9));
+        assertThrows(ResponseStatusException.class, () -> postService.getHotPosts(0, 0));
+        assertThrows(ResponseStatusException.class, () -> postService.getHotPosts(0, 51));
+        assertThrows(ResponseStatusException.class, () -> postService.getHotPosts(Integer.MAX_VALUE, 9));
+        verifyNoInteractions(hotRanking, postRepo);
+    }
+
+    @Test
+    void deletePost_throwsNotFound_whenMissing() {
+        UUID postId = UUID.randomUUID();
+        when(postRepo.findById(postId)).thenReturn(Optional.empty());
+
+        assertThrows(ResponseStatusException.class, () -> postService.deletePost(postId));
+        verify(postRepo, never()).deleteById(any());
+        verifyNoInteractions(generations);
     }
 
     @Test
     void getPaginatedPosts_delegatesToRepo() {
         Post p = new Post();
+        p.setId(UUID.randomUUID());
         Page<Post> expected = new PageImpl<>(List.of(p));
         Pageable pageReq = PageRequest.of(0, 9, Sort.by(Sort.Direction.DESC, "createdAt"));
 
@@ -53,67 +176,134 @@ class PostServiceTest {
         assertEquals(expected.getContent(), actual.getContent());
     }
     @Test
-    void search_delegatesToRepoAndReturnsPagedResults() {
+    void search_fallsBackToTermPrefixQuery_untilIndexIsReady() {
         // Arrange
-        String query = "test query";
+        String query = "Test query";
         int page = 0;
         int size = 10;
         Post post = new Post();
-        List<Post> posts = List.of(post);
-        PageRequest pageRequest = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
+        post.setId(UUID.randomUUID());
+        String pattern = "^(?=.*(^|[^[:alnum:]])test)(?=.*(^|[^[:alnum:]])query)";
 
-        // Mock direct repository calls instead of going through cached methods
-        when(postRepo.search(eq(query), eq(pageRequest))).thenReturn(new PageImpl<>(posts));
-        when(postRepo.search(eq(query), eq(Pageable.unpaged())))
-            .thenReturn(new PageImpl<>(List.of(), Pageable.unpaged(), 1L));
+        when(postRepo.searchByTermPrefixes(pattern, PageRequest.of(page, size))).thenReturn(List.of(post));
+        when(postRepo.countByTermPrefixes(pattern)).thenReturn(1L);
 
         // Act
         Page<Post> result = postService.search(query, page, size);
 
         // Assert
-        assertEquals(posts, result.getContent());
+        assertEquals(List.of(post), result.getContent());
         assertEquals(1, result.getTotalElements());
-
-        // Verify repository was called correctly
-        verify(postRepo).search(query, pageRequest);
-        verify(postRepo).search(query, Pageable.unpaged());
+        // the query primed singlePost, so resolving the page fetches nothing again
+        verify(postRepo, never()).findWithImagesByIdIn(any());
     }
 
     @Test
-    void getSearchContent_fetchesFromRepo() {
-        // Arrange
-        String query = "test";
-        int page = 0;
-        int size = 10;
+    void search_usesIndex_onceItIsReady() {
         Post post = new Post();
-        List<Post> expectedContent = List.of(post);
-        PageRequest pageRequest = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
-        Page<Post> repoResult = new PageImpl<>(expectedContent);
+        post.setId(UUID.randomUUID());
+        when(searchIndex.canAnswer("phone")).thenReturn(true);
+        when(searchIndex.search("phone", 10, 10))
+            .thenReturn(new PostSearchIndex.Hits(List.of(post.getId()), 11));
+        when(searchIndex.count("phone")).thenReturn(11);
+        when(postRepo.findWithImagesByIdIn(any())).thenReturn(List.of(post));
 
-        when(postRepo.search(query, pageRequest)).thenReturn(repoResult);
+        Page<Post> result = postService.search("phone", 1, 10);
 
-        // Act
-        List<Post> result = postService.getSearchContent(query, page, size);
+        assertEquals(List.of(post), result.getContent());
+        assertEquals(11, result.getTotalElements());
+        verify(postRepo, never()).searchByTermPrefixes(any(), any());
+        verify(postRepo, never()).countByTermPrefixes(any());
+    }
 
-        // Assert
-        assertEquals(expectedContent, result);
-        verify(postRepo).search(query, pageRequest);
+
+    @Test
+    void getSearchContent_withoutTerms_skipsDatabase() {
+        assertEquals(List.of(), postService.getSearchContent("?!", 0, 10));
+        assertEquals(0, postService.getSearchCount("?!"));
+        verifyNoInteractions(postRepo);
     }
 
     @Test
-    void getSearchCount_fetchesFromRepo() {
-        // Arrange
-        String query = "test";
-        long expectedCount = 42L;
-        Page<Post> page = new PageImpl<>(List.of(), Pageable.unpaged(), expectedCount);
+    void termPrefixPattern_matchesLikeTheIndex() {
+        assertEquals("^(?=.*(^|[^[:alnum:]])phone)", PostService.termPrefixPattern("Phone phone!"));
+        assertEquals("^(?=.*\u6771)(?=.*\u4eac)", PostService.termPrefixPattern("\u6771\u4eac"));
+        assertNull(PostService.termPrefixPattern("  "));
+    }
 
-        when(postRepo.search(query, Pageable.unpaged())).thenReturn(page);
+    /* ---------- keyset pagination ---------- */
 
-        // Act
-        long result = postService.getSearchCount(query);
+    private Post postAt(LocalDateTime createdAt) {
+        Post p = new Post();
+        p.setId(UUID.randomUUID());
+        p.setCreatedAt(createdAt);
+        return p;
+    }
 
-        // Assert
-        assertEquals(expectedCount, result);
-        verify(postRepo).search(query, Pageable.unpaged());
+    @Test
+    void getPostsAfter_returnsNextCursor_whenMoreRowsExist() {
+        LocalDateTime now = LocalDateTime.now();
+        Post a = postAt(now);
+        Post b = postAt(now.minusMinutes(1));
+        Post c = postAt(now.minusMinutes(2));
+
+        // size + 1 rows are requested to detect a following page
+        when(postRepo.findFeedFirst(PageRequest.of(0, 3))).thenReturn(List.of(a, b, c));
+
+        CursorPage<Post> page = postService.getPostsAfter("", 2);
+
+        assertEquals(List.of(a, b), page.getContent());
+        FeedCursor next = FeedCursor.decode(page.getNextCursor());
+        assertEquals(b.getId(), next.getId());
+        assertEquals(b.getCreatedAt(), next.getCreatedAt());
+        verify(postRepo, never()).count();
+    }
+
+    @Test
+    void getPostsAfter_continuesFromCursor_andEndsFeed() {
+        LocalDateTime now = LocalDateTime.now();
+        Post a = postAt(now);
+        Post b = postAt(now.minusMinutes(1));
+
+        when(postRepo.findFeedAfter(a.getCreatedAt(), a.getId(), PageRequest.of(0, 10)))
+            .thenReturn(List.of(b));
+
+        CursorPage<Post> page = postService.getPostsAfter(FeedCursor.encode(a), 9);
+
+        assertEquals(List.of(b), page.getContent());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void getPostsAfter_rejectsMalformedCursor() {
+        assertThrows(ResponseStatusException.class, () -> postService.getPostsAfter("%%%", 9));
+    }
+
+    @Test
+    void getPostsAfter_rejectsOutOfRangeSize() {
+        assertThrows(ResponseStatusException.class, () -> postService.getPostsAfter(null, 0));
+        assertThrows(ResponseStatusException.class, () -> postService.getPostsAfter(null, Integer.MAX_VALUE));
+        verifyNoInteractions(postRepo);
+    }
+
+    @Test
+    void getPostsInGenresAfter_usesNormalizedGenres_andFeedCursors() {
+        LocalDateTime now = LocalDateTime.now();
+        Post a = postAt(now);
+        Post b = postAt(now.minusMinutes(1));
+
+        when(postRepo.findGenreFeedAfter(List.of(1, 3), a.getCreatedAt(), a.getId(), PageRequest.of(0, 2)))
+            .thenReturn(List.of(b));
+
+        CursorPage<Post> page = postService.getPostsInGenresAfter(List.of(3, 1, 3), FeedCursor.encode(a), 1);
+
+        assertEquals(List.of(b), page.getContent());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void getPostsInGenresAfter_rejectsTooManyGenres() {
+        List<Integer> genres = List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11);
+        assertThrows(ResponseStatusException.class, () -> postService.getPostsInGenresAfter(genres, null, 9));
     }
 }
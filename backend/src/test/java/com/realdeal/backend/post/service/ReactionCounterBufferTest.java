@@ -0,0 +1,95 @@
+package com.realdeal.backend.post.service;
+
+import com.realdeal.backend.post.config.ReactionCounterProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ReactionCounterBufferTest {
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private final PlatformTransactionManager transactions = mock(PlatformTransactionManager.class);
+    private ReactionCounterBuffer buffer;
+
+    private final UUID first = new UUID(0, 1);
+    private final UUID second = new UUID(0, 2);
+
+    @BeforeEach
+    void init() {
+        when(transactions.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        ReactionCounterProperties properties = new ReactionCounterProperties();
+        properties.setFlushInterval(Duration.ofHours(1));   // flushed by hand below
+        buffer = new ReactionCounterBuffer(jdbc, transactions, properties);
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_coalescesDeltasIntoOneBatch_orderedByPost() {
+        buffer.addLikes(second, 1);
+        buffer.addLikes(first, 1);
+        buffer.addLikes(first, 1);
+        buffer.addStars(first, 1);
+        buffer.addLikes(second, -1);        // nets out, nothing to write
+
+        assertEquals(2, buffer.pendingLikes(first));
+        assertEquals(1, buffer.flush());
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbc).batchUpdate(anyString(), rows.capture());
+        assertEquals(1, rows.getValue().size());
+        assertArrayEquals(new Object[] {2, 1, first}, rows.getValue().get(0));
+        assertEquals(0, buffer.pendingLikes(first));
+
+        assertEquals(0, buffer.flush());
+        verifyNoMoreInteractions(jdbc);
+    }
+
+    @Test
+    void flush_keepsDeltas_whenTheWriteFails() {
+        buffer.addLikes(first, 1);
+        when(jdbc.batchUpdate(anyString(), anyList()))
+            .thenThrow(new DataAccessResourceFailureException("down"));
+
+        assertThrows(DataAccessResourceFailureException.class, () -> buffer.flush());
+        assertEquals(1, buffer.pendingLikes(first));
+
+        buffer.addLikes(first, 1);
+        reset(jdbc);
+        assertEquals(1, buffer.flush());
+        verify(jdbc).batchUpdate(anyString(), argThat((List<Object[]> rows) -> rows.get(0)[0].equals(2)));
+    }
+
+    @Test
+    void add_isTakenBack_whenTheReactionRollsBack() {
+        TransactionSynchronizationManager.initSynchronization();
+        buffer.addStars(first, 1);
+        assertEquals(1, buffer.pendingStars(first));   // visible before commit
+
+        for (TransactionSynchronization sync : TransactionSynchronizationManager.getSynchronizations()) {
+            sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+        assertEquals(0, buffer.pendingStars(first));
+    }
+}
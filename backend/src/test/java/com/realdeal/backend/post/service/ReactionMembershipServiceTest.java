@@ -0,0 +1,90 @@
+package com.realdeal.backend.post.service;
+
+import com.realdeal.backend.cache.service.CacheGenerationService;
+import com.realdeal.backend.post.config.ReactionMembershipProperties;
+import com.realdeal.backend.post.repository.PostLikeRepository;
+import com.realdeal.backend.post.repository.PostStarRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactionMembershipServiceTest {
+
+    @Mock private PostLikeRepository likeRepo;
+    @Mock private PostStarRepository starRepo;
+    @Mock private CacheGenerationService generations;
+
+    private ReactionMembershipService membership;
+
+    private final UUID liked   = UUID.randomUUID();
+    private final UUID other   = UUID.randomUUID();
+    private final UUID unknown = UUID.randomUUID();
+
+    @BeforeEach
+    void init() {
+        membership = new ReactionMembershipService(likeRepo, starRepo, generations,
+            new ReactionMembershipProperties());
+    }
+
+    @Test
+    void likedAmong_loadsOnce_andAnswersFromMemory() {
+        when(generations.liked("u1")).thenReturn(3L);
+        when(likeRepo.findPostIdsByUserId("u1")).thenReturn(List.of(liked));
+
+        assertEquals(Set.of(liked), membership.likedAmong(List.of(liked, other, unknown), "u1"));
+        assertTrue(membership.hasLiked(liked, "u1"));
+        assertFalse(membership.hasLiked(other, "u1"));
+
+        verify(likeRepo, times(1)).findPostIdsByUserId("u1");
+    }
+
+    @Test
+    void localChange_isAppliedInPlace_withoutReload() {
+        when(likeRepo.findPostIdsByUserId("u1")).thenReturn(List.of(liked));
+        when(generations.liked("u1")).thenReturn(3L);
+        membership.likedAmong(List.of(liked), "u1");
+
+        // ReactionService bumps the generation, then reports the change
+        when(generations.liked("u1")).thenReturn(4L);
+        membership.likeChanged(other, "u1", true);
+        membership.likeChanged(liked, "u1", false);
+
+        assertEquals(Set.of(other), membership.likedAmong(List.of(liked, other), "u1"));
+        verify(likeRepo, times(1)).findPostIdsByUserId("u1");
+    }
+
+    @Test
+    void foreignBump_reloadsTheSet() {
+        when(generations.liked("u1")).thenReturn(3L);
+        when(likeRepo.findPostIdsByUserId("u1")).thenReturn(List.of(liked));
+        membership.likedAmong(List.of(liked), "u1");
+
+        // another node liked a post for this user
+        when(generations.liked("u1")).thenReturn(4L);
+        when(likeRepo.findPostIdsByUserId("u1")).thenReturn(List.of(liked, other));
+
+        assertEquals(Set.of(liked, other), membership.likedAmong(List.of(liked, other), "u1"));
+        verify(likeRepo, times(2)).findPostIdsByUserId("u1");
+    }
+
+    @Test
+    void likesAndStars_areSeparateSets() {
+        when(generations.liked("u1")).thenReturn(0L);
+        when(generations.starred("u1")).thenReturn(0L);
+        when(likeRepo.findPostIdsByUserId("u1")).thenReturn(List.of(liked));
+        when(starRepo.findPostIdsByUserId("u1")).thenReturn(List.of(other));
+
+        assertEquals(Set.of(liked), membership.likedAmong(List.of(liked, other), "u1"));
+        assertEquals(Set.of(other), membership.starredAmong(List.of(liked, other), "u1"));
+    }
+}
@@ -1,19 +1,19 @@
 package com.realdeal.backend.post.service;
 
+import com.realdeal.backend.cache.service.CacheGenerationService;
 import com.realdeal.backend.exp.service.ExperienceService;
-import com.realdeal.backend.post.model.Post;
-import com.realdeal.backend.post.model.PostLike;
-import com.realdeal.backend.post.model.PostStar;
-import com.realdeal.backend.post.model.pk.PostLikePK;
-import com.realdeal.backend.post.model.pk.PostStarPK;
+import com.realdeal.backend.genre.service.GenreLeaderboardService;
+import com.realdeal.backend.post.dto.ReactionResult;
 import com.realdeal.backend.post.repository.PostLikeRepository;
-import com.realdeal.backend.post.repository.PostRepository;
 import com.realdeal.backend.post.repository.PostStarRepository;
+import com.realdeal.backend.post.repository.ReactionWrite;
+import com.realdeal.backend.recommendation.service.RelatedPostService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Optional;
 import java.util.UUID;
@@ -26,8 +26,13 @@ class ReactionServiceTest {
 
     @Mock  private PostLikeRepository likeRepo;
     @Mock  private PostStarRepository starRepo;
-    @Mock  private PostRepository     postRepo;
     @Mock  private ExperienceService experienceService;
+    @Mock  private CacheGenerationService generations;
+    @Mock  private ReactionCounterBuffer counters;
+    @Mock  private ReactionMembershipService membership;
+    @Mock  private RelatedPostService relatedPosts;
+    @Mock  private HotRankingService hotRanking;
+    @Mock  private GenreLeaderboardService genreLeaderboards;
 
     @InjectMocks
     private ReactionService reactionService;
@@ -35,79 +40,124 @@ class ReactionServiceTest {
     private UUID   postId;
     private String ownerId;
     private String otherUserId;
-    private Post   post;
 
     @BeforeEach
     void init() {
         postId      = UUID.randomUUID();
         ownerId     = "owner-123";
         otherUserId = "user-456";
+    }
 
-        post = new Post();
-        post.setUserId(ownerId);
-
-        when(postRepo.findById(postId)).thenReturn(Optional.of(post));
+    /** What the single set/unset statement reports back. */
+    private Optional<ReactionWrite> write(boolean changed, int count) {
+        return Optional.of(new ReactionWrite() {
+            public boolean isChanged() { return changed; }
+            public String getOwnerId() { return ownerId; }
+            public int getCount()      { return count; }
+        });
     }
 
     /* ---------- LIKE ---------- */
 
     @Test
     void toggleLike_addsLikeAndAwardsExp_whenNotLiked() {
-        // not liked yet
-        when(likeRepo.existsById(any(PostLikePK.class))).thenReturn(false);
+        // not liked yet: the delete changes nothing, the insert does
+        when(likeRepo.deleteLike(postId, otherUserId)).thenReturn(write(false, 4));
+        when(likeRepo.insertLike(postId, otherUserId)).thenReturn(write(true, 4));
+        when(counters.pendingLikes(postId)).thenReturn(1);
+
+        ReactionResult result = reactionService.toggleLike(postId, otherUserId);
+
+        assertTrue(result.isActive());
+        assertEquals(5, result.getCount());             // stored + pending
+        verify(counters).addLikes(postId, 1);
+        verify(membership).likeChanged(postId, otherUserId, true);
+        verify(relatedPosts).likeChanged(postId, otherUserId, true);
+        verify(hotRanking).likeChanged(postId, true);
+        verify(genreLeaderboards).postChanged(postId);
+        verify(experienceService).addExp(ownerId, 2);   // +EXP to owner
+    }
 
-        boolean liked = reactionService.toggleLike(postId, otherUserId);
+    @Test
+    void toggleLike_onlyRetiresTheLikersList() {
+        when(likeRepo.deleteLike(postId, otherUserId)).thenReturn(write(false, 0));
+        when(likeRepo.insertLike(postId, otherUserId)).thenReturn(write(true, 0));
 
-        assertTrue(liked);
-        verify(likeRepo).save(any(PostLike.class));
-        verify(postRepo).incrementLikes(postId);
-        verify(experienceService).addExp(ownerId, 2);   // +EXP to owner
+        reactionService.toggleLike(postId, otherUserId);
+
+        // feed/search pages stay cached; counters are overlaid at render time
+        verify(generations).bumpLiked(otherUserId);
+        verifyNoMoreInteractions(generations);
     }
 
     @Test
     void toggleLike_removesLikeAndDeductsExp_whenAlreadyLiked() {
-        when(likeRepo.existsById(any(PostLikePK.class))).thenReturn(true);
+        when(likeRepo.deleteLike(postId, otherUserId)).thenReturn(write(true, 3));
 
-        boolean liked = reactionService.toggleLike(postId, otherUserId);
+        ReactionResult result = reactionService.toggleLike(postId, otherUserId);
 
-        assertFalse(liked);
-        verify(likeRepo).deleteById(any(PostLikePK.class));
-        verify(postRepo).decrementLikes(postId);
+        assertFalse(result.isActive());
+        verify(likeRepo, never()).insertLike(any(), any());
+        verify(counters).addLikes(postId, -1);
         verify(experienceService).addExp(ownerId, -2);  // –EXP from owner
     }
 
     @Test
     void toggleLike_neverChangesExp_whenUserLikesOwnPost() {
-        when(likeRepo.existsById(any(PostLikePK.class))).thenReturn(false);
+        when(likeRepo.deleteLike(postId, ownerId)).thenReturn(write(false, 0));
+        when(likeRepo.insertLike(postId, ownerId)).thenReturn(write(true, 0));
 
         reactionService.toggleLike(postId, ownerId);
 
         verify(experienceService, never()).addExp(anyString(), anyInt());
     }
 
+    @Test
+    void setLike_isIdempotent_whenAlreadyLiked() {
+        when(likeRepo.insertLike(postId, otherUserId)).thenReturn(write(false, 7));
+
+        ReactionResult result = reactionService.setLike(postId, otherUserId, true);
+
+        assertTrue(result.isActive());
+        assertFalse(result.isChanged());
+        assertEquals(7, result.getCount());
+        verify(counters, never()).addLikes(any(), anyInt());
+        verifyNoInteractions(experienceService, generations, membership, relatedPosts, hotRanking, genreLeaderboards);
+    }
+
+    @Test
+    void setLike_rejectsUnknownPost() {
+        when(likeRepo.deleteLike(postId, otherUserId)).thenReturn(Optional.empty());
+
+        assertThrows(ResponseStatusException.class,
+            () -> reactionService.setLike(postId, otherUserId, false));
+    }
+
     /* ---------- STAR ---------- */
 
     @Test
     void toggleStar_addsStarAndAwardsExp_whenNotStarred() {
-        when(starRepo.existsById(any(PostStarPK.class))).thenReturn(false);
+        when(starRepo.deleteStar(postId, otherUserId)).thenReturn(write(false, 0));
+        when(starRepo.insertStar(postId, otherUserId)).thenReturn(write(true, 0));
 
-        boolean starred = reactionService.toggleStar(postId, otherUserId);
+        ReactionResult result = reactionService.toggleStar(postId, otherUserId);
 
-        assertTrue(starred);
-        verify(starRepo).save(any(PostStar.class));
-        verify(postRepo).incrementStars(postId);
+        assertTrue(result.isActive());
+        verify(counters).addStars(postId, 1);
         verify(experienceService).addExp(ownerId, 2);
     }
 
     @Test
     void toggleStar_removesStarAndDeductsExp_whenAlreadyStarred() {
-        when(starRepo.existsById(any(PostStarPK.class))).thenReturn(true);
+        when(starRepo.deleteStar(postId, otherUserId)).thenReturn(write(true, 1));
 
-        boolean starred = reactionService.toggleStar(postId, otherUserId);
+        ReactionResult result = reactionService.toggleStar(postId, otherUserId);
 
-        assertFalse(starred);
-        verify(starRepo).deleteById(any(PostStarPK.class));
-        verify(postRepo).decrementStars(postId);
+        assertFalse(result.isActive());
+        verify(counters).addStars(postId, -1);
+        verify(membership).starChanged(postId, otherUserId, false);
+        verify(hotRanking).starChanged(postId, false);
+        verify(genreLeaderboards).postChanged(postId);
         verify(experienceService).addExp(ownerId, -2);
     }
 }
@@ -0,0 +1,122 @@
+package com.realdeal.backend.recommendation.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoLikeIndexTest {
+
+    private final UUID a = new UUID(0, 1), b = new UUID(0, 2), c = new UUID(0, 3), d = new UUID(0, 4);
+
+    private final CoLikeIndex index = new CoLikeIndex(10, 100, 100, 1000);
+
+    private static List<UUID> ids(List<CoLikeIndex.Neighbour> neighbours) {
+        return neighbours.stream().map(CoLikeIndex.Neighbour::getPostId).toList();
+    }
+
+    @Test
+    void postsLikedByTheSameUsers_rankFirst() {
+        index.liked("u1", a);
+        index.liked("u1", b);
+        index.liked("u2", a);
+        index.liked("u2", b);
+        index.liked("u2", c);
+
+        List<CoLikeIndex.Neighbour> related = index.related(a, 10);
+        assertEquals(List.of(b, c), ids(related));
+        assertEquals(1.0, related.get(0).getScore(), 1e-9);               // 2 / sqrt(2 * 2)
+        assertEquals(1 / Math.sqrt(2), related.get(1).getScore(), 1e-9);  // 1 / sqrt(2 * 1)
+        assertEquals(List.of(b), ids(index.related(a, 1)));
+    }
+
+    @Test
+    void unlike_takesItsPairsBackOut() {
+        index.liked("u1", a);
+        index.liked("u1", b);
+        assertEquals(List.of(b), ids(index.related(a, 10)));
+
+        index.unliked("u1", b);
+        assertTrue(index.related(a, 10).isEmpty());
+
+        index.compact();
+        assertEquals(1, index.size());   // b is gone, a still has its like
+    }
+
+    @Test
+    void repeatedLike_isCountedOnce() {
+        index.liked("u1", a);
+        index.liked("u1", b);
+        index.liked("u1", b);
+        index.liked("u2", a);
+
+        // a: 2 likes, b: 1 like, one co-like
+        assertEquals(1 / Math.sqrt(2), index.related(b, 10).get(0).getScore(), 1e-9);
+    }
+
+    @Test
+    void history_onlyPairsRecentLikes() {
+        CoLikeIndex shortMemory = new CoLikeIndex(10, 2, 100, 1000);
+        shortMemory.liked("u1", a);
+        shortMemory.liked("u1", b);
+        shortMemory.liked("u1", c);   // pairs with a and b, then a drops out of the history
+        shortMemory.liked("u1", d);
+
+        assertEquals(Set.of(b, c), Set.copyOf(ids(shortMemory.related(a, 10))));
+        assertEquals(Set.of(b, c), Set.copyOf(ids(shortMemory.related(d, 10))));
+        assertEquals(List.of(d, c), shortMemory.recentLikes("u1", 10));
+    }
+
+    @Test
+    void compact_keepsTheLargestCounts() {
+        CoLikeIndex small = new CoLikeIndex(1, 100, 1, 1000);
+        small.liked("u1", a);
+        small.liked("u1", b);
+        small.liked("u2", a);
+        small.liked("u2", b);
+        small.liked("u3", a);
+        small.liked("u3", c);
+
+        small.compact();
+        assertEquals(List.of(b), ids(small.related(a, 10)));
+    }
+
+    @Test
+    void relatedToAll_sumsOverSeeds_andSkipsThem() {
+        index.liked("u1", a);
+        index.liked("u1", c);
+        index.liked("u2", b);
+        index.liked("u2", c);
+        index.liked("u3", a);
+        index.liked("u3", d);
+
+        List<CoLikeIndex.Neighbour> related = index.relatedToAll(Set.of(a, b), 10);
+        assertEquals(List.of(c, d), ids(related));
+    }
+
+    @Test
+    void snapshot_roundTrips() throws Exception {
+        index.liked("u1", a);
+        index.liked("u1", b);
+        index.liked("u2", a);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.writeTo(new DataOutputStream(bytes));
+        CoLikeIndex restored = new CoLikeIndex(10, 100, 100, 1000);
+        restored.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(index.related(a, 10).get(0).getScore(), restored.related(a, 10).get(0).getScore(), 1e-9);
+        assertEquals(List.of(b, a), restored.recentLikes("u1", 10));
+
+        // histories survive too: a new like pairs with the restored ones
+        restored.liked("u2", c);
+        assertEquals(List.of(a), ids(restored.related(c, 10)));
+    }
+}
@@ -0,0 +1,87 @@
+package com.realdeal.backend.recommendation.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecommendationScorerTest {
+
+    /** The ordering RecommendationService used before the scorer: HashSet overlap, boxed sort. */
+    private static int[] reference(List<Integer> userGenres, List<List<Integer>> postGenres,
+                                   long[] createdAt, double decay) {
+        List<Integer> order = new ArrayList<>();
+        double[] weights = new double[postGenres.size()];
+        for (int i = 0; i < postGenres.size(); i++) {
+            Set<Integer> intersection = new HashSet<>(userGenres);
+            intersection.retainAll(postGenres.get(i));
+            weights[i] = intersection.isEmpty()
+                ? 0.1 + (0.9 * decay)
+                : (double) intersection.size() / userGenres.size() * (1.0 - decay) + decay;
+            order.add(i);
+        }
+        order.sort((a, b) -> {
+            int byWeight = Double.compare(weights[b], weights[a]);
+            return byWeight != 0 ? byWeight : Long.compare(createdAt[b], createdAt[a]);
+        });
+        return order.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int mask(List<Integer> genres) {
+        int mask = 0;
+        for (int genre : genres) {
+            mask |= 1 << genre;
+        }
+        return mask;
+    }
+
+    private static List<Integer> randomGenres(Random random, int genres, int max) {
+        List<Integer> picked = new ArrayList<>();
+        int n = random.nextInt(max + 1);
+        while (picked.size() < n) {
+            int genre = random.nextInt(genres);
+            if (!picked.contains(genre)) {
+                picked.add(genre);
+            }
+        }
+        return picked;
+    }
+
+    @Test
+    void rank_matchesTheFormerOrdering() {
+        Random random = new Random(17);
+        for (int round = 0; round < 500; round++) {
+            int count = 1 + random.nextInt(round < 400 ? 40 : 3000);
+            List<Integer> user = randomGenres(random, 12, 3);
+            if (user.isEmpty()) {
+                user.add(0);
+            }
+            List<List<Integer>> posts = new ArrayList<>();
+            int[] masks = new int[count];
+            long[] createdAt = new long[count];
+            for (int i = 0; i < count; i++) {
+                posts.add(randomGenres(random, 12, 3));
+                masks[i] = mask(posts.get(i));
+                createdAt[i] = random.nextInt(count * 4);   // distinct enough, with some ties
+            }
+            double decay = Math.min(1.0, random.nextInt(60) / 50.0);
+
+            int[] expected = reference(user, posts, createdAt, decay);
+            int[] actual = RecommendationScorer.rank(mask(user), masks, createdAt, count, decay);
+            assertArrayEquals(expected, actual);
+        }
+    }
+
+    @Test
+    void weight_fadesTowardsOne() {
+        assertEquals(0.1, RecommendationScorer.weight(0, 3, 0.0), 1e-12);
+        assertEquals(1.0, RecommendationScorer.weight(3, 3, 0.0), 1e-12);
+        assertEquals(1.0, RecommendationScorer.weight(0, 3, 1.0), 1e-12);
+        assertEquals(1.0, RecommendationScorer.weight(1, 3, 1.0), 1e-12);
+    }
+}
@@ -0,0 +1,126 @@
+package com.realdeal.backend.recommendation.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Cost of ordering recommendation candidates: {@link RecommendationScorer}
+ * (genre bitmasks, primitive arrays, index sort) against the former
+ * {@code HashMap<Post, Double>} scoring with a {@code HashSet} per post and
+ * a boxed comparator sort. Genre lookups are excluded; both start from
+ * genres already in memory.
+ * <p>
+ * Run with {@code mvn test-compile} and then the {@link #main} method, as
+ * with the other benchmarks.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecommendationScoringBenchmark {
+
+  private static final int GENRES = 12;
+
+  @Param({"10", "100", "1000", "10000"})
+  public int candidates;
+
+  private final double decay = 0.2;
+
+  private int userMask;
+  private int[] postMasks;
+  private long[] createdAt;
+
+  private List<Integer> userGenres;
+  private List<Candidate> posts;
+
+  /** Stand-in for a post: identity hash, like a Post used as a map key. */
+  private static final class Candidate {
+    final List<Integer> genreIds;
+    final long createdAt;
+
+    Candidate(List<Integer> genreIds, long createdAt) {
+      this.genreIds = genreIds;
+      this.createdAt = createdAt;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Random random = new Random(42);
+    userGenres = List.of(1, 4, 7);
+    userMask = mask(userGenres);
+
+    postMasks = new int[candidates];
+    createdAt = new long[candidates];
+    posts = new ArrayList<>(candidates);
+    for (int i = 0; i < candidates; i++) {
+      List<Integer> genres = new ArrayList<>();
+      int n = 1 + random.nextInt(3);
+      while (genres.size() < n) {
+        int genre = random.nextInt(GENRES);
+        if (!genres.contains(genre)) {
+          genres.add(genre);
+        }
+      }
+      postMasks[i] = mask(genres);
+      createdAt[i] = 1_700_000_000L + random.nextInt(1_000_000);
+      posts.add(new Candidate(genres, createdAt[i]));
+    }
+  }
+
+  @Benchmark
+  public int[] bitmask() {
+    return RecommendationScorer.rank(userMask, postMasks, createdAt, candidates, decay);
+  }
+
+  @Benchmark
+  public List<Candidate> hashSets() {
+    Map<Candidate, Double> weighted = new HashMap<>();
+    for (Candidate post : posts) {
+      Set<Integer> intersection = new HashSet<>(userGenres);
+      intersection.retainAll(post.genreIds);
+      double weight = intersection.isEmpty()
+          ? 0.1 + (0.9 * decay)
+          : (double) intersection.size() / userGenres.size() * (1.0 - decay) + decay;
+      weighted.put(post, weight);
+    }
+    return weighted.entrySet().stream()
+        .sorted((e1, e2) -> {
+          int weightCompare = Double.compare(e2.getValue(), e1.getValue());
+          if (weightCompare != 0) {
+            return weightCompare;
+          }
+          return Long.compare(e2.getKey().createdAt, e1.getKey().createdAt);
+        })
+        .map(Map.Entry::getKey)
+        .collect(Collectors.toList());
+  }
+
+  private static int mask(List<Integer> genres) {
+    int mask = 0;
+    for (int genre : genres) {
+      mask |= 1 << genre;
+    }
+    return mask;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(RecommendationScoringBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}
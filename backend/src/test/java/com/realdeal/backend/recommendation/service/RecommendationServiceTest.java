@@ -1,16 +1,29 @@
 package com.realdeal.backend.recommendation.service;
 
+import com.realdeal.backend.cache.service.CacheGenerationService;
 import com.realdeal.backend.genre.model.Genre;
+import com.realdeal.backend.genre.service.GenreCatalog;
 import com.realdeal.backend.genre.service.GenreService;
+import com.realdeal.backend.post.dto.CursorPage;
 import com.realdeal.backend.post.model.Post;
+import com.realdeal.backend.post.repository.PostRepository;
+import com.realdeal.backend.post.repository.PostRepository.CandidateRow;
+import com.realdeal.backend.post.service.PostLookupService;
+import com.realdeal.backend.recommendation.config.RecommendationProperties;
+import com.realdeal.backend.recommendation.util.SnapshotCursor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -20,16 +33,20 @@ import static org.mockito.Mockito.*;
 class RecommendationServiceTest {
 
     @Mock  private GenreService genreService;
+    @Mock  private PostRepository postRepo;
+    @Mock  private PostLookupService lookup;
+    @Mock  private CacheGenerationService generations;
+    @Spy   private RecommendationProperties properties = new RecommendationProperties();
+    @Mock  private RelatedPostService relatedPosts;
     @InjectMocks private RecommendationService recommendationService;
 
-    private Genre action, comedy;
+    // GenreCatalog bits
+    private static final int ACTION = 1, COMEDY = 1 << 1;
+
     private Post  match, noMatch;
 
     @BeforeEach
     void init() {
-        action  = new Genre(); action.setId(1); action.setName("Action");
-        comedy  = new Genre(); comedy.setId(2); comedy.setName("Comedy");
-
         match   = new Post();
         match.setId(UUID.randomUUID());
         match.setCreatedAt(LocalDateTime.now().minusMinutes(1));
@@ -37,13 +54,16 @@ class RecommendationServiceTest {
         noMatch = new Post();
         noMatch.setId(UUID.randomUUID());
         noMatch.setCreatedAt(LocalDateTime.now().minusMinutes(2));
+
+        // No Spring proxy here: route the cached snapshot call back to the service itself
+        ReflectionTestUtils.setField(recommendationService, "self", recommendationService);
     }
 
     @Test
     void applyRecommendationLogic_prioritisesGenreOverlap() {
-        when(genreService.getUserGenres("u")).thenReturn(List.of(action));
-        when(genreService.getPostGenres(match.getId())).thenReturn(List.of(action));
-        when(genreService.getPostGenres(noMatch.getId())).thenReturn(List.of(comedy));
+        when(genreService.getUserGenreMask("u")).thenReturn(ACTION);
+        when(genreService.getPostGenreMasks(List.of(noMatch.getId(), match.getId())))
+            .thenReturn(Map.of(match.getId(), ACTION, noMatch.getId(), COMEDY));
 
         List<Post> ranked = recommendationService.applyRecommendationLogic(
             List.of(noMatch, match), "u", 0);
@@ -60,10 +80,142 @@ class RecommendationServiceTest {
 
     @Test
     void returnsInputUnchanged_whenUserHasNoGenres() {
-        when(genreService.getUserGenres("u")).thenReturn(List.of());
 
         List<Post> in = List.of(match, noMatch);
         List<Post> out = recommendationService.applyRecommendationLogic(in, "u", 0);
         assertSame(in, out);
     }
+
+    @Test
+    void sameWeight_keepsNewestFirst_andPostsWithoutGenresRankLow() {
+        Post older = new Post();
+        older.setId(UUID.randomUUID());
+        older.setCreatedAt(LocalDateTime.now().minusDays(1));
+
+        when(genreService.getUserGenreMask("u")).thenReturn(ACTION | COMEDY);
+        when(genreService.getPostGenreMasks(any()))
+            .thenReturn(Map.of(older.getId(), ACTION, match.getId(), COMEDY));   // noMatch: no genres
+
+        List<Post> ranked = recommendationService.applyRecommendationLogic(
+            List.of(noMatch, older, match), "u", 10);
+
+        assertEquals(List.of(match, older, noMatch), ranked);
+    }
+
+    /* ---------- candidate pool + snapshot ---------- */
+
+    private static CandidateRow row(Post post) {
+        return new CandidateRow() {
+            public UUID getId() { return post.getId(); }
+            public LocalDateTime getCreatedAt() { return post.getCreatedAt(); }
+        };
+    }
+
+    private static Genre genre(int id) {
+        Genre genre = new Genre();
+        genre.setId(id);
+        genre.setName("g" + id);
+        return genre;
+    }
+
+    @Test
+    void snapshot_addsGenrePoolBeyondRecencyWindow_andRanksIt() {
+        Post oldInGenre = new Post();
+        oldInGenre.setId(UUID.randomUUID());
+        oldInGenre.setCreatedAt(LocalDateTime.now().minusDays(30));
+
+        GenreCatalog catalog = GenreCatalog.of(List.of(genre(1), genre(2)));   // bits ACTION, COMEDY
+        when(genreService.getCatalog()).thenReturn(catalog);
+        when(postRepo.findRecentCandidates(any(Pageable.class)))
+            .thenReturn(List.of(row(match), row(noMatch)));
+        when(postRepo.findRecentCandidatesInGenre(eq(1), any(Pageable.class)))
+            .thenReturn(List.of(row(match), row(oldInGenre)));
+        when(genreService.getPostGenreMasks(List.of(match.getId(), noMatch.getId(), oldInGenre.getId())))
+            .thenReturn(Map.of(match.getId(), ACTION, oldInGenre.getId(), ACTION, noMatch.getId(), COMEDY));
+
+        List<UUID> ranked = recommendationService.snapshot("u", ACTION, 7L, 0);
+
+        assertEquals(List.of(match.getId(), oldInGenre.getId(), noMatch.getId()), ranked);
+        verify(postRepo, never()).findRecentCandidatesInGenre(eq(2), any());
+    }
+
+    @Test
+    void snapshot_isRecencyOrder_whenUserHasNoGenres() {
+        when(postRepo.findRecentCandidates(any(Pageable.class)))
+            .thenReturn(List.of(row(match), row(noMatch)));
+
+        assertEquals(List.of(match.getId(), noMatch.getId()), recommendationService.snapshot("u", 0, 7L, 0));
+        verifyNoMoreInteractions(postRepo);
+    }
+
+    @Test
+    void snapshot_boostsPostsCoLikedWithTheUsersLikes() {
+        Post coLiked = new Post();
+        coLiked.setId(UUID.randomUUID());
+        coLiked.setCreatedAt(LocalDateTime.now().minusDays(30));
+
+        when(genreService.getCatalog()).thenReturn(GenreCatalog.of(List.of()));
+        when(relatedPosts.relatedToUser(eq("u"), anyInt())).thenReturn(Map.of(coLiked.getId(), 0.8));
+        when(postRepo.findRecentCandidates(any(Pageable.class)))
+            .thenReturn(List.of(row(match), row(noMatch)));
+        when(postRepo.findCandidatesByIdIn(List.of(coLiked.getId()))).thenReturn(List.of(row(coLiked)));
+        when(genreService.getPostGenreMasks(any())).thenReturn(Map.of());
+
+        List<UUID> ranked = recommendationService.snapshot("u", 0, 7L, 0);
+
+        // an old post beats newer ones on co-likes alone
+        assertEquals(List.of(coLiked.getId(), match.getId(), noMatch.getId()), ranked);
+    }
+
+    @Test
+    void getRecommendedPosts_pagesThroughOneSnapshot() {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(UUID.randomUUID());
+        }
+        RecommendationService snapshots = mock(RecommendationService.class);
+        ReflectionTestUtils.setField(recommendationService, "self", snapshots);
+        when(generations.feed()).thenReturn(7L);
+        when(genreService.getUserGenreMask("u")).thenReturn(ACTION);
+        when(snapshots.snapshot("u", ACTION, 7L, 50)).thenReturn(ids);
+        when(lookup.resolve(anyList())).thenReturn(List.of(match));
+
+        CursorPage<Post> first = recommendationService.getRecommendedPosts("u", "", 2, 120);
+        verify(lookup).resolve(ids.subList(0, 2));
+        SnapshotCursor cursor = SnapshotCursor.decode(first.getNextCursor(), 50);
+        assertEquals(7L, cursor.getGeneration());
+        assertEquals(50, cursor.getPostsViewed());    // decay saturates, so the count is capped
+        assertEquals(2, cursor.getOffset());
+
+        // A new post bumps the feed generation mid-scroll; later pages keep the old snapshot
+        lenient().when(generations.feed()).thenReturn(8L);
+        CursorPage<Post> second = recommendationService.getRecommendedPosts("u", first.getNextCursor(), 2, 0);
+        verify(lookup).resolve(ids.subList(2, 4));
+
+        CursorPage<Post> last = recommendationService.getRecommendedPosts("u", second.getNextCursor(), 2, 0);
+        verify(lookup).resolve(ids.subList(4, 5));
+        assertNull(last.getNextCursor());
+    }
+
+    @Test
+    void getRecommendedPosts_rejectsInvalidCursor() {
+        assertThrows(ResponseStatusException.class,
+            () -> recommendationService.getRecommendedPosts("u", "not a cursor", 9, 0));
+    }
+
+    @Test
+    void getRecommendedPosts_clampsForgedViews_andRejectsFutureGenerations() {
+        RecommendationService snapshots = mock(RecommendationService.class);
+        ReflectionTestUtils.setField(recommendationService, "self", snapshots);
+        when(generations.feed()).thenReturn(7L);
+        when(snapshots.snapshot("u", 0, 7L, 50)).thenReturn(List.of(match.getId()));
+        when(lookup.resolve(anyList())).thenReturn(List.of(match));
+
+        recommendationService.getRecommendedPosts("u", new SnapshotCursor(7L, 5000, 0).encode(), 2, 0);
+        verify(snapshots).snapshot("u", 0, 7L, 50);
+
+        String ahead = new SnapshotCursor(8L, 0, 0).encode();
+        assertThrows(ResponseStatusException.class,
+            () -> recommendationService.getRecommendedPosts("u", ahead, 2, 0));
+    }
 }
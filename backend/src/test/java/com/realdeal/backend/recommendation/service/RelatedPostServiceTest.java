@@ -0,0 +1,200 @@
+package com.realdeal.backend.recommendation.service;
+
+import com.realdeal.backend.post.repository.PostLikeRepository;
+import com.realdeal.backend.post.service.PostLookupService;
+import com.realdeal.backend.recommendation.config.RecommendationProperties;
+import com.realdeal.backend.recommendation.index.CoLikeIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RelatedPostServiceTest {
+
+    private final UUID a = new UUID(0, 1), b = new UUID(0, 2), c = new UUID(0, 3), d = new UUID(0, 4);
+
+    private final PlatformTransactionManager transactions = mock(PlatformTransactionManager.class);
+    private final RecommendationProperties properties = new RecommendationProperties();
+    private final List<RelatedPostService> started = new ArrayList<>();
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void init() {
+        when(transactions.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        properties.getCoLike().setCompactionInterval(Duration.ofHours(1));   // compacted by hand below
+        properties.getCoLike().setRebuildInterval(Duration.ofHours(1));
+        properties.getCoLike().setSnapshotPath(dir.resolve("co-likes.bin").toString());
+    }
+
+    @AfterEach
+    void shutdown() {
+        started.forEach(RelatedPostService::shutdown);
+    }
+
+    private RelatedPostService service(PostLikeRepository likeRepo) {
+        RelatedPostService service = new RelatedPostService(likeRepo, mock(PostLookupService.class),
+            mock(StringRedisTemplate.class), properties, transactions);
+        started.add(service);
+        return service;
+    }
+
+    private static CoLikeIndex model(RelatedPostService service) {
+        return (CoLikeIndex) ReflectionTestUtils.getField(service, "index");
+    }
+
+    private static PostLikeRepository.LikeRow like(String userId, UUID postId, LocalDateTime createdAt) {
+        return new PostLikeRepository.LikeRow() {
+            public String getUserId()           { return userId; }
+            public UUID getPostId()             { return postId; }
+            public LocalDateTime getCreatedAt() { return createdAt; }
+        };
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage("channel".getBytes(StandardCharsets.UTF_8), body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Build a model from the given likes and write its snapshot, as a node shutting down would. */
+    private void snapshot(PostLikeRepository.LikeRow... likes) throws Exception {
+        PostLikeRepository likeRepo = mock(PostLikeRepository.class);
+        when(likeRepo.streamLikes()).thenReturn(Stream.of(likes));
+        RelatedPostService previous = service(likeRepo);
+        previous.load();
+        previous.compact();
+    }
+
+    @Test
+    void load_buildsFromPostLikes_withoutASnapshot() {
+        LocalDateTime now = LocalDateTime.now();
+        PostLikeRepository likeRepo = mock(PostLikeRepository.class);
+        when(likeRepo.streamLikes()).thenReturn(Stream.of(
+            like("u1", a, now), like("u1", b, now), like("u2", a, now), like("u2", b, now)));
+        RelatedPostService service = service(likeRepo);
+        assertFalse(service.isReady());
+
+        service.load();
+
+        assertTrue(service.isReady());
+        assertEquals(b, model(service).related(a, 10).get(0).getPostId());
+        verify(likeRepo, never()).streamLikesSince(any());
+    }
+
+    @Test
+    void load_restoresTheSnapshot_andReplaysLikesMadeSince() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        snapshot(like("u1", a, now), like("u1", b, now));
+
+        PostLikeRepository likeRepo = mock(PostLikeRepository.class);
+        when(likeRepo.streamLikesSince(any())).thenReturn(Stream.of(like("u1", c, now.plusSeconds(30))));
+        when(likeRepo.findLikedPostIds(eq("u1"), any())).thenReturn(List.of(a, b));
+        RelatedPostService service = service(likeRepo);
+
+        service.load();
+
+        assertTrue(service.isReady());
+        assertEquals(List.of(c, b, a), model(service).recentLikes("u1", 10));
+        verify(likeRepo, never()).streamLikes();
+    }
+
+    @Test
+    void load_takesBackUnlikesMadeWhileTheNodeWasDown() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        snapshot(like("u1", a, now), like("u1", b, now), like("u2", a, now), like("u2", b, now));
+
+        PostLikeRepository likeRepo = mock(PostLikeRepository.class);
+        when(likeRepo.streamLikesSince(any())).thenReturn(Stream.of(like("u1", c, now.plusSeconds(30))));
+        when(likeRepo.findLikedPostIds(eq("u1"), any())).thenReturn(List.of(b));   // a was unliked
+        RelatedPostService service = service(likeRepo);
+
+        service.load();
+
+        CoLikeIndex model = model(service);
+        assertEquals(List.of(c, b), model.recentLikes("u1", 10));
+        // a and b are now co-liked by u2 alone: 1 / sqrt(1 * 2)
+        assertEquals(1 / Math.sqrt(2), model.related(a, 10).get(0).getScore(), 1e-9);
+    }
+
+    @Test
+    void load_skipsLikesFromBeforeTheSnapshot_thatMayAlreadyBeCounted() throws Exception {
+        properties.getCoLike().setHistorySize(2);
+        LocalDateTime now = LocalDateTime.now();
+        // u1's history is full; u3's is not; u2 has none
+        snapshot(like("u1", a, now), like("u1", b, now), like("u3", a, now));
+        LocalDateTime beforeSnapshot = LocalDateTime.now().minusSeconds(30);
+        LocalDateTime afterSnapshot = LocalDateTime.now().plusSeconds(30);
+
+        PostLikeRepository likeRepo = mock(PostLikeRepository.class);
+        when(likeRepo.streamLikesSince(any())).thenReturn(Stream.of(
+            like("u1", c, beforeSnapshot),      // maybe trimmed from u1's full history: skipped
+            like("u1", d, afterSnapshot),
+            like("u2", c, beforeSnapshot),      // no history to tell: skipped
+            like("u2", d, afterSnapshot),
+            like("u3", c, beforeSnapshot)));    // would be in u3's history if counted: replayed
+        when(likeRepo.findLikedPostIds(eq("u1"), any())).thenReturn(List.of(a, b));
+        when(likeRepo.findLikedPostIds(eq("u3"), any())).thenReturn(List.of(a));
+        RelatedPostService service = service(likeRepo);
+
+        service.load();
+
+        CoLikeIndex model = model(service);
+        assertEquals(List.of(d, b), model.recentLikes("u1", 10));
+        assertEquals(List.of(d), model.recentLikes("u2", 10));
+        assertEquals(List.of(c, a), model.recentLikes("u3", 10));
+        verify(likeRepo, never()).findLikedPostIds(eq("u2"), any());
+    }
+
+    @Test
+    void load_ignoresASnapshotOlderThanTheMaxAge() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        snapshot(like("u1", a, now));
+        properties.getCoLike().setSnapshotMaxAge(Duration.ofMillis(-1));
+
+        PostLikeRepository likeRepo = mock(PostLikeRepository.class);
+        when(likeRepo.streamLikes()).thenReturn(Stream.of(like("u1", b, now)));
+        RelatedPostService service = service(likeRepo);
+
+        service.load();
+
+        assertEquals(List.of(b), model(service).recentLikes("u1", 10));
+        verify(likeRepo, never()).streamLikesSince(any());
+    }
+
+    @Test
+    void load_replaysLikesAndUnlikesArrivingMidLoad_ontoTheNewModel() {
+        LocalDateTime now = LocalDateTime.now();
+        PostLikeRepository likeRepo = mock(PostLikeRepository.class);
+        RelatedPostService service = service(likeRepo);
+        when(likeRepo.streamLikes()).thenAnswer(inv -> {
+            // other nodes' changes land while the scan runs, after it read these rows
+            service.onMessage(message("other-node|L|" + c + "|u2"), null);
+            service.onMessage(message("other-node|U|" + a + "|u1"), null);
+            return Stream.of(like("u1", a, now), like("u1", b, now));
+        });
+
+        service.load();
+
+        CoLikeIndex model = model(service);
+        assertEquals(List.of(b), model.recentLikes("u1", 10));
+        assertEquals(List.of(c), model.recentLikes("u2", 10));
+    }
+}
@@ -0,0 +1,58 @@
+package com.realdeal.backend.search.controller;
+
+import com.realdeal.backend.exp.config.DailyExpFilter;
+import com.realdeal.backend.search.dto.SuggestionDTO;
+import com.realdeal.backend.search.dto.SuggestionsDTO;
+import com.realdeal.backend.search.service.SuggestionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(
+    controllers = SuggestionController.class,
+    excludeFilters = @ComponentScan.Filter(
+        type = FilterType.ASSIGNABLE_TYPE,
+        classes = DailyExpFilter.class
+    )
+)
+class SuggestionControllerTest {
+
+    @Autowired private MockMvc mvc;
+
+    @MockitoBean
+    private SuggestionService service;
+
+    @Test
+    void suggest_returnsGroupedSuggestions() throws Exception {
+        when(service.suggest("iph", 5)).thenReturn(new SuggestionsDTO(
+            List.of(new SuggestionDTO("p1", "iPhone 15 Pro")),
+            List.of(),
+            List.of(new SuggestionDTO("u1", "iphonefan"))));
+
+        mvc.perform(get("/api/search/suggest").param("q", "iph"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.posts[0].text").value("iPhone 15 Pro"))
+            .andExpect(jsonPath("$.genres").isEmpty())
+            .andExpect(jsonPath("$.users[0].id").value("u1"));
+    }
+
+    @Test
+    void suggest_capsLimit() throws Exception {
+        when(service.suggest("a", 10)).thenReturn(new SuggestionsDTO(List.of(), List.of(), List.of()));
+
+        mvc.perform(get("/api/search/suggest").param("q", "a").param("limit", "500"))
+            .andExpect(status().isOk());
+        verify(service).suggest("a", 10);
+    }
+}
@@ -0,0 +1,113 @@
+package com.realdeal.backend.search.index;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query cost of {@link PostSearchIndex} over a generated corpus (1M posts
+ * by default): newest-first paging, BM25 ranking with top-K selection, and
+ * the match count. Words follow a Zipf-like distribution so queries range
+ * from very common terms (large posting lists) to rare ones.
+ * <p>
+ * Building the corpus takes a while and a few GB of heap (see
+ * {@code @Fork}); run with {@code mvn test-compile} and then the
+ * {@link #main} method, as with the other benchmarks.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+@State(Scope.Benchmark)
+public class PostSearchBenchmark {
+
+  private static final int VOCABULARY = 50_000;
+
+  @Param({"1000000"})
+  public int posts;
+
+  /** common: top-10 word; rare: tail word; pair: two mid words; prefix: 2-letter prefix. */
+  @Param({"common", "rare", "pair", "prefix"})
+  public String shape;
+
+  private PostSearchIndex index;
+  private String query;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Random random = new Random(42);
+    index = new PostSearchIndex();
+    LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+    for (int i = 0; i < posts; i++) {
+      index.put(UUID.randomUUID(), text(random, 3 + random.nextInt(6)),
+          text(random, 20 + random.nextInt(80)), start.plusSeconds(i * 30L));
+    }
+
+    query = switch (shape) {
+      case "common" -> word(3);
+      case "rare" -> word(VOCABULARY - 10);
+      case "pair" -> word(400) + " " + word(900);
+      default -> "wa";
+    };
+    System.out.printf("%n%d posts, %d terms, '%s' matches %d%n",
+        index.size(), index.termCount(), query, index.count(query));
+  }
+
+  @Benchmark
+  public PostSearchIndex.Hits recent() {
+    return index.search(query, 0, 9);
+  }
+
+  @Benchmark
+  public PostSearchIndex.Hits relevance() {
+    return index.rank(query, 0, 9);
+  }
+
+  @Benchmark
+  public int count() {
+    return index.count(query);
+  }
+
+  private static String text(Random random, int words) {
+    StringBuilder text = new StringBuilder(words * 8);
+    for (int i = 0; i < words; i++) {
+      text.append(word(zipf(random))).append(' ');
+    }
+    return text.toString();
+  }
+
+  /** Rank in [0, VOCABULARY), heavily skewed towards small ranks. */
+  private static int zipf(Random random) {
+    return (int) Math.min(VOCABULARY - 1, Math.exp(random.nextDouble() * Math.log(VOCABULARY)) - 1);
+  }
+
+  /** Distinct pronounceable-ish word per rank, e.g. "wa", "wabe", "wacidu". */
+  private static String word(int rank) {
+    String consonants = "bcdfgklmnprstvz";
+    String vowels = "aeiou";
+    StringBuilder word = new StringBuilder("w");
+    int n = rank;
+    do {
+      word.append(vowels.charAt(n % vowels.length()));
+      n /= vowels.length();
+      if (n > 0) {
+        word.append(consonants.charAt(n % consonants.length()));
+        n /= consonants.length();
+      }
+    } while (n > 0);
+    return word.toString();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(PostSearchBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}
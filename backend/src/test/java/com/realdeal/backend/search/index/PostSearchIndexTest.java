@@ -0,0 +1,120 @@
+package com.realdeal.backend.search.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostSearchIndexTest {
+
+    private final PostSearchIndex index = new PostSearchIndex();
+    private final LocalDateTime now = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    private UUID add(String title, String content, int minutesAgo) {
+        UUID id = UUID.randomUUID();
+        index.put(id, title, content, now.minusMinutes(minutesAgo));
+        return id;
+    }
+
+    @Test
+    void tokenizer_splitsWordsAndCjkCharacters() {
+        assertEquals(List.of("iphone", "15", "pro", "半", "价"),
+            SearchTokenizer.tokenize("iPhone-15 Pro, 半价!"));
+    }
+
+    @Test
+    void search_matchesEveryTokenAsPrefix_newestFirst() {
+        UUID old = add("iPhone 15 Pro", "great deal", 30);
+        UUID recent = add("Used iPhone 15", "screen is fine", 5);
+        UUID newest = add("iPhone 14", "15% off", 1);   // "15" only in the content still counts
+        add("Galaxy S24", "deal of the day", 2);
+
+        PostSearchIndex.Hits hits = index.search("iph 15", 0, 10);
+
+        assertEquals(3, hits.getTotal());
+        assertEquals(List.of(newest, recent, old), hits.getIds());
+    }
+
+    @Test
+    void search_pagesThroughMatches() {
+        List<UUID> newestFirst = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            newestFirst.add(add("coupon " + i, "text", i));
+        }
+
+        assertEquals(newestFirst.subList(0, 10), index.search("coupon", 0, 10).getIds());
+        assertEquals(newestFirst.subList(20, 25), index.search("coupon", 20, 10).getIds());
+        assertTrue(index.search("coupon", 30, 10).getIds().isEmpty());
+        assertEquals(25, index.count("COUPON"));
+    }
+
+    @Test
+    void put_replacesOldTerms_andRemoveDropsPost() {
+        UUID id = add("Air fryer", "half price", 0);
+
+        index.put(id, "Rice cooker", "half price", now);
+        assertEquals(0, index.count("fryer"));
+        assertEquals(1, index.count("rice"));
+
+        index.remove(id);
+        assertEquals(0, index.count("price"));
+        assertEquals(0, index.size());
+        assertEquals(0, index.termCount());
+    }
+
+    @Test
+    void rank_prefersTitleHitsAndRepeatedTerms_overRecency() {
+        UUID titleHit = add("Cheap airpods", "bought last week", 60);
+        UUID contentOnce = add("Weekend haul", "also some airpods, and socks, and a hat", 1);
+        UUID contentTwice = add("Headphones", "airpods vs airpods pro", 30);
+
+        PostSearchIndex.Hits hits = index.rank("airpods", 0, 10);
+
+        // the newest post has a single hit in a long body, so it comes last
+        assertEquals(3, hits.getTotal());
+        assertEquals(contentOnce, hits.getIds().get(2));
+        assertTrue(hits.getIds().containsAll(List.of(titleHit, contentTwice)));
+        // recency order is unchanged for the default mode
+        assertEquals(contentOnce, index.search("airpods", 0, 10).getIds().get(0));
+    }
+
+    @Test
+    void rank_weighsRareTermsHigher_andPages() {
+        UUID rare = add("deal", "switch oled", 50);
+        for (int i = 0; i < 20; i++) {
+            add("deal " + i, "common words", i);
+        }
+
+        assertEquals(rare, index.rank("deal oled", 0, 1).getIds().get(0));
+        assertEquals(1, index.rank("deal oled", 0, 5).getTotal());
+        assertEquals(21, index.rank("deal", 0, 5).getTotal());
+        assertEquals(5, index.rank("deal", 5, 5).getIds().size());
+    }
+
+    @Test
+    void highlighter_marksPrefixHits_andCutsAroundThem() {
+        String text = "Intro. ".repeat(40) + "The Switch OLED was 20% off at the outlet. " + "Outro. ".repeat(40);
+
+        SearchHighlighter.Snippet snippet = SearchHighlighter.snippet(text, "swit oled", 80);
+
+        assertTrue(snippet.getText().startsWith("…") && snippet.getText().endsWith("…"));
+        assertTrue(snippet.getText().length() <= 82);
+        assertEquals(2, snippet.getHighlights().size());
+        int[] first = snippet.getHighlights().get(0);
+        assertEquals("Switch", snippet.getText().substring(first[0], first[1]));
+
+        int[] title = SearchHighlighter.highlights("Switch OLED bundle", "oled").get(0);
+        assertArrayEquals(new int[] {7, 11}, title);
+    }
+
+    @Test
+    void search_withoutTokens_matchesNothing() {
+        add("anything", "at all", 0);
+
+        assertEquals(0, index.search("!!", 0, 10).getTotal());
+    }
+}
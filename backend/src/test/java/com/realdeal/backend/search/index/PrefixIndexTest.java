@@ -0,0 +1,73 @@
+package com.realdeal.backend.search.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefixIndexTest {
+
+    private final PrefixIndex<Integer> index = new PrefixIndex<>();
+
+    private List<String> texts(String prefix, int limit) {
+        return index.suggest(prefix, limit).stream()
+            .map(PrefixIndex.Suggestion::getText)
+            .collect(Collectors.toList());
+    }
+
+    @Test
+    void suggest_matchesAnyWordStart_heaviestFirst() {
+        index.put(1, "iPhone 15 Pro", 10);
+        index.put(2, "Used iPhone 14", 30);
+        index.put(3, "Pixel 8", 20);
+
+        assertEquals(List.of("Used iPhone 14", "iPhone 15 Pro"), texts("IPH", 5));
+        assertEquals(List.of("iPhone 15 Pro"), texts("15 p", 5));
+        assertEquals(List.of("Pixel 8", "iPhone 15 Pro"), texts("p", 5));
+        assertTrue(texts("hone", 5).isEmpty());   // not a word start
+        assertTrue(texts("  ", 5).isEmpty());
+    }
+
+    @Test
+    void put_replacesText_andRemoveDropsEntry() {
+        index.put(1, "Air fryer", 1);
+        index.put(1, "Rice cooker", 1);
+        assertTrue(texts("air", 5).isEmpty());
+        assertEquals(List.of(1), index.suggest("rice", 5).stream()
+            .map(PrefixIndex.Suggestion::getKey).collect(Collectors.toList()));
+
+        index.remove(1);
+        assertTrue(texts("rice", 5).isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void suggest_collapsesRepeatedTexts_andHonoursLimit() {
+        index.put(1, "Coffee coffee", 3);
+        index.put(2, "COFFEE COFFEE", 2);
+        index.put(3, "Coffee grinder", 1);
+
+        assertEquals(List.of("Coffee coffee", "Coffee grinder"), texts("cof", 5));
+        assertEquals(List.of("Coffee coffee"), texts("cof", 1));
+    }
+
+    @Test
+    void suggest_staysCorrectAcrossMergesAndLargeRanges() {
+        index.deferMerges();
+        for (int i = 0; i < 3 * PrefixIndex.MERGE_THRESHOLD; i++) {
+            index.put(i, "deal " + i, i);
+        }
+        index.compact();
+        assertEquals(List.of("deal 12287", "deal 12286"), texts("de", 2));
+
+        // batched merges after the bulk load, and a removal inside a cached range
+        for (int i = 0; i < PrefixIndex.MERGE_THRESHOLD + 10; i++) {
+            index.put(100_000 + i, "deal new " + i, 100_000 + i);
+        }
+        index.remove(100_000 + PrefixIndex.MERGE_THRESHOLD + 9);
+        assertEquals(List.of("deal new 4104", "deal new 4103"), texts("de", 2));
+        assertEquals(List.of("deal new 1234"), texts("1234", 1));
+    }
+}